@@ -41,6 +41,7 @@ import com.ibm.wala.ssa.IRFactory;
 import com.ibm.wala.util.WalaException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -56,6 +57,16 @@ public class NodejsCallGraphBuilderUtil extends JSCallGraphUtil {
 
   public static PropagationCallGraphBuilder makeCGBuilder(File workingDir, File mainFile)
       throws IOException, IllegalArgumentException, WalaException {
+    return makeCGBuilder(workingDir, mainFile, null);
+  }
+
+  /**
+   * @param summaryDir if not null, modules of installed packages are not analyzed, but replaced by
+   *     summaries stored in this directory; see {@link NodejsPackageSummaries}
+   */
+  public static PropagationCallGraphBuilder makeCGBuilder(
+      File workingDir, File mainFile, Path summaryDir)
+      throws IOException, IllegalArgumentException, WalaException {
     JavaScriptTranslatorFactory translatorFactory = new CAstRhinoTranslatorFactory();
     JSCallGraphUtil.setTranslatorFactory(translatorFactory);
 
@@ -100,6 +111,10 @@ public class NodejsCallGraphBuilderUtil extends JSCallGraphUtil {
         new StandardFunctionTargetSelector(cha, options.getMethodTargetSelector());
     NodejsRequireTargetSelector requireTargetSelector =
         new NodejsRequireTargetSelector(workingDir, baseSelector);
+    if (summaryDir != null) {
+      requireTargetSelector.setPackageSummaries(
+          new NodejsPackageSummaries(summaryDir, translatorFactory));
+    }
     options.setSelector(requireTargetSelector);
 
     JSCFABuilder builder =
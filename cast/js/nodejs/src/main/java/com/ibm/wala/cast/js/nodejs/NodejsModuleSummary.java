@@ -0,0 +1,765 @@
+/*
+ * Copyright (c) 2002 - 2016 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.js.nodejs;
+
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.CAstNode;
+import com.ibm.wala.cast.tree.CAstSymbol;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A summary of what a CommonJS module exports: for each exported function, how many parameters it
+ * takes, which of its parameters it invokes (and with which of its other parameters as arguments),
+ * and what it may return. Exports that re-export another module with {@code require} record which
+ * module they require, and other exports are only recorded by name.
+ *
+ * <p>A summary is complete only if the module exports nothing whose effects it cannot describe,
+ * such as objects with methods, functions that return such objects or have members of their own,
+ * functions that pass their callbacks on to other functions, store them in properties or invoke
+ * them from nested closures, or an exports object that is used other than by assigning its
+ * properties. Incomplete summaries are still stored, so that a module is not summarized again, but
+ * the module's own code should be analyzed in their place.
+ *
+ * <p>Summaries are extracted syntactically from the module's CAst by {@link
+ * #summarize(CAstEntity)}, stored as JSON, and linked into an analysis by {@link #toStubSource()},
+ * which renders them as a small JavaScript module with the same exports. This lets the call graph
+ * builder treat dependencies as black boxes whose effects are described by their summaries, rather
+ * than analyzing their code.
+ *
+ * @see NodejsPackageSummaries
+ */
+public class NodejsModuleSummary {
+
+  /**
+   * The effects of an exported function. Parameter indices are zero-based and do not count the
+   * function itself or the receiver.
+   */
+  public static final class FunctionSummary {
+    private final int parameterCount;
+
+    /** each call is the index of the invoked parameter, then one entry per argument */
+    private final List<int[]> calls;
+
+    private final Set<Integer> returnedParameters;
+
+    private final boolean returnsObject;
+
+    private final boolean returnsThis;
+
+    public FunctionSummary(
+        int parameterCount,
+        List<int[]> calls,
+        Set<Integer> returnedParameters,
+        boolean returnsObject,
+        boolean returnsThis) {
+      this.parameterCount = parameterCount;
+      this.calls = calls;
+      this.returnedParameters = returnedParameters;
+      this.returnsObject = returnsObject;
+      this.returnsThis = returnsThis;
+    }
+
+    public int getParameterCount() {
+      return parameterCount;
+    }
+
+    /**
+     * @return the callback invocations made by the function. Each entry holds the index of the
+     *     invoked parameter, followed by the index of the parameter passed as each argument, or -1
+     *     for arguments that are not parameters.
+     */
+    public List<int[]> getCalls() {
+      return Collections.unmodifiableList(calls);
+    }
+
+    public Set<Integer> getReturnedParameters() {
+      return Collections.unmodifiableSet(returnedParameters);
+    }
+
+    public boolean returnsObject() {
+      return returnsObject;
+    }
+
+    public boolean returnsThis() {
+      return returnsThis;
+    }
+
+    private JSONObject toJSON() {
+      JSONObject result = new JSONObject();
+      result.put("params", parameterCount);
+      JSONArray callsJson = new JSONArray();
+      for (int[] call : calls) {
+        callsJson.put(new JSONArray(call));
+      }
+      result.put("calls", callsJson);
+      result.put("returns", new JSONArray(returnedParameters));
+      result.put("returnsObject", returnsObject);
+      result.put("returnsThis", returnsThis);
+      return result;
+    }
+
+    private static FunctionSummary fromJSON(JSONObject json) {
+      List<int[]> calls = new ArrayList<>();
+      JSONArray callsJson = json.getJSONArray("calls");
+      for (int i = 0; i < callsJson.length(); i++) {
+        JSONArray callJson = callsJson.getJSONArray(i);
+        int[] call = new int[callJson.length()];
+        for (int j = 0; j < call.length; j++) {
+          call[j] = callJson.getInt(j);
+        }
+        calls.add(call);
+      }
+      Set<Integer> returned = new TreeSet<>();
+      JSONArray returnsJson = json.getJSONArray("returns");
+      for (int i = 0; i < returnsJson.length(); i++) {
+        returned.add(returnsJson.getInt(i));
+      }
+      return new FunctionSummary(
+          json.getInt("params"),
+          calls,
+          returned,
+          json.getBoolean("returnsObject"),
+          json.getBoolean("returnsThis"));
+    }
+
+    /** renders this summary as a JavaScript function expression with the same effects */
+    private String toSource() {
+      StringBuilder result = new StringBuilder("function (");
+      for (int i = 0; i < parameterCount; i++) {
+        result.append(i == 0 ? "" : ", ").append('p').append(i);
+      }
+      result.append(") {");
+      boolean returns = !returnedParameters.isEmpty() || returnsObject || returnsThis;
+      if (returns) {
+        result.append(" var r;");
+      }
+      for (int[] call : calls) {
+        result.append(" p").append(call[0]).append('(');
+        for (int j = 1; j < call.length; j++) {
+          result.append(j == 1 ? "" : ", ").append(call[j] == -1 ? "{}" : "p" + call[j]);
+        }
+        result.append(");");
+      }
+      // the analysis is flow-insensitive, so successive assignments merge the possible results
+      for (int p : returnedParameters) {
+        result.append(" r = p").append(p).append(';');
+      }
+      if (returnsObject) {
+        result.append(" r = {};");
+      }
+      if (returnsThis) {
+        result.append(" r = this;");
+      }
+      if (returns) {
+        result.append(" return r;");
+      }
+      return result.append(" }").toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof FunctionSummary)) return false;
+      FunctionSummary that = (FunctionSummary) o;
+      if (parameterCount != that.parameterCount
+          || returnsObject != that.returnsObject
+          || returnsThis != that.returnsThis
+          || !returnedParameters.equals(that.returnedParameters)
+          || calls.size() != that.calls.size()) {
+        return false;
+      }
+      for (int i = 0; i < calls.size(); i++) {
+        if (!Arrays.equals(calls.get(i), that.calls.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(parameterCount, returnedParameters, returnsObject, returnsThis);
+    }
+  }
+
+  /** what {@code module.exports} itself was set to, if it was set to a function */
+  private final FunctionSummary moduleExport;
+
+  /** the module that {@code module.exports} was set to the exports of, if any */
+  private final String moduleRequire;
+
+  /**
+   * exported properties, in the order they were found; functions map to their summary, other values
+   * to null
+   */
+  private final Map<String, FunctionSummary> exports;
+
+  /** exported properties that hold the exports of another module, mapped to that module */
+  private final Map<String, String> requires;
+
+  private final boolean complete;
+
+  public NodejsModuleSummary(FunctionSummary moduleExport, Map<String, FunctionSummary> exports) {
+    this(moduleExport, null, exports, Collections.emptyMap(), true);
+  }
+
+  /**
+   * @param moduleRequire the argument of the {@code require} call that {@code module.exports} was
+   *     set to, or null
+   * @param requires the argument of the {@code require} call that each re-exported property was set
+   *     to; these properties must also be keys of {@code exports}, mapped to null
+   * @param complete whether the summary describes all effects of the module's exports
+   */
+  public NodejsModuleSummary(
+      FunctionSummary moduleExport,
+      String moduleRequire,
+      Map<String, FunctionSummary> exports,
+      Map<String, String> requires,
+      boolean complete) {
+    this.moduleExport = moduleExport;
+    this.moduleRequire = moduleRequire;
+    this.exports = exports;
+    this.requires = requires;
+    this.complete = complete;
+  }
+
+  /**
+   * @return the summary of {@code module.exports}, or null if the module does not replace it with a
+   *     function
+   */
+  public FunctionSummary getModuleExport() {
+    return moduleExport;
+  }
+
+  /**
+   * @return the module whose exports {@code module.exports} is set to, as passed to {@code
+   *     require}, or null if the module does not re-export another one
+   */
+  public String getModuleRequire() {
+    return moduleRequire;
+  }
+
+  /**
+   * @return the exported properties. Function exports map to their summary, and any other exports
+   *     to null.
+   */
+  public Map<String, FunctionSummary> getExports() {
+    return Collections.unmodifiableMap(exports);
+  }
+
+  /**
+   * @return the exported properties that re-export another module, mapped to the module as passed
+   *     to {@code require}
+   */
+  public Map<String, String> getRequires() {
+    return Collections.unmodifiableMap(requires);
+  }
+
+  /**
+   * @return whether the summary describes all effects of the module's exports; if not, the module
+   *     should be analyzed instead
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public JSONObject toJSON() {
+    JSONObject result = new JSONObject();
+    if (moduleExport != null) {
+      result.put("module", moduleExport.toJSON());
+    }
+    if (moduleRequire != null) {
+      result.put("moduleRequire", moduleRequire);
+    }
+    JSONArray exportsJson = new JSONArray();
+    for (Map.Entry<String, FunctionSummary> export : exports.entrySet()) {
+      JSONObject exportJson = new JSONObject();
+      exportJson.put("name", export.getKey());
+      if (export.getValue() != null) {
+        exportJson.put("function", export.getValue().toJSON());
+      }
+      if (requires.containsKey(export.getKey())) {
+        exportJson.put("require", requires.get(export.getKey()));
+      }
+      exportsJson.put(exportJson);
+    }
+    result.put("exports", exportsJson);
+    result.put("complete", complete);
+    return result;
+  }
+
+  public static NodejsModuleSummary fromJSON(JSONObject json) {
+    FunctionSummary moduleExport =
+        json.has("module") ? FunctionSummary.fromJSON(json.getJSONObject("module")) : null;
+    Map<String, FunctionSummary> exports = new LinkedHashMap<>();
+    Map<String, String> requires = new LinkedHashMap<>();
+    JSONArray exportsJson = json.getJSONArray("exports");
+    for (int i = 0; i < exportsJson.length(); i++) {
+      JSONObject exportJson = exportsJson.getJSONObject(i);
+      String name = exportJson.getString("name");
+      exports.put(
+          name,
+          exportJson.has("function")
+              ? FunctionSummary.fromJSON(exportJson.getJSONObject("function"))
+              : null);
+      if (exportJson.has("require")) {
+        requires.put(name, exportJson.getString("require"));
+      }
+    }
+    return new NodejsModuleSummary(
+        moduleExport,
+        json.optString("moduleRequire", null),
+        exports,
+        requires,
+        json.getBoolean("complete"));
+  }
+
+  /**
+   * Renders this summary as the source of a CommonJS module with the same exports, for use in place
+   * of the summarized module's own code.
+   */
+  public String toStubSource() {
+    StringBuilder result = new StringBuilder();
+    if (moduleRequire != null) {
+      result.append("module.exports = ").append(requireSource(moduleRequire)).append(";\n");
+    }
+    if (moduleExport != null) {
+      result.append("module.exports = ").append(moduleExport.toSource()).append(";\n");
+    }
+    for (Map.Entry<String, FunctionSummary> export : exports.entrySet()) {
+      String required = requires.get(export.getKey());
+      result
+          .append("module.exports[")
+          .append(JSONObject.quote(export.getKey()))
+          .append("] = ")
+          .append(
+              required != null
+                  ? requireSource(required)
+                  : export.getValue() == null ? "{}" : export.getValue().toSource())
+          .append(";\n");
+    }
+    return result.toString();
+  }
+
+  private static String requireSource(String module) {
+    return "require(" + JSONObject.quote(module) + ')';
+  }
+
+  /**
+   * Extract the summary of a module from the CAst of its unwrapped source. Assignments to {@code
+   * module.exports}, to {@code exports.x} and to {@code module.exports.x} are recognized anywhere
+   * in the module, including inside functions, so that the usual UMD wrappers are handled. An
+   * exported value is summarized as a function if it is a function expression, an object literal
+   * property holding one, or the name of a function declared in the module, and as a re-export if
+   * it is a call of {@code require} with a constant argument. If {@code exports} or {@code
+   * module.exports} is used in any other way, e.g. passed to {@code Object.assign}, the summary is
+   * incomplete.
+   */
+  public static NodejsModuleSummary summarize(CAstEntity script) {
+    Map<String, CAstEntity> functions = HashMapFactory.make();
+    List<CAstNode[]> assignments = new ArrayList<>();
+    // variables that properties are assigned to, either directly or through their prototype
+    Set<String> withMembers = HashSetFactory.make();
+
+    Deque<CAstEntity> entities = new ArrayDeque<>();
+    entities.push(script);
+    Set<CAstEntity> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    seen.add(script);
+    boolean escapes = false;
+    while (!entities.isEmpty()) {
+      CAstEntity entity = entities.pop();
+      for (CAstNode n : nodes(entity.getAST())) {
+        for (int i = 0; i < n.getChildCount(); i++) {
+          if (isExportsRef(n.getChild(i)) && !isExportsUse(n, i)) {
+            escapes = true;
+          }
+        }
+        if (n.getKind() == CAstNode.ASSIGN && n.getChildCount() == 2) {
+          assignments.add(new CAstNode[] {n.getChild(0), n.getChild(1)});
+          String owner = memberOwner(n.getChild(0));
+          if (owner != null) {
+            withMembers.add(owner);
+          }
+          CAstEntity f = functionOf(n.getChild(1));
+          String var = varName(n.getChild(0));
+          if (f != null && var != null) {
+            functions.putIfAbsent(var, f);
+          }
+        } else if (n.getKind() == CAstNode.DECL_STMT
+            && n.getChildCount() == 2
+            && n.getChild(0).getValue() instanceof CAstSymbol s) {
+          CAstEntity f = functionOf(n.getChild(1));
+          if (f != null) {
+            functions.putIfAbsent(s.name(), f);
+          }
+        } else if (n.getKind() == CAstNode.FUNCTION_STMT) {
+          CAstEntity f = functionOf(n);
+          if (f != null) {
+            functions.putIfAbsent(f.getName(), f);
+          }
+        }
+      }
+      for (CAstEntity scoped : allScopedEntities(entity)) {
+        if (seen.add(scoped)) {
+          entities.push(scoped);
+        }
+      }
+    }
+
+    FunctionSummary moduleExport = null;
+    String moduleRequire = null;
+    Map<String, FunctionSummary> exports = new LinkedHashMap<>();
+    Map<String, String> requires = new LinkedHashMap<>();
+    boolean complete = !escapes;
+    for (CAstNode[] assignment : assignments) {
+      CAstNode lhs = assignment[0];
+      CAstNode rhs = assignment[1];
+      if (isModuleExports(lhs)) {
+        if (rhs.getKind() == CAstNode.OBJECT_LITERAL) {
+          // children are the constructor call, then alternating keys and values
+          for (int i = 1; i + 1 < rhs.getChildCount(); i += 2) {
+            if (rhs.getChild(i).getValue() instanceof String key) {
+              CAstNode value = rhs.getChild(i + 1);
+              exports.put(key, summarizeValue(value, functions));
+              if (requiredModule(value) != null) {
+                requires.put(key, requiredModule(value));
+              }
+              complete &= isDescribed(value, functions, withMembers);
+            }
+          }
+        } else if (requiredModule(rhs) != null) {
+          moduleRequire = requiredModule(rhs);
+        } else {
+          FunctionSummary f = summarizeValue(rhs, functions);
+          if (f != null) {
+            moduleExport = f;
+          }
+          complete &= isDescribed(rhs, functions, withMembers);
+        }
+      } else if (lhs.getKind() == CAstNode.OBJECT_REF
+          && lhs.getChildCount() == 2
+          && lhs.getChild(1).getValue() instanceof String key
+          && ("exports".equals(varName(lhs.getChild(0))) || isModuleExports(lhs.getChild(0)))) {
+        FunctionSummary f = summarizeValue(rhs, functions);
+        String required = requiredModule(rhs);
+        if (f != null || required != null || !exports.containsKey(key)) {
+          exports.put(key, f);
+          requires.remove(key);
+        }
+        if (required != null) {
+          requires.put(key, required);
+        }
+        complete &= isDescribed(rhs, functions, withMembers);
+      }
+    }
+    return new NodejsModuleSummary(moduleExport, moduleRequire, exports, requires, complete);
+  }
+
+  /** whether n is {@code module}, {@code exports} or {@code module.exports} */
+  private static boolean isExportsRef(CAstNode n) {
+    String var = varName(n);
+    return "module".equals(var) || "exports".equals(var) || isModuleExports(n);
+  }
+
+  /**
+   * Whether the i-th child of parent, a reference to the exports, is used in a way that {@link
+   * #summarize(CAstEntity)} understands: as the object of a constant property, as the target of an
+   * assignment or as the value assigned to another such reference, or in a test such as {@code
+   * typeof exports === "object"}.
+   */
+  private static boolean isExportsUse(CAstNode parent, int i) {
+    return switch (parent.getKind()) {
+      case CAstNode.OBJECT_REF -> i == 0 && parent.getChild(1).getValue() instanceof String;
+      case CAstNode.ASSIGN -> i == 0 || isExportsRef(parent.getChild(0));
+      case CAstNode.TYPE_OF, CAstNode.BINARY_EXPR, CAstNode.UNARY_EXPR -> true;
+      case CAstNode.IF_STMT, CAstNode.IF_EXPR -> i == 0;
+      default -> false;
+    };
+  }
+
+  /**
+   * @return the constant argument of {@code require} if n calls it, or else null
+   */
+  private static String requiredModule(CAstNode n) {
+    // children are the callee, the call kind, the receiver and then the arguments
+    if (n.getKind() == CAstNode.CALL
+        && n.getChildCount() == 4
+        && "require".equals(varName(n.getChild(0)))
+        && n.getChild(3).getValue() instanceof String module) {
+      return module;
+    }
+    return null;
+  }
+
+  /**
+   * @return the variable that an assignment to lhs adds a member to, if lhs is a property of a
+   *     variable or of its prototype, or else null
+   */
+  private static String memberOwner(CAstNode lhs) {
+    if (lhs.getKind() != CAstNode.OBJECT_REF || lhs.getChildCount() != 2) {
+      return null;
+    }
+    CAstNode object = lhs.getChild(0);
+    if (object.getKind() == CAstNode.OBJECT_REF
+        && object.getChildCount() == 2
+        && "prototype".equals(object.getChild(1).getValue())) {
+      object = object.getChild(0);
+    }
+    return varName(object);
+  }
+
+  /** whether the summary of an exported value describes all effects of exporting it */
+  private static boolean isDescribed(
+      CAstNode value, Map<String, CAstEntity> functions, Set<String> withMembers) {
+    if (value.getKind() == CAstNode.CONSTANT || requiredModule(value) != null) {
+      return true;
+    }
+    CAstEntity f = functionOf(value);
+    if (f == null) {
+      String var = varName(value);
+      if (var == null || !functions.containsKey(var) || withMembers.contains(var)) {
+        return false;
+      }
+      f = functions.get(var);
+    }
+    return isSelfContained(f);
+  }
+
+  /**
+   * Whether {@link #summarizeFunction(CAstEntity)} describes all effects of f that its callers can
+   * observe. That is not the case if f returns anything but a parameter, {@code this}, a constant
+   * or an object literal without methods, if it stores values other than constants in {@code this},
+   * if it passes its parameters to anything but a call of another parameter or stores them in a
+   * property, or if functions nested in it use its parameters, e.g. to invoke a callback later.
+   * Local variables that may hold the value of a parameter count as parameters themselves.
+   */
+  private static boolean isSelfContained(CAstEntity f) {
+    String[] names = f.getArgumentNames();
+    List<String> params = Arrays.asList(names).subList(Math.min(2, names.length), names.length);
+    Set<String> aliases = parameterAliases(f, params);
+    for (CAstNode n : nodes(f.getAST())) {
+      if (n.getKind() == CAstNode.RETURN && n.getChildCount() == 1) {
+        CAstNode value = n.getChild(0);
+        String var = varName(value);
+        if (!"this".equals(var)
+            && !params.contains(var)
+            && value.getKind() != CAstNode.CONSTANT
+            && !isPlainObject(value)) {
+          return false;
+        }
+      } else if (n.getKind() == CAstNode.ASSIGN
+          && n.getChildCount() == 2
+          && n.getChild(0).getKind() == CAstNode.OBJECT_REF
+          && "this".equals(varName(n.getChild(0).getChild(0)))
+          && n.getChild(1).getKind() != CAstNode.CONSTANT) {
+        return false;
+      } else if (n.getKind() == CAstNode.ASSIGN
+          && n.getChildCount() == 2
+          && n.getChild(0).getKind() == CAstNode.OBJECT_REF
+          && uses(n.getChild(1), aliases)) {
+        return false;
+      } else if (n.getKind() == CAstNode.CALL && params.contains(varName(n.getChild(0)))) {
+        // arguments of calls of a parameter are summarized only if they are parameters themselves
+        for (int i = 2; i < n.getChildCount(); i++) {
+          if (!params.contains(varName(n.getChild(i))) && uses(n.getChild(i), aliases)) {
+            return false;
+          }
+        }
+      } else if ((n.getKind() == CAstNode.CALL || n.getKind() == CAstNode.NEW)
+          && uses(n, aliases)) {
+        return false;
+      }
+    }
+
+    Deque<CAstEntity> nested = new ArrayDeque<>(allScopedEntities(f));
+    Set<CAstEntity> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    seen.addAll(nested);
+    while (!nested.isEmpty()) {
+      CAstEntity entity = nested.pop();
+      if (uses(entity.getAST(), aliases)) {
+        return false;
+      }
+      for (CAstEntity scoped : allScopedEntities(entity)) {
+        if (seen.add(scoped)) {
+          nested.push(scoped);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the parameters of f, {@code arguments}, and the local variables of f that are assigned
+   *     a value computed from them
+   */
+  private static Set<String> parameterAliases(CAstEntity f, List<String> params) {
+    Set<String> aliases = HashSetFactory.make(params);
+    aliases.add("arguments");
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (CAstNode n : nodes(f.getAST())) {
+        if (n.getKind() == CAstNode.ASSIGN
+            && n.getChildCount() == 2
+            && varName(n.getChild(0)) != null
+            && uses(n.getChild(1), aliases)) {
+          changed |= aliases.add(varName(n.getChild(0)));
+        } else if (n.getKind() == CAstNode.DECL_STMT
+            && n.getChildCount() == 2
+            && n.getChild(0).getValue() instanceof CAstSymbol s
+            && uses(n.getChild(1), aliases)) {
+          changed |= aliases.add(s.name());
+        }
+      }
+    }
+    return aliases;
+  }
+
+  /** whether n reads any of the given variables, not counting functions nested in it */
+  private static boolean uses(CAstNode n, Set<String> vars) {
+    for (CAstNode c : nodes(n)) {
+      if (vars.contains(varName(c))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** whether n is an object literal whose properties all hold constants */
+  private static boolean isPlainObject(CAstNode n) {
+    if (n.getKind() != CAstNode.OBJECT_LITERAL) {
+      return false;
+    }
+    for (int i = 2; i < n.getChildCount(); i += 2) {
+      if (n.getChild(i).getKind() != CAstNode.CONSTANT) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static FunctionSummary summarizeValue(CAstNode value, Map<String, CAstEntity> functions) {
+    CAstEntity f = functionOf(value);
+    if (f == null && varName(value) != null) {
+      f = functions.get(varName(value));
+    }
+    return f == null ? null : summarizeFunction(f);
+  }
+
+  private static FunctionSummary summarizeFunction(CAstEntity f) {
+    // the first two arguments of a JavaScript function entity are the function itself and 'this'
+    String[] names = f.getArgumentNames();
+    List<String> params = Arrays.asList(names).subList(Math.min(2, names.length), names.length);
+    List<int[]> calls = new ArrayList<>();
+    Set<Integer> returned = new TreeSet<>();
+    boolean returnsObject = false;
+    boolean returnsThis = false;
+    for (CAstNode n : nodes(f.getAST())) {
+      if (n.getKind() == CAstNode.CALL && n.getChildCount() >= 2) {
+        int callee = params.indexOf(varName(n.getChild(0)));
+        if (callee != -1) {
+          // children are the callee, the call kind, the receiver and then the arguments
+          int[] call = new int[1 + Math.max(0, n.getChildCount() - 3)];
+          call[0] = callee;
+          for (int i = 3; i < n.getChildCount(); i++) {
+            call[i - 2] = params.indexOf(varName(n.getChild(i)));
+          }
+          calls.add(call);
+        }
+      } else if (n.getKind() == CAstNode.RETURN && n.getChildCount() == 1) {
+        CAstNode value = n.getChild(0);
+        String var = varName(value);
+        if ("this".equals(var)) {
+          returnsThis = true;
+        } else if (params.contains(var)) {
+          returned.add(params.indexOf(var));
+        } else if (value.getKind() == CAstNode.OBJECT_LITERAL
+            || value.getKind() == CAstNode.NEW
+            || value.getKind() == CAstNode.FUNCTION_EXPR) {
+          returnsObject = true;
+        }
+      }
+    }
+    return new FunctionSummary(params.size(), calls, returned, returnsObject, returnsThis);
+  }
+
+  private static boolean isModuleExports(CAstNode n) {
+    return n.getKind() == CAstNode.OBJECT_REF
+        && n.getChildCount() == 2
+        && "module".equals(varName(n.getChild(0)))
+        && "exports".equals(n.getChild(1).getValue());
+  }
+
+  private static String varName(CAstNode n) {
+    if (n != null
+        && n.getKind() == CAstNode.VAR
+        && n.getChildCount() > 0
+        && n.getChild(0).getValue() instanceof String name) {
+      return name;
+    }
+    return null;
+  }
+
+  private static CAstEntity functionOf(CAstNode n) {
+    if ((n.getKind() == CAstNode.FUNCTION_EXPR || n.getKind() == CAstNode.FUNCTION_STMT)
+        && n.getChildCount() > 0
+        && n.getChild(0).getValue() instanceof CAstEntity f
+        && f.getKind() == CAstEntity.FUNCTION_ENTITY) {
+      return f;
+    }
+    return null;
+  }
+
+  private static List<CAstEntity> allScopedEntities(CAstEntity entity) {
+    List<CAstEntity> result = new ArrayList<>();
+    for (Map.Entry<CAstNode, Collection<CAstEntity>> scoped :
+        entity.getAllScopedEntities().entrySet()) {
+      result.addAll(scoped.getValue());
+    }
+    return result;
+  }
+
+  /** the nodes of an entity's AST in pre-order, without descending into nested entities */
+  private static List<CAstNode> nodes(CAstNode root) {
+    List<CAstNode> result = new ArrayList<>();
+    if (root == null) {
+      return result;
+    }
+    Deque<CAstNode> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      CAstNode n = stack.pop();
+      result.add(n);
+      for (int i = n.getChildCount() - 1; i >= 0; i--) {
+        if (n.getChild(i) != null) {
+          stack.push(n.getChild(i));
+        }
+      }
+    }
+    return result;
+  }
+}
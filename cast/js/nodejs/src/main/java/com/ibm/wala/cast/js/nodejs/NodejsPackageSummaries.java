@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002 - 2016 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.js.nodejs;
+
+import com.ibm.wala.cast.ipa.callgraph.CAstCallGraphUtil;
+import com.ibm.wala.cast.ir.translator.TranslatorToCAst;
+import com.ibm.wala.cast.js.translator.JavaScriptTranslatorFactory;
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.impl.CAstImpl;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Summaries of the modules of installed npm packages, i.e. of code below a {@code node_modules}
+ * directory. When these are enabled in {@link NodejsRequireTargetSelector}, required dependency
+ * modules are replaced by stubs generated from their {@link NodejsModuleSummary}, so the analysis
+ * does not translate or analyze dependency code, and loads only the modules that the stubs
+ * re-export. Modules whose summaries are {@linkplain NodejsModuleSummary#isComplete() incomplete}
+ * are analyzed as usual.
+ *
+ * <p>The summaries of all modules of a package are kept together in one JSON file in the summary
+ * directory, named after the package's name and version. An installed version of a package is
+ * assumed not to change, so a summary is computed only the first time a module is required, and
+ * reused by later runs. Packages whose {@code package.json} gives no name and version are still
+ * summarized, but their summaries are not persisted.
+ */
+public class NodejsPackageSummaries {
+
+  /** bump when the summary format changes, so that stale files are ignored */
+  private static final int FORMAT_VERSION = 2;
+
+  private final Path directory;
+
+  private final JavaScriptTranslatorFactory translatorFactory;
+
+  /** loaded or computed summaries, by package key and then by module path within the package */
+  private final Map<String, JSONObject> packages = HashMapFactory.make();
+
+  private int computed = 0;
+
+  /**
+   * @param directory where package summaries are stored; created if necessary. May be null to keep
+   *     summaries in memory only.
+   * @param translatorFactory used to parse modules that have not been summarized before
+   */
+  public NodejsPackageSummaries(Path directory, JavaScriptTranslatorFactory translatorFactory) {
+    this.directory = directory;
+    this.translatorFactory = translatorFactory;
+  }
+
+  /** whether {@code file} belongs to an installed package, and so should be summarized */
+  public static boolean isDependency(File file) {
+    return packageRoot(file) != null;
+  }
+
+  /**
+   * @return the number of modules that had to be parsed and summarized, rather than being found in
+   *     the summary directory
+   */
+  public int getComputedCount() {
+    return computed;
+  }
+
+  /**
+   * @return the summary of the given module of an installed package, computing and storing it if
+   *     necessary
+   * @throws IllegalArgumentException if {@code file} is not below a {@code node_modules} directory
+   */
+  public NodejsModuleSummary getSummary(File file) throws IOException {
+    File root = packageRoot(file);
+    if (root == null) {
+      throw new IllegalArgumentException("not part of an installed package: " + file);
+    }
+    String key = packageKey(root);
+    String module =
+        root.toPath()
+            .relativize(file.getAbsoluteFile().toPath())
+            .toString()
+            .replace(File.separatorChar, '/');
+
+    // unversioned packages are only kept in memory, keyed by their location
+    String memoryKey = key != null ? key : root.getPath();
+    JSONObject summaries = packages.get(memoryKey);
+    if (summaries == null) {
+      summaries = load(key);
+      packages.put(memoryKey, summaries);
+    }
+    if (summaries.has(module)) {
+      return NodejsModuleSummary.fromJSON(summaries.getJSONObject(module));
+    }
+
+    NodejsModuleSummary summary = NodejsModuleSummary.summarize(translate(file));
+    computed++;
+    summaries.put(module, summary.toJSON());
+    store(key, summaries);
+    return summary;
+  }
+
+  private CAstEntity translate(File file) throws IOException {
+    TranslatorToCAst translator =
+        translatorFactory.make(
+            new CAstImpl(),
+            CAstCallGraphUtil.makeSourceModule(file.toURI().toURL(), file.getName()));
+    try {
+      return translator.translateToCAst();
+    } catch (TranslatorToCAst.Error e) {
+      throw new IOException("cannot summarize " + file + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return the directory of the installed package containing {@code file}: the child, or for
+   *     scoped packages the grandchild, of the innermost {@code node_modules} directory above it
+   */
+  private static File packageRoot(File file) {
+    File f = file.getAbsoluteFile();
+    File child = f;
+    File grandchild = null;
+    for (File d = f.getParentFile(); d != null; d = d.getParentFile()) {
+      if (d.getName().equals("node_modules")) {
+        File root = child.getName().startsWith("@") ? grandchild : child;
+        return root == null || root.equals(f) ? null : root;
+      }
+      grandchild = child;
+      child = d;
+    }
+    return null;
+  }
+
+  /**
+   * @return "name@version" from the package's package.json, or null if either is missing
+   */
+  private static String packageKey(File root) throws IOException {
+    File packageJson = new File(root, "package.json");
+    if (packageJson.isFile()) {
+      try {
+        JSONObject json = new JSONObject(Files.readString(packageJson.toPath()));
+        if (json.has("name") && json.has("version")) {
+          return json.getString("name") + '@' + json.getString("version");
+        }
+      } catch (JSONException e) {
+        // not a valid package.json; do not persist
+      }
+    }
+    return null;
+  }
+
+  private Path fileFor(String key) {
+    // scoped package names contain a slash
+    return directory.resolve(key.replace('/', '+') + ".json");
+  }
+
+  private JSONObject load(String key) {
+    if (directory != null && key != null) {
+      Path file = fileFor(key);
+      if (Files.isRegularFile(file)) {
+        try {
+          JSONObject json = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+          if (json.optInt("format") == FORMAT_VERSION) {
+            return json.getJSONObject("modules");
+          }
+        } catch (IOException | JSONException e) {
+          // unreadable; summarize again
+        }
+      }
+    }
+    return new JSONObject();
+  }
+
+  private void store(String key, JSONObject summaries) throws IOException {
+    if (directory == null || key == null) {
+      return;
+    }
+    JSONObject json = new JSONObject();
+    json.put("format", FORMAT_VERSION);
+    json.put("modules", summaries);
+
+    Files.createDirectories(directory);
+    Path file = fileFor(key);
+    Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      Files.writeString(tmp, json.toString(2), StandardCharsets.UTF_8);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+}
@@ -57,6 +57,7 @@ public class NodejsRequireTargetSelector implements MethodTargetSelector {
   private final File rootDir;
   private final MethodTargetSelector base;
   private PropagationCallGraphBuilder builder;
+  private NodejsPackageSummaries summaries;
 
   private final HashMap<String, IMethod> previouslyRequired = HashMapFactory.make();
 
@@ -69,6 +70,17 @@ public class NodejsRequireTargetSelector implements MethodTargetSelector {
     this.builder = builder;
   }
 
+  /**
+   * Link summaries in place of the code of modules from installed packages, so that only
+   * first-party code and dependencies whose summaries are incomplete are analyzed. By default, all
+   * required modules are analyzed.
+   *
+   * @param summaries where to find summaries, or null to analyze all modules
+   */
+  public void setPackageSummaries(NodejsPackageSummaries summaries) {
+    this.summaries = summaries;
+  }
+
   /**
    * Basic idea: If the called method is named "__WALA__require", it is most likely the
    * require-function mock from the module-wrapper. To figure out what file shall be required,
@@ -105,6 +117,7 @@ public class NodejsRequireTargetSelector implements MethodTargetSelector {
           if (existingValue != null) {
             return existingValue;
           }
+          sourceModule = summarize(sourceModule);
 
           String className = 'L' + sourceModule.getClassName() + "/nodejsModule";
           if (sourceModule instanceof NodejsRequiredSourceModule nodejsRequiredSourceModule
@@ -135,6 +148,27 @@ public class NodejsRequireTargetSelector implements MethodTargetSelector {
     return calledMethod;
   }
 
+  /**
+   * @return a module wrapping the summary of m if m belongs to an installed package, summaries are
+   *     enabled and m's summary is complete, or else m itself
+   */
+  private SourceModule summarize(SourceModule m) {
+    if (summaries != null
+        && m instanceof NodejsRequiredSourceModule required
+        && !required.getFile().toString().endsWith(".json")
+        && NodejsPackageSummaries.isDependency(required.getFile())) {
+      try {
+        NodejsModuleSummary summary = summaries.getSummary(required.getFile());
+        if (summary.isComplete()) {
+          return NodejsRequiredSourceModule.make(rootDir, required.getFile(), summary);
+        }
+      } catch (IOException e) {
+        System.err.println("NodejsRequireTargetSelector: analyzing unsummarized " + m + ": " + e);
+      }
+    }
+    return m;
+  }
+
   private static JavaScriptInvoke getInvokeInstruction(CGNode caller, CallSiteReference site) {
     IR callerIR = caller.getIR();
     SSAAbstractInvokeInstruction[] callInstrs = callerIR.getCalls(site);
@@ -43,12 +43,25 @@ public class NodejsRequiredSourceModule extends SourceFileModule {
 
   private final String className;
 
+  /** source to wrap in place of the file's contents, or null to read the file */
+  private final String source;
+
   /**
    * @param f Must be a file located below folder workingDir.
    */
   protected NodejsRequiredSourceModule(String className, File f, SourceFileModule clonedFrom)
       throws IOException {
+    this(className, f, clonedFrom, null);
+  }
+
+  /**
+   * @param f Must be a file located below folder workingDir.
+   * @param source the code to wrap in place of the contents of f, or null to use f's contents
+   */
+  protected NodejsRequiredSourceModule(
+      String className, File f, SourceFileModule clonedFrom, String source) throws IOException {
     super(f, clonedFrom);
+    this.source = source;
 
     // Generate className based on the given file name
     this.className = className;
@@ -62,11 +75,13 @@ public class NodejsRequiredSourceModule extends SourceFileModule {
 
   @Override
   public InputStream getInputStream() {
-    String moduleSource = null;
-    try (final InputStream inputStream = super.getInputStream()) {
-      moduleSource = IOUtils.toString(inputStream, (Charset) null);
-    } catch (IOException e) {
-      Assertions.UNREACHABLE(e.getMessage());
+    String moduleSource = source;
+    if (moduleSource == null) {
+      try (final InputStream inputStream = super.getInputStream()) {
+        moduleSource = IOUtils.toString(inputStream, (Charset) null);
+      } catch (IOException e) {
+        Assertions.UNREACHABLE(e.getMessage());
+      }
     }
 
     final String wrapperSource;
@@ -141,4 +156,17 @@ public class NodejsRequiredSourceModule extends SourceFileModule {
         CAstCallGraphUtil.makeSourceModule(file.toURI().toURL(), file.getName());
     return new NodejsRequiredSourceModule(className, file, sourceFileModule);
   }
+
+  /**
+   * Make a module for file that wraps the stub generated from its summary instead of its contents.
+   * The module keeps the class name it would have had otherwise.
+   */
+  public static NodejsRequiredSourceModule make(
+      File rootDir, File file, NodejsModuleSummary summary) throws IOException {
+    String className = convertFileToClassName(rootDir, file);
+    SourceFileModule sourceFileModule =
+        CAstCallGraphUtil.makeSourceModule(file.toURI().toURL(), file.getName());
+    return new NodejsRequiredSourceModule(
+        className, file, sourceFileModule, summary.toStubSource());
+  }
 }
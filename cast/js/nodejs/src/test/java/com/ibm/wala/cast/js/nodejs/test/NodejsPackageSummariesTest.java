@@ -0,0 +1,538 @@
+/*
+ * Copyright (c) 2002 - 2016 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.js.nodejs.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.cast.ir.translator.AbstractCodeEntity;
+import com.ibm.wala.cast.ir.translator.AbstractScriptEntity;
+import com.ibm.wala.cast.ir.translator.TranslatorToCAst;
+import com.ibm.wala.cast.js.nodejs.NodejsCallGraphBuilderUtil;
+import com.ibm.wala.cast.js.nodejs.NodejsModuleSummary;
+import com.ibm.wala.cast.js.nodejs.NodejsModuleSummary.FunctionSummary;
+import com.ibm.wala.cast.js.nodejs.NodejsPackageSummaries;
+import com.ibm.wala.cast.js.translator.JavaScriptTranslatorFactory;
+import com.ibm.wala.cast.tree.CAst;
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.CAstNode;
+import com.ibm.wala.cast.tree.CAstQualifier;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+import com.ibm.wala.cast.tree.impl.CAstImpl;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.CopyKey;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.RewriteContext;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriterFactory;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class NodejsPackageSummariesTest {
+
+  private static final CAstImpl ast = new CAstImpl();
+
+  private static final class Function extends AbstractCodeEntity {
+    private final String name;
+
+    private final String[] parameters;
+
+    private Function(String name, String... parameters) {
+      super(null);
+      this.name = name;
+      this.parameters = parameters;
+    }
+
+    @Override
+    public int getKind() {
+      return FUNCTION_ENTITY;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String[] getArgumentNames() {
+      String[] names = new String[parameters.length + 2];
+      names[0] = name;
+      names[1] = "this";
+      System.arraycopy(parameters, 0, names, 2, parameters.length);
+      return names;
+    }
+
+    @Override
+    public CAstNode[] getArgumentDefaults() {
+      return new CAstNode[0];
+    }
+
+    @Override
+    public int getArgumentCount() {
+      return parameters.length + 2;
+    }
+
+    @Override
+    public Collection<CAstQualifier> getQualifiers() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Position getPosition(int arg) {
+      return null;
+    }
+
+    @Override
+    public Position getNamePosition() {
+      return null;
+    }
+  }
+
+  private static CAstNode var(String name) {
+    return ast.makeNode(CAstNode.VAR, ast.makeConstant(name));
+  }
+
+  private static CAstNode prop(CAstNode object, String name) {
+    return ast.makeNode(CAstNode.OBJECT_REF, object, ast.makeConstant(name));
+  }
+
+  private static CAstNode assign(CAstNode lhs, CAstNode rhs) {
+    return ast.makeNode(CAstNode.ASSIGN, lhs, rhs);
+  }
+
+  private static CAstNode call(CAstNode callee, CAstNode... arguments) {
+    CAstNode[] children = new CAstNode[arguments.length + 3];
+    children[0] = callee;
+    children[1] = ast.makeConstant("do");
+    children[2] = var("__WALA__int3rnal__global");
+    System.arraycopy(arguments, 0, children, 3, arguments.length);
+    return ast.makeNode(CAstNode.CALL, children);
+  }
+
+  private static AbstractScriptEntity makeScript() {
+    return new AbstractScriptEntity(new File("index.js"), null) {
+      @Override
+      public Position getPosition(int arg) {
+        return null;
+      }
+
+      @Override
+      public Position getNamePosition() {
+        return null;
+      }
+    };
+  }
+
+  /**
+   * The CAst of:
+   *
+   * <pre>
+   * function helper(a, cb) { cb(a, 1); return a; }
+   * exports.helper = helper;
+   * module.exports.make = function () { return {}; };
+   * exports.version = "1";
+   * </pre>
+   */
+  private static CAstEntity makeModule(File file) {
+    AbstractScriptEntity script =
+        new AbstractScriptEntity(file, null) {
+          @Override
+          public Position getPosition(int arg) {
+            return null;
+          }
+
+          @Override
+          public Position getNamePosition() {
+            return null;
+          }
+        };
+
+    Function helper = new Function("helper", "a", "cb");
+    helper.setAst(
+        ast.makeNode(
+            CAstNode.BLOCK_STMT,
+            ast.makeNode(
+                CAstNode.CALL,
+                var("cb"),
+                ast.makeConstant("do"),
+                var("__WALA__int3rnal__global"),
+                var("a"),
+                ast.makeConstant(1)),
+            ast.makeNode(CAstNode.RETURN, var("a"))));
+    Function make = new Function("make");
+    make.setAst(
+        ast.makeNode(
+            CAstNode.RETURN,
+            ast.makeNode(
+                CAstNode.OBJECT_LITERAL, ast.makeNode(CAstNode.NEW, ast.makeConstant("Object")))));
+
+    CAstNode helperDecl = ast.makeNode(CAstNode.FUNCTION_STMT, ast.makeConstant(helper));
+    CAstNode makeExpr = ast.makeNode(CAstNode.FUNCTION_EXPR, ast.makeConstant(make));
+    script.setAst(
+        ast.makeNode(
+            CAstNode.BLOCK_STMT,
+            helperDecl,
+            assign(prop(var("exports"), "helper"), var("helper")),
+            assign(prop(prop(var("module"), "exports"), "make"), makeExpr),
+            assign(prop(var("exports"), "version"), ast.makeConstant("1"))));
+    script.addScopedEntity(null, helper);
+    script.addScopedEntity(makeExpr, make);
+    return script;
+  }
+
+  @Test
+  public void testSummarize() {
+    NodejsModuleSummary summary = NodejsModuleSummary.summarize(makeModule(new File("index.js")));
+
+    assertThat(summary.isComplete()).isTrue();
+    assertThat(summary.getModuleExport()).isNull();
+    assertThat(summary.getExports()).containsOnlyKeys("helper", "make", "version");
+    assertThat(summary.getExports().get("version")).isNull();
+
+    FunctionSummary helper = summary.getExports().get("helper");
+    assertThat(helper.getParameterCount()).isEqualTo(2);
+    assertThat(helper.getCalls()).containsExactly(new int[] {1, 0, -1});
+    assertThat(helper.getReturnedParameters()).containsExactly(0);
+    assertThat(helper.returnsObject()).isFalse();
+
+    FunctionSummary make = summary.getExports().get("make");
+    assertThat(make.getParameterCount()).isZero();
+    assertThat(make.getCalls()).isEmpty();
+    assertThat(make.returnsObject()).isTrue();
+
+    // the summary survives a round trip through JSON, and renders as a stub with the same effects
+    NodejsModuleSummary copy = NodejsModuleSummary.fromJSON(summary.toJSON());
+    assertThat(copy.getExports()).isEqualTo(summary.getExports());
+    assertThat(copy.isComplete()).isTrue();
+    assertThat(copy.toStubSource())
+        .isEqualTo(
+            "module.exports[\"helper\"] = "
+                + "function (p0, p1) { var r; p1(p0, {}); r = p0; return r; };\n"
+                + "module.exports[\"make\"] = function () { var r; r = {}; return r; };\n"
+                + "module.exports[\"version\"] = {};\n");
+  }
+
+  @Test
+  public void testModuleExport() {
+    Function f = new Function("f", "x");
+    f.setAst(ast.makeNode(CAstNode.RETURN, var("this")));
+    CAstNode fun = ast.makeNode(CAstNode.FUNCTION_EXPR, ast.makeConstant(f));
+    AbstractScriptEntity script =
+        new AbstractScriptEntity(new File("index.js"), null) {
+          @Override
+          public Position getPosition(int arg) {
+            return null;
+          }
+
+          @Override
+          public Position getNamePosition() {
+            return null;
+          }
+        };
+    script.setAst(assign(prop(var("module"), "exports"), fun));
+    script.addScopedEntity(fun, f);
+
+    NodejsModuleSummary summary = NodejsModuleSummary.summarize(script);
+    assertThat(summary.getExports()).isEmpty();
+    assertThat(summary.getModuleExport().returnsThis()).isTrue();
+    assertThat(summary.toStubSource())
+        .isEqualTo("module.exports = function (p0) { var r; r = this; return r; };\n");
+  }
+
+  /**
+   * The CAst of:
+   *
+   * <pre>
+   * module.exports = require("./impl");
+   * exports.util = require("util");
+   * </pre>
+   */
+  @Test
+  public void testReexports() {
+    AbstractScriptEntity script = makeScript();
+    script.setAst(
+        ast.makeNode(
+            CAstNode.BLOCK_STMT,
+            assign(
+                prop(var("module"), "exports"), call(var("require"), ast.makeConstant("./impl"))),
+            assign(prop(var("exports"), "util"), call(var("require"), ast.makeConstant("util")))));
+
+    NodejsModuleSummary summary = NodejsModuleSummary.summarize(script);
+    assertThat(summary.isComplete()).isTrue();
+    assertThat(summary.getModuleRequire()).isEqualTo("./impl");
+    assertThat(summary.getExports()).containsOnlyKeys("util");
+    assertThat(summary.getRequires()).isEqualTo(Map.of("util", "util"));
+
+    NodejsModuleSummary copy = NodejsModuleSummary.fromJSON(summary.toJSON());
+    assertThat(copy.getModuleRequire()).isEqualTo("./impl");
+    assertThat(copy.getRequires()).isEqualTo(summary.getRequires());
+    assertThat(copy.toStubSource())
+        .isEqualTo(
+            "module.exports = require(\"./impl\");\n"
+                + "module.exports[\"util\"] = require(\"util\");\n");
+  }
+
+  @Test
+  public void testIncomplete() {
+    // function Foo() {} Foo.prototype.bar = function () {}; exports.Foo = Foo;
+    Function foo = new Function("Foo");
+    foo.setAst(ast.makeNode(CAstNode.BLOCK_STMT));
+    Function bar = new Function("bar");
+    bar.setAst(ast.makeNode(CAstNode.BLOCK_STMT));
+    CAstNode barExpr = ast.makeNode(CAstNode.FUNCTION_EXPR, ast.makeConstant(bar));
+    AbstractScriptEntity withPrototype = makeScript();
+    withPrototype.setAst(
+        ast.makeNode(
+            CAstNode.BLOCK_STMT,
+            ast.makeNode(CAstNode.FUNCTION_STMT, ast.makeConstant(foo)),
+            assign(prop(prop(var("Foo"), "prototype"), "bar"), barExpr),
+            assign(prop(var("exports"), "Foo"), var("Foo"))));
+    withPrototype.addScopedEntity(null, foo);
+    withPrototype.addScopedEntity(barExpr, bar);
+    assertThat(NodejsModuleSummary.summarize(withPrototype).isComplete()).isFalse();
+
+    // exports.make = function (cb) { return { run: function () { cb(); } }; };
+    Function run = new Function("run");
+    run.setAst(call(var("cb")));
+    CAstNode runExpr = ast.makeNode(CAstNode.FUNCTION_EXPR, ast.makeConstant(run));
+    Function make = new Function("make", "cb");
+    make.setAst(
+        ast.makeNode(
+            CAstNode.RETURN,
+            ast.makeNode(
+                CAstNode.OBJECT_LITERAL,
+                ast.makeNode(CAstNode.NEW, ast.makeConstant("Object")),
+                ast.makeConstant("run"),
+                runExpr)));
+    make.addScopedEntity(runExpr, run);
+    CAstNode makeExpr = ast.makeNode(CAstNode.FUNCTION_EXPR, ast.makeConstant(make));
+    AbstractScriptEntity withMethods = makeScript();
+    withMethods.setAst(assign(prop(var("exports"), "make"), makeExpr));
+    withMethods.addScopedEntity(makeExpr, make);
+    NodejsModuleSummary summary = NodejsModuleSummary.summarize(withMethods);
+    assertThat(summary.isComplete()).isFalse();
+    assertThat(NodejsModuleSummary.fromJSON(summary.toJSON()).isComplete()).isFalse();
+
+    // module.exports = new Emitter();
+    AbstractScriptEntity withObject = makeScript();
+    withObject.setAst(
+        assign(
+            prop(var("module"), "exports"),
+            ast.makeNode(CAstNode.NEW, ast.makeConstant("Emitter"))));
+    assertThat(NodejsModuleSummary.summarize(withObject).isComplete()).isFalse();
+  }
+
+  /** the CAst of {@code exports.<name> = <f>;} */
+  private static AbstractScriptEntity exportFunction(String name, Function f) {
+    CAstNode expr = ast.makeNode(CAstNode.FUNCTION_EXPR, ast.makeConstant(f));
+    AbstractScriptEntity script = makeScript();
+    script.setAst(assign(prop(var("exports"), name), expr));
+    script.addScopedEntity(expr, f);
+    return script;
+  }
+
+  @Test
+  public void testEscapingCallbacks() {
+    // function helper(f) { f(); } exports.each = function (a, cb) { helper(cb); };
+    Function helper = new Function("helper", "f");
+    helper.setAst(call(var("f")));
+    Function each = new Function("each", "a", "cb");
+    each.setAst(call(var("helper"), var("cb")));
+    AbstractScriptEntity withHelper = exportFunction("each", each);
+    withHelper.setAst(
+        ast.makeNode(
+            CAstNode.BLOCK_STMT,
+            ast.makeNode(CAstNode.FUNCTION_STMT, ast.makeConstant(helper)),
+            withHelper.getAST()));
+    withHelper.addScopedEntity(null, helper);
+    assertThat(NodejsModuleSummary.summarize(withHelper).isComplete()).isFalse();
+
+    // exports.forEach = function (a, cb) { a.forEach(cb); };
+    Function forEach = new Function("forEach", "a", "cb");
+    forEach.setAst(
+        ast.makeNode(
+            CAstNode.CALL,
+            prop(var("a"), "forEach"),
+            ast.makeConstant("dispatch"),
+            var("a"),
+            var("cb")));
+    assertThat(NodejsModuleSummary.summarize(exportFunction("forEach", forEach)).isComplete())
+        .isFalse();
+
+    // exports.store = function (o, cb) { o.handler = cb; };
+    Function store = new Function("store", "o", "cb");
+    store.setAst(assign(prop(var("o"), "handler"), var("cb")));
+    assertThat(NodejsModuleSummary.summarize(exportFunction("store", store)).isComplete())
+        .isFalse();
+
+    // exports.later = function (cb) { var g = cb; setTimeout(g); };
+    Function later = new Function("later", "cb");
+    later.setAst(
+        ast.makeNode(
+            CAstNode.BLOCK_STMT, assign(var("g"), var("cb")), call(var("setTimeout"), var("g"))));
+    assertThat(NodejsModuleSummary.summarize(exportFunction("later", later)).isComplete())
+        .isFalse();
+
+    // exports.apply = function (f, x) { f(x, typeof x); }; passes a value computed from x
+    Function apply = new Function("apply", "f", "x");
+    apply.setAst(call(var("f"), var("x"), ast.makeNode(CAstNode.TYPE_OF, var("x"))));
+    assertThat(NodejsModuleSummary.summarize(exportFunction("apply", apply)).isComplete())
+        .isFalse();
+    // but parameters passed to each other are summarized: f(x, 1);
+    apply.setAst(call(var("f"), var("x"), ast.makeConstant(1)));
+    NodejsModuleSummary summary = NodejsModuleSummary.summarize(exportFunction("apply", apply));
+    assertThat(summary.isComplete()).isTrue();
+    assertThat(summary.getExports().get("apply").getCalls()).containsExactly(new int[] {0, 1, -1});
+  }
+
+  @Test
+  public void testEscapingExports() {
+    // Object.assign(module.exports, { run: function () {} });
+    Function run = new Function("run");
+    run.setAst(ast.makeNode(CAstNode.BLOCK_STMT));
+    CAstNode runExpr = ast.makeNode(CAstNode.FUNCTION_EXPR, ast.makeConstant(run));
+    AbstractScriptEntity withAssign = makeScript();
+    withAssign.setAst(
+        call(
+            prop(var("Object"), "assign"),
+            prop(var("module"), "exports"),
+            ast.makeNode(
+                CAstNode.OBJECT_LITERAL,
+                ast.makeNode(CAstNode.NEW, ast.makeConstant("Object")),
+                ast.makeConstant("run"),
+                runExpr)));
+    withAssign.addScopedEntity(runExpr, run);
+    NodejsModuleSummary summary = NodejsModuleSummary.summarize(withAssign);
+    assertThat(summary.getExports()).isEmpty();
+    assertThat(summary.isComplete()).isFalse();
+
+    // Object.defineProperty(exports, "run", { value: 1 });
+    AbstractScriptEntity withDefine = makeScript();
+    withDefine.setAst(
+        call(
+            prop(var("Object"), "defineProperty"),
+            var("exports"),
+            ast.makeConstant("run"),
+            ast.makeNode(
+                CAstNode.OBJECT_LITERAL,
+                ast.makeNode(CAstNode.NEW, ast.makeConstant("Object")),
+                ast.makeConstant("value"),
+                ast.makeConstant(1))));
+    assertThat(NodejsModuleSummary.summarize(withDefine).isComplete()).isFalse();
+
+    // if (typeof exports === "object") { module.exports.version = "1"; }
+    AbstractScriptEntity withTest = makeScript();
+    withTest.setAst(
+        ast.makeNode(
+            CAstNode.IF_STMT,
+            ast.makeNode(
+                CAstNode.BINARY_EXPR,
+                ast.makeConstant("==="),
+                ast.makeNode(CAstNode.TYPE_OF, var("exports")),
+                ast.makeConstant("object")),
+            assign(prop(prop(var("module"), "exports"), "version"), ast.makeConstant("1"))));
+    summary = NodejsModuleSummary.summarize(withTest);
+    assertThat(summary.isComplete()).isTrue();
+    assertThat(summary.getExports()).containsOnlyKeys("version");
+  }
+
+  /**
+   * Builds the call graph of a program using a package whose main module re-exports one module with
+   * a complete summary and one whose summary is incomplete.
+   */
+  @Test
+  public void testCallGraph(@TempDir Path summaries) throws Exception {
+    File file =
+        new File(
+            getClass().getClassLoader().getResource("NodejsPackageSummaries/index.js").toURI());
+
+    PropagationCallGraphBuilder builder =
+        NodejsCallGraphBuilderUtil.makeCGBuilder(file.getParentFile(), file, summaries);
+    String cgString = builder.makeCallGraph(builder.getOptions()).toString();
+
+    // both callbacks are still invoked, through the stub of each.js and the code of factory.js
+    assertThat(cgString)
+        .contains(
+            "Lindex/nodejsModule/moduleSource/first>",
+            "Lindex/nodejsModule/moduleSource/second>",
+            "Lnode_modules_lib_factory/nodejsModule/moduleSource/");
+    // but the code of each.js is not analyzed
+    assertThat(cgString).doesNotContain("Lnode_modules_lib_each/nodejsModule/moduleSource/check");
+    assertThat(cgString).doesNotContain("?");
+    assertThat(summaries.resolve("lib@1.0.0.json")).isRegularFile();
+  }
+
+  /** parses any module into the CAst of {@link #makeModule(File)}, counting how often it does so */
+  private static final class FakeTranslatorFactory implements JavaScriptTranslatorFactory {
+    private int count;
+
+    @Override
+    public TranslatorToCAst make(CAst ignored, ModuleEntry M) {
+      return new TranslatorToCAst() {
+        @Override
+        public <C extends RewriteContext<K>, K extends CopyKey<K>> void addRewriter(
+            CAstRewriterFactory<C, K> factory, boolean prepend) {}
+
+        @Override
+        public CAstEntity translateToCAst() {
+          count++;
+          return makeModule(new File(M.getName()));
+        }
+      };
+    }
+  }
+
+  @Test
+  public void testPackageSummaries(@TempDir Path dir) throws IOException {
+    Path pkg = Files.createDirectories(dir.resolve("app/node_modules/@scope/pkg"));
+    Files.writeString(
+        pkg.resolve("package.json"), "{\"name\": \"@scope/pkg\", \"version\": \"1.0.0\"}");
+    File index = Files.writeString(pkg.resolve("index.js"), "// not parsed").toFile();
+    Path unversioned = Files.createDirectories(dir.resolve("app/node_modules/other/lib"));
+    File other = Files.writeString(unversioned.resolve("other.js"), "// not parsed").toFile();
+    Path cache = dir.resolve("summaries");
+
+    assertThat(NodejsPackageSummaries.isDependency(index)).isTrue();
+    assertThat(NodejsPackageSummaries.isDependency(other)).isTrue();
+    assertThat(NodejsPackageSummaries.isDependency(dir.resolve("app/index.js").toFile())).isFalse();
+    assertThat(NodejsPackageSummaries.isDependency(dir.resolve("app/node_modules/x.js").toFile()))
+        .isFalse();
+
+    FakeTranslatorFactory translator = new FakeTranslatorFactory();
+    NodejsPackageSummaries summaries = new NodejsPackageSummaries(cache, translator);
+    NodejsModuleSummary first = summaries.getSummary(index);
+    assertThat(summaries.getSummary(index).getExports()).isEqualTo(first.getExports());
+    assertThat(translator.count).isEqualTo(1);
+    assertThat(cache.resolve("@scope+pkg@1.0.0.json")).isRegularFile();
+
+    // a later run finds the stored summary without parsing the module again
+    NodejsPackageSummaries later = new NodejsPackageSummaries(cache, translator);
+    assertThat(later.getSummary(index).toStubSource()).isEqualTo(first.toStubSource());
+    assertThat(later.getComputedCount()).isZero();
+    assertThat(translator.count).isEqualTo(1);
+
+    // packages without a version are summarized, but not stored
+    later.getSummary(other);
+    later.getSummary(other);
+    assertThat(translator.count).isEqualTo(2);
+    try (var files = Files.list(cache)) {
+      assertThat(files.map(p -> p.getFileName().toString()).toList())
+          .isEqualTo(List.of("@scope+pkg@1.0.0.json"));
+    }
+    assertThat(later.getComputedCount()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,5 @@
+var lib = require('lib');
+function first() {}
+function second() {}
+lib.each(first);
+lib.make().run(second);
@@ -1,13 +1,18 @@
 package com.ibm.wala.cast.js.rhino.callgraph.fieldbased.test;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
+import com.ibm.wala.cast.js.html.DefaultSourceExtractor;
 import com.ibm.wala.cast.js.test.ExtractingToPredictableFileNames;
 import com.ibm.wala.cast.js.test.TestSimplePageCallGraphShape;
+import com.ibm.wala.cast.js.util.CallGraph2JSON;
 import com.ibm.wala.cast.js.util.FieldBasedCGUtil.BuilderType;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.WalaException;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 public class FieldBasedComparisonTest extends AbstractFieldBasedTest {
@@ -72,4 +77,34 @@ public class FieldBasedComparisonTest extends AbstractFieldBasedTest {
         TestSimplePageCallGraphShape.assertionsForSkeleton2,
         BuilderType.OPTIMISTIC_WORKLIST);
   }
+
+  private Map<String, Map<String, Set<String>>> edges(String file, BuilderType builderType)
+      throws WalaException, CancelException {
+    try (ExtractingToPredictableFileNames predictable = new ExtractingToPredictableFileNames()) {
+      return new CallGraph2JSON(false)
+          .extractEdges(
+              util.buildCG(
+                      getClass().getClassLoader().getResource(file),
+                      builderType,
+                      false,
+                      DefaultSourceExtractor.factory)
+                  .callGraph());
+    }
+  }
+
+  /** the worklist builder must find exactly the call graph of the iterative optimistic builder */
+  @Test
+  public void testWorklistMatchesOptimistic() throws WalaException, CancelException {
+    for (String file :
+        List.of(
+            "pages/skeleton.html",
+            "pages/skeleton2.html",
+            "pages/jquery.html",
+            "tests/field-based/callbacks.js",
+            "tests/field-based/reflective_calls.js")) {
+      Map<String, Map<String, Set<String>>> optimistic = edges(file, BuilderType.OPTIMISTIC);
+      assertThat(optimistic).as(file).isNotEmpty();
+      assertThat(edges(file, BuilderType.OPTIMISTIC_WORKLIST)).as(file).isEqualTo(optimistic);
+    }
+  }
 }
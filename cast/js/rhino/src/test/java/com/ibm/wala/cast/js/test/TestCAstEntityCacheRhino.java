@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.js.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.cast.ir.translator.TranslatorToCAst;
+import com.ibm.wala.cast.js.translator.CAstRhinoTranslatorFactory;
+import com.ibm.wala.cast.js.translator.CachingJavaScriptTranslatorFactory;
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.impl.CAstImpl;
+import com.ibm.wala.cast.util.CAstPrinter;
+import com.ibm.wala.classLoader.SourceURLModule;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Check that the CAst Rhino produces for real scripts survives the on-disk cache. */
+public class TestCAstEntityCacheRhino {
+
+  private static final String[] SCRIPTS = {
+    "instanceof.js",
+    "return_this2.js",
+    "simple-lexical.js",
+    "try.js",
+    "forin.js",
+    "switch_default.js"
+  };
+
+  @Test
+  public void testSecondLoadHitsCache(@TempDir Path dir)
+      throws IOException, TranslatorToCAst.Error {
+    for (String script : SCRIPTS) {
+      URL url = getClass().getClassLoader().getResource("tests/" + script);
+      assertThat(url).as(script).isNotNull();
+      // a fresh factory each time, as in separate analysis runs
+      CachingJavaScriptTranslatorFactory first =
+          new CachingJavaScriptTranslatorFactory(new CAstRhinoTranslatorFactory(), dir, "1");
+      CAstEntity translated =
+          first.make(new CAstImpl(), new SourceURLModule(url)).translateToCAst();
+      assertThat(first.getCache().getMisses()).as(script).isEqualTo(1);
+
+      CachingJavaScriptTranslatorFactory second =
+          new CachingJavaScriptTranslatorFactory(new CAstRhinoTranslatorFactory(), dir, "1");
+      CAstEntity cached = second.make(new CAstImpl(), new SourceURLModule(url)).translateToCAst();
+      assertThat(second.getCache().getHits()).as(script).isEqualTo(1);
+      assertThat(CAstPrinter.print(cached)).as(script).isEqualTo(CAstPrinter.print(translated));
+    }
+  }
+}
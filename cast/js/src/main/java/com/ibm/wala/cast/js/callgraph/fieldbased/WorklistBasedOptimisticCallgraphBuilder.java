@@ -29,14 +29,15 @@ import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
-import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
 import com.ibm.wala.util.intset.OrdinalSetMapping;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 
@@ -79,20 +80,117 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
     return builder.buildFlowGraph();
   }
 
-  private static MutableIntSet findOrCreateMutableIntSet(Map<Vertex, MutableIntSet> M, Vertex v) {
-    if (M == null) {
-      throw new IllegalArgumentException("M is null");
+  /**
+   * The vertices still to be processed, as a FIFO queue of vertex numbers. A vertex is queued at
+   * most once at any time.
+   */
+  private static final class Worklist {
+    private final FlowGraph flowgraph;
+
+    private int[] queue = new int[64];
+
+    private int head = 0;
+
+    private int size = 0;
+
+    private final BitVector queued = new BitVector();
+
+    private Worklist(FlowGraph flowgraph) {
+      this.flowgraph = flowgraph;
+    }
+
+    private boolean isEmpty() {
+      return size == 0;
+    }
+
+    private void add(Vertex v) {
+      add(flowgraph.getNumber(v));
+    }
+
+    private void add(int v) {
+      if (queued.get(v)) {
+        return;
+      }
+      queued.set(v);
+      if (size == queue.length) {
+        int[] grown = new int[2 * queue.length];
+        for (int i = 0; i < size; i++) {
+          grown[i] = queue[(head + i) % queue.length];
+        }
+        queue = grown;
+        head = 0;
+      }
+      queue[(head + size++) % queue.length] = v;
+    }
+
+    private int take() {
+      int v = queue[head];
+      head = (head + 1) % queue.length;
+      size--;
+      queued.clear(v);
+      return v;
+    }
+
+    /** a worklist holding the vertices of a set-based worklist */
+    private static Worklist of(FlowGraph flowgraph, Set<Vertex> vertices) {
+      Worklist worklist = new Worklist(flowgraph);
+      vertices.forEach(worklist::add);
+      return worklist;
+    }
+
+    /** move the queued vertices into a set-based worklist */
+    private void drainTo(Set<Vertex> vertices) {
+      while (!isEmpty()) {
+        vertices.add(flowgraph.getVertex(take()));
+      }
+    }
+  }
+
+  /** The functions reaching each vertex, indexed by vertex number and created on demand. */
+  private static final class ReachingFunctions {
+    private MutableIntSet[] sets = new MutableIntSet[64];
+
+    private MutableIntSet get(int v) {
+      if (v >= sets.length) {
+        sets = Arrays.copyOf(sets, Math.max(v + 1, 2 * sets.length));
+      }
+      if (sets[v] == null) {
+        sets[v] = new MutableSharedBitVectorIntSet();
+      }
+      return sets[v];
+    }
+
+    /** the sets of a map from vertices in the flow graph, shared rather than copied */
+    private static ReachingFunctions of(FlowGraph flowgraph, Map<Vertex, MutableIntSet> map) {
+      ReachingFunctions result = new ReachingFunctions();
+      map.forEach(
+          (v, set) -> {
+            int number = flowgraph.getNumber(v);
+            if (number != -1) {
+              result.get(number);
+              result.sets[number] = set;
+            }
+          });
+      return result;
+    }
+
+    /** add the sets created since {@link #of} to the map they came from */
+    private void copyTo(FlowGraph flowgraph, Map<Vertex, MutableIntSet> map) {
+      for (int v = 0; v < sets.length; v++) {
+        if (sets[v] != null) {
+          map.putIfAbsent(flowgraph.getVertex(v), sets[v]);
+        }
+      }
     }
-    return M.computeIfAbsent(v, k -> new MutableSharedBitVectorIntSet());
   }
 
   @Override
   public Set<Pair<CallVertex, FuncVertex>> extractCallGraphEdges(
       FlowGraph flowgraph, IProgressMonitor monitor) throws CancelException {
     VertexFactory factory = flowgraph.getVertexFactory();
-    Set<Vertex> worklist = HashSetFactory.make();
+    Worklist worklist = new Worklist(flowgraph);
     OrdinalSetMapping<FuncVertex> mapping = new MutableMapping<>(new FuncVertex[100]);
-    Map<Vertex, MutableIntSet> reachingFunctions = HashMapFactory.make();
+    ReachingFunctions reachingFunctions = new ReachingFunctions();
     Map<VarVertex, Pair<JavaScriptInvoke, Boolean>> reflectiveCalleeVertices =
         HashMapFactory.make();
     /* maps to maintain the list of reachable calls that are yet to be processed * */
@@ -103,7 +201,7 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
       if (v instanceof FuncVertex fv) {
         worklist.add(fv);
         int mappedVal = mapping.add(fv);
-        findOrCreateMutableIntSet(reachingFunctions, fv).add(mappedVal);
+        reachingFunctions.get(flowgraph.getNumber(fv)).add(mappedVal);
       }
     }
     int cnt = 0;
@@ -136,30 +234,33 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
       while (!worklist.isEmpty()) {
         MonitorUtil.throwExceptionIfCanceled(monitor);
 
-        Vertex v = worklist.iterator().next();
-        worklist.remove(v);
-        MutableIntSet vReach = findOrCreateMutableIntSet(reachingFunctions, v);
-        for (Vertex w : Iterator2Iterable.make(flowgraph.getSucc(v))) {
+        int v = worklist.take();
+        MutableIntSet vReach = reachingFunctions.get(v);
+        for (int i = 0; i < flowgraph.getSuccCount(v); i++) {
           MonitorUtil.throwExceptionIfCanceled(monitor);
 
-          MutableIntSet wReach = findOrCreateMutableIntSet(reachingFunctions, w);
+          int w = flowgraph.getSucc(v, i);
+          Vertex wVertex = flowgraph.getVertex(w);
+          MutableIntSet wReach = reachingFunctions.get(w);
           boolean changed = false;
-          if (w instanceof CallVertex) {
+          if (wVertex instanceof CallVertex) {
             IntIterator mappedFuncs = vReach.intIterator();
             while (mappedFuncs.hasNext()) {
-              FuncVertex fv = mapping.getMappedObject(mappedFuncs.next());
-              if (wReach.add(mapping.getMappedIndex(fv))) {
+              int mapped = mappedFuncs.next();
+              if (wReach.add(mapped)) {
                 changed = true;
-                MapUtil.findOrCreateSet(pendingCallWorklist, w).add(fv);
+                MapUtil.findOrCreateSet(pendingCallWorklist, wVertex)
+                    .add(mapping.getMappedObject(mapped));
               }
             }
-          } else if (handleCallApply && reflectiveCalleeVertices.containsKey(w)) {
+          } else if (handleCallApply && reflectiveCalleeVertices.containsKey(wVertex)) {
             IntIterator mappedFuncs = vReach.intIterator();
             while (mappedFuncs.hasNext()) {
-              FuncVertex fv = mapping.getMappedObject(mappedFuncs.next());
-              if (wReach.add(mapping.getMappedIndex(fv))) {
+              int mapped = mappedFuncs.next();
+              if (wReach.add(mapped)) {
                 changed = true;
-                MapUtil.findOrCreateSet(pendingReflectiveCallWorklist, w).add(fv);
+                MapUtil.findOrCreateSet(pendingReflectiveCallWorklist, wVertex)
+                    .add(mapping.getMappedObject(mapped));
               }
             }
           } else {
@@ -175,10 +276,9 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
     System.out.println("The last executed bound was : " + cnt);
 
     Set<Pair<CallVertex, FuncVertex>> res = HashSetFactory.make();
-    for (Map.Entry<Vertex, MutableIntSet> entry : reachingFunctions.entrySet()) {
-      final Vertex v = entry.getKey();
-      if (v instanceof CallVertex callVertex) {
-        IntIterator mapped = entry.getValue().intIterator();
+    for (int v = 0; v <= flowgraph.getMaxNumber(); v++) {
+      if (flowgraph.getVertex(v) instanceof CallVertex callVertex) {
+        IntIterator mapped = reachingFunctions.get(v).intIterator();
         while (mapped.hasNext()) {
           FuncVertex fv = mapping.getMappedObject(mapped.next());
           res.add(Pair.make(callVertex, fv));
@@ -188,6 +288,10 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
     return res;
   }
 
+  /**
+   * Add the call edges for the functions newly found to reach call vertices. Kept for subclasses
+   * and callers using set-based worklists; the builder itself uses vertex numbers.
+   */
   public void processPendingCallWorklist(
       FlowGraph flowgraph,
       Map<Vertex, Set<FuncVertex>> pendingCallWorklist,
@@ -196,6 +300,28 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
       Map<VarVertex, Pair<JavaScriptInvoke, Boolean>> reflectiveCalleeVertices,
       Set<Vertex> worklist,
       OrdinalSetMapping<FuncVertex> mapping) {
+    ReachingFunctions reaching = ReachingFunctions.of(flowgraph, reachingFunctions);
+    Worklist queue = Worklist.of(flowgraph, worklist);
+    processPendingCallWorklist(
+        flowgraph,
+        pendingCallWorklist,
+        factory,
+        reaching,
+        reflectiveCalleeVertices,
+        queue,
+        mapping);
+    reaching.copyTo(flowgraph, reachingFunctions);
+    queue.drainTo(worklist);
+  }
+
+  private void processPendingCallWorklist(
+      FlowGraph flowgraph,
+      Map<Vertex, Set<FuncVertex>> pendingCallWorklist,
+      VertexFactory factory,
+      ReachingFunctions reachingFunctions,
+      Map<VarVertex, Pair<JavaScriptInvoke, Boolean>> reflectiveCalleeVertices,
+      Worklist worklist,
+      OrdinalSetMapping<FuncVertex> mapping) {
     for (Map.Entry<Vertex, Set<FuncVertex>> entry : pendingCallWorklist.entrySet()) {
       CallVertex callVertex = (CallVertex) entry.getKey();
       for (FuncVertex fv : entry.getValue()) {
@@ -214,7 +340,7 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
           boolean isCall = fullName.equals("Lprologue.js/Function_prototype_call");
           reflectiveCalleeVertices.put(reflectiveCalleeVertex, Pair.make(invoke, isCall));
           IntIterator reflectiveCalleeMapped =
-              findOrCreateMutableIntSet(reachingFunctions, reflectiveCalleeVertex).intIterator();
+              reachingFunctions.get(flowgraph.getNumber(reflectiveCalleeVertex)).intIterator();
           while (reflectiveCalleeMapped.hasNext()) {
             FuncVertex fw = mapping.getMappedObject(reflectiveCalleeMapped.next());
             addReflectiveCallEdge(flowgraph, reflectiveCalleeVertex, invoke, fw, worklist, isCall);
@@ -224,11 +350,26 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
     }
   }
 
+  /**
+   * Add the data flow for the functions newly found to reach reflective callees. Kept for
+   * subclasses and callers using set-based worklists; the builder itself uses vertex numbers.
+   */
   public void processPendingReflectiveCallWorklist(
       FlowGraph flowgraph,
       Map<Vertex, Set<FuncVertex>> pendingReflectiveCallWorklist,
       Map<VarVertex, Pair<JavaScriptInvoke, Boolean>> reflectiveCalleeVertices,
       Set<Vertex> worklist) {
+    Worklist queue = Worklist.of(flowgraph, worklist);
+    processPendingReflectiveCallWorklist(
+        flowgraph, pendingReflectiveCallWorklist, reflectiveCalleeVertices, queue);
+    queue.drainTo(worklist);
+  }
+
+  private void processPendingReflectiveCallWorklist(
+      FlowGraph flowgraph,
+      Map<Vertex, Set<FuncVertex>> pendingReflectiveCallWorklist,
+      Map<VarVertex, Pair<JavaScriptInvoke, Boolean>> reflectiveCalleeVertices,
+      Worklist worklist) {
     for (Map.Entry<Vertex, Set<FuncVertex>> entry : pendingReflectiveCallWorklist.entrySet()) {
       final Vertex v = entry.getKey();
       Pair<JavaScriptInvoke, Boolean> invokeAndIsCall = reflectiveCalleeVertices.get(v);
@@ -241,7 +382,7 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
 
   // add flow corresponding to a new call edge
   private void addCallEdge(
-      FlowGraph flowgraph, CallVertex c, FuncVertex callee, Set<Vertex> worklist) {
+      FlowGraph flowgraph, CallVertex c, FuncVertex callee, Worklist worklist) {
     VertexFactory factory = flowgraph.getVertexFactory();
     FuncVertex caller = c.getCaller();
     JavaScriptInvoke invoke = c.getInstruction();
@@ -279,6 +420,11 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
     worklist.add(from);
   }
 
+  private void addFlowEdge(FlowGraph flowgraph, Vertex from, Vertex to, Worklist worklist) {
+    flowgraph.addEdge(from, to);
+    worklist.add(from);
+  }
+
   // add data flow corresponding to a reflective invocation via Function.prototype.call
   // NB: for f.call(...), f will _not_ appear as a call target, but the appropriate argument and
   // return data flow will be set up
@@ -287,7 +433,7 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
       VarVertex reflectiveCallee,
       JavaScriptInvoke invoke,
       FuncVertex realCallee,
-      Set<Vertex> worklist,
+      Worklist worklist,
       boolean isFunctionPrototypeCall) {
     VertexFactory factory = flowgraph.getVertexFactory();
     FuncVertex caller = reflectiveCallee.getFunction();
@@ -19,7 +19,6 @@ import com.ibm.wala.cast.ipa.callgraph.AstHeapModel;
 import com.ibm.wala.cast.ir.ssa.AstGlobalWrite;
 import com.ibm.wala.cast.ir.ssa.AstIRFactory;
 import com.ibm.wala.cast.ir.ssa.AstPropertyWrite;
-import com.ibm.wala.cast.js.callgraph.fieldbased.flowgraph.vertices.AbstractVertexVisitor;
 import com.ibm.wala.cast.js.callgraph.fieldbased.flowgraph.vertices.CreationSiteVertex;
 import com.ibm.wala.cast.js.callgraph.fieldbased.flowgraph.vertices.FuncVertex;
 import com.ibm.wala.cast.js.callgraph.fieldbased.flowgraph.vertices.ObjectVertex;
@@ -60,19 +59,23 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.CompoundIterator;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.FilterIterator;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.collections.Pair;
-import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
 import com.ibm.wala.util.graph.GraphReachability;
-import com.ibm.wala.util.graph.GraphSlicer;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
 import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.NumberedNodeManager;
 import com.ibm.wala.util.graph.impl.ExtensionGraph;
-import com.ibm.wala.util.graph.impl.InvertedGraph;
 import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
 import com.ibm.wala.util.graph.traverse.DFS;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.intset.OrdinalSetMapping;
 import java.io.Serial;
@@ -91,7 +94,7 @@ import org.jspecify.annotations.NonNull;
 public class FlowGraph implements Iterable<Vertex> {
 
   // the actual flow graph representation
-  private final NumberedGraph<Vertex> graph;
+  private final NumberedFlowGraph graph;
 
   // a factory that allows us to build canonical vertices
   private final VertexFactory factory;
@@ -101,7 +104,7 @@ public class FlowGraph implements Iterable<Vertex> {
   private GraphReachability<Vertex, FuncVertex> optimistic_closure;
 
   public FlowGraph() {
-    this.graph = new SlowSparseNumberedGraph<>(1);
+    this.graph = new NumberedFlowGraph();
     this.factory = new VertexFactory();
   }
 
@@ -115,33 +118,117 @@ public class FlowGraph implements Iterable<Vertex> {
   private static <T> GraphReachability<Vertex, T> computeClosure(
       NumberedGraph<Vertex> graph, IProgressMonitor monitor, final Class<?> type)
       throws CancelException {
-    // prune flowgraph by taking out 'unknown' vertex
-    Graph<Vertex> pruned_flowgraph =
-        GraphSlicer.prune(
-            graph,
-            t ->
-                t.accept(
-                    new AbstractVertexVisitor<>() {
-                      @Override
-                      public Boolean visitVertex() {
-                        return true;
-                      }
-
-                      @Override
-                      public Boolean visitUnknownVertex(UnknownVertex unknownVertex) {
-                        return false;
-                      }
-                    }));
-
-    // compute transitive closure
+    // compute transitive closure; the inverted graph is numbered, so strongly connected components
+    // are collapsed and each one shares a single bit vector
     GraphReachability<Vertex, T> optimistic_closure =
-        new GraphReachability<>(new InvertedGraph<>(pruned_flowgraph), type::isInstance);
+        new GraphReachability<>(new OptimisticInverse(graph), type::isInstance);
 
     optimistic_closure.solve(monitor);
 
     return optimistic_closure;
   }
 
+  /**
+   * A view of a flow graph with all edges reversed, and without edges to or from the {@link
+   * UnknownVertex}. Unlike pruning the unknown vertex from the graph, this preserves node numbers.
+   */
+  private static final class OptimisticInverse extends AbstractNumberedGraph<Vertex> {
+    private final NumberedGraph<Vertex> graph;
+
+    private final NumberedEdgeManager<Vertex> edges =
+        new NumberedEdgeManager<>() {
+          private Iterator<Vertex> known(Vertex n, Iterator<Vertex> neighbors) {
+            return n instanceof UnknownVertex
+                ? EmptyIterator.instance()
+                : new FilterIterator<>(neighbors, v -> !(v instanceof UnknownVertex));
+          }
+
+          private IntSet knownNumbers(Vertex n, Iterator<Vertex> neighbors) {
+            MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+            for (Vertex v : Iterator2Iterable.make(known(n, neighbors))) {
+              result.add(graph.getNumber(v));
+            }
+            return result;
+          }
+
+          @Override
+          public Iterator<Vertex> getPredNodes(Vertex n) {
+            return known(n, graph.getSuccNodes(n));
+          }
+
+          @Override
+          public int getPredNodeCount(Vertex n) {
+            return getPredNodeNumbers(n).size();
+          }
+
+          @Override
+          public IntSet getPredNodeNumbers(Vertex node) {
+            return knownNumbers(node, graph.getSuccNodes(node));
+          }
+
+          @Override
+          public Iterator<Vertex> getSuccNodes(Vertex n) {
+            return known(n, graph.getPredNodes(n));
+          }
+
+          @Override
+          public int getSuccNodeCount(Vertex n) {
+            return getSuccNodeNumbers(n).size();
+          }
+
+          @Override
+          public IntSet getSuccNodeNumbers(Vertex node) {
+            return knownNumbers(node, graph.getPredNodes(node));
+          }
+
+          @Override
+          public boolean hasEdge(Vertex src, Vertex dst) {
+            return !(src instanceof UnknownVertex)
+                && !(dst instanceof UnknownVertex)
+                && graph.hasEdge(dst, src);
+          }
+
+          @Override
+          public void addEdge(Vertex src, Vertex dst) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public void removeEdge(Vertex src, Vertex dst) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public void removeAllIncidentEdges(Vertex node) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public void removeIncomingEdges(Vertex node) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public void removeOutgoingEdges(Vertex node) {
+            throw new UnsupportedOperationException();
+          }
+        };
+
+    private OptimisticInverse(NumberedGraph<Vertex> graph) {
+      this.graph = graph;
+    }
+
+    @Override
+    protected NumberedNodeManager<Vertex> getNodeManager() {
+      return graph;
+    }
+
+    @Override
+    protected NumberedEdgeManager<Vertex> getEdgeManager() {
+      return edges;
+    }
+  }
+
   public VertexFactory getVertexFactory() {
     return factory;
   }
@@ -176,6 +263,39 @@ public class FlowGraph implements Iterable<Vertex> {
     return graph.getSuccNodes(v);
   }
 
+  /**
+   * @return the number of vertex {@code v}, or -1 if it is not in the graph. Numbers are dense and
+   *     never change, so clients can keep per-vertex state in arrays indexed by them.
+   */
+  public int getNumber(Vertex v) {
+    return graph.getNumber(v);
+  }
+
+  public Vertex getVertex(int number) {
+    return graph.getNode(number);
+  }
+
+  /**
+   * @return the largest vertex number in use
+   */
+  public int getMaxNumber() {
+    return graph.getMaxNumber();
+  }
+
+  /**
+   * @return the number of successors of the vertex numbered {@code n}
+   */
+  public int getSuccCount(int n) {
+    return graph.getSuccCount(n);
+  }
+
+  /**
+   * @return the number of the {@code i}-th successor of the vertex numbered {@code n}
+   */
+  public int getSucc(int n, int i) {
+    return graph.getSucc(n, i);
+  }
+
   @Override
   public Iterator<Vertex> iterator() {
     return graph.iterator();
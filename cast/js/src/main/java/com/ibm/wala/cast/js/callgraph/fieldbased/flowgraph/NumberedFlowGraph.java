@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.js.callgraph.fieldbased.flowgraph;
+
+import com.ibm.wala.cast.js.callgraph.fieldbased.flowgraph.vertices.Vertex;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.SlowNumberedNodeManager;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The graph underlying a {@link FlowGraph}. Vertices are numbered in the order they are added, and
+ * the successors and predecessors of each vertex are kept in growable int arrays indexed by vertex
+ * number, so an edge costs two ints instead of two entries in per-vertex sets.
+ *
+ * <p>Flow graphs only ever grow, so vertices and edges cannot be removed.
+ */
+public class NumberedFlowGraph extends AbstractNumberedGraph<Vertex> {
+
+  private static final int[] NO_EDGES = new int[0];
+
+  private final SlowNumberedNodeManager<Vertex> nodeManager = new SlowNumberedNodeManager<>();
+
+  private final Edges edgeManager = new Edges();
+
+  @Override
+  protected NumberedNodeManager<Vertex> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<Vertex> getEdgeManager() {
+    return edgeManager;
+  }
+
+  /** number of successors of the vertex numbered n */
+  public int getSuccCount(int n) {
+    return n < edgeManager.succCount.length ? edgeManager.succCount[n] : 0;
+  }
+
+  /** the i-th successor of the vertex numbered n, for 0 &lt;= i &lt; {@link #getSuccCount(int)} */
+  public int getSucc(int n, int i) {
+    return edgeManager.succs[n][i];
+  }
+
+  private final class Edges implements NumberedEdgeManager<Vertex> {
+
+    private int[][] succs = new int[16][];
+
+    private int[] succCount = new int[16];
+
+    private int[][] preds = new int[16][];
+
+    private int[] predCount = new int[16];
+
+    private int numberOf(Vertex v) {
+      int number = nodeManager.getNumber(v);
+      if (number == -1) {
+        throw new IllegalArgumentException("vertex not in graph: " + v);
+      }
+      return number;
+    }
+
+    private void ensureCapacity(int n) {
+      if (n >= succs.length) {
+        int size = Math.max(n + 1, 2 * succs.length);
+        succs = Arrays.copyOf(succs, size);
+        succCount = Arrays.copyOf(succCount, size);
+        preds = Arrays.copyOf(preds, size);
+        predCount = Arrays.copyOf(predCount, size);
+      }
+    }
+
+    private int[] list(int[][] lists, int n) {
+      return n < lists.length && lists[n] != null ? lists[n] : NO_EDGES;
+    }
+
+    private int count(int[] counts, int n) {
+      return n < counts.length ? counts[n] : 0;
+    }
+
+    private void append(int[][] lists, int[] counts, int n, int value) {
+      int[] list = lists[n];
+      if (list == null) {
+        list = lists[n] = new int[2];
+      } else if (counts[n] == list.length) {
+        list = lists[n] = Arrays.copyOf(list, 2 * list.length);
+      }
+      list[counts[n]++] = value;
+    }
+
+    private Iterator<Vertex> iterate(int[] targets, int count) {
+      return new Iterator<>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return next < count;
+        }
+
+        @Override
+        public Vertex next() {
+          if (next >= count) {
+            throw new NoSuchElementException();
+          }
+          return nodeManager.getNode(targets[next++]);
+        }
+      };
+    }
+
+    private IntSet toIntSet(int[] targets, int count) {
+      MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+      for (int i = 0; i < count; i++) {
+        result.add(targets[i]);
+      }
+      return result;
+    }
+
+    @Override
+    public Iterator<Vertex> getSuccNodes(Vertex n) {
+      int number = numberOf(n);
+      return iterate(list(succs, number), count(succCount, number));
+    }
+
+    @Override
+    public int getSuccNodeCount(Vertex n) {
+      return count(succCount, numberOf(n));
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(Vertex node) {
+      int number = numberOf(node);
+      return toIntSet(list(succs, number), count(succCount, number));
+    }
+
+    @Override
+    public Iterator<Vertex> getPredNodes(Vertex n) {
+      int number = numberOf(n);
+      return iterate(list(preds, number), count(predCount, number));
+    }
+
+    @Override
+    public int getPredNodeCount(Vertex n) {
+      return count(predCount, numberOf(n));
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(Vertex node) {
+      int number = numberOf(node);
+      return toIntSet(list(preds, number), count(predCount, number));
+    }
+
+    /** scans whichever of the two adjacency lists involved is shorter */
+    @Override
+    public boolean hasEdge(Vertex src, Vertex dst) {
+      int s = nodeManager.getNumber(src);
+      int d = nodeManager.getNumber(dst);
+      if (s == -1 || d == -1) {
+        return false;
+      }
+      int sCount = count(succCount, s);
+      int dCount = count(predCount, d);
+      int[] targets = sCount <= dCount ? list(succs, s) : list(preds, d);
+      int target = sCount <= dCount ? d : s;
+      for (int i = Math.min(sCount, dCount) - 1; i >= 0; i--) {
+        if (targets[i] == target) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void addEdge(Vertex src, Vertex dst) {
+      if (hasEdge(src, dst)) {
+        return;
+      }
+      int s = numberOf(src);
+      int d = numberOf(dst);
+      ensureCapacity(Math.max(s, d));
+      append(succs, succCount, s, d);
+      append(preds, predCount, d, s);
+    }
+
+    @Override
+    public void removeEdge(Vertex src, Vertex dst) {
+      throw new UnsupportedOperationException("flow graphs only grow");
+    }
+
+    @Override
+    public void removeAllIncidentEdges(Vertex node) {
+      throw new UnsupportedOperationException("flow graphs only grow");
+    }
+
+    @Override
+    public void removeIncomingEdges(Vertex node) {
+      throw new UnsupportedOperationException("flow graphs only grow");
+    }
+
+    @Override
+    public void removeOutgoingEdges(Vertex node) {
+      throw new UnsupportedOperationException("flow graphs only grow");
+    }
+  }
+
+  @Override
+  public void removeNode(Vertex n) {
+    throw new UnsupportedOperationException("flow graphs only grow");
+  }
+}
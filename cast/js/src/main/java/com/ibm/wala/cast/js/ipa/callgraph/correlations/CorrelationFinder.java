@@ -54,6 +54,7 @@ import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.OrdinalSetMapping;
+import com.ibm.wala.util.perf.Stopwatch;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.net.MalformedURLException;
@@ -65,9 +66,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 /**
  * Helper class for identifying correlated read/write pairs.
@@ -78,12 +82,64 @@ public class CorrelationFinder {
   private static final boolean TRACK_ESCAPES = true;
   private static final boolean IGNORE_NUMERIC_INDICES = false;
 
+  /**
+   * Set this system property to {@code true} to make {@link #setParallel(boolean)} default to true.
+   */
+  public static final String PARALLEL_PROPERTY = "com.ibm.wala.cast.js.parallelCorrelationFinding";
+
   private final JavaScriptTranslatorFactory translatorFactory;
 
+  private boolean parallel = Boolean.getBoolean(PARALLEL_PROPERTY);
+
+  /** time spent loading the scripts and building the class hierarchy */
+  private final Stopwatch classHierarchyTime = new Stopwatch();
+
+  /** time spent building IR, in nanoseconds, summed over all threads */
+  private final LongAdder irTime = new LongAdder();
+
+  /** time spent searching IR for correlations, in nanoseconds, summed over all threads */
+  private final LongAdder searchTime = new LongAdder();
+
   public CorrelationFinder(JavaScriptTranslatorFactory translatorFactory) {
     this.translatorFactory = translatorFactory;
   }
 
+  /**
+   * If set, the IR of the functions in the analyzed scripts is built and searched for correlations
+   * concurrently. Every function is handled independently, so the result is the same as for a
+   * sequential run; large bundles, which define many functions in one script, benefit as much as
+   * programs made of many scripts.
+   */
+  public void setParallel(boolean parallel) {
+    this.parallel = parallel;
+  }
+
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  /**
+   * @return time in ms spent loading the scripts and building their class hierarchy, which includes
+   *     parsing and translating them to CAst
+   */
+  public long getClassHierarchyMillis() {
+    return classHierarchyTime.getElapsedMillis();
+  }
+
+  /**
+   * @return time in ms spent building IR for the functions in the scripts, summed over all threads
+   */
+  public long getIRMillis() {
+    return irTime.sum() / 1000000;
+  }
+
+  /**
+   * @return time in ms spent searching the IR for correlated accesses, summed over all threads
+   */
+  public long getSearchMillis() {
+    return searchTime.sum() / 1000000;
+  }
+
   @SuppressWarnings("unused")
   public static CorrelationSummary findCorrelatedAccesses(IMethod method, IR ir) {
     AstMethod astMethod = (AstMethod) method;
@@ -276,11 +332,17 @@ public class CorrelationFinder {
 
   public Map<IMethod, CorrelationSummary> findCorrelatedAccesses(SourceModule[] scripts_array)
       throws ClassHierarchyException {
+    classHierarchyTime.start();
     JSCallGraphUtil.setTranslatorFactory(translatorFactory);
     JavaScriptLoaderFactory loaders = JSCallGraphUtil.makeLoaders(null);
     CAstAnalysisScope scope =
         new CAstAnalysisScope(scripts_array, loaders, Collections.singleton(JavaScriptLoader.JS));
-    IClassHierarchy cha = ClassHierarchyFactory.make(scope, loaders, JavaScriptLoader.JS);
+    IClassHierarchy cha;
+    try {
+      cha = ClassHierarchyFactory.make(scope, loaders, JavaScriptLoader.JS);
+    } finally {
+      classHierarchyTime.stop();
+    }
     try {
       com.ibm.wala.cast.util.Util.checkForFrontEndErrors(cha);
     } catch (WalaException e) {
@@ -291,18 +353,32 @@ public class CorrelationFinder {
     SSAOptions ssaOptions = SSAOptions.defaultOptions();
     ssaOptions.setDefaultValues((symtab, valueNumber) -> symtab.getNullConstant());
 
-    Map<IMethod, CorrelationSummary> correlations = HashMapFactory.make();
-    for (IClass klass : cha) {
-      for (IMethod method : klass.getAllMethods()) {
-        IR ir = factory.makeIR(method, Everywhere.EVERYWHERE, ssaOptions);
-        CorrelationSummary summary = findCorrelatedAccesses(method, ir);
-        if (!summary.getCorrelations().isEmpty()) correlations.put(method, summary);
-      }
-    }
+    // inherited methods are listed by every subclass, but need only be searched once
+    Set<IMethod> methods = new LinkedHashSet<>();
+    for (IClass klass : cha) methods.addAll(klass.getAllMethods());
+
+    List<Pair<IMethod, CorrelationSummary>> summaries =
+        (parallel ? methods.parallelStream() : methods.stream())
+            .map(method -> Pair.make(method, findCorrelatedAccesses(factory, method, ssaOptions)))
+            .filter(p -> !p.snd.isEmpty())
+            .collect(Collectors.toList());
 
+    Map<IMethod, CorrelationSummary> correlations = HashMapFactory.make();
+    for (Pair<IMethod, CorrelationSummary> p : summaries) correlations.put(p.fst, p.snd);
     return correlations;
   }
 
+  private CorrelationSummary findCorrelatedAccesses(
+      IRFactory<IMethod> factory, IMethod method, SSAOptions ssaOptions) {
+    long start = System.nanoTime();
+    IR ir = factory.makeIR(method, Everywhere.EVERYWHERE, ssaOptions);
+    long built = System.nanoTime();
+    irTime.add(built - start);
+    CorrelationSummary summary = findCorrelatedAccesses(method, ir);
+    searchTime.add(System.nanoTime() - built);
+    return summary;
+  }
+
   @SuppressWarnings("unused")
   private URL toUrl(String src) throws MalformedURLException {
     // first try interpreting as local file name, if that doesn't work just assume it's a URL
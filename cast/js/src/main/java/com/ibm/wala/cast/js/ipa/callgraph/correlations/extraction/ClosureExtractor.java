@@ -199,6 +199,18 @@ public class ClosureExtractor extends CAstRewriterExt {
     this.policyFactory = policyFactory;
   }
 
+  /**
+   * Entities from which the policy extracts nothing, directly or in nested entities, are returned
+   * unchanged; copying them would only produce an identical tree.
+   */
+  @Override
+  public CAstEntity rewrite(CAstEntity root) {
+    if (!policyFactory.mayExtract(root)) {
+      return root;
+    }
+    return super.rewrite(root);
+  }
+
   @Override
   protected void enterEntity(CAstEntity entity) {
     policies.push(policyFactory.createPolicy(entity));
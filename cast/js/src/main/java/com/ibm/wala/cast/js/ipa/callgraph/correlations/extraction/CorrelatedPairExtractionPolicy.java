@@ -50,6 +50,9 @@ public class CorrelatedPairExtractionPolicy extends ExtractionPolicy {
   private static final boolean DEBUG = false;
   private final Map<CAstNode, List<ExtractionRegion>> region_map = HashMapFactory.make();
 
+  /** the entities containing a region, directly or in a nested entity */
+  private final Set<CAstEntity> extracting = HashSetFactory.make();
+
   private CorrelatedPairExtractionPolicy() {}
 
   private static void findNodesAtPos(
@@ -158,6 +161,7 @@ public class CorrelatedPairExtractionPolicy extends ExtractionPolicy {
       return false;
     }
 
+    extracting.add(entity);
     List<ExtractionRegion> regions =
         region_map.computeIfAbsent(region_info.fst, k -> new ArrayList<>());
     for (int i = 0; i < regions.size(); ++i) {
@@ -278,14 +282,24 @@ public class CorrelatedPairExtractionPolicy extends ExtractionPolicy {
     // recursively add correlations for scoped entities
     Map<CAstNode, Collection<CAstEntity>> allScopedEntities = entity.getAllScopedEntities();
     for (Collection<CAstEntity> scopedEntities : allScopedEntities.values())
-      for (CAstEntity scopedEntity : scopedEntities)
+      for (CAstEntity scopedEntity : scopedEntities) {
         if (addCorrelations(scopedEntity, summaries, policy) == null) return null;
+        if (policy.extracting.contains(scopedEntity)) policy.extracting.add(entity);
+      }
     return policy;
   }
 
   public static CorrelatedPairExtractionPolicy make(
       CAstEntity entity, Map<IMethod, CorrelationSummary> summaries) {
-    CorrelatedPairExtractionPolicy policy = new CorrelatedPairExtractionPolicy();
+    return makeFromIndex(entity, indexByPosition(summaries));
+  }
+
+  /**
+   * @return the given summaries keyed by the source position of their method, which is how {@link
+   *     #makeFromIndex(CAstEntity, Map)} looks them up
+   */
+  static Map<Position, CorrelationSummary> indexByPosition(
+      Map<IMethod, CorrelationSummary> summaries) {
     Map<Position, CorrelationSummary> summary_map = HashMapFactory.make();
     for (Map.Entry<IMethod, CorrelationSummary> e : summaries.entrySet()) {
       if (e.getKey() instanceof AstMethod) {
@@ -293,7 +307,24 @@ public class CorrelatedPairExtractionPolicy extends ExtractionPolicy {
         if (pos != null) summary_map.put(pos, e.getValue());
       }
     }
-    return addCorrelations(entity, summary_map, policy);
+    return summary_map;
+  }
+
+  /**
+   * Makes a policy for {@code entity} and the entities nested in it. Since regions are keyed by the
+   * block they are extracted from, the policy for a script serves every function in it as well.
+   */
+  static CorrelatedPairExtractionPolicy makeFromIndex(
+      CAstEntity entity, Map<Position, CorrelationSummary> summary_map) {
+    return addCorrelations(entity, summary_map, new CorrelatedPairExtractionPolicy());
+  }
+
+  /**
+   * @return whether any code in {@code entity}, or in an entity nested in it, may be extracted;
+   *     {@code entity} must be the entity this policy was made for, or one nested in it
+   */
+  public boolean extractsFrom(CAstEntity entity) {
+    return extracting.contains(entity);
   }
 
   @Override
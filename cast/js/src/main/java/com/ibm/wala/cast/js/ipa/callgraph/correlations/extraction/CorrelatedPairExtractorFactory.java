@@ -16,6 +16,7 @@ import com.ibm.wala.cast.js.ipa.callgraph.correlations.CorrelationSummary;
 import com.ibm.wala.cast.js.translator.JavaScriptTranslatorFactory;
 import com.ibm.wala.cast.tree.CAst;
 import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
 import com.ibm.wala.cast.tree.rewrite.CAstBasicRewriter.NoKey;
 import com.ibm.wala.cast.tree.rewrite.CAstRewriterFactory;
 import com.ibm.wala.classLoader.IMethod;
@@ -23,9 +24,23 @@ import com.ibm.wala.classLoader.SourceModule;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Makes {@link ClosureExtractor}s that extract the correlated pairs found by a {@link
+ * CorrelationFinder}. Each script gets its own extractor, so scripts may be rewritten concurrently,
+ * e.g. by a loader translating them to CAst in parallel. Scripts without correlated pairs are
+ * returned as they are instead of being copied.
+ */
 public class CorrelatedPairExtractorFactory implements CAstRewriterFactory<NodePos, NoKey> {
-  private final Map<IMethod, CorrelationSummary> summaries;
+  private final Map<Position, CorrelationSummary> summaries;
+
+  /** time spent rewriting scripts, in nanoseconds, summed over all threads */
+  private final LongAdder extractionTime = new LongAdder();
+
+  private final LongAdder rewritten = new LongAdder();
+
+  private final LongAdder unchanged = new LongAdder();
 
   public CorrelatedPairExtractorFactory(
       JavaScriptTranslatorFactory translatorFactory, URL entryPoint)
@@ -40,21 +55,70 @@ public class CorrelatedPairExtractorFactory implements CAstRewriterFactory<NodeP
   }
 
   public CorrelatedPairExtractorFactory(Map<IMethod, CorrelationSummary> summaries) {
-    this.summaries = summaries;
+    this.summaries = CorrelatedPairExtractionPolicy.indexByPosition(summaries);
+  }
+
+  /**
+   * @return time in ms spent rewriting scripts, summed over all threads
+   */
+  public long getExtractionMillis() {
+    return extractionTime.sum() / 1000000;
+  }
+
+  /**
+   * @return the number of scripts from which something was extracted
+   */
+  public int getRewrittenCount() {
+    return rewritten.intValue();
+  }
+
+  /**
+   * @return the number of scripts that were left unchanged, having no correlated pairs
+   */
+  public int getUnchangedCount() {
+    return unchanged.intValue();
   }
 
   @Override
   public ClosureExtractor createCAstRewriter(CAst ast) {
     ExtractionPolicyFactory policyFactory =
         new ExtractionPolicyFactory() {
+          // the policy for the script being rewritten, which also serves its nested entities
+          private CorrelatedPairExtractionPolicy policy;
+
+          private CorrelatedPairExtractionPolicy getPolicy(CAstEntity entity) {
+            if (policy == null) {
+              policy = CorrelatedPairExtractionPolicy.makeFromIndex(entity, summaries);
+              assert policy != null;
+              (policy.extractsFrom(entity) ? rewritten : unchanged).increment();
+            }
+            return policy;
+          }
+
           @Override
           public ExtractionPolicy createPolicy(CAstEntity entity) {
-            CorrelatedPairExtractionPolicy policy =
-                CorrelatedPairExtractionPolicy.make(entity, summaries);
-            assert policy != null;
-            return policy;
+            return getPolicy(entity);
+          }
+
+          @Override
+          public boolean mayExtract(CAstEntity entity) {
+            return getPolicy(entity).extractsFrom(entity);
           }
         };
-    return new ClosureExtractor(ast, policyFactory);
+    return new ClosureExtractor(ast, policyFactory) {
+      @Override
+      public CAstEntity rewrite(CAstEntity root) {
+        if (getCurrentEntity() != null) {
+          // a nested entity; the script containing it is being timed already
+          return super.rewrite(root);
+        }
+        long start = System.nanoTime();
+        try {
+          return super.rewrite(root);
+        } finally {
+          extractionTime.add(System.nanoTime() - start);
+        }
+      }
+    };
   }
 }
@@ -15,4 +15,13 @@ import com.ibm.wala.cast.tree.CAstEntity;
 
 public abstract class ExtractionPolicyFactory {
   public abstract ExtractionPolicy createPolicy(CAstEntity entity);
+
+  /**
+   * Whether the policy for {@code entity} or for an entity nested in it may extract anything. If
+   * not, {@link ClosureExtractor} leaves {@code entity} as it is rather than copying it. The
+   * default is to assume that it may.
+   */
+  public boolean mayExtract(@SuppressWarnings("unused") CAstEntity entity) {
+    return true;
+  }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.js.translator;
+
+import com.ibm.wala.cast.ir.translator.CAstEntityCache;
+import com.ibm.wala.cast.ir.translator.TranslatorToCAst;
+import com.ibm.wala.cast.tree.CAst;
+import com.ibm.wala.classLoader.ModuleEntry;
+import java.nio.file.Path;
+
+/**
+ * Wraps another {@link JavaScriptTranslatorFactory} so that the CAst of each script is kept in an
+ * on-disk {@link CAstEntityCache} and reused while the script does not change.
+ */
+public class CachingJavaScriptTranslatorFactory implements JavaScriptTranslatorFactory {
+
+  private final JavaScriptTranslatorFactory base;
+
+  private final CAstEntityCache cache;
+
+  /**
+   * @param version identifies base and its configuration; change it to invalidate the cache
+   */
+  public CachingJavaScriptTranslatorFactory(
+      JavaScriptTranslatorFactory base, Path directory, String version) {
+    this.base = base;
+    this.cache =
+        new CAstEntityCache(
+            directory,
+            base.getClass().getName() + ':' + version,
+            name -> JSAstTranslator.Any.getName().equals(name) ? JSAstTranslator.Any : null);
+  }
+
+  public CAstEntityCache getCache() {
+    return cache;
+  }
+
+  @Override
+  public TranslatorToCAst make(CAst ast, ModuleEntry M) {
+    return cache.wrap(base.make(ast, M), M);
+  }
+}
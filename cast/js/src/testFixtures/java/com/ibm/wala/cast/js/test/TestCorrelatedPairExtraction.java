@@ -17,6 +17,7 @@ import com.ibm.wala.cast.js.ipa.callgraph.correlations.CorrelationFinder;
 import com.ibm.wala.cast.js.ipa.callgraph.correlations.CorrelationSummary;
 import com.ibm.wala.cast.js.ipa.callgraph.correlations.extraction.ClosureExtractor;
 import com.ibm.wala.cast.js.ipa.callgraph.correlations.extraction.CorrelatedPairExtractionPolicy;
+import com.ibm.wala.cast.js.ipa.callgraph.correlations.extraction.CorrelatedPairExtractorFactory;
 import com.ibm.wala.cast.js.ipa.callgraph.correlations.extraction.ExtractionPolicy;
 import com.ibm.wala.cast.js.ipa.callgraph.correlations.extraction.ExtractionPolicyFactory;
 import com.ibm.wala.cast.tree.CAstEntity;
@@ -29,6 +30,7 @@ import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.util.io.FileUtil;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import org.intellij.lang.annotations.Language;
@@ -717,4 +719,48 @@ public abstract class TestCorrelatedPairExtraction {
               }
             }""");
   }
+
+  // the extractors made by CorrelatedPairExtractorFactory, fed by a parallel finder, must agree
+  // with per-entity policies, and must leave scripts without correlations as they are
+  @Test
+  public void testFactory() throws IOException, ClassHierarchyException {
+    final var tmp = File.createTempFile("test", ".js", tmpDir);
+    FileUtil.writeFile(
+        tmp,
+        """
+            function extend(dest, src) {
+              for(var p in src) {
+                dest[p] = src[p];
+              }
+            }""");
+    Collection<SourceModule> scripts =
+        Collections.singleton(new SourceURLModule(tmp.toURI().toURL()));
+    final Map<IMethod, CorrelationSummary> summaries =
+        makeCorrelationFinder().findCorrelatedAccesses(scripts);
+    CorrelationFinder finder = makeCorrelationFinder();
+    finder.setParallel(true);
+    CorrelatedPairExtractorFactory factory =
+        new CorrelatedPairExtractorFactory(finder.findCorrelatedAccesses(scripts));
+
+    CAstImpl ast = new CAstImpl();
+    ExtractionPolicyFactory policyFactory =
+        new ExtractionPolicyFactory() {
+          @Override
+          public ExtractionPolicy createPolicy(CAstEntity entity) {
+            return CorrelatedPairExtractionPolicy.make(entity, summaries);
+          }
+        };
+    String expected =
+        new CAstDumper().dump(new ClosureExtractor(ast, policyFactory).rewrite(parseJS(tmp, ast)));
+    String actual =
+        new CAstDumper().dump(factory.createCAstRewriter(ast).rewrite(parseJS(tmp, ast)));
+    assertThat(TestForInBodyExtraction.eraseGeneratedNames(actual))
+        .isEqualTo(TestForInBodyExtraction.eraseGeneratedNames(expected));
+    assertThat(factory.getRewrittenCount()).isEqualTo(1);
+
+    CAstEntity uncorrelated = parseJS(tmp, ast);
+    CorrelatedPairExtractorFactory empty = new CorrelatedPairExtractorFactory(Map.of());
+    assertThat(empty.createCAstRewriter(ast).rewrite(uncorrelated)).isSameAs(uncorrelated);
+    assertThat(empty.getUnchangedCount()).isEqualTo(1);
+  }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.ir.translator;
+
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.CAstType;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.CopyKey;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.RewriteContext;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriterFactory;
+import com.ibm.wala.classLoader.FileModule;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.SourceModule;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * An on-disk cache of translated CAst, so that repeated analyses of mostly unchanged code can skip
+ * the parser and CAst translation for files that have not changed.
+ *
+ * <p>Entries are keyed by a hash of the module's location and contents, the client-supplied
+ * translator version, and the rewriters added to the translator. The version must change whenever
+ * the front end would translate the same source differently. Rewriters are identified by the class
+ * of their factory, so a translator given a factory whose class does not determine what it does
+ * (one with instance fields, or an anonymous, local or lambda class) bypasses the cache. Entities
+ * the {@link CAstEntitySerializer} cannot represent are simply not cached, and unreadable entries
+ * are translated afresh, so wrapping a translator never changes what it produces.
+ */
+public class CAstEntityCache {
+
+  /** bump when the binary form written by {@link CAstEntitySerializer} changes */
+  private static final int FORMAT_VERSION = 2;
+
+  private static final String SUFFIX = ".cast";
+
+  private final Path directory;
+
+  private final String version;
+
+  private final CAstEntitySerializer serializer;
+
+  private final AtomicInteger hits = new AtomicInteger();
+
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * @param directory where cache entries are stored; created if necessary
+   * @param version identifies the front end and its configuration
+   * @param types resolves the names of the types used by the front end, see {@link
+   *     CAstEntitySerializer#CAstEntitySerializer(Function)}
+   */
+  public CAstEntityCache(Path directory, String version, Function<String, CAstType> types) {
+    this.directory = directory;
+    this.version = version;
+    this.serializer = new CAstEntitySerializer(types);
+  }
+
+  /** returns a translator that consults this cache before running the given one */
+  public TranslatorToCAst wrap(TranslatorToCAst translator, ModuleEntry module) {
+    return new CachingTranslator(translator, module);
+  }
+
+  /** number of translations answered from the cache */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /** number of translations that had to run the underlying translator */
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * where the module comes from; the translated CAst records it in source positions, so files with
+   * the same name and contents in different places need separate entries
+   */
+  private static String location(ModuleEntry module) {
+    if (module instanceof SourceModule) {
+      return String.valueOf(((SourceModule) module).getURL());
+    } else if (module instanceof FileModule) {
+      return ((FileModule) module).getAbsolutePath();
+    } else {
+      return module.getName();
+    }
+  }
+
+  private String key(ModuleEntry module, List<String> rewriters) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(
+        (FORMAT_VERSION + "\0" + version + '\0' + rewriters + '\0' + location(module) + '\0')
+            .getBytes(StandardCharsets.UTF_8));
+    try (InputStream in = module.getInputStream()) {
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, n);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * @return the class name of a rewriter factory whose class alone determines the rewriting, i.e. a
+   *     named class without instance fields, or null if the factory may be configured
+   */
+  private static String rewriterName(CAstRewriterFactory<?, ?> factory) {
+    Class<?> c = factory.getClass();
+    if (c.isHidden() || c.isSynthetic() || c.isAnonymousClass() || c.isLocalClass()) {
+      return null;
+    }
+    for (Class<?> k = c; k != null; k = k.getSuperclass()) {
+      for (Field f : k.getDeclaredFields()) {
+        if (!Modifier.isStatic(f.getModifiers())) {
+          return null;
+        }
+      }
+    }
+    return c.getName();
+  }
+
+  private CAstEntity load(Path file) {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      return serializer.read(in);
+    } catch (IOException | RuntimeException e) {
+      // missing, truncated or stale; translate again and overwrite it
+      return null;
+    }
+  }
+
+  private void store(Path file, CAstEntity entity) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      serializer.write(entity, new DataOutputStream(bytes));
+    } catch (IllegalArgumentException | IOException e) {
+      // not representable; leave this module uncached
+      return;
+    }
+
+    Path tmp = null;
+    try {
+      Files.createDirectories(directory);
+      tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+        bytes.writeTo(out);
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      tmp = null;
+    } catch (IOException e) {
+      // the cache is only an optimization
+    } finally {
+      if (tmp != null) {
+        try {
+          Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  private class CachingTranslator implements TranslatorToCAst {
+    private final TranslatorToCAst base;
+
+    private final ModuleEntry module;
+
+    private final List<String> rewriters = new ArrayList<>();
+
+    /** false once a rewriter has been added whose configuration the key cannot capture */
+    private boolean cacheable = true;
+
+    private CachingTranslator(TranslatorToCAst base, ModuleEntry module) {
+      this.base = base;
+      this.module = module;
+    }
+
+    @Override
+    public <C extends RewriteContext<K>, K extends CopyKey<K>> void addRewriter(
+        CAstRewriterFactory<C, K> factory, boolean prepend) {
+      String name = rewriterName(factory);
+      if (name == null) {
+        cacheable = false;
+      } else if (prepend) {
+        rewriters.add(0, name);
+      } else {
+        rewriters.add(name);
+      }
+      base.addRewriter(factory, prepend);
+    }
+
+    @Override
+    public CAstEntity translateToCAst() throws Error, IOException {
+      if (!cacheable) {
+        misses.incrementAndGet();
+        return base.translateToCAst();
+      }
+      Path file = directory.resolve(key(module, rewriters) + SUFFIX);
+      CAstEntity entity = load(file);
+      if (entity != null) {
+        hits.incrementAndGet();
+        return entity;
+      }
+
+      misses.incrementAndGet();
+      entity = base.translateToCAst();
+      if (entity != null) {
+        store(file, entity);
+      }
+      return entity;
+    }
+  }
+}
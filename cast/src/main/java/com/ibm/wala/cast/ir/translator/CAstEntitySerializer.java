@@ -0,0 +1,937 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.ir.translator;
+
+import com.ibm.wala.cast.tree.CAst;
+import com.ibm.wala.cast.tree.CAstAnnotation;
+import com.ibm.wala.cast.tree.CAstControlFlowMap;
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.CAstNode;
+import com.ibm.wala.cast.tree.CAstNodeTypeMap;
+import com.ibm.wala.cast.tree.CAstQualifier;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+import com.ibm.wala.cast.tree.CAstSymbol;
+import com.ibm.wala.cast.tree.CAstType;
+import com.ibm.wala.cast.tree.impl.CAstControlFlowRecorder;
+import com.ibm.wala.cast.tree.impl.CAstImpl;
+import com.ibm.wala.cast.tree.impl.CAstNodeTypeMapRecorder;
+import com.ibm.wala.cast.tree.impl.CAstOperator;
+import com.ibm.wala.cast.tree.impl.CAstSourcePositionRecorder;
+import com.ibm.wala.cast.tree.impl.CAstSymbolImpl;
+import com.ibm.wala.cast.tree.impl.RangePosition;
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Reads and writes a tree of script and function {@link CAstEntity}s in a compact binary form.
+ *
+ * <p>Ast nodes, entities, control flow maps, source maps and type maps are each written once and
+ * referred to by number afterwards, so sharing between entities survives a round trip. Types are
+ * written by name and resolved again through a client-supplied function, since most {@link
+ * CAstType}s live in language front ends. Anything this format cannot represent (other entity
+ * kinds, unknown constant values, source positions other than {@link RangePosition}) makes {@link
+ * #write} throw an {@link IllegalArgumentException}; callers should then simply not persist the
+ * entity.
+ */
+public class CAstEntitySerializer {
+
+  private static final int NULL_NODE = 0;
+  private static final int NODE_REF = 1;
+  private static final int INTERIOR_NODE = 2;
+  private static final int CONSTANT_NODE = 3;
+  private static final int OPERATOR_NODE = 4;
+  private static final int EXCEPTION_TO_EXIT_NODE = 5;
+
+  private static final int NULL_VALUE = 0;
+  private static final int STRING_VALUE = 1;
+  private static final int INT_VALUE = 2;
+  private static final int LONG_VALUE = 3;
+  private static final int DOUBLE_VALUE = 4;
+  private static final int FLOAT_VALUE = 5;
+  private static final int BOOLEAN_VALUE = 6;
+  private static final int CHAR_VALUE = 7;
+  private static final int SHORT_VALUE = 8;
+  private static final int BYTE_VALUE = 9;
+  private static final int ENTITY_VALUE = 10;
+  private static final int SYMBOL_VALUE = 11;
+  private static final int TYPE_VALUE = 12;
+  private static final int NODE_VALUE = 13;
+  private static final int SWITCH_DEFAULT_VALUE = 14;
+  private static final int NULL_DEFAULT_VALUE = 15;
+  private static final int TYPE_REFERENCE_VALUE = 16;
+
+  private static final int NULL_POSITION = 0;
+  private static final int NO_INFORMATION_POSITION = 1;
+  private static final int RANGE_POSITION = 2;
+
+  /** the canonical operator instances, by operator string */
+  private static final Map<Object, CAstOperator> operators = HashMapFactory.make();
+
+  static {
+    for (Field f : CAstOperator.class.getFields()) {
+      if (Modifier.isStatic(f.getModifiers()) && f.getType() == CAstOperator.class) {
+        try {
+          CAstOperator op = (CAstOperator) f.get(null);
+          operators.put(op.getValue(), op);
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+  }
+
+  private final Function<String, CAstType> types;
+
+  /**
+   * @param types maps type names back to the types the front end uses; every type reachable from a
+   *     written entity must be returned, identically, by this function for its own name
+   */
+  public CAstEntitySerializer(Function<String, CAstType> types) {
+    this.types = types;
+  }
+
+  /** write the given entity and everything reachable from it to out */
+  public void write(CAstEntity root, DataOutput out) throws IOException {
+    new Writer(out).write(root);
+  }
+
+  /** read an entity previously written with {@link #write} */
+  public CAstEntity read(DataInput in) throws IOException {
+    return new Reader(in).read();
+  }
+
+  private static IllegalArgumentException unsupported(String what) {
+    return new IllegalArgumentException("cannot serialize " + what);
+  }
+
+  private static void writeInt(DataOutput out, int v) throws IOException {
+    // unsigned LEB128 of the zig-zag encoding, so that -1 stays short
+    int bits = (v << 1) ^ (v >> 31);
+    while ((bits & ~0x7f) != 0) {
+      out.writeByte((bits & 0x7f) | 0x80);
+      bits >>>= 7;
+    }
+    out.writeByte(bits);
+  }
+
+  private static int readInt(DataInput in) throws IOException {
+    int bits = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = in.readUnsignedByte();
+      bits |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return (bits >>> 1) ^ -(bits & 1);
+      }
+    }
+  }
+
+  private final class Writer {
+    private final DataOutput out;
+
+    private final Map<CAstNode, Integer> nodes = new IdentityHashMap<>();
+
+    private final Map<Object, Integer> entities = new IdentityHashMap<>();
+
+    private final ArrayDeque<CAstEntity> pending = new ArrayDeque<>();
+
+    private final Map<Object, Integer> tables = new IdentityHashMap<>();
+
+    private final Map<String, Integer> strings = HashMapFactory.make();
+
+    private Writer(DataOutput out) {
+      this.out = out;
+    }
+
+    private void write(CAstEntity root) throws IOException {
+      entityId(root);
+      while (!pending.isEmpty()) {
+        CAstEntity e = pending.removeFirst();
+        out.writeBoolean(true);
+        writeInt(out, entities.get(e));
+        writeEntity(e);
+      }
+      out.writeBoolean(false);
+    }
+
+    private int entityId(CAstEntity e) {
+      Integer id = entities.get(e);
+      if (id == null) {
+        id = entities.size();
+        entities.put(e, id);
+        pending.addLast(e);
+      }
+      return id;
+    }
+
+    private void writeEntity(CAstEntity e) throws IOException {
+      if (e.getKind() != CAstEntity.FUNCTION_ENTITY && e.getKind() != CAstEntity.SCRIPT_ENTITY) {
+        throw unsupported("entity " + e.getName() + " of kind " + e.getKind());
+      }
+      Collection<CAstAnnotation> annotations = e.getAnnotations();
+      if (annotations != null && !annotations.isEmpty()) {
+        throw unsupported("annotations of " + e);
+      }
+
+      writeInt(out, e.getKind());
+      writeString(e.getName());
+      writeString(e.toString());
+      writeValue(e.getType());
+      writePosition(e.getPosition());
+      writePosition(e.getNamePosition());
+
+      String[] args = e.getArgumentNames();
+      writeInt(out, args.length);
+      for (String arg : args) {
+        writeString(arg);
+      }
+      writeNodes(e.getArgumentDefaults());
+
+      // not every front end has a position for every argument, and some throw when asked
+      List<Position> argPositions = new ArrayList<>();
+      try {
+        for (int i = 0; i < args.length; i++) {
+          argPositions.add(e.getPosition(i));
+        }
+      } catch (IndexOutOfBoundsException ignored) {
+        // keep the positions found so far
+      }
+      writeInt(out, argPositions.size());
+      for (Position p : argPositions) {
+        writePosition(p);
+      }
+
+      writeNode(e.getAST());
+
+      Map<CAstNode, Collection<CAstEntity>> scoped = e.getAllScopedEntities();
+      writeInt(out, scoped.size());
+      for (Map.Entry<CAstNode, Collection<CAstEntity>> entry : scoped.entrySet()) {
+        writeNode(entry.getKey());
+        writeInt(out, entry.getValue().size());
+        for (CAstEntity child : entry.getValue()) {
+          writeInt(out, entityId(child));
+        }
+      }
+
+      writeSourceMap(e.getSourceMap());
+      writeControlFlow(e.getControlFlow());
+      writeTypeMap(e.getNodeTypeMap());
+    }
+
+    /**
+     * tables shared by several entities are written once; returns true if the table still has to be
+     * written
+     */
+    private boolean writeTableHeader(Object table) throws IOException {
+      if (table == null) {
+        writeInt(out, -1);
+        return false;
+      }
+      Integer id = tables.get(table);
+      if (id != null) {
+        writeInt(out, id);
+        return false;
+      }
+      id = tables.size();
+      tables.put(table, id);
+      writeInt(out, id);
+      return true;
+    }
+
+    private void writeControlFlow(CAstControlFlowMap cfg) throws IOException {
+      if (writeTableHeader(cfg)) {
+        Collection<CAstNode> mapped = cfg.getMappedNodes();
+        writeInt(out, mapped.size());
+        for (CAstNode from : mapped) {
+          writeNode(from);
+          Collection<Object> labels = cfg.getTargetLabels(from);
+          writeInt(out, labels.size());
+          for (Object label : labels) {
+            writeValue(label);
+            writeNode(cfg.getTarget(from, label));
+          }
+        }
+      }
+    }
+
+    private void writeSourceMap(CAstSourcePositionMap pos) throws IOException {
+      if (writeTableHeader(pos)) {
+        List<CAstNode> mapped = new ArrayList<>();
+        pos.getMappedNodes().forEachRemaining(mapped::add);
+        writeInt(out, mapped.size());
+        for (CAstNode n : mapped) {
+          writeNode(n);
+          writePosition(pos.getPosition(n));
+        }
+      }
+    }
+
+    private void writeTypeMap(CAstNodeTypeMap types) throws IOException {
+      if (writeTableHeader(types)) {
+        Collection<CAstNode> mapped = types.getMappedNodes();
+        writeInt(out, mapped.size());
+        for (CAstNode n : mapped) {
+          writeNode(n);
+          writeValue(types.getNodeType(n));
+        }
+      }
+    }
+
+    private void writeNodes(CAstNode[] ns) throws IOException {
+      if (ns == null) {
+        writeInt(out, -1);
+      } else {
+        writeInt(out, ns.length);
+        for (CAstNode n : ns) {
+          writeNode(n);
+        }
+      }
+    }
+
+    /**
+     * new nodes are written in pre order, but numbered in post order, which is when the reader can
+     * build them
+     */
+    private void writeNode(CAstNode n) throws IOException {
+      if (n == null) {
+        out.writeByte(NULL_NODE);
+        return;
+      }
+      Integer id = nodes.get(n);
+      if (id != null) {
+        out.writeByte(NODE_REF);
+        writeInt(out, id);
+        return;
+      }
+
+      if (n == CAstControlFlowMap.EXCEPTION_TO_EXIT) {
+        out.writeByte(EXCEPTION_TO_EXIT_NODE);
+      } else if (n instanceof CAstOperator) {
+        if (operators.get(n.getValue()) != n) {
+          throw unsupported("operator " + n);
+        }
+        out.writeByte(OPERATOR_NODE);
+        writeString((String) n.getValue());
+      } else if (n.getKind() == CAstNode.CONSTANT && n.getChildCount() == 0) {
+        out.writeByte(CONSTANT_NODE);
+        writeValue(n.getValue());
+      } else if (n.getValue() == null) {
+        List<CAstNode> children = n.getChildren();
+        out.writeByte(INTERIOR_NODE);
+        writeInt(out, n.getKind());
+        writeInt(out, children.size());
+        for (CAstNode child : children) {
+          writeNode(child);
+        }
+      } else {
+        throw unsupported("node " + n + " of kind " + n.getKind() + " with a value");
+      }
+
+      nodes.put(n, nodes.size());
+    }
+
+    private void writeString(String s) throws IOException {
+      if (s == null) {
+        writeInt(out, -1);
+        return;
+      }
+      Integer id = strings.get(s);
+      if (id != null) {
+        writeInt(out, id);
+        return;
+      }
+      strings.put(s, strings.size());
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      writeInt(out, -2 - bytes.length);
+      out.write(bytes);
+    }
+
+    private void writePosition(Position p) throws IOException {
+      if (p == null) {
+        out.writeByte(NULL_POSITION);
+      } else if (p == CAstSourcePositionMap.NO_INFORMATION) {
+        out.writeByte(NO_INFORMATION_POSITION);
+      } else if (p.getClass() == RangePosition.class) {
+        out.writeByte(RANGE_POSITION);
+        writeString(p.getURL() == null ? null : p.getURL().toExternalForm());
+        writeInt(out, p.getFirstLine());
+        writeInt(out, p.getLastLine());
+        writeInt(out, p.getFirstOffset());
+        writeInt(out, p.getLastOffset());
+      } else {
+        throw unsupported("position of " + p.getClass());
+      }
+    }
+
+    private void writeType(CAstType type) throws IOException {
+      String name = type.getName();
+      if (types.apply(name) != type) {
+        throw unsupported("type " + name);
+      }
+      writeString(name);
+    }
+
+    /** front ends label exceptional control flow edges with the types of the exceptions */
+    private void writeLoader(ClassLoaderReference loader) throws IOException {
+      writeString(loader.name().toString());
+      writeString(loader.language() == null ? null : loader.language().toString());
+      out.writeBoolean(loader.parent() != null);
+      if (loader.parent() != null) {
+        writeLoader(loader.parent());
+      }
+    }
+
+    private void writeValue(Object v) throws IOException {
+      if (v == null) {
+        out.writeByte(NULL_VALUE);
+      } else if (v instanceof String s) {
+        out.writeByte(STRING_VALUE);
+        writeString(s);
+      } else if (v instanceof Integer i) {
+        out.writeByte(INT_VALUE);
+        writeInt(out, i);
+      } else if (v instanceof Long l) {
+        out.writeByte(LONG_VALUE);
+        out.writeLong(l);
+      } else if (v instanceof Double d) {
+        out.writeByte(DOUBLE_VALUE);
+        out.writeDouble(d);
+      } else if (v instanceof Float f) {
+        out.writeByte(FLOAT_VALUE);
+        out.writeFloat(f);
+      } else if (v instanceof Boolean b) {
+        out.writeByte(BOOLEAN_VALUE);
+        out.writeBoolean(b);
+      } else if (v instanceof Character c) {
+        out.writeByte(CHAR_VALUE);
+        out.writeChar(c);
+      } else if (v instanceof Short s) {
+        out.writeByte(SHORT_VALUE);
+        out.writeShort(s);
+      } else if (v instanceof Byte b) {
+        out.writeByte(BYTE_VALUE);
+        out.writeByte(b);
+      } else if (v instanceof CAstEntity e) {
+        out.writeByte(ENTITY_VALUE);
+        writeInt(out, entityId(e));
+      } else if (v instanceof CAstSymbol s) {
+        out.writeByte(SYMBOL_VALUE);
+        writeString(s.name());
+        writeType(s.type());
+        out.writeBoolean(s.isFinal());
+        out.writeBoolean(s.isCaseInsensitive());
+        out.writeBoolean(s.isInternalName());
+        writeValue(s.defaultInitValue());
+      } else if (v instanceof CAstType t) {
+        out.writeByte(TYPE_VALUE);
+        writeType(t);
+      } else if (v instanceof CAstNode n) {
+        out.writeByte(NODE_VALUE);
+        writeNode(n);
+      } else if (v == CAstControlFlowMap.SWITCH_DEFAULT) {
+        out.writeByte(SWITCH_DEFAULT_VALUE);
+      } else if (v == CAstSymbol.NULL_DEFAULT_VALUE) {
+        out.writeByte(NULL_DEFAULT_VALUE);
+      } else if (v instanceof TypeReference t) {
+        out.writeByte(TYPE_REFERENCE_VALUE);
+        writeLoader(t.getClassLoader());
+        writeString(t.getName().toString());
+      } else {
+        throw unsupported("value " + v + " of " + v.getClass());
+      }
+    }
+  }
+
+  private record PartialNode(int kind, List<CAstNode> children, int count) {}
+
+  private final class Reader {
+    private final DataInput in;
+
+    private final CAst ast = new CAstImpl();
+
+    private final List<CAstNode> nodes = new ArrayList<>();
+
+    private final List<CachedEntity> entities = new ArrayList<>();
+
+    private final List<Object> tables = new ArrayList<>();
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final Map<String, URL> urls = HashMapFactory.make();
+
+    private Reader(DataInput in) {
+      this.in = in;
+    }
+
+    private CAstEntity read() throws IOException {
+      while (in.readBoolean()) {
+        entity(readInt(in)).read();
+      }
+      for (CachedEntity e : entities) {
+        mapAll(e);
+      }
+      return entity(0);
+    }
+
+    /**
+     * front ends map many more nodes than have control flow edges, and asking a {@link
+     * CAstControlFlowRecorder} for the target of an unmapped node fails, so map every ast node of
+     * the entity to itself, as {@link com.ibm.wala.cast.tree.rewrite.CAstRewriter} does
+     */
+    private void mapAll(CachedEntity e) {
+      if (!(e.cfg instanceof CAstControlFlowRecorder cfg) || e.ast == null) {
+        return;
+      }
+      Set<CAstNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+      ArrayDeque<CAstNode> worklist = new ArrayDeque<>();
+      worklist.push(e.ast);
+      while (!worklist.isEmpty()) {
+        CAstNode n = worklist.pop();
+        if (visited.add(n)) {
+          map(cfg, n);
+          n.getChildren().forEach(worklist::push);
+        }
+      }
+    }
+
+    private CachedEntity entity(int id) {
+      while (entities.size() <= id) {
+        entities.add(new CachedEntity());
+      }
+      return entities.get(id);
+    }
+
+    private CAstNode[] readNodes() throws IOException {
+      int n = readInt(in);
+      if (n == -1) {
+        return null;
+      }
+      CAstNode[] result = new CAstNode[n];
+      for (int i = 0; i < n; i++) {
+        result[i] = readNode();
+      }
+      return result;
+    }
+
+    /** reads one tree, using an explicit stack of partially read interior nodes */
+    private CAstNode readNode() throws IOException {
+      ArrayDeque<PartialNode> stack = new ArrayDeque<>();
+      while (true) {
+        int tag = in.readUnsignedByte();
+        CAstNode n;
+        switch (tag) {
+          case NULL_NODE:
+            n = null;
+            break;
+          case NODE_REF:
+            n = nodes.get(readInt(in));
+            break;
+          case EXCEPTION_TO_EXIT_NODE:
+            n = CAstControlFlowMap.EXCEPTION_TO_EXIT;
+            nodes.add(n);
+            break;
+          case OPERATOR_NODE:
+            n = operators.get(readString());
+            if (n == null) {
+              throw new IOException("unknown operator");
+            }
+            nodes.add(n);
+            break;
+          case CONSTANT_NODE:
+            n = ast.makeConstant(readValue());
+            nodes.add(n);
+            break;
+          case INTERIOR_NODE:
+            int kind = readInt(in);
+            int count = readInt(in);
+            if (count > 0) {
+              stack.push(new PartialNode(kind, new ArrayList<>(count), count));
+              continue;
+            }
+            n = ast.makeNode(kind, new ArrayList<>(0));
+            nodes.add(n);
+            break;
+          default:
+            throw new IOException("bad node tag " + tag);
+        }
+
+        // hand the finished node to its parent, finishing the parent too if it is now complete
+        while (true) {
+          PartialNode parent = stack.peek();
+          if (parent == null) {
+            return n;
+          }
+          parent.children.add(n);
+          if (parent.children.size() < parent.count) {
+            break;
+          }
+          stack.pop();
+          n = ast.makeNode(parent.kind, parent.children);
+          nodes.add(n);
+        }
+      }
+    }
+
+    private String readString() throws IOException {
+      int id = readInt(in);
+      if (id == -1) {
+        return null;
+      } else if (id >= 0) {
+        return strings.get(id);
+      } else {
+        byte[] bytes = new byte[-2 - id];
+        in.readFully(bytes);
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(s);
+        return s;
+      }
+    }
+
+    private Position readPosition() throws IOException {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case NULL_POSITION:
+          return null;
+        case NO_INFORMATION_POSITION:
+          return CAstSourcePositionMap.NO_INFORMATION;
+        case RANGE_POSITION:
+          String url = readString();
+          int firstLine = readInt(in);
+          int lastLine = readInt(in);
+          int firstOffset = readInt(in);
+          int lastOffset = readInt(in);
+          return new RangePosition(url(url), firstLine, lastLine, firstOffset, lastOffset);
+        default:
+          throw new IOException("bad position tag " + tag);
+      }
+    }
+
+    private URL url(String url) throws IOException {
+      if (url == null) {
+        return null;
+      }
+      URL result = urls.get(url);
+      if (result == null) {
+        try {
+          result = URI.create(url).toURL();
+        } catch (IllegalArgumentException e) {
+          throw new IOException("bad url " + url, e);
+        }
+        urls.put(url, result);
+      }
+      return result;
+    }
+
+    private CAstType readType() throws IOException {
+      String name = readString();
+      CAstType type = types.apply(name);
+      if (type == null) {
+        throw new IOException("unknown type " + name);
+      }
+      return type;
+    }
+
+    private ClassLoaderReference readLoader() throws IOException {
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      String language = readString();
+      ClassLoaderReference parent = in.readBoolean() ? readLoader() : null;
+      return new ClassLoaderReference(
+          name, language == null ? null : Atom.findOrCreateUnicodeAtom(language), parent);
+    }
+
+    private Object readValue() throws IOException {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case NULL_VALUE:
+          return null;
+        case STRING_VALUE:
+          return readString();
+        case INT_VALUE:
+          return readInt(in);
+        case LONG_VALUE:
+          return in.readLong();
+        case DOUBLE_VALUE:
+          return in.readDouble();
+        case FLOAT_VALUE:
+          return in.readFloat();
+        case BOOLEAN_VALUE:
+          return in.readBoolean();
+        case CHAR_VALUE:
+          return in.readChar();
+        case SHORT_VALUE:
+          return in.readShort();
+        case BYTE_VALUE:
+          return in.readByte();
+        case ENTITY_VALUE:
+          return entity(readInt(in));
+        case SYMBOL_VALUE:
+          String name = readString();
+          CAstType type = readType();
+          boolean isFinal = in.readBoolean();
+          boolean isCaseInsensitive = in.readBoolean();
+          boolean isInternal = in.readBoolean();
+          Object init = readValue();
+          return isInternal
+              ? new AstTranslator.InternalCAstSymbol(name, type, isFinal, isCaseInsensitive, init)
+              : new CAstSymbolImpl(name, type, isFinal, isCaseInsensitive, init);
+        case TYPE_VALUE:
+          return readType();
+        case NODE_VALUE:
+          return readNode();
+        case SWITCH_DEFAULT_VALUE:
+          return CAstControlFlowMap.SWITCH_DEFAULT;
+        case NULL_DEFAULT_VALUE:
+          return CAstSymbol.NULL_DEFAULT_VALUE;
+        case TYPE_REFERENCE_VALUE:
+          ClassLoaderReference loader = readLoader();
+          return TypeReference.findOrCreate(loader, readString());
+        default:
+          throw new IOException("bad value tag " + tag);
+      }
+    }
+
+    private CAstControlFlowMap readControlFlow(CAstSourcePositionMap pos) throws IOException {
+      int id = readInt(in);
+      if (id == -1) {
+        return null;
+      } else if (id < tables.size()) {
+        return (CAstControlFlowMap) tables.get(id);
+      }
+      CAstControlFlowRecorder cfg = new CAstControlFlowRecorder(pos);
+      tables.add(cfg);
+      int n = readInt(in);
+      for (int i = 0; i < n; i++) {
+        CAstNode from = readNode();
+        map(cfg, from);
+        int labels = readInt(in);
+        for (int j = 0; j < labels; j++) {
+          Object label = readValue();
+          CAstNode to = readNode();
+          map(cfg, to);
+          cfg.add(from, to, label);
+        }
+      }
+      return cfg;
+    }
+
+    private void map(CAstControlFlowRecorder cfg, CAstNode n) {
+      if (!cfg.isMapped(n)) {
+        cfg.map(n, n);
+      }
+    }
+
+    private CAstSourcePositionMap readSourceMap() throws IOException {
+      int id = readInt(in);
+      if (id == -1) {
+        return null;
+      } else if (id < tables.size()) {
+        return (CAstSourcePositionMap) tables.get(id);
+      }
+      CAstSourcePositionRecorder pos = new CAstSourcePositionRecorder();
+      tables.add(pos);
+      int n = readInt(in);
+      for (int i = 0; i < n; i++) {
+        CAstNode node = readNode();
+        pos.setPosition(node, readPosition());
+      }
+      return pos;
+    }
+
+    private CAstNodeTypeMap readTypeMap() throws IOException {
+      int id = readInt(in);
+      if (id == -1) {
+        return null;
+      } else if (id < tables.size()) {
+        return (CAstNodeTypeMap) tables.get(id);
+      }
+      CAstNodeTypeMapRecorder types = new CAstNodeTypeMapRecorder();
+      tables.add(types);
+      int n = readInt(in);
+      for (int i = 0; i < n; i++) {
+        CAstNode node = readNode();
+        types.add(node, (CAstType) readValue());
+      }
+      return types;
+    }
+
+    /** an entity read back from the binary form */
+    private final class CachedEntity implements CAstEntity {
+      private int kind;
+      private String name;
+      private String description;
+      private CAstType type;
+      private Position position;
+      private Position namePosition;
+      private String[] arguments;
+      private CAstNode[] argumentDefaults;
+      private Position[] argumentPositions;
+      private CAstNode ast;
+      private final Map<CAstNode, Collection<CAstEntity>> scoped = new LinkedHashMap<>();
+      private CAstControlFlowMap cfg;
+      private CAstSourcePositionMap pos;
+      private CAstNodeTypeMap nodeTypes;
+
+      private void read() throws IOException {
+        kind = readInt(in);
+        name = readString();
+        description = readString();
+        type = (CAstType) readValue();
+        position = readPosition();
+        namePosition = readPosition();
+
+        arguments = new String[readInt(in)];
+        for (int i = 0; i < arguments.length; i++) {
+          arguments[i] = readString();
+        }
+        argumentDefaults = readNodes();
+        argumentPositions = new Position[readInt(in)];
+        for (int i = 0; i < argumentPositions.length; i++) {
+          argumentPositions[i] = readPosition();
+        }
+
+        ast = readNode();
+
+        int keys = readInt(in);
+        for (int i = 0; i < keys; i++) {
+          CAstNode key = readNode();
+          int n = readInt(in);
+          List<CAstEntity> children = new ArrayList<>(n);
+          for (int j = 0; j < n; j++) {
+            children.add(entity(readInt(in)));
+          }
+          scoped.put(key, children);
+        }
+
+        pos = readSourceMap();
+        cfg = readControlFlow(pos);
+        nodeTypes = readTypeMap();
+      }
+
+      @Override
+      public String toString() {
+        return description;
+      }
+
+      @Override
+      public int getKind() {
+        return kind;
+      }
+
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public String getSignature() {
+        return null;
+      }
+
+      @Override
+      public String[] getArgumentNames() {
+        return arguments;
+      }
+
+      @Override
+      public CAstNode[] getArgumentDefaults() {
+        return argumentDefaults;
+      }
+
+      @Override
+      public int getArgumentCount() {
+        return arguments.length;
+      }
+
+      @Override
+      public Map<CAstNode, Collection<CAstEntity>> getAllScopedEntities() {
+        return Collections.unmodifiableMap(scoped);
+      }
+
+      @Override
+      public Iterator<CAstEntity> getScopedEntities(CAstNode construct) {
+        Collection<CAstEntity> children = scoped.get(construct);
+        return children == null ? EmptyIterator.instance() : children.iterator();
+      }
+
+      @Override
+      public CAstNode getAST() {
+        return ast;
+      }
+
+      @Override
+      public CAstControlFlowMap getControlFlow() {
+        return cfg;
+      }
+
+      @Override
+      public CAstSourcePositionMap getSourceMap() {
+        return pos;
+      }
+
+      @Override
+      public Position getPosition() {
+        return position;
+      }
+
+      @Override
+      public Position getNamePosition() {
+        return namePosition;
+      }
+
+      @Override
+      public Position getPosition(int arg) {
+        return arg < argumentPositions.length ? argumentPositions[arg] : null;
+      }
+
+      @Override
+      public CAstNodeTypeMap getNodeTypeMap() {
+        return nodeTypes;
+      }
+
+      @Override
+      public Collection<CAstQualifier> getQualifiers() {
+        return Collections.emptySet();
+      }
+
+      @Override
+      public CAstType getType() {
+        return type;
+      }
+
+      @Override
+      public Collection<CAstAnnotation> getAnnotations() {
+        return null;
+      }
+    }
+  }
+}
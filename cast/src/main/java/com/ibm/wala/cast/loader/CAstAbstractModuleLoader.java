@@ -51,12 +51,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * abstract class loader that performs CAst and IR generation for relevant entities in a list of
@@ -113,15 +115,54 @@ public abstract class CAstAbstractModuleLoader extends CAstAbstractLoader
    */
   protected void finishTranslation() {}
 
+  /**
+   * Set this system property to {@code true} to make {@link #setParallelCAstTranslation(boolean)}
+   * default to true.
+   */
+  public static final String PARALLEL_CAST_TRANSLATION_PROPERTY =
+      "com.ibm.wala.cast.parallelCAstTranslation";
+
+  private boolean parallelCAstTranslation = Boolean.getBoolean(PARALLEL_CAST_TRANSLATION_PROPERTY);
+
+  /**
+   * If set, {@link #init(List)} translates the source files to CAst concurrently. The resulting
+   * entities and warnings are still merged in module order, and IR is still generated sequentially,
+   * so the loaded classes are the same as for a sequential run. This requires that {@link
+   * #getTranslatorToCAst(CAst, ModuleEntry, List)} and the translators it returns be safe to use
+   * from several threads at once.
+   */
+  public void setParallelCAstTranslation(boolean parallelCAstTranslation) {
+    this.parallelCAstTranslation = parallelCAstTranslation;
+  }
+
+  public boolean isParallelCAstTranslation() {
+    return parallelCAstTranslation;
+  }
+
   @Override
   public void init(final List<Module> modules) {
 
     final CAst ast = new CAstImpl();
 
     // convert everything to CAst
-    final Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities = new LinkedHashSet<>();
+    final List<ModuleEntry> sourceEntries = new ArrayList<>();
     for (Module module : modules) {
-      translateModuleToCAst(module, ast, topLevelEntities, modules);
+      collectSourceEntries(module, sourceEntries);
+    }
+    final Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities = new LinkedHashSet<>();
+    if (parallelCAstTranslation) {
+      List<CAstTranslation> translations =
+          sourceEntries.parallelStream()
+              .map(moduleEntry -> translateModuleEntryToCAst(moduleEntry, ast, modules))
+              .collect(Collectors.toList());
+      for (CAstTranslation translation : translations) {
+        recordCAstTranslation(translation, topLevelEntities);
+      }
+    } else {
+      for (ModuleEntry moduleEntry : sourceEntries) {
+        recordCAstTranslation(
+            translateModuleEntryToCAst(moduleEntry, ast, modules), topLevelEntities);
+      }
     }
 
     // generate IR as needed
@@ -149,70 +190,84 @@ public abstract class CAstAbstractModuleLoader extends CAstAbstractLoader
   }
 
   /**
-   * translate moduleEntry to CAst and store result in topLevelEntities
-   *
-   * @param modules all modules in the analysis
+   * The outcome of translating one module entry to CAst: either an entity, or the warnings
+   * explaining why there is none.
    */
-  private void translateModuleEntryToCAst(
-      ModuleEntry moduleEntry,
-      CAst ast,
-      Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities,
-      List<Module> modules) {
-    try {
-      if (moduleEntry.isModuleFile()) {
-        // nested module
-        translateModuleToCAst(moduleEntry.asModule(), ast, topLevelEntities, modules);
-      } else {
-        TranslatorToCAst xlatorToCAst = getTranslatorToCAst(ast, moduleEntry, modules);
+  private record CAstTranslation(
+      ModuleEntry moduleEntry, CAstEntity fileEntity, Set<Warning> warnings) {}
+
+  /** store the outcome of a CAst translation in topLevelEntities, or in this loader's messages */
+  private void recordCAstTranslation(
+      CAstTranslation translation, Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities) {
+    if (translation.fileEntity() != null) {
+      topLevelEntities.add(Pair.make(translation.fileEntity(), translation.moduleEntry()));
+    } else {
+      addMessages(translation.moduleEntry(), translation.warnings());
+    }
+  }
 
+  /** add the entries of module to sourceEntries in order, expanding nested modules in place */
+  private void collectSourceEntries(Module module, List<ModuleEntry> sourceEntries) {
+    for (ModuleEntry me : Iterator2Iterable.make(module.getEntries())) {
+      if (me.isModuleFile()) {
         try {
-          final CAstEntity fileEntity = xlatorToCAst.translateToCAst();
-
-          if (DEBUG) {
-            CAstPrinter.printTo(fileEntity, new PrintWriter(System.err));
-          }
-          topLevelEntities.add(Pair.make(fileEntity, moduleEntry));
-
-        } catch (TranslatorToCAst.Error e) {
-          addMessages(moduleEntry, e.warning);
+          collectSourceEntries(me.asModule(), sourceEntries);
+        } catch (final RuntimeException e) {
+          addMessage(me, parsingIssue(e));
         }
+      } else {
+        sourceEntries.add(me);
       }
-    } catch (final IOException e) {
-      addMessage(
-          moduleEntry,
-          new Warning(Warning.SEVERE) {
-            @Override
-            public String getMsg() {
-              return "I/O issue: " + e.getMessage();
-            }
-          });
-    } catch (final RuntimeException e) {
-      final ByteArrayOutputStream s = new ByteArrayOutputStream();
-      PrintStream ps = new PrintStream(s);
-      e.printStackTrace(ps);
-      addMessage(
-          moduleEntry,
-          new Warning(Warning.SEVERE) {
-            @Override
-            public String getMsg() {
-              return "Parsing issue: " + s;
-            }
-          });
     }
   }
 
+  private static Warning parsingIssue(RuntimeException e) {
+    final ByteArrayOutputStream s = new ByteArrayOutputStream();
+    PrintStream ps = new PrintStream(s);
+    e.printStackTrace(ps);
+    return new Warning(Warning.SEVERE) {
+      @Override
+      public String getMsg() {
+        return "Parsing issue: " + s;
+      }
+    };
+  }
+
   /**
-   * translate all relevant entities in the module to CAst, storing the results in topLevelEntities
+   * translate moduleEntry to CAst. This does not touch the state of the loader, so it may run
+   * concurrently for different entries.
    *
    * @param modules all modules in the analysis
    */
-  private void translateModuleToCAst(
-      Module module,
-      CAst ast,
-      Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities,
-      List<Module> modules) {
-    for (ModuleEntry me : Iterator2Iterable.make(module.getEntries())) {
-      translateModuleEntryToCAst(me, ast, topLevelEntities, modules);
+  private CAstTranslation translateModuleEntryToCAst(
+      ModuleEntry moduleEntry, CAst ast, List<Module> modules) {
+    try {
+      TranslatorToCAst xlatorToCAst = getTranslatorToCAst(ast, moduleEntry, modules);
+
+      try {
+        final CAstEntity fileEntity = xlatorToCAst.translateToCAst();
+
+        if (DEBUG) {
+          CAstPrinter.printTo(fileEntity, new PrintWriter(System.err));
+        }
+        return new CAstTranslation(moduleEntry, fileEntity, null);
+
+      } catch (TranslatorToCAst.Error e) {
+        return new CAstTranslation(moduleEntry, null, e.warning);
+      }
+    } catch (final IOException e) {
+      return new CAstTranslation(
+          moduleEntry,
+          null,
+          Collections.singleton(
+              new Warning(Warning.SEVERE) {
+                @Override
+                public String getMsg() {
+                  return "I/O issue: " + e.getMessage();
+                }
+              }));
+    } catch (final RuntimeException e) {
+      return new CAstTranslation(moduleEntry, null, Collections.singleton(parsingIssue(e)));
     }
   }
 
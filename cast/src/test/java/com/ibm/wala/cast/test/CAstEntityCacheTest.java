@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.cast.ir.translator.AbstractCodeEntity;
+import com.ibm.wala.cast.ir.translator.AbstractScriptEntity;
+import com.ibm.wala.cast.ir.translator.CAstEntityCache;
+import com.ibm.wala.cast.ir.translator.CAstEntitySerializer;
+import com.ibm.wala.cast.ir.translator.TranslatorToCAst;
+import com.ibm.wala.cast.tree.CAst;
+import com.ibm.wala.cast.tree.CAstControlFlowMap;
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.CAstNode;
+import com.ibm.wala.cast.tree.CAstQualifier;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+import com.ibm.wala.cast.tree.CAstSymbol;
+import com.ibm.wala.cast.tree.CAstType;
+import com.ibm.wala.cast.tree.impl.CAstImpl;
+import com.ibm.wala.cast.tree.impl.CAstOperator;
+import com.ibm.wala.cast.tree.impl.CAstSymbolImpl;
+import com.ibm.wala.cast.tree.impl.LineNumberPosition;
+import com.ibm.wala.cast.tree.impl.RangePosition;
+import com.ibm.wala.cast.tree.rewrite.CAstBasicRewriter.NoKey;
+import com.ibm.wala.cast.tree.rewrite.CAstBasicRewriter.NonCopyingContext;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.CopyKey;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.RewriteContext;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriterFactory;
+import com.ibm.wala.cast.util.CAstPrinter;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.SourceFileModule;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CAstEntityCacheTest {
+
+  private static final CAstType ANY =
+      new CAstType() {
+        @Override
+        public String getName() {
+          return "Any";
+        }
+
+        @Override
+        public Collection<CAstType> getSupertypes() {
+          return Collections.emptySet();
+        }
+      };
+
+  private static CAstType resolve(String name) {
+    return ANY.getName().equals(name) ? ANY : null;
+  }
+
+  private static final class Script extends AbstractScriptEntity {
+    private Script(File file) {
+      super(file, ANY);
+    }
+
+    @Override
+    public Position getPosition(int arg) {
+      return null;
+    }
+
+    @Override
+    public Position getNamePosition() {
+      return null;
+    }
+  }
+
+  private static final class Function extends AbstractCodeEntity {
+    private Function() {
+      super(ANY);
+    }
+
+    @Override
+    public int getKind() {
+      return FUNCTION_ENTITY;
+    }
+
+    @Override
+    public String getName() {
+      return "f";
+    }
+
+    @Override
+    public String[] getArgumentNames() {
+      return new String[] {"f", "this", "a"};
+    }
+
+    @Override
+    public CAstNode[] getArgumentDefaults() {
+      return new CAstNode[0];
+    }
+
+    @Override
+    public int getArgumentCount() {
+      return 3;
+    }
+
+    @Override
+    public Collection<CAstQualifier> getQualifiers() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Position getPosition(int arg) {
+      return null;
+    }
+
+    @Override
+    public Position getNamePosition() {
+      return null;
+    }
+  }
+
+  /** a script declaring x and a function f, with a goto, an exceptional edge and positions */
+  private static CAstEntity makeScript(File file, Position position) {
+    CAstImpl ast = new CAstImpl();
+    Script script = new Script(file);
+
+    Function f = new Function();
+    CAstNode ret =
+        ast.makeNode(
+            CAstNode.RETURN,
+            ast.makeNode(
+                CAstNode.BINARY_EXPR,
+                CAstOperator.OP_ADD,
+                ast.makeNode(CAstNode.VAR, ast.makeConstant("a")),
+                ast.makeConstant("s")));
+    f.setAst(ast.makeNode(CAstNode.BLOCK_STMT, ret));
+    f.setNodePosition(ret, position);
+
+    CAstNode label =
+        ast.makeNode(CAstNode.LABEL_STMT, ast.makeConstant("l"), ast.makeNode(CAstNode.EMPTY));
+    CAstNode jump = ast.makeNode(CAstNode.GOTO);
+    CAstNode call =
+        ast.makeNode(
+            CAstNode.CALL,
+            ast.makeNode(CAstNode.VAR, ast.makeConstant("f")),
+            ast.makeConstant("do"),
+            ast.makeConstant(3L));
+    CAstNode fun = ast.makeNode(CAstNode.FUNCTION_STMT, ast.makeConstant(f));
+    script.setAst(
+        ast.makeNode(
+            CAstNode.BLOCK_STMT,
+            ast.makeNode(
+                CAstNode.DECL_STMT,
+                ast.makeConstant(new CAstSymbolImpl("x", ANY, true)),
+                ast.makeConstant(1)),
+            fun,
+            label,
+            ast.makeNode(
+                CAstNode.IF_STMT,
+                ast.makeNode(
+                    CAstNode.BINARY_EXPR,
+                    CAstOperator.OP_LT,
+                    ast.makeNode(CAstNode.VAR, ast.makeConstant("x")),
+                    ast.makeConstant(2.5)),
+                jump),
+            call));
+    script.addScopedEntity(fun, f);
+    script.setGotoTarget(jump, label);
+    script.setLabelledGotoTarget(call, CAstControlFlowMap.EXCEPTION_TO_EXIT, "exn");
+    script.setNodePosition(call, position);
+    script.setNodeType(call, ANY);
+    script.setPosition(position);
+    return script;
+  }
+
+  private static CAstNode child(CAstEntity e, int... path) {
+    CAstNode n = e.getAST();
+    for (int i : path) {
+      n = n.getChild(i);
+    }
+    return n;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    File file = new File("test.js");
+    URL url = file.toURI().toURL();
+    CAstEntity script = makeScript(file, new RangePosition(url, 3, 10, 20));
+
+    CAstEntitySerializer serializer = new CAstEntitySerializer(CAstEntityCacheTest::resolve);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    serializer.write(script, new DataOutputStream(bytes));
+    CAstEntity copy =
+        serializer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertThat(CAstPrinter.print(copy)).isEqualTo(CAstPrinter.print(script));
+    assertThat(copy.getKind()).isEqualTo(CAstEntity.SCRIPT_ENTITY);
+    assertThat(copy.getArgumentNames()).isEqualTo(script.getArgumentNames());
+    assertThat(copy.getPosition()).isEqualTo(script.getPosition());
+    assertThat(copy.getType()).isSameAs(ANY);
+
+    // operators stay canonical, and symbols keep their flags
+    assertThat(child(copy, 3, 0, 0)).isSameAs(CAstOperator.OP_LT);
+    CAstSymbol x = (CAstSymbol) child(copy, 0, 0).getValue();
+    assertThat(x.name()).isEqualTo("x");
+    assertThat(x.isFinal()).isTrue();
+    assertThat(x.type()).isSameAs(ANY);
+
+    // the function is shared between the ast and the scoped entities
+    CAstNode fun = child(copy, 1);
+    CAstEntity f = (CAstEntity) fun.getChild(0).getValue();
+    assertThat(copy.getScopedEntities(fun).next()).isSameAs(f);
+    assertThat(f.getArgumentNames()).containsExactly("f", "this", "a");
+    assertThat(f.getSourceMap().getPosition(child(f, 0))).isEqualTo(script.getPosition());
+
+    // control flow, positions and types are attached to the copied nodes
+    CAstControlFlowMap cfg = copy.getControlFlow();
+    assertThat(cfg.getTarget(child(copy, 3, 1), null)).isSameAs(child(copy, 2));
+    CAstNode call = child(copy, 4);
+    assertThat(cfg.getTarget(call, "exn")).isSameAs(CAstControlFlowMap.EXCEPTION_TO_EXIT);
+    assertThat(cfg.getTarget(child(copy, 0), null)).isNull();
+    assertThat(copy.getSourceMap().getPosition(call)).isEqualTo(script.getPosition());
+    assertThat(copy.getNodeTypeMap().getNodeType(call)).isSameAs(ANY);
+  }
+
+  /** translates a fixed script for any module, counting how often it is asked to */
+  private static final class CountingTranslator implements TranslatorToCAst {
+    private final File file;
+
+    private final Position position;
+
+    private int count;
+
+    private CountingTranslator(File file, Position position) {
+      this.file = file;
+      this.position = position;
+    }
+
+    @Override
+    public <C extends RewriteContext<K>, K extends CopyKey<K>> void addRewriter(
+        CAstRewriterFactory<C, K> factory, boolean prepend) {}
+
+    @Override
+    public CAstEntity translateToCAst() {
+      count++;
+      return makeScript(file, position);
+    }
+  }
+
+  @Test
+  public void testCache(@TempDir Path dir) throws IOException, TranslatorToCAst.Error {
+    Path source = dir.resolve("test.js");
+    Files.writeString(source, "var x = 1;");
+    File file = source.toFile();
+    ModuleEntry module = new SourceFileModule(file, "test.js", null);
+    CountingTranslator translator =
+        new CountingTranslator(file, new RangePosition(file.toURI().toURL(), 1, 0, 10));
+    CAstEntityCache cache =
+        new CAstEntityCache(dir.resolve("cache"), "1", CAstEntityCacheTest::resolve);
+
+    CAstEntity first = cache.wrap(translator, module).translateToCAst();
+    CAstEntity second = cache.wrap(translator, module).translateToCAst();
+    assertThat(translator.count).isEqualTo(1);
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(CAstPrinter.print(second)).isEqualTo(CAstPrinter.print(first));
+
+    // a changed file, or a different translator version, misses
+    Files.writeString(source, "var x = 2;");
+    cache.wrap(translator, module).translateToCAst();
+    assertThat(translator.count).isEqualTo(2);
+    new CAstEntityCache(dir.resolve("cache"), "2", CAstEntityCacheTest::resolve)
+        .wrap(translator, module)
+        .translateToCAst();
+    assertThat(translator.count).isEqualTo(3);
+  }
+
+  @Test
+  public void testSameNameInOtherDirectory(@TempDir Path dir)
+      throws IOException, TranslatorToCAst.Error {
+    CAstEntityCache cache =
+        new CAstEntityCache(dir.resolve("cache"), "1", CAstEntityCacheTest::resolve);
+    for (String directory : new String[] {"a", "b"}) {
+      Path source = Files.createDirectories(dir.resolve(directory)).resolve("test.js");
+      Files.writeString(source, "var x = 1;");
+      File file = source.toFile();
+      ModuleEntry module = new SourceFileModule(file, "test.js", null);
+      CountingTranslator translator =
+          new CountingTranslator(file, new RangePosition(file.toURI().toURL(), 1, 0, 10));
+
+      // positions in the cached entity must refer to this file, not the other one
+      CAstEntity entity = cache.wrap(translator, module).translateToCAst();
+      assertThat(translator.count).isEqualTo(1);
+      assertThat(entity.getPosition().getURL()).isEqualTo(file.toURI().toURL());
+    }
+    assertThat(cache.getHits()).isZero();
+    assertThat(cache.getMisses()).isEqualTo(2);
+  }
+
+  @Test
+  public void testUnsupportedIsNotCached(@TempDir Path dir)
+      throws IOException, TranslatorToCAst.Error {
+    Path source = dir.resolve("test.js");
+    Files.writeString(source, "var x = 1;");
+    File file = source.toFile();
+    URL url = file.toURI().toURL();
+    CountingTranslator translator =
+        new CountingTranslator(file, new LineNumberPosition(url, url, 1));
+    ModuleEntry module = new SourceFileModule(file, "test.js", null);
+    CAstEntityCache cache =
+        new CAstEntityCache(dir.resolve("cache"), "1", CAstEntityCacheTest::resolve);
+
+    assertThat(cache.wrap(translator, module).translateToCAst()).isNotNull();
+    assertThat(cache.wrap(translator, module).translateToCAst()).isNotNull();
+    assertThat(translator.count).isEqualTo(2);
+    assertThat(cache.getHits()).isZero();
+  }
+
+  /** a rewriter factory whose class determines its rewriting; never run by this test */
+  private static final class FixedRewriterFactory
+      implements CAstRewriterFactory<NonCopyingContext, NoKey> {
+    @Override
+    public CAstRewriter<NonCopyingContext, NoKey> createCAstRewriter(CAst ast) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** a rewriter factory whose rewriting depends on its configuration; never run by this test */
+  private static final class ConfiguredRewriterFactory
+      implements CAstRewriterFactory<NonCopyingContext, NoKey> {
+    private final int factor;
+
+    private ConfiguredRewriterFactory(int factor) {
+      this.factor = factor;
+    }
+
+    @Override
+    public CAstRewriter<NonCopyingContext, NoKey> createCAstRewriter(CAst ast) {
+      throw new UnsupportedOperationException("factor " + factor);
+    }
+  }
+
+  @Test
+  public void testConfiguredRewritersAreNotCached(@TempDir Path dir)
+      throws IOException, TranslatorToCAst.Error {
+    Path source = dir.resolve("test.js");
+    Files.writeString(source, "var x = 1;");
+    File file = source.toFile();
+    ModuleEntry module = new SourceFileModule(file, "test.js", null);
+    CountingTranslator translator =
+        new CountingTranslator(file, new RangePosition(file.toURI().toURL(), 1, 0, 10));
+    CAstEntityCache cache =
+        new CAstEntityCache(dir.resolve("cache"), "1", CAstEntityCacheTest::resolve);
+
+    for (int i = 0; i < 2; i++) {
+      TranslatorToCAst wrapped = cache.wrap(translator, module);
+      wrapped.addRewriter(new FixedRewriterFactory(), false);
+      wrapped.translateToCAst();
+    }
+    assertThat(translator.count).isEqualTo(1);
+    assertThat(cache.getHits()).isEqualTo(1);
+
+    // two factories of the same class may rewrite differently, so neither may share an entry
+    for (int factor : new int[] {1, 2}) {
+      TranslatorToCAst wrapped = cache.wrap(translator, module);
+      wrapped.addRewriter(new ConfiguredRewriterFactory(factor), false);
+      wrapped.translateToCAst();
+    }
+    TranslatorToCAst wrapped = cache.wrap(translator, module);
+    wrapped.addRewriter(ast -> new ConfiguredRewriterFactory(3).createCAstRewriter(ast), false);
+    wrapped.translateToCAst();
+    assertThat(translator.count).isEqualTo(4);
+    assertThat(cache.getHits()).isEqualTo(1);
+  }
+}
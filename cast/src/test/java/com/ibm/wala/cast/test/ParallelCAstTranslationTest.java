@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.cast.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.cast.ir.translator.AbstractScriptEntity;
+import com.ibm.wala.cast.ir.translator.TranslatorToCAst;
+import com.ibm.wala.cast.ir.translator.TranslatorToIR;
+import com.ibm.wala.cast.loader.CAstAbstractModuleLoader;
+import com.ibm.wala.cast.tree.CAst;
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.CopyKey;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.RewriteContext;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriterFactory;
+import com.ibm.wala.classLoader.JavaLanguage;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.SourceFileModule;
+import com.ibm.wala.core.util.warnings.Warning;
+import com.ibm.wala.ssa.SSAInstructionFactory;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Checks that translating modules to CAst in parallel loads the same entities as a serial run. */
+public class ParallelCAstTranslationTest {
+
+  private static final int MODULES = 200;
+
+  @Test
+  public void testParallelMatchesSerial() throws IOException {
+    List<Module> modules = makeModules();
+
+    TestLoader serial = new TestLoader();
+    serial.init(modules);
+    TestLoader parallel = new TestLoader();
+    parallel.setParallelCAstTranslation(true);
+    parallel.init(modules);
+
+    // every seventh module fails to parse
+    assertThat(serial.translated).hasSize(MODULES - (MODULES + 6) / 7);
+    assertThat(parallel.translated).isEqualTo(serial.translated);
+    assertThat(failures(parallel)).isEqualTo(failures(serial));
+    assertThat(failures(serial)).hasSize((MODULES + 6) / 7);
+  }
+
+  private static List<Module> makeModules() throws IOException {
+    Path dir = Files.createTempDirectory("parallel-cast");
+    dir.toFile().deleteOnExit();
+    List<Module> modules = new ArrayList<>();
+    for (int i = 0; i < MODULES; i++) {
+      String name = (i % 7 == 0 ? "bad" : "good") + i + ".src";
+      File f = Files.createFile(dir.resolve(name)).toFile();
+      f.deleteOnExit();
+      modules.add(new SourceFileModule(f, name, null));
+    }
+    return modules;
+  }
+
+  private static List<String> failures(TestLoader loader) {
+    List<String> result = new ArrayList<>();
+    for (ModuleEntry m : Iterator2Iterable.make(loader.getModulesWithParseErrors())) {
+      result.add(m.getName());
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  /** A loader whose "parser" returns an empty script entity, or fails for files named bad*. */
+  private static final class TestLoader extends CAstAbstractModuleLoader {
+
+    /** names of the top-level entities, in the order they were handed to the IR translator */
+    private final List<String> translated = new ArrayList<>();
+
+    TestLoader() {
+      super(null, null);
+    }
+
+    @Override
+    public Language getLanguage() {
+      return JavaLanguage.get();
+    }
+
+    @Override
+    public ClassLoaderReference getReference() {
+      return ClassLoaderReference.Application;
+    }
+
+    @Override
+    public SSAInstructionFactory getInstructionFactory() {
+      return JavaLanguage.get().instructionFactory();
+    }
+
+    @Override
+    protected TranslatorToCAst getTranslatorToCAst(CAst ast, ModuleEntry m, List<Module> modules) {
+      return new TranslatorToCAst() {
+        @Override
+        public <C extends RewriteContext<K>, K extends CopyKey<K>> void addRewriter(
+            CAstRewriterFactory<C, K> factory, boolean prepend) {}
+
+        @Override
+        public CAstEntity translateToCAst() throws Error {
+          if (m.getName().startsWith("bad")) {
+            throw new Error(
+                Collections.singleton(
+                    new Warning(Warning.SEVERE) {
+                      @Override
+                      public String getMsg() {
+                        return "cannot parse " + m.getName();
+                      }
+                    }));
+          }
+          return new AbstractScriptEntity(m.getName(), null) {
+            @Override
+            public Position getPosition(int arg) {
+              return null;
+            }
+
+            @Override
+            public Position getNamePosition() {
+              return null;
+            }
+          };
+        }
+      };
+    }
+
+    @Override
+    protected boolean shouldTranslate(CAstEntity entity) {
+      return true;
+    }
+
+    @Override
+    protected TranslatorToIR initTranslator(Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities) {
+      return (entity, module) -> translated.add(entity.getName());
+    }
+  }
+}
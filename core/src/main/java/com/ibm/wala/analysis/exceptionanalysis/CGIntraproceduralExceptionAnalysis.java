@@ -16,12 +16,16 @@ import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural.InterproceduralExceptionFilter;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
  * Wrapper to store multiple intraprocedural analysis for a call graph.
@@ -33,23 +37,69 @@ public class CGIntraproceduralExceptionAnalysis {
   private final Set<TypeReference> exceptions;
   private final CallGraph callGraph;
 
+  /** call graphs with fewer nodes than this are analyzed sequentially */
+  private static final int PARALLEL_THRESHOLD = 64;
+
   public CGIntraproceduralExceptionAnalysis(
       CallGraph cg,
       PointerAnalysis<InstanceKey> pointerAnalysis,
       ClassHierarchy cha,
       InterproceduralExceptionFilter<SSAInstruction> filter) {
+    this(cg, pointerAnalysis, cha, filter, false);
+  }
+
+  /**
+   * @param parallel whether to analyze the nodes concurrently. The filter must then be safe to use
+   *     from several threads. Nodes are still analyzed sequentially if the class hierarchy loads
+   *     classes lazily.
+   */
+  public CGIntraproceduralExceptionAnalysis(
+      CallGraph cg,
+      PointerAnalysis<InstanceKey> pointerAnalysis,
+      ClassHierarchy cha,
+      InterproceduralExceptionFilter<SSAInstruction> filter,
+      boolean parallel) {
     this.callGraph = cg;
     this.exceptions = new LinkedHashSet<>();
     this.analysis = new LinkedHashMap<>();
-    for (CGNode node : cg) {
-      if (node.getIR() == null || node.getIR().isEmptyIR()) {
-        analysis.put(node, IntraproceduralExceptionAnalysis.newDummy());
-      } else {
-        IntraproceduralExceptionAnalysis intraEA;
-        intraEA =
+
+    List<CGNode> nodes = Iterator2Collection.toList(cg.iterator());
+    IntraproceduralExceptionAnalysis[] results = new IntraproceduralExceptionAnalysis[nodes.size()];
+    // Fetch the IRs up front: holding them keeps the nodes' cached IRs alive, so the concurrent
+    // phase does not call into context interpreters. IRs of synthetic methods are not cached by
+    // their nodes, so those are analyzed here as well.
+    IR[] irs = new IR[nodes.size()];
+    for (int i = 0; i < nodes.size(); i++) {
+      CGNode node = nodes.get(i);
+      irs[i] = node.getIR();
+      if (irs[i] == null || irs[i].isEmptyIR()) {
+        results[i] = IntraproceduralExceptionAnalysis.newDummy();
+      } else if (node.getMethod().isWalaSynthetic()) {
+        results[i] =
             new IntraproceduralExceptionAnalysis(
-                node, filter.getFilter(node), cha, pointerAnalysis);
-        analysis.put(node, intraEA);
+                irs[i], filter.getFilter(node), cha, pointerAnalysis, node);
+      }
+    }
+    if (pointerAnalysis != null) {
+      // built lazily, so build it before it is shared
+      pointerAnalysis.getHeapGraph();
+    }
+    IntStream indices = IntStream.range(0, nodes.size()).filter(i -> results[i] == null);
+    if (parallel && nodes.size() >= PARALLEL_THRESHOLD && !cha.getScope().isLazyClassLoading()) {
+      indices = indices.parallel();
+    }
+    indices.forEach(
+        i -> {
+          CGNode node = nodes.get(i);
+          results[i] =
+              new IntraproceduralExceptionAnalysis(
+                  irs[i], filter.getFilter(node), cha, pointerAnalysis, node);
+        });
+
+    for (int i = 0; i < nodes.size(); i++) {
+      IntraproceduralExceptionAnalysis intraEA = results[i];
+      analysis.put(nodes.get(i), intraEA);
+      if (!intraEA.isDummy()) {
         exceptions.addAll(intraEA.getExceptions());
         exceptions.addAll(intraEA.getPossiblyCaughtExceptions());
       }
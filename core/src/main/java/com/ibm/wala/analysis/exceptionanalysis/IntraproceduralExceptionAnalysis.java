@@ -200,17 +200,21 @@ public class IntraproceduralExceptionAnalysis {
     int exceptionVariable = instruction.getException();
 
     if (pointerAnalysis != null) {
-      PointerKey pointerKey =
-          pointerAnalysis.getHeapModel().getPointerKeyForLocal(node, exceptionVariable);
-      Iterator<Object> it = pointerAnalysis.getHeapGraph().getSuccNodes(pointerKey);
-      while (it.hasNext()) {
-        Object next = it.next();
-        if (next instanceof InstanceKey instanceKey) {
-          IClass iclass = instanceKey.concreteType();
-          addTo.add(iclass.getReference());
-        } else {
-          throw new IllegalStateException(
-              "Internal error: Expected InstanceKey, got " + next.getClass().getName());
+      // computing points-to sets may update the pointer analysis, and nodes may be analyzed
+      // concurrently by CGIntraproceduralExceptionAnalysis
+      synchronized (pointerAnalysis) {
+        PointerKey pointerKey =
+            pointerAnalysis.getHeapModel().getPointerKeyForLocal(node, exceptionVariable);
+        Iterator<Object> it = pointerAnalysis.getHeapGraph().getSuccNodes(pointerKey);
+        while (it.hasNext()) {
+          Object next = it.next();
+          if (next instanceof InstanceKey instanceKey) {
+            IClass iclass = instanceKey.concreteType();
+            addTo.add(iclass.getReference());
+          } else {
+            throw new IllegalStateException(
+                "Internal error: Expected InstanceKey, got " + next.getClass().getName());
+          }
         }
       }
     }
@@ -290,6 +294,13 @@ public class IntraproceduralExceptionAnalysis {
     return result;
   }
 
+  /**
+   * @return true if this is a placeholder for a node without an IR
+   */
+  boolean isDummy() {
+    return dummy;
+  }
+
   public boolean hasUncaughtExceptions(SSAInstruction instruction) {
     Boolean allCaught = this.allExceptionsCaught.get(instruction);
     return (allCaught == null ? true : !allCaught);
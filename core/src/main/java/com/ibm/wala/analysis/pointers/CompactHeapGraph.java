@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.analysis.pointers;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysisImpl;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A {@link HeapGraph} over the numbering of a {@link PointerAnalysisImpl}, with its edges stored as
+ * compressed sparse rows of ints rather than as per-node sets. It is much cheaper to build than
+ * {@link BasicHeapGraph}, which is still what {@link PointerAnalysisImpl#getHeapGraph()} returns.
+ *
+ * <p>Pointer key i is node i, and instance key i is node i + the number of pointer keys. The graph
+ * is a snapshot; keys the analysis numbers after it is built are not in the graph and have no
+ * edges.
+ *
+ * <p>{@link #getReachableInstances(Set)} keeps the inherited behavior, following edges into
+ * instance keys only and so stopping one step past the roots. {@link
+ * #getTransitivelyReachableInstances(Set)} returns every instance key reachable from the roots
+ * through any number of fields.
+ */
+public class CompactHeapGraph extends HeapGraphImpl<InstanceKey> {
+
+  /** frontiers smaller than this are expanded sequentially */
+  private static final int PARALLEL_THRESHOLD = 256;
+
+  private final OrdinalSetMapping<PointerKey> pointerKeys;
+
+  private final OrdinalSetMapping<InstanceKey> instanceKeys;
+
+  /** the number of pointer key nodes, and so the number of the first instance key node */
+  private final int pointerKeyCount;
+
+  private final int nodeCount;
+
+  /** the successors of node i are succ[succOffsets[i]] .. succ[succOffsets[i + 1] - 1] */
+  private final int[] succOffsets;
+
+  private final int[] succ;
+
+  /** the predecessors of node i are pred[predOffsets[i]] .. pred[predOffsets[i + 1] - 1] */
+  private final int[] predOffsets;
+
+  private final int[] pred;
+
+  public CompactHeapGraph(PointerAnalysisImpl pa) {
+    super(pa);
+    this.pointerKeys = pa.getPointerKeyMapping();
+    this.instanceKeys = pa.getInstanceKeyMapping();
+    this.pointerKeyCount = pointerKeys.getSize();
+
+    // computing points-to sets may number more instance keys, so do it before sizing the graph
+    int[][] pointerKeyRows = new int[pointerKeyCount][];
+    for (int i = 0; i < pointerKeyCount; i++) {
+      pointerKeyRows[i] = pointsTo(pointerKeys.getMappedObject(i));
+    }
+    this.nodeCount = pointerKeyCount + instanceKeys.getSize();
+    int[][] rows = Arrays.copyOf(pointerKeyRows, nodeCount);
+    for (int i = pointerKeyCount; i < nodeCount; i++) {
+      rows[i] = fields(instanceKeys.getMappedObject(i - pointerKeyCount));
+    }
+
+    succOffsets = new int[nodeCount + 1];
+    int[] predCounts = new int[nodeCount + 1];
+    int edges = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      succOffsets[i] = edges;
+      edges += rows[i].length;
+      for (int s : rows[i]) {
+        predCounts[s + 1]++;
+      }
+    }
+    succOffsets[nodeCount] = edges;
+
+    succ = new int[edges];
+    for (int i = 0; i < nodeCount; i++) {
+      System.arraycopy(rows[i], 0, succ, succOffsets[i], rows[i].length);
+    }
+
+    predOffsets = predCounts;
+    for (int i = 0; i < nodeCount; i++) {
+      predOffsets[i + 1] += predOffsets[i];
+    }
+    pred = new int[edges];
+    int[] next = Arrays.copyOf(predOffsets, nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      for (int j = succOffsets[i]; j < succOffsets[i + 1]; j++) {
+        pred[next[succ[j]]++] = i;
+      }
+    }
+  }
+
+  /**
+   * @return the sorted node numbers of the instance keys p points to
+   */
+  private int[] pointsTo(PointerKey p) {
+    OrdinalSet<InstanceKey> s = getPointerAnalysis().getPointsToSet(p);
+    IntSet backing = s.getBackingSet();
+    int[] result = new int[s.size()];
+    int k = 0;
+    if (backing != null && s.getMapping() == instanceKeys) {
+      for (var it = backing.intIterator(); it.hasNext(); ) {
+        result[k++] = it.next() + pointerKeyCount;
+      }
+    } else {
+      for (InstanceKey ik : s) {
+        result[k++] = instanceKeys.getMappedIndex(ik) + pointerKeyCount;
+      }
+      Arrays.sort(result);
+    }
+    return result;
+  }
+
+  /**
+   * @return the sorted node numbers of the pointer keys for the reference-typed fields or array
+   *     contents of ik
+   */
+  private int[] fields(InstanceKey ik) {
+    HeapModel h = getHeapModel();
+    IClass klass = ik.concreteType();
+    if (klass.getReference().isArrayType()) {
+      int p = pointerKeyNumber(h.getPointerKeyForArrayContents(ik));
+      return p == -1 ? new int[0] : new int[] {p};
+    }
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (IField f : klass.getAllInstanceFields()) {
+      if (!f.getReference().getFieldType().isPrimitiveType()) {
+        int p = pointerKeyNumber(h.getPointerKeyForInstanceField(ik, f));
+        if (p != -1) {
+          result.add(p);
+        }
+      }
+    }
+    return result.toIntArray();
+  }
+
+  private int pointerKeyNumber(PointerKey p) {
+    if (p == null) {
+      return -1;
+    }
+    int i = pointerKeys.getMappedIndex(p);
+    return i < pointerKeyCount ? i : -1;
+  }
+
+  /**
+   * A breadth-first search over a shared bit set, whose large frontiers are expanded in parallel.
+   *
+   * @return the instance keys, including any among the roots, reachable from the roots
+   */
+  public Collection<Object> getTransitivelyReachableInstances(Set<Object> roots) {
+    AtomicLongArray visited = new AtomicLongArray((nodeCount + 63) >>> 6);
+    int[] frontier =
+        roots.stream().mapToInt(this::getNumber).filter(n -> n != -1 && mark(visited, n)).toArray();
+    while (frontier.length > 0) {
+      IntStream nodes = IntStream.of(frontier);
+      if (frontier.length >= PARALLEL_THRESHOLD) {
+        nodes = nodes.parallel();
+      }
+      frontier =
+          nodes
+              .flatMap(n -> IntStream.range(succOffsets[n], succOffsets[n + 1]).map(j -> succ[j]))
+              .filter(n -> mark(visited, n))
+              .toArray();
+    }
+    List<Object> result = new ArrayList<>();
+    for (int w = pointerKeyCount >>> 6; w < visited.length(); w++) {
+      long bits = visited.get(w);
+      while (bits != 0) {
+        int n = (w << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        if (n >= pointerKeyCount) {
+          result.add(getNode(n));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return true if this call set the bit for n
+   */
+  private static boolean mark(AtomicLongArray visited, int n) {
+    int w = n >>> 6;
+    long bit = 1L << n;
+    long old;
+    do {
+      old = visited.get(w);
+      if ((old & bit) != 0) {
+        return false;
+      }
+    } while (!visited.compareAndSet(w, old, old | bit));
+    return true;
+  }
+
+  @Override
+  public int getNumber(Object N) {
+    if (N instanceof PointerKey p) {
+      return pointerKeyNumber(p);
+    } else if (N instanceof InstanceKey) {
+      int i = instanceKeys.getMappedIndex(N);
+      return i == -1 || i + pointerKeyCount >= nodeCount ? -1 : i + pointerKeyCount;
+    } else {
+      return -1;
+    }
+  }
+
+  @Override
+  public Object getNode(int number) {
+    return number < pointerKeyCount
+        ? pointerKeys.getMappedObject(number)
+        : instanceKeys.getMappedObject(number - pointerKeyCount);
+  }
+
+  @Override
+  public int getMaxNumber() {
+    return nodeCount - 1;
+  }
+
+  @Override
+  public int getNumberOfNodes() {
+    return nodeCount;
+  }
+
+  @Override
+  public Iterator<Object> iterator() {
+    return stream().iterator();
+  }
+
+  @Override
+  public Stream<Object> stream() {
+    return IntStream.range(0, nodeCount).mapToObj(this::getNode);
+  }
+
+  @Override
+  public boolean containsNode(Object N) {
+    return getNumber(N) != -1;
+  }
+
+  private Iterator<Object> nodes(int[] numbers, int from, int to) {
+    return IntStream.range(from, to).mapToObj(j -> getNode(numbers[j])).iterator();
+  }
+
+  private static IntSet numbers(int[] numbers, int from, int to) {
+    return IntSetUtil.make(Arrays.copyOfRange(numbers, from, to));
+  }
+
+  /** Nodes not in the graph, such as keys numbered after it was built, have no edges. */
+  @Override
+  public Iterator<Object> getSuccNodes(Object N) {
+    int n = getNumber(N);
+    return n == -1 ? EmptyIterator.instance() : nodes(succ, succOffsets[n], succOffsets[n + 1]);
+  }
+
+  @Override
+  public int getSuccNodeCount(Object N) {
+    int n = getNumber(N);
+    return n == -1 ? 0 : succOffsets[n + 1] - succOffsets[n];
+  }
+
+  @Override
+  public IntSet getSuccNodeNumbers(Object N) {
+    int n = getNumber(N);
+    return n == -1 ? IntSetUtil.make() : numbers(succ, succOffsets[n], succOffsets[n + 1]);
+  }
+
+  @Override
+  public Iterator<Object> getPredNodes(Object N) {
+    int n = getNumber(N);
+    return n == -1 ? EmptyIterator.instance() : nodes(pred, predOffsets[n], predOffsets[n + 1]);
+  }
+
+  @Override
+  public int getPredNodeCount(Object N) {
+    int n = getNumber(N);
+    return n == -1 ? 0 : predOffsets[n + 1] - predOffsets[n];
+  }
+
+  @Override
+  public IntSet getPredNodeNumbers(Object N) {
+    int n = getNumber(N);
+    return n == -1 ? IntSetUtil.make() : numbers(pred, predOffsets[n], predOffsets[n + 1]);
+  }
+
+  @Override
+  public boolean hasEdge(Object src, Object dst) {
+    int s = getNumber(src);
+    int d = getNumber(dst);
+    return s != -1
+        && d != -1
+        && Arrays.binarySearch(succ, succOffsets[s], succOffsets[s + 1], d) >= 0;
+  }
+
+  @Override
+  public void addNode(Object n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeNode(Object n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addEdge(Object src, Object dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeEdge(Object src, Object dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeAllIncidentEdges(Object node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeIncomingEdges(Object node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeOutgoingEdges(Object node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String toString() {
+    return "CompactHeapGraph: " + nodeCount + " nodes, " + succ.length + " edges";
+  }
+}
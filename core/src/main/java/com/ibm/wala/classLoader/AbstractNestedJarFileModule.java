@@ -16,7 +16,6 @@ import com.ibm.wala.core.util.warnings.Warnings;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -25,7 +24,11 @@ import java.util.Objects;
 import java.util.jar.JarInputStream;
 import java.util.zip.ZipEntry;
 
-/** A Jar file nested in a parent jar file */
+/**
+ * A Jar file nested in a parent jar file. The nested jar's central directory is indexed when its
+ * entries are first needed, and each class or source file is inflated only when it is read, so
+ * large numbers of nested jars, as in fat jars, do not have to be held in memory uncompressed.
+ */
 public abstract class AbstractNestedJarFileModule implements Module {
 
   private static final boolean DEBUG = false;
@@ -33,8 +36,13 @@ public abstract class AbstractNestedJarFileModule implements Module {
   private final Module container;
 
   /**
-   * For efficiency, we cache the byte[] holding each ZipEntry's contents; this will help avoid
-   * multiple unzipping TODO: use a soft reference?
+   * Index of the class and source files, whose contents are inflated only when they are read. Null
+   * until the entries are first needed, and if the nested jar cannot be read this way.
+   */
+  private NestedJarReader reader = null;
+
+  /**
+   * The contents of each class and source file, for nested jars that can only be read sequentially
    */
   private HashMap<String, byte[]> cache = null;
 
@@ -44,14 +52,40 @@ public abstract class AbstractNestedJarFileModule implements Module {
     this.container = container;
   }
 
+  /**
+   * @return the nested jar for random access; by default, its bytes as read from {@link
+   *     #getNestedContents()}
+   */
+  NestedJarReader.Source getNestedSource() throws IOException {
+    try (InputStream s = getNestedContents()) {
+      return NestedJarReader.of(s.readAllBytes());
+    }
+  }
+
   public InputStream getInputStream(String name) {
     populateCache();
+    if (reader != null) {
+      try {
+        return reader.getInputStream(name);
+      } catch (IOException e) {
+        e.printStackTrace();
+        return Assertions.UNREACHABLE();
+      }
+    }
     byte[] b = cache.get(name);
     return new ByteArrayInputStream(b);
   }
 
-  private void populateCache() {
-    if (cache != null) {
+  private synchronized void populateCache() {
+    if (reader != null || cache != null) {
+      return;
+    }
+    try {
+      reader = NestedJarReader.make(getNestedSource());
+    } catch (IOException e) {
+      // fall back to reading the nested jar sequentially
+    }
+    if (reader != null) {
       return;
     }
     cache = HashMapFactory.make();
@@ -62,15 +96,7 @@ public abstract class AbstractNestedJarFileModule implements Module {
           System.err.println(("got entry: " + name));
         }
         if (FileSuffixes.isClassFile(name) || FileSuffixes.isSourceFile(name)) {
-          ByteArrayOutputStream out = new ByteArrayOutputStream();
-          byte[] temp = new byte[1024];
-          int n = stream.read(temp);
-          while (n != -1) {
-            out.write(temp, 0, n);
-            n = stream.read(temp);
-          }
-          byte[] bb = out.toByteArray();
-          cache.put(name, bb);
+          cache.put(name, stream.readAllBytes());
         }
       }
     } catch (IOException e) {
@@ -89,6 +115,9 @@ public abstract class AbstractNestedJarFileModule implements Module {
 
   protected long getEntrySize(String name) {
     populateCache();
+    if (reader != null) {
+      return reader.getSize(name);
+    }
     byte[] b = cache.get(name);
     return b.length;
   }
@@ -96,7 +125,7 @@ public abstract class AbstractNestedJarFileModule implements Module {
   @Override
   public Iterator<ModuleEntry> getEntries() {
     populateCache();
-    final Iterator<String> it = cache.keySet().iterator();
+    final Iterator<String> it = (reader != null ? reader.getNames() : cache.keySet()).iterator();
     return new Iterator<>() {
       String next = null;
 
@@ -13,8 +13,7 @@ package com.ibm.wala.classLoader;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.TypeName;
 import com.ibm.wala.types.TypeReference;
-import com.ibm.wala.util.collections.HashMapFactory;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Pseudo-classloader for all array classes; all other IClassLoader implementations should delegate
@@ -24,8 +23,12 @@ public class ArrayClassLoader {
 
   private static final boolean DEBUG = false;
 
-  /** map: TypeReference -&gt; ArrayClass */
-  private final HashMap<TypeReference, ArrayClass> arrayClasses = HashMapFactory.make();
+  /**
+   * map: TypeReference -&gt; ArrayClass. Concurrent, since array classes are created on lookup,
+   * which may happen from several threads.
+   */
+  private final ConcurrentHashMap<TypeReference, ArrayClass> arrayClasses =
+      new ConcurrentHashMap<>();
 
   /**
    * @param className name of the array class
@@ -43,11 +46,8 @@ public class ArrayClassLoader {
     TypeReference elementType = type.getArrayElementType();
     if (elementType.isPrimitiveType()) {
       TypeReference aRef = TypeReference.findOrCreateArrayOf(elementType);
-      arrayClass = arrayClasses.get(aRef);
       IClassLoader primordial = getRootClassLoader(delegator);
-      if (arrayClass == null) {
-        arrayClasses.put(aRef, arrayClass = new ArrayClass(aRef, primordial, cha));
-      }
+      arrayClass = arrayClasses.computeIfAbsent(aRef, t -> new ArrayClass(t, primordial, cha));
     } else {
       arrayClass = arrayClasses.get(type);
       if (arrayClass == null) {
@@ -64,7 +64,10 @@ public class ArrayClassLoader {
           arrayClass = new ArrayClass(realType, elementCls.getClassLoader(), cha);
         }
       }
-      arrayClasses.put(type, arrayClass);
+      ArrayClass existing = arrayClasses.putIfAbsent(type, arrayClass);
+      if (existing != null) {
+        arrayClass = existing;
+      }
     }
     return arrayClass;
   }
@@ -73,7 +73,10 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
    */
   protected volatile Map<Selector, IMethod> methodMap;
 
-  /** A mapping from Selector to IMethod used to cache method lookups from superclasses */
+  /**
+   * A mapping from Selector to IMethod used to cache method lookups from superclasses. Accessed
+   * while holding the lock on this class, since methods may be looked up from several threads.
+   */
   protected Map<Selector, IMethod> inheritCache;
 
   /** Canonical type representation */
@@ -89,7 +92,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
    * The IClasses that represent all interfaces this class implements (if it's a class) or extends
    * (it it's an interface)
    */
-  protected Collection<IClass> allInterfaces = null;
+  protected volatile Collection<IClass> allInterfaces = null;
 
   /** The instance fields declared in this class. */
   protected IField[] instanceFields;
@@ -390,10 +393,12 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     if (result != null) {
       return result;
     }
-    if (inheritCache != null) {
-      result = inheritCache.get(selector);
-      if (result != null) {
-        return result;
+    synchronized (this) {
+      if (inheritCache != null) {
+        result = inheritCache.get(selector);
+        if (result != null) {
+          return result;
+        }
       }
     }
 
@@ -404,11 +409,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
       if (superclass != null) {
         IMethod inherit = superclass.getMethod(selector);
         if (inherit != null) {
-          if (inheritCache == null) {
-            inheritCache = new BimodalMap<>(5);
-          }
-          inheritCache.put(selector, inherit);
-          return inherit;
+          return cacheInherited(selector, inherit);
         }
       }
     }
@@ -418,22 +419,22 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     for (IClass iface : getAllImplementedInterfaces()) {
       for (IMethod m : iface.getDeclaredMethods()) {
         if (!m.isAbstract() && m.getSelector().equals(selector)) {
-          if (inheritCache == null) {
-            inheritCache = new BimodalMap<>(5);
-          }
-          inheritCache.put(selector, m);
-
-          return m;
+          return cacheInherited(selector, m);
         }
       }
     }
 
     // no method found
+    return cacheInherited(selector, null);
+  }
+
+  /** Remember what a selector resolves to in a superclass or interface, or that it is not found. */
+  private synchronized IMethod cacheInherited(Selector selector, IMethod method) {
     if (inheritCache == null) {
       inheritCache = new BimodalMap<>(5);
     }
-    inheritCache.put(selector, null);
-    return null;
+    inheritCache.put(selector, method);
+    return method;
   }
 
   /**
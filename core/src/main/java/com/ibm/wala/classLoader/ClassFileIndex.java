@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+/**
+ * The class and source files of a list of {@link Module}s, as loaded by {@link ClassLoaderImpl}.
+ * Nested modules are expanded, every class file is paired with the name of the class it is expected
+ * to define, and class files that already occur in an earlier module are dropped.
+ *
+ * <p>Building the index touches every entry of every module, and computing a class name may mean
+ * reading the class file, so for large class paths the modules can be scanned concurrently. The
+ * result does not depend on whether they are.
+ */
+public class ClassFileIndex {
+
+  /** read each jar file sequentially before scanning it, to warm up the file system cache */
+  private static final boolean OPTIMIZE_JAR_FILE_IO = true;
+
+  /**
+   * a class file, with the name of the class it should define in the form {@code java/lang/Object}
+   * and as a {@link TypeName}
+   */
+  public record ClassFile(ModuleEntry entry, String className, TypeName typeName) {}
+
+  /** the class files of each module, in module order */
+  private final List<List<ClassFile>> classFiles = new ArrayList<>();
+
+  /** the source files of each module, in module order */
+  private final List<Set<ModuleEntry>> sourceFiles = new ArrayList<>();
+
+  /** the first class file for each class name */
+  private final Map<TypeName, ModuleEntry> firstEntries = HashMapFactory.make();
+
+  /**
+   * @param modules the modules to index, in class loading order
+   * @param parallel whether to scan the modules concurrently
+   */
+  public static ClassFileIndex make(List<Module> modules, boolean parallel) {
+    if (modules == null) {
+      throw new IllegalArgumentException("modules is null");
+    }
+    List<Scan> scans =
+        (parallel ? modules.parallelStream() : modules.stream())
+            .map(ClassFileIndex::scan)
+            .collect(Collectors.toList());
+    return new ClassFileIndex(scans);
+  }
+
+  private ClassFileIndex(List<Scan> scans) {
+    Set<ModuleEntry> seen = HashSetFactory.make();
+    for (Scan scan : scans) {
+      List<ClassFile> files = new ArrayList<>(scan.classFiles.size());
+      for (ClassFile file : scan.classFiles) {
+        if (!seen.contains(file.entry())) {
+          files.add(file);
+          firstEntries.putIfAbsent(file.typeName(), file.entry());
+        }
+      }
+      for (ClassFile file : files) {
+        seen.add(file.entry());
+      }
+      classFiles.add(files);
+      sourceFiles.add(scan.sourceFiles);
+    }
+  }
+
+  /**
+   * @return the class files of the i-th module that do not occur in an earlier one
+   */
+  public List<ClassFile> getClassFiles(int i) {
+    return Collections.unmodifiableList(classFiles.get(i));
+  }
+
+  /**
+   * @return the source files of the i-th module
+   */
+  public Set<ModuleEntry> getSourceFiles(int i) {
+    return Collections.unmodifiableSet(sourceFiles.get(i));
+  }
+
+  /**
+   * @return the first class file, in module order, that should define the class {@code name}, or
+   *     null if there is none. A class loader may still reject that file, e.g. if it turns out to
+   *     define a different class.
+   */
+  public ModuleEntry getEntry(TypeName name) {
+    return firstEntries.get(name);
+  }
+
+  /**
+   * @return the number of distinct class names in the index
+   */
+  public int size() {
+    return firstEntries.size();
+  }
+
+  private static final class Scan {
+    private final List<ClassFile> classFiles = new ArrayList<>();
+
+    private final Set<ModuleEntry> sourceFiles = new LinkedHashSet<>();
+  }
+
+  private static Scan scan(Module module) {
+    boolean isJMODType = false;
+    if (module instanceof JarFileModule fileModule) {
+      JarFile jarFile = fileModule.getJarFile();
+      isJMODType = (jarFile != null) && jarFile.getName().endsWith(".jmod");
+      if (OPTIMIZE_JAR_FILE_IO) {
+        // reading the whole file sequentially gives a speedup for large jar files, which are then
+        // read from the FS cache; reading the entries from the bytes themselves via a
+        // JarInputStream is much slower than using the JarFile
+        readJarFile(fileModule);
+      }
+    }
+
+    Set<ModuleEntry> classEntries = new LinkedHashSet<>();
+    Scan scan = new Scan();
+    collectEntries(module, classEntries, scan.sourceFiles);
+    for (ModuleEntry entry : classEntries) {
+      // java11 support for jmod files
+      if (isJMODType && entry.getClassName().startsWith("classes/module-info")) {
+        continue;
+      }
+
+      @SuppressWarnings("NonConstantStringShouldBeStringBuffer")
+      String className = entry.getClassName().replace('.', '/');
+
+      // java11 support for jmod files
+      if (isJMODType && className.startsWith("classes/")) {
+        className = className.replace("classes/", "");
+      }
+
+      scan.classFiles.add(
+          new ClassFile(entry, className, TypeName.string2TypeName('L' + className)));
+    }
+    return scan;
+  }
+
+  /** add the class and source files in module, and in the modules nested in it, to the sets */
+  private static void collectEntries(
+      Module module, Set<ModuleEntry> classEntries, Set<ModuleEntry> sourceEntries) {
+    for (ModuleEntry entry : Iterator2Iterable.make(module.getEntries())) {
+      if (entry.isClassFile()) {
+        classEntries.add(entry);
+      } else if (entry.isSourceFile()) {
+        sourceEntries.add(entry);
+      } else if (entry.isModuleFile()) {
+        collectEntries(entry.asModule(), classEntries, sourceEntries);
+      }
+    }
+  }
+
+  /** read a jar file and throw away its contents. if any IO exceptions occur, ignore them. */
+  private static void readJarFile(JarFileModule archive) {
+    String jarFileName = archive.getJarFile().getName();
+    try {
+      File jarFile = new FileProvider().getFile(jarFileName);
+      try (InputStream s = new BufferedInputStream(new FileInputStream(jarFile), 65536)) {
+        byte[] b = new byte[65536];
+        while (s.read(b) != -1) {
+          // discard
+        }
+      }
+    } catch (IOException e) {
+      // just a hint to the file system; the jar file will be read again anyway
+    }
+  }
+}
@@ -10,7 +10,6 @@
  */
 package com.ibm.wala.classLoader;
 
-import com.ibm.wala.core.util.io.FileProvider;
 import com.ibm.wala.core.util.io.FileSuffixes;
 import com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle;
 import com.ibm.wala.core.util.strings.Atom;
@@ -23,27 +22,26 @@ import com.ibm.wala.ssa.SSAInstructionFactory;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.TypeName;
 import com.ibm.wala.util.collections.HashMapFactory;
-import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.config.StringFilter;
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
+import java.util.stream.Collectors;
 import org.jspecify.annotations.NonNull;
 
 /** A class loader that reads class definitions from a set of Modules. */
@@ -73,6 +71,25 @@ public class ClassLoaderImpl implements IClassLoader {
   /** an object to delegate to for loading of array classes */
   private final ArrayClassLoader arrayClassLoader;
 
+  /**
+   * whether classes are only defined when they are first looked up; see {@link
+   * com.ibm.wala.ipa.callgraph.AnalysisScope#setLazyClassLoading(boolean)}
+   */
+  private boolean lazy = false;
+
+  /**
+   * For lazy loading, the class files of the classes not defined yet, by the name of the class they
+   * should define, in module order
+   */
+  private final Map<TypeName, List<ClassFileIndex.ClassFile>> unloadedClasses =
+      HashMapFactory.make();
+
+  /**
+   * For lazy loading, the names of the classes whose class files declare a given type as their
+   * superclass or as one of their interfaces
+   */
+  private final Map<TypeName, Set<TypeName>> declaredSubtypes = HashMapFactory.make();
+
   /**
    * @param loader class loader reference identifying this loader
    * @param parent parent loader for delegation
@@ -101,77 +118,13 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
-  /**
-   * Return the Set of (ModuleEntry) source files found in a module.
-   *
-   * @param M the module
-   * @return the Set of source files in the module
-   */
-  @SuppressWarnings("unused")
-  private Set<ModuleEntry> getSourceFiles(Module M) throws IOException {
-    if (DEBUG_LEVEL > 0) {
-      System.err.println("Get source files for " + M);
-    }
-    HashSet<ModuleEntry> result = HashSetFactory.make();
-    for (ModuleEntry entry : Iterator2Iterable.make(M.getEntries())) {
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("consider entry for source information: " + entry);
-      }
-      if (entry.isSourceFile()) {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("found source file: " + entry);
-        }
-        result.add(entry);
-      } else if (entry.isModuleFile()) {
-        result.addAll(getSourceFiles(entry.asModule()));
-      }
-    }
-    return result;
-  }
-
-  /**
-   * Return the Set of (ModuleEntry) class files found in a module.
-   *
-   * @param M the module
-   * @return the Set of class Files in the module
-   */
-  @SuppressWarnings("unused")
-  private Set<ModuleEntry> getClassFiles(Module M) throws IOException {
-    if (DEBUG_LEVEL > 0) {
-      System.err.println("Get class files for " + M);
-    }
-    HashSet<ModuleEntry> result = HashSetFactory.make();
-    for (ModuleEntry entry : Iterator2Iterable.make(M.getEntries())) {
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("ClassLoaderImpl.getClassFiles:Got entry: " + entry);
-      }
-      if (entry.isClassFile()) {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("result contains: " + entry);
-        }
-        result.add(entry);
-      } else if (entry.isModuleFile()) {
-        Set<ModuleEntry> s = getClassFiles(entry.asModule());
-        removeClassFiles(s, result);
-        result.addAll(s);
-      } else {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("Ignoring entry: " + entry);
-        }
-      }
-    }
-    return result;
-  }
-
-  /** Remove from s any class file module entries which already are in t */
-  private static void removeClassFiles(Set<ModuleEntry> s, Set<ModuleEntry> t) {
-    s.removeAll(t);
-  }
-
   /** Return a Set of IClasses, which represents all classes this class loader can load. */
   private Collection<IClass> getAllClasses() {
     assert loadedClasses != null;
 
+    if (lazy) {
+      loadRemainingClasses();
+    }
     return loadedClasses.values();
   }
 
@@ -206,76 +159,230 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
-  /** Set up the set of classes loaded by this object. */
+  /**
+   * Set up the set of classes loaded by this object.
+   *
+   * @param parallel whether to parse the class files concurrently
+   */
   @SuppressWarnings("unused")
   private void loadAllClasses(
-      Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents, boolean isJMODType) {
-    for (ModuleEntry entry : moduleEntries) {
-      // java11 support for jmod files
-      if (!entry.isClassFile()
-          || (isJMODType && entry.getClassName().startsWith("classes/module-info"))) {
-        continue;
+      Collection<ClassFileIndex.ClassFile> classFiles,
+      Map<String, Object> fileContents,
+      boolean parallel) {
+    // the class files that may define a class not loaded yet; these are parsed, possibly
+    // concurrently, and then added in order, so the first valid definition of a class wins
+    List<ClassFileIndex.ClassFile> candidates = new ArrayList<>(classFiles.size());
+    for (ClassFileIndex.ClassFile classFile : classFiles) {
+      String className = classFile.className();
+      if (DEBUG_LEVEL > 0) {
+        System.err.println("Consider " + className);
       }
 
-      @SuppressWarnings("NonConstantStringShouldBeStringBuffer")
-      String className = entry.getClassName().replace('.', '/');
+      if (exclusions != null && exclusions.test(className)) {
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("Excluding " + className);
+        }
+        continue;
+      }
 
-      // java11 support for jmod files
-      if (isJMODType && className.startsWith("classes/")) {
-        className = className.replace("classes/", "");
+      TypeName T = classFile.typeName();
+      if (loadedClasses.get(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create('L' + className));
+      } else if (parent != null && parent.lookupClass(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create('L' + className));
+      } else {
+        candidates.add(classFile);
       }
+    }
 
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("Consider " + className);
+    List<ShrikeClass> parsed =
+        (parallel ? candidates.parallelStream() : candidates.stream())
+            .map(classFile -> parseClass(classFile, fileContents))
+            .collect(Collectors.toList());
+
+    for (int i = 0; i < candidates.size(); i++) {
+      TypeName T = candidates.get(i).typeName();
+      String className = 'L' + candidates.get(i).className();
+      ShrikeClass klass = parsed.get(i);
+      if (loadedClasses.get(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create(className));
+      } else if (klass == null || !klass.getReference().getName().equals(T)) {
+        Warnings.add(InvalidClassFile.create(className));
+      } else {
+        loadedClasses.put(T, klass);
+        if (DEBUG_LEVEL > 1) {
+          System.err.println("put " + T + ' ');
+        }
       }
+    }
+  }
 
-      if (exclusions != null && exclusions.test(className)) {
+  /**
+   * Set up the supertype index for lazy loading, without defining any classes.
+   *
+   * @param parallel whether to read the class files concurrently
+   */
+  private void indexClasses(Collection<ClassFileIndex.ClassFile> classFiles, boolean parallel) {
+    List<ClassFileIndex.ClassFile> candidates = new ArrayList<>(classFiles.size());
+    for (ClassFileIndex.ClassFile classFile : classFiles) {
+      if (exclusions != null && exclusions.test(classFile.className())) {
         if (DEBUG_LEVEL > 0) {
-          System.err.println("Excluding " + className);
+          System.err.println("Excluding " + classFile.className());
         }
         continue;
       }
+      candidates.add(classFile);
+    }
 
-      ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    List<TypeName[]> supertypes =
+        (parallel ? candidates.parallelStream() : candidates.stream())
+            .map(ClassLoaderImpl::readSupertypes)
+            .collect(Collectors.toList());
 
-      className = 'L' + className;
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("Load class " + className);
+    for (int i = 0; i < candidates.size(); i++) {
+      ClassFileIndex.ClassFile classFile = candidates.get(i);
+      TypeName T = classFile.typeName();
+      if (supertypes.get(i) == null) {
+        Warnings.add(InvalidClassFile.create('L' + classFile.className()));
+        continue;
       }
-      try {
-        TypeName T = TypeName.string2TypeName(className);
-        if (loadedClasses.get(T) != null) {
-          Warnings.add(MultipleImplementationsWarning.create(className));
-        } else if (parent != null && parent.lookupClass(T) != null) {
-          Warnings.add(MultipleImplementationsWarning.create(className));
-        } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
-          }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
-          if (tmpKlass.getReference().getName().equals(T)) {
-            // always used the reader based on the entry after this point,
-            // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
-            if (DEBUG_LEVEL > 1) {
-              System.err.println("put " + T + ' ');
-            }
-          } else {
-            Warnings.add(InvalidClassFile.create(className));
+      List<ClassFileIndex.ClassFile> files = unloadedClasses.get(T);
+      if (files == null) {
+        files = new ArrayList<>(1);
+        unloadedClasses.put(T, files);
+      } else {
+        Warnings.add(MultipleImplementationsWarning.create('L' + classFile.className()));
+      }
+      files.add(classFile);
+      for (TypeName supertype : supertypes.get(i)) {
+        MapUtil.findOrCreateSet(declaredSubtypes, supertype).add(T);
+      }
+    }
+  }
+
+  /**
+   * @return the names of the superclass and the interfaces declared by a class file, or null if it
+   *     cannot be read or does not define the class it should
+   */
+  private static TypeName[] readSupertypes(ClassFileIndex.ClassFile classFile) {
+    try (InputStream s = classFile.entry().getInputStream()) {
+      ClassReader reader = new ClassReader(s.readAllBytes());
+      if (!reader.getName().equals(classFile.className())) {
+        return null;
+      }
+      String superName = reader.getSuperName();
+      String[] interfaceNames = reader.getInterfaceNames();
+      List<TypeName> result = new ArrayList<>(interfaceNames.length + 1);
+      if (superName != null) {
+        result.add(TypeName.string2TypeName('L' + superName));
+      }
+      for (String name : interfaceNames) {
+        result.add(TypeName.string2TypeName('L' + name));
+      }
+      return result.toArray(new TypeName[0]);
+    } catch (IOException | InvalidClassFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * For lazy loading, define a class from the first of its class files that is valid, and add it to
+   * the class hierarchy.
+   *
+   * @return the class, or null if it has no class file or cannot be added to the class hierarchy
+   */
+  private IClass loadClass(TypeName className) {
+    // removed first, so that cyclic lookups while adding the class do not load it again
+    List<ClassFileIndex.ClassFile> classFiles = unloadedClasses.remove(className);
+    if (classFiles == null) {
+      return null;
+    }
+    for (ClassFileIndex.ClassFile classFile : classFiles) {
+      ShrikeClass klass = parseClass(classFile, null);
+      if (klass == null || !klass.getReference().getName().equals(className)) {
+        Warnings.add(InvalidClassFile.create('L' + classFile.className()));
+        continue;
+      }
+      loadedClasses.put(className, klass);
+      if (cha.addClass(klass)) {
+        return klass;
+      }
+      loadedClasses.remove(className);
+      return null;
+    }
+    return null;
+  }
+
+  /** For lazy loading, define all classes not defined yet. */
+  private void loadRemainingClasses() {
+    for (TypeName T : new ArrayList<>(unloadedClasses.keySet())) {
+      if (parent != null && parent.lookupClass(T) != null) {
+        unloadedClasses.remove(T);
+        Warnings.add(MultipleImplementationsWarning.create(T.toString()));
+      } else {
+        loadClass(T);
+      }
+    }
+  }
+
+  /**
+   * @return true if this loader defines classes only when they are first looked up
+   */
+  public boolean isLazy() {
+    return lazy;
+  }
+
+  /**
+   * @return the classes defined so far. Unlike {@link #iterateAllClasses()}, this does not define
+   *     the remaining classes of a lazy loader.
+   */
+  public Collection<IClass> getLoadedClasses() {
+    return new ArrayList<>(loadedClasses.values());
+  }
+
+  /**
+   * @return for a lazy loader, the names of the classes in its modules whose class files declare
+   *     {@code name} as their superclass or as one of their interfaces, whether defined yet or not;
+   *     these may still resolve to classes of a parent loader. Empty for other loaders, which
+   *     define all their classes up front.
+   */
+  public Set<TypeName> getDeclaredSubtypes(TypeName name) {
+    Set<TypeName> result = declaredSubtypes.get(name);
+    return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result);
+  }
+
+  /**
+   * @return the class defined by a class file, or null if it cannot be parsed
+   */
+  private ShrikeClass parseClass(
+      ClassFileIndex.ClassFile classFile, Map<String, Object> fileContents) {
+    ModuleEntry entry = classFile.entry();
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("Load class L" + classFile.className());
+    }
+    ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    try {
+      // try to read from memory
+      if (fileContents != null) {
+        final Object contents = fileContents.get(entry.getName());
+        if (contents != null) {
+          // reader that uses the in-memory bytes
+          ShrikeClass tmpKlass =
+              new ShrikeClass(new ByteArrayReaderHandle(entry, (byte[]) contents), this, cha);
+          if (!tmpKlass.getReference().getName().equals(classFile.typeName())) {
+            return tmpKlass;
           }
+          // always use the reader based on the entry after this point,
+          // so we can null out and re-read class file contents
         }
-      } catch (InvalidClassFileException e) {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("Ignoring class " + className + " due to InvalidClassFileException");
-        }
-        Warnings.add(InvalidClassFile.create(className));
       }
+      return new ShrikeClass(entryReader, this, cha);
+    } catch (InvalidClassFileException e) {
+      if (DEBUG_LEVEL > 0) {
+        System.err.println(
+            "Ignoring class L" + classFile.className() + " due to InvalidClassFileException");
+      }
+      return null;
     }
   }
 
@@ -454,40 +561,13 @@ public class ClassLoaderImpl implements IClassLoader {
     }
 
     // module are loaded according to the given order (same as in Java VM)
-    Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
-    Set<ModuleEntry> sourceModuleEntries = HashSetFactory.make();
-    for (Module archive : modules) {
-      boolean isJMODType = false;
-      if (archive instanceof JarFileModule fileModule) {
-        JarFile jarFile = fileModule.getJarFile();
-        isJMODType = (jarFile != null) && jarFile.getName().endsWith(".jmod");
-      }
+    boolean parallel = cha != null && cha.getScope().isParallelClassLoading();
+    lazy = cha != null && cha.getScope().isLazyClassLoading();
+    ClassFileIndex index = ClassFileIndex.make(modules, parallel);
+    for (int i = 0; i < modules.size(); i++) {
       if (DEBUG_LEVEL > 0) {
-        System.err.println("add archive: " + archive);
+        System.err.println("add archive: " + modules.get(i));
       }
-      // byte[] jarFileContents = null;
-      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule jarFileModule) {
-        // if we have a jar file, we read the whole thing into memory and operate on that; enables
-        // more
-        // efficient sequential I/O
-        // this is work in progress; for now, we read the file into memory and throw away the
-        // contents, which
-        // still gives a speedup for large jar files since it reads sequentially and warms up the FS
-        // cache. we get a small slowdown
-        // for smaller jar files or for jar files already in the FS cache. eventually, we should
-        // actually use the bytes read and eliminate the slowdown
-        // 11/22/10: I can't figure out a way to actually use the bytes without hurting performance.
-        //  Apparently,
-        // extracting files from a jar stored in memory via a JarInputStream is really slow compared
-        // to using
-        // a JarFile.  Will leave this as is for now.  --MS
-        // jarFileContents = archive instanceof JarFileModule ? getJarFileContents((JarFileModule)
-        // archive) : null;
-        getJarFileContents(jarFileModule);
-      }
-      Set<ModuleEntry> classFiles = getClassFiles(archive);
-      removeClassFiles(classFiles, classModuleEntries);
-      Set<ModuleEntry> sourceFiles = getSourceFiles(archive);
       Map<String, Object> allClassAndSourceFileContents = null;
       if (OPTIMIZE_JAR_FILE_IO) {
         // work in progress --MS
@@ -500,10 +580,12 @@ public class ClassLoaderImpl implements IClassLoader {
         // }
         // jarFileContents = null;
       }
-      loadAllClasses(classFiles, allClassAndSourceFileContents, isJMODType);
-      loadAllSources(sourceFiles);
-      classModuleEntries.addAll(classFiles);
-      sourceModuleEntries.addAll(sourceFiles);
+      if (lazy) {
+        indexClasses(index.getClassFiles(i), parallel);
+      } else {
+        loadAllClasses(index.getClassFiles(i), allClassAndSourceFileContents, parallel);
+      }
+      loadAllSources(index.getSourceFiles(i));
     }
   }
 
@@ -524,30 +606,6 @@ public class ClassLoaderImpl implements IClassLoader {
     return result;
   }
 
-  /** get the contents of a jar file. if any IO exceptions occur, catch and return null. */
-  private static void getJarFileContents(JarFileModule archive) {
-    String jarFileName = archive.getJarFile().getName();
-    InputStream s = null;
-    try {
-      File jarFile = new FileProvider().getFile(jarFileName);
-      int bufferSize = 65536;
-      s = new BufferedInputStream(new FileInputStream(jarFile), bufferSize);
-      byte[] b = new byte[1024];
-      int n = s.read(b);
-      while (n != -1) {
-        n = s.read(b);
-      }
-    } catch (IOException e) {
-    } finally {
-      try {
-        if (s != null) {
-          s.close();
-        }
-      } catch (IOException e) {
-      }
-    }
-  }
-
   @Override
   public ClassLoaderReference getReference() {
     return loader;
@@ -582,7 +640,11 @@ public class ClassLoaderImpl implements IClassLoader {
       }
     }
     // delegating failed. Try our own namespace.
-    return loadedClasses.get(className);
+    IClass result = loadedClasses.get(className);
+    if (result == null && lazy) {
+      result = loadClass(className);
+    }
+    return result;
   }
 
   /** Method getParent. */
@@ -17,7 +17,6 @@ import com.ibm.wala.core.util.warnings.Warnings;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -25,6 +24,7 @@ import java.util.Iterator;
 import java.util.Objects;
 import java.util.jar.JarInputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * Read in a jar file from an input stream. Most parts are copied from the NestedJarFileModule class
@@ -37,22 +37,43 @@ public class JarStreamModule extends JarInputStream implements Module {
   private static final boolean DEBUG = false;
 
   /**
-   * For efficiency, we cache the byte[] holding each ZipEntry's contents; this will help avoid
-   * multiple unzipping TODO: use a soft reference?
+   * Index of the class and source files, whose contents are inflated only when they are read. Null
+   * if the jar can only be read sequentially.
    */
+  private final NestedJarReader reader;
+
+  /** The contents of each class and source file, for jars that can only be read sequentially */
   private HashMap<String, byte[]> cache = null;
 
+  /**
+   * @param stream the bytes of a jar file. These are read into memory, but entries are only
+   *     inflated when they are read. If stream is itself a {@link ZipInputStream}, only the
+   *     inflated entries are available, and they are all read and kept.
+   */
   public JarStreamModule(InputStream stream) throws IOException {
-    super(stream);
+    this(stream, stream instanceof ZipInputStream ? null : stream.readAllBytes());
+  }
+
+  private JarStreamModule(InputStream stream, byte[] image) throws IOException {
+    super(image == null ? stream : new ByteArrayInputStream(image));
+    this.reader = image == null ? null : NestedJarReader.make(NestedJarReader.of(image));
   }
 
   public InputStream getInputStream(String name) {
+    if (reader != null) {
+      try {
+        return reader.getInputStream(name);
+      } catch (IOException e) {
+        e.printStackTrace();
+        return Assertions.UNREACHABLE();
+      }
+    }
     populateCache();
     byte[] b = cache.get(name);
     return new ByteArrayInputStream(b);
   }
 
-  private void populateCache() {
+  private synchronized void populateCache() {
     if (cache != null) {
       return;
     }
@@ -64,15 +85,7 @@ public class JarStreamModule extends JarInputStream implements Module {
           System.err.println(("got entry: " + name));
         }
         if (FileSuffixes.isClassFile(name) || FileSuffixes.isSourceFile(name)) {
-          ByteArrayOutputStream out = new ByteArrayOutputStream();
-          byte[] temp = new byte[1024];
-          int n = read(temp);
-          while (n != -1) {
-            out.write(temp, 0, n);
-            n = read(temp);
-          }
-          byte[] bb = out.toByteArray();
-          cache.put(name, bb);
+          cache.put(name, readAllBytes());
         }
       }
     } catch (IOException e) {
@@ -89,6 +102,9 @@ public class JarStreamModule extends JarInputStream implements Module {
   }
 
   protected long getEntrySize(String name) {
+    if (reader != null) {
+      return reader.getSize(name);
+    }
     populateCache();
     byte[] b = cache.get(name);
     return b.length;
@@ -96,8 +112,13 @@ public class JarStreamModule extends JarInputStream implements Module {
 
   @Override
   public Iterator<ModuleEntry> getEntries() {
-    populateCache();
-    final Iterator<String> it = cache.keySet().iterator();
+    final Iterator<String> it;
+    if (reader != null) {
+      it = reader.getNames().iterator();
+    } else {
+      populateCache();
+      it = cache.keySet().iterator();
+    }
     return new Iterator<>() {
       String next = null;
 
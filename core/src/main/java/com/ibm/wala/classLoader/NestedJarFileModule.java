@@ -11,6 +11,7 @@
 package com.ibm.wala.classLoader;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Objects;
 import java.util.zip.ZipEntry;
@@ -38,6 +39,17 @@ public class NestedJarFileModule extends AbstractNestedJarFileModule {
     return new ByteArrayInputStream(parent.getContents(entry));
   }
 
+  /** a nested jar that is stored uncompressed, as in fat jars, is read in place */
+  @Override
+  NestedJarReader.Source getNestedSource() throws IOException {
+    if (entry.getMethod() == ZipEntry.STORED && entry.getSize() >= 0) {
+      return NestedJarReader.of(parent.getJarFile(), entry);
+    }
+    try (InputStream s = parent.getJarFile().getInputStream(entry)) {
+      return NestedJarReader.of(s.readAllBytes());
+    }
+  }
+
   @Override
   public String toString() {
     return "Nested Jar File:" + entry.getName();
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import com.ibm.wala.core.util.io.FileSuffixes;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.jar.JarFile;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Random access to the class and source files of a jar that is not a file of its own: one nested
+ * uncompressed in another jar, or one held in memory. The central directory is read once to index
+ * the entries by offset, and an entry is only inflated when its contents are read, so no more than
+ * one entry's data is ever decoded at a time.
+ */
+final class NestedJarReader {
+
+  /** a jar as a sequence of bytes that can be read from any offset */
+  interface Source {
+    long size();
+
+    /**
+     * @return a stream of the {@code length} bytes starting at {@code offset}
+     */
+    InputStream open(long offset, int length) throws IOException;
+  }
+
+  /** a jar held in memory */
+  static Source of(byte[] image) {
+    return new Source() {
+      @Override
+      public long size() {
+        return image.length;
+      }
+
+      @Override
+      public InputStream open(long offset, int length) {
+        return new ByteArrayInputStream(image, (int) offset, length);
+      }
+    };
+  }
+
+  /**
+   * a jar stored without compression in another jar; {@link JarFile} skips over stored data without
+   * reading it, so any offset is reached in constant time
+   */
+  static Source of(JarFile file, ZipEntry entry) {
+    assert entry.getMethod() == ZipEntry.STORED;
+    return new Source() {
+      @Override
+      public long size() {
+        return entry.getSize();
+      }
+
+      @Override
+      public InputStream open(long offset, int length) throws IOException {
+        try (InputStream s = file.getInputStream(entry)) {
+          s.skipNBytes(offset);
+          return new ByteArrayInputStream(s.readNBytes(length));
+        }
+      }
+    };
+  }
+
+  private static final int LOCAL_HEADER_SIZE = 30;
+
+  private static final int CENTRAL_HEADER_SIZE = 46;
+
+  private static final int END_HEADER_SIZE = 22;
+
+  /** at most this many idle inflaters are kept for reuse, as each holds native memory */
+  private static final ArrayBlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(16);
+
+  /** where an entry's local header starts, how it is compressed, and its sizes */
+  private record Entry(long offset, int method, int compressedSize, int size) {}
+
+  private final Source source;
+
+  private final Map<String, Entry> entries;
+
+  private NestedJarReader(Source source, Map<String, Entry> entries) {
+    this.source = source;
+    this.entries = entries;
+  }
+
+  /**
+   * Index the class and source files of a jar from its central directory.
+   *
+   * @return the reader, or null if the jar cannot be indexed this way, e.g. because it is a zip64
+   *     archive; it must then be read sequentially
+   */
+  static NestedJarReader make(Source source) throws IOException {
+    long size = source.size();
+    if (size < END_HEADER_SIZE) {
+      return null;
+    }
+
+    // the end record is followed by a comment of at most 64k
+    int tailLength = (int) Math.min(size, END_HEADER_SIZE + 0xFFFF);
+    long tailOffset = size - tailLength;
+    byte[] tail = source.open(tailOffset, tailLength).readAllBytes();
+    int end = -1;
+    for (int i = tailLength - END_HEADER_SIZE; i >= 0; i--) {
+      if (u32(tail, i) == 0x06054b50L) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      return null;
+    }
+    int count = u16(tail, end + 10);
+    long directorySize = u32(tail, end + 12);
+    long directoryOffset = u32(tail, end + 16);
+    if (count == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) {
+      return null;
+    }
+
+    // offsets are relative to the start of the archive, which may be preceded by e.g. a script
+    long directoryStart = tailOffset + end - directorySize;
+    long prefix = directoryStart - directoryOffset;
+    if (directoryStart < 0 || prefix < 0) {
+      return null;
+    }
+
+    byte[] directory = source.open(directoryStart, (int) directorySize).readAllBytes();
+    Map<String, Entry> entries = new LinkedHashMap<>();
+    int p = 0;
+    for (int i = 0; i < count; i++) {
+      if (p + CENTRAL_HEADER_SIZE > directory.length || u32(directory, p) != 0x02014b50L) {
+        return null;
+      }
+      int method = u16(directory, p + 10);
+      long compressedSize = u32(directory, p + 20);
+      long entrySize = u32(directory, p + 24);
+      int nameLength = u16(directory, p + 28);
+      int extraLength = u16(directory, p + 30);
+      int commentLength = u16(directory, p + 32);
+      long offset = u32(directory, p + 42);
+      if (compressedSize >= Integer.MAX_VALUE
+          || entrySize >= Integer.MAX_VALUE
+          || offset == 0xFFFFFFFFL) {
+        return null;
+      }
+      String name =
+          new String(directory, p + CENTRAL_HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+      if (FileSuffixes.isClassFile(name) || FileSuffixes.isSourceFile(name)) {
+        entries.put(
+            name, new Entry(prefix + offset, method, (int) compressedSize, (int) entrySize));
+      }
+      p += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+    return new NestedJarReader(source, entries);
+  }
+
+  /**
+   * @return the names of the class and source files, in the order of the central directory
+   */
+  Set<String> getNames() {
+    return Collections.unmodifiableSet(entries.keySet());
+  }
+
+  /**
+   * @return the uncompressed size of the named entry
+   */
+  long getSize(String name) {
+    return entries.get(name).size();
+  }
+
+  /**
+   * @return the contents of the named entry, inflated as they are read
+   */
+  InputStream getInputStream(String name) throws IOException {
+    Entry entry = entries.get(name);
+    byte[] header = source.open(entry.offset(), LOCAL_HEADER_SIZE).readAllBytes();
+    if (header.length < LOCAL_HEADER_SIZE || u32(header, 0) != 0x04034b50L) {
+      throw new IOException("bad local header for " + name);
+    }
+    long data = entry.offset() + LOCAL_HEADER_SIZE + u16(header, 26) + u16(header, 28);
+    InputStream compressed = source.open(data, entry.compressedSize());
+    switch (entry.method()) {
+      case ZipEntry.STORED:
+        return compressed;
+      case ZipEntry.DEFLATED:
+        Inflater inflater = inflaters.poll();
+        return new InflaterInputStream(
+            compressed,
+            inflater == null ? new Inflater(true) : inflater,
+            Math.max(512, Math.min(entry.compressedSize(), 8192))) {
+          private boolean closed = false;
+
+          @Override
+          public void close() throws IOException {
+            if (!closed) {
+              closed = true;
+              super.close();
+              inf.reset();
+              if (!inflaters.offer(inf)) {
+                inf.end();
+              }
+            }
+          }
+        };
+      default:
+        throw new IOException("unsupported compression method " + entry.method() + " for " + name);
+    }
+  }
+
+  private static int u16(byte[] b, int i) {
+    return (b[i] & 0xff) | ((b[i + 1] & 0xff) << 8);
+  }
+
+  private static long u32(byte[] b, int i) {
+    return u16(b, i) | ((long) u16(b, i + 2) << 16);
+  }
+}
@@ -2,9 +2,7 @@ package com.ibm.wala.core.java11;
 
 import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.classLoader.ModuleEntry;
-import com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle;
-import com.ibm.wala.core.util.strings.ImmutableByteArray;
-import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.core.util.io.FileSuffixes;
 import com.ibm.wala.util.PlatformUtil;
 import com.ibm.wala.util.collections.ComposedIterator;
 import java.io.ByteArrayInputStream;
@@ -105,22 +103,12 @@ public class JrtModule implements Module {
                       return null;
                     }
 
-                    private String className = null;
-
                     @Override
                     public String getClassName() {
                       assert isClassFile();
-                      if (className == null) {
-                        ShrikeClassReaderHandle reader = new ShrikeClassReaderHandle(this);
-                        try {
-                          ImmutableByteArray name = ImmutableByteArray.make(reader.get().getName());
-                          className = name.toString();
-                        } catch (InvalidClassFileException e) {
-                          e.printStackTrace();
-                          assert false;
-                        }
-                      }
-                      return className;
+                      // entries are laid out by package, so the path is the class name; a class
+                      // file defining some other class is rejected when it is loaded
+                      return FileSuffixes.stripSuffix(getName());
                     }
 
                     @Override
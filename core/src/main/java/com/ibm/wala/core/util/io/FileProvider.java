@@ -28,7 +28,6 @@ import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.jar.JarInputStream;
 import java.util.zip.ZipException;
 
 /** This class provides files that are packaged with this plug-in */
@@ -171,8 +170,9 @@ public class FileProvider {
       }
       default -> {
         final URLConnection in = url.openConnection();
-        final JarInputStream jarIn = new JarInputStream(in.getInputStream(), false);
-        return new JarStreamModule(jarIn);
+        try (InputStream jarIn = in.getInputStream()) {
+          return new JarStreamModule(jarIn);
+        }
       }
     }
   }
@@ -26,6 +26,7 @@ import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.cfg.BasicBlockInContext;
 import com.ibm.wala.ipa.cfg.ExplodedInterproceduralCFG;
+import com.ibm.wala.ipa.cfg.NumberedExplodedInterproceduralCFG;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
@@ -42,7 +43,8 @@ import java.util.stream.Stream;
 /**
  * Forward supergraph induced over an {@link ExplodedInterproceduralCFG}
  *
- * <p>This should lazily build the supergraph as it is explored.
+ * <p>This should lazily build the supergraph as it is explored. By default the ICFG is a {@link
+ * NumberedExplodedInterproceduralCFG}, which derives its edges rather than storing them.
  *
  * @author sjfink
  */
@@ -56,7 +58,7 @@ public class ICFGSupergraph
   }
 
   public static ICFGSupergraph make(CallGraph cg) {
-    return new ICFGSupergraph(ExplodedInterproceduralCFG.make(cg));
+    return new ICFGSupergraph(NumberedExplodedInterproceduralCFG.make(cg));
   }
 
   @Override
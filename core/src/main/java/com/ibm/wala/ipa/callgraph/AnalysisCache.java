@@ -10,14 +10,33 @@
  */
 package com.ibm.wala.ipa.callgraph;
 
+import com.ibm.wala.analysis.arraybounds.ArrayOutOfBoundsAnalysis;
+import com.ibm.wala.analysis.nullpointer.IntraproceduralNullPointerAnalysis;
+import com.ibm.wala.analysis.typeInference.TypeInference;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.core.util.ref.ReferenceCleanser;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cfg.ExceptionPrunedCFG;
+import com.ibm.wala.ipa.cfg.PrunedCFG;
+import com.ibm.wala.ipa.cfg.exceptionpruning.ExceptionFilter;
+import com.ibm.wala.ipa.cfg.exceptionpruning.ExceptionFilter2EdgeFilter;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ssa.AuxiliaryCache;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSACFG;
 import com.ibm.wala.ssa.SSACache;
+import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.collections.Pair;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * A place to hold onto caches of various analysis artifacts.
@@ -31,6 +50,31 @@ public class AnalysisCache implements IAnalysisCacheView {
 
   private final SSAOptions ssaOptions;
 
+  /** CFGs with exceptional edges pruned, with the IR they were built from */
+  private final AuxiliaryCache prunedCFGCache = new AuxiliaryCache();
+
+  /** the cache key of CFGs without any exceptional edges */
+  private static final Object ALL_EXCEPTIONS = new Object();
+
+  /** the pruned CFGs of one IR, keyed by the filter that pruned them */
+  private record PrunedCFGs(
+      IR ir, Map<Object, PrunedCFG<SSAInstruction, ISSABasicBlock>> byFilter) {}
+
+  /**
+   * type inference results for the IRs of each method, keyed by IR and whether primitives were
+   * tracked
+   */
+  private final AuxiliaryCache typeInferenceCache = new AuxiliaryCache();
+
+  /** array bounds analyses of the IRs of each method, keyed by IR */
+  private final AuxiliaryCache arrayBoundsCache = new AuxiliaryCache();
+
+  /** null pointer analyses of the IRs of each method, keyed by IR */
+  private final AuxiliaryCache nullPointerCache = new AuxiliaryCache();
+
+  /** call graphs with fewer nodes than this are handled sequentially */
+  private static final int PARALLEL_THRESHOLD = 64;
+
   public AnalysisCache(IRFactory<IMethod> irFactory, SSAOptions ssaOptions, SSACache cache) {
     this.ssaOptions = ssaOptions;
     this.irFactory = irFactory;
@@ -41,6 +85,11 @@ public class AnalysisCache implements IAnalysisCacheView {
   @Override
   public void invalidate(IMethod method, Context C) {
     ssaCache.invalidate(method, C);
+    prunedCFGCache.invalidate(method, C);
+    // intraprocedural analyses are cached per method, whatever the context of their IR
+    typeInferenceCache.invalidate(method, Everywhere.EVERYWHERE);
+    arrayBoundsCache.invalidate(method, Everywhere.EVERYWHERE);
+    nullPointerCache.invalidate(method, Everywhere.EVERYWHERE);
   }
 
   public SSACache getSSACache() {
@@ -80,8 +129,198 @@ public class AnalysisCache implements IAnalysisCacheView {
     return ssaCache.findOrCreateDU(ir, Everywhere.EVERYWHERE);
   }
 
+  /**
+   * Find or create a view of the control flow graph of the IR for a method that ignores all
+   * exceptional edges, as built by {@link ExceptionPrunedCFG}.
+   *
+   * @return the pruned CFG, or null if the method has no IR
+   */
+  public PrunedCFG<SSAInstruction, ISSABasicBlock> getExceptionPrunedCFG(
+      IMethod method, Context context) {
+    return findOrCreatePrunedCFG(method, context, ALL_EXCEPTIONS, ExceptionPrunedCFG::make);
+  }
+
+  /**
+   * Find or create a view of the control flow graph of the IR for a method that ignores the
+   * exceptional edges a filter rules out, as built by {@link ExceptionFilter2EdgeFilter}. Pruned
+   * CFGs are cached by method, context and filter, so clients pruning with the same filter share
+   * one.
+   *
+   * @return the pruned CFG, or null if the method has no IR
+   */
+  public PrunedCFG<SSAInstruction, ISSABasicBlock> getPrunedCFG(
+      IMethod method, Context context, ExceptionFilter<SSAInstruction> filter, ClassHierarchy cha) {
+    if (filter == null) {
+      throw new IllegalArgumentException("filter is null");
+    }
+    return findOrCreatePrunedCFG(
+        method,
+        context,
+        filter,
+        cfg -> PrunedCFG.make(cfg, new ExceptionFilter2EdgeFilter<>(filter, cha, cfg)));
+  }
+
+  private PrunedCFG<SSAInstruction, ISSABasicBlock> findOrCreatePrunedCFG(
+      IMethod method,
+      Context context,
+      Object filterKey,
+      Function<SSACFG, PrunedCFG<SSAInstruction, ISSABasicBlock>> prune) {
+    IR ir = getIR(method, context);
+    if (ir == null) {
+      return null;
+    }
+    PrunedCFGs cfgs;
+    synchronized (prunedCFGCache) {
+      cfgs = (PrunedCFGs) prunedCFGCache.find(method, context, ssaOptions);
+      // the IR may have been rebuilt since, and the pruned CFGs must share its blocks
+      if (cfgs == null || cfgs.ir() != ir) {
+        cfgs = new PrunedCFGs(ir, new ConcurrentHashMap<>());
+        prunedCFGCache.cache(method, context, ssaOptions, cfgs);
+      }
+    }
+    return cfgs.byFilter().computeIfAbsent(filterKey, k -> prune.apply(ir.getControlFlowGraph()));
+  }
+
+  /**
+   * Find or create the {@link TypeInference} for an IR. Results are cached by IR, so clients
+   * inferring types for the same IR share one solution.
+   */
+  public TypeInference getTypeInference(IR ir, boolean doPrimitives) {
+    if (ir == null) {
+      throw new IllegalArgumentException("ir is null");
+    }
+    return findOrCreate(
+        typeInferenceCache,
+        ir,
+        Pair.make(ir, doPrimitives),
+        () -> TypeInference.make(ir, doPrimitives));
+  }
+
+  /**
+   * Find or create the {@link TypeInference} for the IR of every node in a call graph. Once the
+   * call graph is large enough the inference runs on the common fork-join pool, except when the
+   * class hierarchy loads classes lazily, since loading is not thread-safe.
+   *
+   * @return the type inference for each node that has an IR, in call graph order
+   */
+  public Map<CGNode, TypeInference> getTypeInference(CallGraph cg, boolean doPrimitives) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    return forEachIR(cg, ir -> getTypeInference(ir, doPrimitives));
+  }
+
+  /**
+   * Find or create the {@link ArrayOutOfBoundsAnalysis} for an IR. Results are cached by IR, so
+   * exception filters pruning the same IR share one analysis.
+   */
+  public ArrayOutOfBoundsAnalysis getArrayOutOfBoundsAnalysis(IR ir) {
+    if (ir == null) {
+      throw new IllegalArgumentException("ir is null");
+    }
+    return findOrCreate(arrayBoundsCache, ir, ir, () -> new ArrayOutOfBoundsAnalysis(ir));
+  }
+
+  /**
+   * Find or create the {@link IntraproceduralNullPointerAnalysis} for an IR. Results are cached by
+   * IR, so exception filters pruning the same IR share one analysis.
+   *
+   * @throws IllegalArgumentException if the IR is null or empty
+   */
+  public IntraproceduralNullPointerAnalysis getNullPointerAnalysis(IR ir) {
+    if (ir == null || ir.isEmptyIR()) {
+      throw new IllegalArgumentException("IR may not be null or empty.");
+    }
+    return findOrCreate(nullPointerCache, ir, ir, () -> new IntraproceduralNullPointerAnalysis(ir));
+  }
+
+  /**
+   * Find or create the {@link ArrayOutOfBoundsAnalysis} and {@link
+   * IntraproceduralNullPointerAnalysis} for the non-empty IR of every node in a call graph, so that
+   * pruning exceptional edges for the whole program later finds them cached. Both analyses of a
+   * node are run by the same task; the tasks are scheduled as by {@link
+   * #getTypeInference(CallGraph, boolean)}.
+   *
+   * @see com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural.ArrayOutOfBoundInterFilter
+   * @see com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural.NullPointerExceptionInterFilter
+   */
+  public void analyzeArrayBoundsAndNullPointers(CallGraph cg) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    forEachIR(
+        cg,
+        ir -> {
+          if (ir.isEmptyIR()) {
+            return null;
+          }
+          getArrayOutOfBoundsAnalysis(ir);
+          return getNullPointerAnalysis(ir);
+        });
+  }
+
+  /**
+   * Find or create a result for an IR in a cache held per method, whatever the context of the IR.
+   */
+  private static <T> T findOrCreate(
+      AuxiliaryCache cache, IR ir, Object key, Supplier<? extends T> make) {
+    Map<Object, Object> byIR;
+    synchronized (cache) {
+      @SuppressWarnings("unchecked")
+      Map<Object, Object> cached =
+          (Map<Object, Object>) cache.find(ir.getMethod(), Everywhere.EVERYWHERE, ir.getOptions());
+      byIR = cached;
+      if (byIR == null) {
+        byIR = new ConcurrentHashMap<>();
+        cache.cache(ir.getMethod(), Everywhere.EVERYWHERE, ir.getOptions(), byIR);
+      }
+    }
+    @SuppressWarnings("unchecked")
+    T result = (T) byIR.computeIfAbsent(key, k -> make.get());
+    return result;
+  }
+
+  /**
+   * Apply a function to the IR of every node in a call graph. Once the call graph is large enough
+   * the function runs on the common fork-join pool, except when the class hierarchy loads classes
+   * lazily, since loading is not thread-safe. Lookups in an eagerly loaded hierarchy do not modify
+   * it, so the tasks may share it.
+   *
+   * @return the non-null results for each node that has an IR, in call graph order
+   */
+  private static <T> Map<CGNode, T> forEachIR(CallGraph cg, Function<IR, T> f) {
+    // fetch IRs up front, since context interpreters may not tolerate concurrent callers
+    CGNode[] nodes = cg.stream().toArray(CGNode[]::new);
+    IR[] irs = new IR[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      irs[i] = nodes[i].getIR();
+    }
+
+    Object[] results = new Object[nodes.length];
+    IntStream indices = IntStream.range(0, nodes.length).filter(i -> irs[i] != null);
+    if (nodes.length >= PARALLEL_THRESHOLD
+        && !cg.getClassHierarchy().getScope().isLazyClassLoading()) {
+      indices = indices.parallel();
+    }
+    indices.forEach(i -> results[i] = f.apply(irs[i]));
+
+    Map<CGNode, T> result = new LinkedHashMap<>();
+    for (int i = 0; i < nodes.length; i++) {
+      if (results[i] != null) {
+        @SuppressWarnings("unchecked")
+        T r = (T) results[i];
+        result.put(nodes[i], r);
+      }
+    }
+    return result;
+  }
+
   @Override
   public void clear() {
     ssaCache.wipe();
+    prunedCFGCache.wipe();
+    typeInferenceCache.wipe();
+    arrayBoundsCache.wipe();
+    nullPointerCache.wipe();
   }
 }
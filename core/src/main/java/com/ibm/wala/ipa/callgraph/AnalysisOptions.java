@@ -185,9 +185,29 @@ public class AnalysisOptions {
    */
   private long maxNumberOfNodes = -1;
 
+  /**
+   * The number of bytes of heap that {@link CallGraph} construction should stay within. When the
+   * heap used gets close to it, the builder stops refining: new nodes get coarser contexts and
+   * coarser abstractions of their allocations, if the builder has any. {@code -1}, the default,
+   * means no budget.
+   */
+  private long heapBudget = -1;
+
+  /**
+   * The number of milliseconds that {@link CallGraph} construction should take, degrading precision
+   * as for {@link #heapBudget} when it gets close. {@code -1}, the default, means no budget.
+   */
+  private long timeBudget = -1;
+
   /** Should call graph construction handle arrays of zero-length differently? */
   private boolean handleZeroLengthArray = true;
 
+  /**
+   * Should pointer analysis propagate only the instance keys newly added to a points-to set along
+   * assignment and filter edges, rather than the whole set? Off by default; clients opt in.
+   */
+  private boolean useDifferencePropagation = false;
+
   // SJF: I'm not sure these factories and caches belong here.
   // TODO: figure out how to clean this up.
 
@@ -223,6 +243,22 @@ public class AnalysisOptions {
     this.maxNumberOfNodes = maxNumberOfNodes;
   }
 
+  public long getHeapBudget() {
+    return heapBudget;
+  }
+
+  public void setHeapBudget(long heapBudget) {
+    this.heapBudget = heapBudget;
+  }
+
+  public long getTimeBudget() {
+    return timeBudget;
+  }
+
+  public void setTimeBudget(long timeBudget) {
+    this.timeBudget = timeBudget;
+  }
+
   /**
    * @return Policy that determines methods called at call sites.
    */
@@ -406,4 +442,20 @@ public class AnalysisOptions {
   public void setHandleZeroLengthArray(boolean handleZeroLengthArray) {
     this.handleZeroLengthArray = handleZeroLengthArray;
   }
+
+  /**
+   * Should pointer analysis propagate only the instance keys newly added to a points-to set along
+   * assignment and filter edges, rather than the whole set?
+   */
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  /**
+   * Should pointer analysis propagate only the instance keys newly added to a points-to set along
+   * assignment and filter edges, rather than the whole set?
+   */
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+  }
 }
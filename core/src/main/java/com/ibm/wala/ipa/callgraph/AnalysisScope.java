@@ -42,6 +42,7 @@ import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.config.StringFilter;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.io.RtJar;
+import com.ibm.wala.util.perf.AnalysisListener;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -363,6 +364,69 @@ public class AnalysisScope {
     exclusions = classes;
   }
 
+  /**
+   * Set this system property to {@code true} to make {@link #setParallelClassLoading(boolean)}
+   * default to true.
+   */
+  public static final String PARALLEL_CLASS_LOADING_PROPERTY = "com.ibm.wala.parallelClassLoading";
+
+  private boolean parallelClassLoading = Boolean.getBoolean(PARALLEL_CLASS_LOADING_PROPERTY);
+
+  /**
+   * If set, the class loaders for this scope scan their modules and parse their class files
+   * concurrently. The loaded classes are the same as for a sequential run.
+   *
+   * @see com.ibm.wala.classLoader.ClassFileIndex
+   */
+  public void setParallelClassLoading(boolean parallelClassLoading) {
+    this.parallelClassLoading = parallelClassLoading;
+  }
+
+  public boolean isParallelClassLoading() {
+    return parallelClassLoading;
+  }
+
+  /**
+   * Set this system property to {@code true} to make {@link #setLazyClassLoading(boolean)} default
+   * to true.
+   */
+  public static final String LAZY_CLASS_LOADING_PROPERTY = "com.ibm.wala.lazyClassLoading";
+
+  private boolean lazyClassLoading = Boolean.getBoolean(LAZY_CLASS_LOADING_PROPERTY);
+
+  /**
+   * If set, the bytecode class loaders for this scope only index the supertypes of their class
+   * files up front, and define each class the first time it is looked up. The class hierarchy then
+   * only holds the classes an analysis reaches, plus the subtypes of classes whose subclasses or
+   * implementors it asks for. Iterating over the class hierarchy defines all classes.
+   */
+  public void setLazyClassLoading(boolean lazyClassLoading) {
+    this.lazyClassLoading = lazyClassLoading;
+  }
+
+  public boolean isLazyClassLoading() {
+    return lazyClassLoading;
+  }
+
+  private AnalysisListener listener;
+
+  /**
+   * Set a listener to be told about the phases of building the class hierarchy for this scope, and
+   * of building call graphs with options for this scope, or null for none.
+   *
+   * @see com.ibm.wala.ipa.callgraph.propagation.PropagationListener
+   */
+  public void setListener(AnalysisListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * @return the listener for analyses of this scope, or null if there is none
+   */
+  public AnalysisListener getListener() {
+    return listener;
+  }
+
   @Override
   public String toString() {
     StringBuilder result = new StringBuilder();
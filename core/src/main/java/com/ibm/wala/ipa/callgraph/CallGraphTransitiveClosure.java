@@ -11,12 +11,14 @@
 package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.core.util.CancelRuntimeException;
-import com.ibm.wala.dataflow.graph.BitVectorSolver;
-import com.ibm.wala.fixpoint.BitVectorVariable;
-import com.ibm.wala.ipa.modref.GenReach;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.collections.HashMapFactory;
-import com.ibm.wala.util.graph.impl.GraphInverter;
+import com.ibm.wala.util.graph.CondensedReachability;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
 import java.util.Collection;
 import java.util.Map;
@@ -31,26 +33,51 @@ public class CallGraphTransitiveClosure {
   /**
    * Compute the transitive closure of an analysis result over all callees.
    *
+   * <p>The closure is computed on the condensation of the call graph, so that all nodes of a
+   * recursive cycle share one result, and independent parts of the condensed graph are processed in
+   * parallel.
+   *
    * @param cg the call graph
    * @param nodeResults analysis result for each individual node
    * @return a map from each node to the analysis result for the node and its transitive callees
    */
   public static <T> Map<CGNode, OrdinalSet<T>> transitiveClosure(
       CallGraph cg, Map<CGNode, Collection<T>> nodeResults) {
-    try {
-      // invert the call graph, to compute the bottom-up result
-      GenReach<CGNode, T> gr = new GenReach<>(GraphInverter.invert(cg), nodeResults);
-      BitVectorSolver<CGNode> solver = new BitVectorSolver<>(gr);
-      solver.solve(null);
-      Map<CGNode, OrdinalSet<T>> result = HashMapFactory.make();
-      for (CGNode n : cg) {
-        BitVectorVariable bv = solver.getOut(n);
-        result.put(n, new OrdinalSet<>(bv.getValue(), gr.getLatticeValues()));
+    MutableMapping<T> domain = MutableMapping.make();
+    for (Collection<T> c : nodeResults.values()) {
+      for (T p : c) {
+        domain.add(p);
       }
-      return result;
+    }
+    CondensedReachability<CGNode> reach = new CondensedReachability<>(cg);
+    BitVector[] closure;
+    try {
+      closure =
+          reach.closure(
+              n -> {
+                Collection<T> c = nodeResults.get(n);
+                if (c == null) {
+                  return null;
+                }
+                MutableSparseIntSet gen = MutableSparseIntSet.makeEmpty();
+                for (T p : c) {
+                  gen.add(domain.getMappedIndex(p));
+                }
+                return gen;
+              },
+              null);
     } catch (CancelException e) {
       throw new CancelRuntimeException(e);
     }
+    IntSet[] componentSets = new IntSet[closure.length];
+    for (int i = 0; i < closure.length; i++) {
+      componentSets[i] = new BitVectorIntSet(closure[i]);
+    }
+    Map<CGNode, OrdinalSet<T>> result = HashMapFactory.make();
+    for (CGNode n : cg) {
+      result.put(n, new OrdinalSet<>(componentSets[reach.getComponent(n)], domain));
+    }
+    return result;
   }
 
   /** Collect analysis result for each {@link CGNode} in a {@link Map}. */
@@ -29,6 +29,8 @@ import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.NonNullSingletonIterator;
+import com.ibm.wala.util.collections.SimpleVector;
+import com.ibm.wala.util.collections.SparseVector;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import com.ibm.wala.util.graph.AbstractNumberedGraph;
@@ -36,6 +38,7 @@ import com.ibm.wala.util.graph.NumberedNodeManager;
 import com.ibm.wala.util.graph.impl.DelegatingNumberedNodeManager;
 import com.ibm.wala.util.graph.impl.NodeWithNumber;
 import com.ibm.wala.util.graph.traverse.DFS;
+import com.ibm.wala.util.intset.MutableMapping;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -62,11 +65,20 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
   /** Set of nodes that are entrypoints for this analysis */
   private final Set<CGNode> entrypointNodes = HashSetFactory.make();
 
+  /** Dense ids for the methods of the nodes in the graph */
+  private final MutableMapping<IMethod> methodIds = MutableMapping.make();
+
+  /** Dense ids for the contexts of the nodes in the graph */
+  private final ContextInterner contextIds = new ContextInterner();
+
   /**
-   * A mapping from Key to NodeImpls in the graph. Note that each node is created on demand. This
-   * Map does not include the root node.
+   * A mapping from method id to a mapping from context id to the node for that method and context.
+   * Note that each node is created on demand.
    */
-  private final Map<Key, CGNode> nodes = HashMapFactory.make();
+  private final SimpleVector<SparseVector<CGNode>> nodes = new SimpleVector<>();
+
+  /** The number of nodes in {@link #nodes} */
+  private int numberOfNodes = 0;
 
   /**
    * A mapping from MethodReference to Set of nodes that represent this methodReference.
@@ -110,7 +122,17 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
   public abstract CGNode findOrCreateNode(IMethod method, Context C) throws CancelException;
 
   protected void registerNode(Key K, CGNode N) {
-    nodes.put(K, N);
+    int m = methodIds.add(K.m);
+    SparseVector<CGNode> contexts = nodes.get(m);
+    if (contexts == null) {
+      contexts = new SparseVector<>();
+      nodes.set(m, contexts);
+    }
+    int c = contextIds.getId(K.C);
+    if (contexts.get(c) == null) {
+      numberOfNodes++;
+    }
+    contexts.set(c, N);
     addNode(N);
     Set<CGNode> s = findOrCreateMr2Nodes(K.m);
     s.add(N);
@@ -130,7 +152,19 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
   }
 
   protected CGNode getNode(Key K) {
-    return nodes.get(K);
+    int m = methodIds.getMappedIndex(K.m);
+    if (m == -1) {
+      return null;
+    }
+    int c = contextIds.findId(K.C);
+    return c == -1 ? null : nodes.get(m).get(c);
+  }
+
+  /**
+   * @return the ids the graph gives the contexts of its nodes
+   */
+  public ContextInterner getContextIds() {
+    return contextIds;
   }
 
   @Override
@@ -318,23 +352,13 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
   }
 
   /**
-   * We override this since this class supports remove() on nodes, but the superclass doesn't.
+   * We override this since the node manager counts a node again each time it is added.
    *
    * @see com.ibm.wala.util.graph.Graph#getNumberOfNodes()
    */
   @Override
   public int getNumberOfNodes() {
-    return nodes.size();
-  }
-
-  /**
-   * We override this since this class supports remove() on nodes, but the superclass doesn't.
-   *
-   * @see com.ibm.wala.util.graph.Graph#iterator()
-   */
-  @Override
-  public Iterator<CGNode> iterator() {
-    return nodes.values().iterator();
+    return numberOfNodes;
   }
 
   /**
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.impl;
+
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.util.intset.MutableMapping;
+
+/**
+ * A table that gives each distinct {@link Context} a canonical instance and a dense int id.
+ *
+ * <p>Context selectors that build deep contexts, such as call strings, intern them so that equal
+ * contexts are the same object; the call graph then finds a context's id with one hash lookup that
+ * ends in an identity comparison, rather than comparing the structures.
+ */
+public class ContextInterner {
+
+  private final MutableMapping<Context> contexts = MutableMapping.make();
+
+  /**
+   * @return the id of the context, adding it to the table if it is not there yet
+   */
+  public int getId(Context context) {
+    if (context == null) {
+      throw new IllegalArgumentException("null context");
+    }
+    return contexts.add(context);
+  }
+
+  /**
+   * @return the id of the context, or -1 if it is not in the table
+   */
+  public int findId(Context context) {
+    return contexts.getMappedIndex(context);
+  }
+
+  /**
+   * @return the canonical instance of contexts equal to the given one, which becomes the canonical
+   *     instance if there is none yet
+   */
+  @SuppressWarnings("unchecked")
+  public <C extends Context> C intern(C context) {
+    return (C) contexts.getMappedObject(getId(context));
+  }
+
+  /**
+   * @return the context with the given id
+   */
+  public Context getContext(int id) {
+    return contexts.getMappedObject(id);
+  }
+
+  /**
+   * @return the number of distinct contexts in the table
+   */
+  public int size() {
+    return contexts.getSize();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.impl;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * A context selector that asks a precise selector until {@link #degrade()} is called, and a coarse
+ * one from then on, e.g. to stop creating new contexts when call graph construction runs short of
+ * memory. Nodes already created in precise contexts remain, so the result stays sound.
+ *
+ * <p>The coarse selector should be the one the precise selector refines, so that contexts some
+ * methods need to be interpreted at all, e.g. for reflection, are still created.
+ */
+public class DegradingContextSelector implements ContextSelector {
+
+  private final ContextSelector precise;
+
+  private final ContextSelector coarse;
+
+  private boolean degraded = false;
+
+  public DegradingContextSelector(ContextSelector precise, ContextSelector coarse) {
+    if (precise == null) {
+      throw new IllegalArgumentException("null precise");
+    }
+    if (coarse == null) {
+      throw new IllegalArgumentException("null coarse");
+    }
+    this.precise = precise;
+    this.coarse = coarse;
+  }
+
+  /** From now on, choose contexts with the coarse selector. */
+  public void degrade() {
+    degraded = true;
+  }
+
+  public boolean isDegraded() {
+    return degraded;
+  }
+
+  @Override
+  public Context getCalleeTarget(
+      CGNode caller, CallSiteReference site, IMethod callee, InstanceKey[] actualParameters) {
+    return (degraded ? coarse : precise).getCalleeTarget(caller, site, callee, actualParameters);
+  }
+
+  /**
+   * Call sites may have been set up for dispatch while the precise selector was in use, so this is
+   * the union of the parameters both selectors care about.
+   */
+  @Override
+  public IntSet getRelevantParameters(CGNode caller, CallSiteReference site) {
+    return precise
+        .getRelevantParameters(caller, site)
+        .union(coarse.getRelevantParameters(caller, site));
+  }
+
+  @Override
+  public String toString() {
+    return "DegradingContextSelector: " + (degraded ? coarse : precise);
+  }
+}
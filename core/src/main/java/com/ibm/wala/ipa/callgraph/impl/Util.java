@@ -17,7 +17,9 @@ import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.core.util.strings.Atom;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
 import com.ibm.wala.ipa.callgraph.ClassTargetSelector;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
@@ -26,6 +28,8 @@ import com.ibm.wala.ipa.callgraph.MethodTargetSelector;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.SSAContextInterpreter;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.IntrospectionMetrics;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.IntrospectiveContextSelector;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXCFABuilder;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXContainerCFABuilder;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
@@ -37,6 +41,7 @@ import com.ibm.wala.ipa.summaries.BypassClassTargetSelector;
 import com.ibm.wala.ipa.summaries.BypassMethodTargetSelector;
 import com.ibm.wala.ipa.summaries.LambdaMethodTargetSelector;
 import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ipa.summaries.MethodSummaryCompiler;
 import com.ibm.wala.ipa.summaries.SummaryClassShellLoader;
 import com.ibm.wala.ipa.summaries.XMLMethodSummaryReader;
 import com.ibm.wala.types.ClassLoaderReference;
@@ -54,6 +59,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -136,7 +142,10 @@ public class Util {
     }
 
     try (final InputStream s = cl.getResourceAsStream(xmlFile)) {
-      XMLMethodSummaryReader summary = new XMLMethodSummaryReader(s, cha.getScope());
+      XMLMethodSummaryReader summary =
+          MethodSummaryCompiler.isCompiled(xmlFile)
+              ? new XMLMethodSummaryReader(MethodSummaryCompiler.read(s), cha.getScope())
+              : new XMLMethodSummaryReader(s, cha.getScope());
       addBypassLogic(options, cl, summary, cha);
     } catch (IOException e) {
       System.err.println("Could not close XML method summary reader: " + e.getLocalizedMessage());
@@ -928,6 +937,52 @@ public class Util {
             | ZeroXInstanceKeys.SMUSH_THROWABLES);
   }
 
+  /**
+   * make a {@link CallGraphBuilder} that uses call-string context sensitivity, with call-string
+   * length limited to n, only for the methods where a 0-CFA pre-analysis predicts it pays off; see
+   * {@link IntrospectionMetrics}. The pre-analysis runs when this method is called.
+   */
+  public static SSAPropagationCallGraphBuilder makeIntrospectiveNCFABuilder(
+      int n, Language l, AnalysisOptions options, IAnalysisCacheView cache, IClassHierarchy cha)
+      throws CallGraphBuilderCancelException {
+    Set<IMethod> refined = introspect(l, options, cache, cha);
+    SSAPropagationCallGraphBuilder result = makeNCFABuilder(n, l, options, cache, cha);
+    result.setContextSelector(
+        new IntrospectiveContextSelector(
+            result.getContextSelector(), new DefaultContextSelector(options, cha), refined));
+    return result;
+  }
+
+  /**
+   * make a {@link CallGraphBuilder} that uses object context sensitivity, with allocation-string
+   * length limited to n, only for the methods where a 0-CFA pre-analysis predicts it pays off; see
+   * {@link IntrospectionMetrics}. The pre-analysis runs when this method is called.
+   */
+  public static SSAPropagationCallGraphBuilder makeIntrospectiveNObjBuilder(
+      int n, AnalysisOptions options, IAnalysisCacheView cache, IClassHierarchy cha)
+      throws CallGraphBuilderCancelException {
+    Set<IMethod> refined = introspect(JavaLanguage.get(), options, cache, cha);
+    SSAPropagationCallGraphBuilder result = makeNObjBuilder(n, options, cache, cha);
+    result.setContextSelector(
+        new IntrospectiveContextSelector(
+            result.getContextSelector(), new DefaultContextSelector(options, cha), refined));
+    return result;
+  }
+
+  /**
+   * Run a 0-CFA pre-analysis.
+   *
+   * @return the methods whose costs in the pre-analysis are within the default bounds of {@link
+   *     IntrospectionMetrics}
+   */
+  private static Set<IMethod> introspect(
+      Language l, AnalysisOptions options, IAnalysisCacheView cache, IClassHierarchy cha)
+      throws CallGraphBuilderCancelException {
+    SSAPropagationCallGraphBuilder builder = makeZeroCFABuilder(l, options, cache, cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    return new IntrospectionMetrics(cg, builder.getPointerAnalysis()).getMethodsToRefine();
+  }
+
   /**
    * make a {@link CallGraphBuilder} that uses object context sensitivity, with allocation-string
    * length limited to n
@@ -1076,6 +1131,18 @@ public class Util {
     }
 
     // try to load from filesystem
+    if (MethodSummaryCompiler.isCompiled(nativeSpec)) {
+      try {
+        XMLMethodSummaryReader reader =
+            new XMLMethodSummaryReader(
+                MethodSummaryCompiler.map(Path.of(nativeSpec)), cha.getScope());
+        addBypassLogic(options, cl, reader, cha);
+      } catch (IOException e) {
+        System.err.println("Could not load compiled natives file from: " + nativeSpec);
+        e.printStackTrace();
+      }
+      return;
+    }
     try (final BufferedInputStream bIn = new BufferedInputStream(new FileInputStream(nativeSpec))) {
       XMLMethodSummaryReader reader = new XMLMethodSummaryReader(bIn, cha.getScope());
       addBypassLogic(options, cl, reader, cha);
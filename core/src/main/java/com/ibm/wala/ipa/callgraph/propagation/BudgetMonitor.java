@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.util.perf.AnalysisListener;
+
+/**
+ * Watches the heap and time budgets of {@link AnalysisOptions} while a call graph is built, and
+ * says when construction is close enough to either to stop refining.
+ */
+class BudgetMonitor {
+
+  /** the fraction of a budget after which construction degrades */
+  static final double DEGRADE_FRACTION = 0.75;
+
+  /** the number of nanoseconds between two looks at the heap */
+  private static final long HEAP_CHECK_INTERVAL = 10_000_000;
+
+  private final long heapLimit;
+
+  private final long timeLimit;
+
+  private final long startTime = System.nanoTime();
+
+  private long lastHeapCheck = startTime;
+
+  /** the reason construction is nearly out of budget, or null if it is not yet */
+  private String exhausted;
+
+  BudgetMonitor(AnalysisOptions options) {
+    heapLimit =
+        options.getHeapBudget() < 0 ? -1 : (long) (options.getHeapBudget() * DEGRADE_FRACTION);
+    timeLimit =
+        options.getTimeBudget() < 0
+            ? -1
+            : (long) (options.getTimeBudget() * 1_000_000 * DEGRADE_FRACTION);
+  }
+
+  static boolean hasBudget(AnalysisOptions options) {
+    return options.getHeapBudget() >= 0 || options.getTimeBudget() >= 0;
+  }
+
+  /**
+   * Cheap enough to call for every new node; the heap is only looked at every few milliseconds.
+   *
+   * @return true iff construction has used most of its heap or time budget
+   */
+  boolean isNearlyExhausted() {
+    if (exhausted != null) {
+      return true;
+    }
+    long now = System.nanoTime();
+    if (timeLimit >= 0 && now - startTime >= timeLimit) {
+      exhausted = "time budget: " + (now - startTime) / 1_000_000 + "ms";
+    } else if (heapLimit >= 0 && now - lastHeapCheck >= HEAP_CHECK_INTERVAL) {
+      lastHeapCheck = now;
+      long used = AnalysisListener.usedHeap();
+      if (used >= heapLimit) {
+        exhausted = "heap budget: " + used + " bytes";
+      }
+    }
+    return exhausted != null;
+  }
+
+  /**
+   * @return which budget is nearly used up, and how much of it; null if neither is
+   */
+  String getReason() {
+    return exhausted;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ProgramCounter;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * An instance key factory that abstracts the allocations of call graph nodes created after {@link
+ * #degrade(int)} more coarsely, e.g. with {@link SmushedAllocationSiteInstanceKeys}, to save memory
+ * when call graph construction runs short of it.
+ *
+ * <p>The same allocation may be asked for more than once, so whether a node's allocations are
+ * abstracted precisely depends only on when the node was created, not on when the question is
+ * asked. Constants and metadata objects are not tied to nodes and always use the precise factory.
+ */
+public class DegradingInstanceKeys implements InstanceKeyFactory {
+
+  private final InstanceKeyFactory precise;
+
+  private final InstanceKeyFactory coarse;
+
+  /** nodes with at least this graph node id use the coarse factory */
+  private int firstCoarseNode = Integer.MAX_VALUE;
+
+  public DegradingInstanceKeys(InstanceKeyFactory precise, InstanceKeyFactory coarse) {
+    if (precise == null) {
+      throw new IllegalArgumentException("null precise");
+    }
+    if (coarse == null) {
+      throw new IllegalArgumentException("null coarse");
+    }
+    this.precise = precise;
+    this.coarse = coarse;
+  }
+
+  /**
+   * Use the coarse factory for the allocations of nodes whose graph node id is at least {@code
+   * firstCoarseNode}, i.e. for nodes not yet created.
+   */
+  public void degrade(int firstCoarseNode) {
+    this.firstCoarseNode = Math.min(this.firstCoarseNode, firstCoarseNode);
+  }
+
+  public boolean isDegraded() {
+    return firstCoarseNode != Integer.MAX_VALUE;
+  }
+
+  private InstanceKeyFactory factoryFor(CGNode node) {
+    return node.getGraphNodeId() >= firstCoarseNode ? coarse : precise;
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForAllocation(CGNode node, NewSiteReference allocation) {
+    return factoryFor(node).getInstanceKeyForAllocation(node, allocation);
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForMultiNewArray(
+      CGNode node, NewSiteReference allocation, int dim) {
+    return factoryFor(node).getInstanceKeyForMultiNewArray(node, allocation, dim);
+  }
+
+  @Override
+  public <T> InstanceKey getInstanceKeyForConstant(TypeReference type, T S) {
+    return precise.getInstanceKeyForConstant(type, S);
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForPEI(CGNode node, ProgramCounter instr, TypeReference type) {
+    return factoryFor(node).getInstanceKeyForPEI(node, instr, type);
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForMetadataObject(Object obj, TypeReference objType) {
+    return precise.getInstanceKeyForMetadataObject(obj, objType);
+  }
+}
@@ -57,12 +57,8 @@ public interface FilteredPointerKey extends PointerKey {
     @Override
     public boolean addInverseFiltered(
         PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R) {
-      IntSet f = system.getInstanceKeysForClass(concreteType);
-
-      // SJF: this is horribly inefficient. we really don't want to do
-      // diffs in here. TODO: fix it. probably keep not(f) cached and
-      // use addAllInIntersection
-      return (f == null) ? L.addAll(R) : L.addAll(IntSetUtil.diff(R.getValue(), f));
+      IntSet others = system.getInstanceKeysNotForClasses(new IClass[] {concreteType});
+      return L.addAllInIntersection(R, others);
     }
 
     @Override
@@ -111,34 +107,16 @@ public interface FilteredPointerKey extends PointerKey {
       return true;
     }
 
-    private IntSet bits(PropagationSystem system) {
-      IntSet f = null;
-      for (IClass cls : concreteType) {
-        if (f == null) {
-          f = system.getInstanceKeysForClass(cls);
-        } else {
-          f = f.union(system.getInstanceKeysForClass(cls));
-        }
-      }
-      return f;
-    }
-
     @Override
     public boolean addFiltered(
         PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R) {
-      IntSet f = bits(system);
-      return (f == null) ? false : L.addAllInIntersection(R, f);
+      return L.addAllInIntersection(R, system.getInstanceKeysForClasses(concreteType));
     }
 
     @Override
     public boolean addInverseFiltered(
         PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R) {
-      IntSet f = bits(system);
-
-      // SJF: this is horribly inefficient. we really don't want to do
-      // diffs in here. TODO: fix it. probably keep not(f) cached and
-      // use addAllInIntersection
-      return (f == null) ? L.addAll(R) : L.addAll(IntSetUtil.diff(R.getValue(), f));
+      return L.addAllInIntersection(R, system.getInstanceKeysNotForClasses(concreteType));
     }
 
     @Override
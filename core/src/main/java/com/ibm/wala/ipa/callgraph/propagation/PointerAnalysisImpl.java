@@ -40,6 +40,7 @@ import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -564,6 +565,13 @@ public class PointerAnalysisImpl extends AbstractPointerAnalysis {
     return pointsToMap::iterateKeys;
   }
 
+  /**
+   * @return the numbering of the pointer keys in {@link #getPointerKeys()}
+   */
+  public OrdinalSetMapping<PointerKey> getPointerKeyMapping() {
+    return pointsToMap.getPointerKeyMapping();
+  }
+
   @Override
   public IClassHierarchy getClassHierarchy() {
     return builder.getClassHierarchy();
@@ -20,6 +20,7 @@ import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntegerUnionFind;
 import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
 import java.util.Iterator;
 
 /** An object that tracks the mapping between pointer keys and points-to set variables */
@@ -75,6 +76,13 @@ public class PointsToMap {
     return pointerKeys.iterator();
   }
 
+  /**
+   * @return the numbering of the pointer keys tracked, as used by {@link #getIndex(PointerKey)}
+   */
+  public OrdinalSetMapping<PointerKey> getPointerKeyMapping() {
+    return pointerKeys;
+  }
+
   /** If p is unified, returns the representative for p. */
   public PointsToSetVariable getPointsToSet(PointerKey p) {
     if (p == null) {
@@ -19,6 +19,8 @@ import com.ibm.wala.ssa.IR;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
@@ -46,6 +48,18 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /** if set, record the instance keys added to this variable in {@link #delta} */
+  private boolean tracksDelta = false;
+
+  /**
+   * instance keys added since the implicit uses of this variable last saw it; null if there are
+   * none, or if this variable does not track differences
+   */
+  private MutableIntSet delta;
+
+  /** is this variable waiting on the {@link PropagationSystem}'s queue of changed variables? */
+  boolean queued = false;
+
   public PointsToSetVariable(PointerKey key) {
     if (key == null) {
       throw new IllegalArgumentException("null key");
@@ -66,6 +80,59 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     }
   }
 
+  /**
+   * Start recording the instance keys added to this variable, so that {@link PropagationSystem} can
+   * propagate only the difference to the uses of this variable.
+   */
+  void trackDelta() {
+    tracksDelta = true;
+  }
+
+  /**
+   * @return the instance keys added since the last call, or null if there are none
+   */
+  MutableIntSet takeDelta() {
+    MutableIntSet result = delta;
+    delta = null;
+    return result;
+  }
+
+  /** Record that the uses of this variable have not yet seen the instance keys in s. */
+  void addToDelta(IntSet s) {
+    if (delta == null) {
+      delta = IntSetUtil.getDefaultIntSetFactory().makeCopy(s);
+    } else {
+      delta.addAll(s);
+    }
+  }
+
+  /**
+   * Record the elements of s, optionally restricted to filter, that are not yet in this variable.
+   * Must be called before s is added.
+   *
+   * <p>Variables with no graph node have no uses, and every use added later is evaluated against
+   * the full set, so there is nothing to record for them.
+   */
+  private void recordAdded(IntSet s, IntSet filter) {
+    if (!tracksDelta || s == null || getGraphNodeId() == -1) {
+      return;
+    }
+    IntSet value = getValue();
+    if (value == null && filter == null) {
+      addToDelta(s);
+    } else {
+      s.foreach(
+          i -> {
+            if ((filter == null || filter.contains(i)) && (value == null || !value.contains(i))) {
+              if (delta == null) {
+                delta = IntSetUtil.make();
+              }
+              delta.add(i);
+            }
+          });
+    }
+  }
+
   private boolean cried = false;
 
   @SuppressWarnings("unused")
@@ -84,6 +151,12 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
       checkTypes(m);
     }
     final boolean result = super.add(b);
+    if (result && tracksDelta && getGraphNodeId() != -1) {
+      if (delta == null) {
+        delta = IntSetUtil.make();
+      }
+      delta.add(b);
+    }
     cryIfTooBig();
     return result;
   }
@@ -93,6 +166,7 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(B);
     }
+    recordAdded(B, null);
     boolean v = super.addAll(B);
     cryIfTooBig();
     return v;
@@ -135,12 +209,44 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(other.getValue());
     }
-    // TODO Auto-generated method stub
+    if (getValue() == null) {
+      // otherwise, super delegates to addAll(IntSet), which records the difference
+      recordAdded(other.getValue(), null);
+    }
     boolean v = super.addAll(other);
     cryIfTooBig();
     return v;
   }
 
+  @Override
+  public boolean addAllInIntersection(PointsToSetVariable other, IntSet filter) {
+    if (getValue() == null) {
+      // otherwise, super delegates to addAllInIntersection(IntSet, IntSet)
+      recordAdded(other.getValue(), filter);
+    }
+    return super.addAllInIntersection(other, filter);
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    recordAdded(other, filter);
+    return super.addAllInIntersection(other, filter);
+  }
+
+  @Override
+  public void remove(int i) {
+    super.remove(i);
+    if (delta != null) {
+      delta.remove(i);
+    }
+  }
+
+  @Override
+  public void removeAll() {
+    super.removeAll();
+    delta = null;
+  }
+
   /**
    * Use this with extreme care, to add filters to this variable..
    *
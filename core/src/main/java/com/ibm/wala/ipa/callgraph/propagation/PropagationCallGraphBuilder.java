@@ -22,6 +22,7 @@ import com.ibm.wala.core.util.CancelRuntimeException;
 import com.ibm.wala.core.util.warnings.Warning;
 import com.ibm.wala.core.util.warnings.Warnings;
 import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
@@ -32,6 +33,7 @@ import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
+import com.ibm.wala.ipa.callgraph.impl.DegradingContextSelector;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.rta.RTAContextInterpreter;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
@@ -45,6 +47,7 @@ import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.perf.AnalysisListener;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -113,6 +116,12 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
   /** Algorithm used to solve the system of constraints */
   private IPointsToSolver solver;
 
+  /** Receives the phases and statistics of call graph construction, if not null */
+  private AnalysisListener listener;
+
+  /** The number of call graph nodes at the end of the last reported iteration */
+  private int nodesAtLastIteration;
+
   /** The call graph under construction */
   protected final ExplicitCallGraph callGraph;
 
@@ -134,6 +143,18 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
   /** An object that abstracts how to model instances in the heap. */
   protected InstanceKeyFactory instanceKeyFactory;
 
+  /** The context selector to fall back to when construction nears its budget, if not null */
+  private ContextSelector coarseContextSelector;
+
+  /** The heap model to fall back to when construction nears its budget, if not null */
+  private InstanceKeyFactory coarseInstanceKeys;
+
+  /** Watches the heap and time budgets from the options, if there are any */
+  private BudgetMonitor budget;
+
+  /** Has construction fallen back to the coarse context selector and heap model? */
+  private boolean degraded = false;
+
   /**
    * Algorithmic choice: should the GetfieldOperator and PutfieldOperator cache its previous history
    * to reduce work?
@@ -199,7 +220,18 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     if (options == null) {
       throw new IllegalArgumentException("options is null");
     }
+    if (BudgetMonitor.hasBudget(options)) {
+      budget = new BudgetMonitor(options);
+      if (coarseContextSelector != null && !(contextSelector instanceof DegradingContextSelector)) {
+        contextSelector = new DegradingContextSelector(contextSelector, coarseContextSelector);
+      }
+      if (coarseInstanceKeys != null && !(instanceKeyFactory instanceof DegradingInstanceKeys)) {
+        instanceKeyFactory = new DegradingInstanceKeys(instanceKeyFactory, coarseInstanceKeys);
+      }
+    }
     system = makeSystem(options);
+    listener = options.getAnalysisScope() == null ? null : options.getAnalysisScope().getListener();
+    system.setListener(listener);
 
     if (DEBUG_GENERAL) {
       System.err.println("Enter makeCallGraph!");
@@ -212,6 +244,7 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     system.setMinEquationsForTopSort(options.getMinEquationsForTopSort());
     system.setTopologicalGrowthFactor(options.getTopologicalGrowthFactor());
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
+    system.setDifferencePropagation(options.getUseDifferencePropagation());
 
     discoveredNodes = HashSetFactory.of(callGraph.getFakeRootNode());
 
@@ -245,16 +278,82 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     customInit();
 
     solver = makeSolver();
+    long startTime = AnalysisListener.started(listener, PropagationListener.CALL_GRAPH_PHASE);
     try {
       solver.solve(monitor);
     } catch (CancelException | CancelRuntimeException e) {
       throw CallGraphBuilderCancelException.createCallGraphBuilderCancelException(
           e, callGraph, system.extractPointerAnalysis(this));
+    } finally {
+      AnalysisListener.finished(listener, PropagationListener.CALL_GRAPH_PHASE, startTime);
     }
 
     return callGraph;
   }
 
+  /**
+   * @return the listener for the call graph under construction, from the analysis scope; null if
+   *     there is none
+   */
+  public AnalysisListener getListener() {
+    return listener;
+  }
+
+  /**
+   * Tell the listener, if it is a {@link PropagationListener}, about the state of the call graph
+   * construction after an iteration of the solver.
+   */
+  public void reportIteration(int iteration) {
+    if (listener instanceof PropagationListener propagationListener) {
+      int nodes = callGraph.getNumberOfNodes();
+      long hits = -1;
+      long misses = -1;
+      if (analysisCache instanceof AnalysisCache cache) {
+        hits = cache.getSSACache().getIRCacheHits();
+        misses = cache.getSSACache().getIRCacheMisses();
+      }
+      propagationListener.iterationFinished(
+          new PropagationListener.IterationStatistics(
+              iteration,
+              nodes,
+              nodes - nodesAtLastIteration,
+              system.getProgress(),
+              propagationListener.wantsPointsToSetSizes()
+                  ? system.getPointsToSetSizeHistogram()
+                  : null,
+              hits,
+              misses,
+              AnalysisListener.usedHeap()));
+      nodesAtLastIteration = nodes;
+    }
+  }
+
+  /**
+   * If call graph construction has used most of its heap or time budget, give nodes created from
+   * now on the coarse contexts and heap model, if the builder has them. Nodes and instance keys
+   * already created stay as they are, so the call graph remains sound, just less precise.
+   */
+  public void checkBudget() {
+    if (budget != null && !degraded && budget.isNearlyExhausted()) {
+      degraded = true;
+      if (contextSelector instanceof DegradingContextSelector degrading) {
+        degrading.degrade();
+      }
+      if (instanceKeyFactory instanceof DegradingInstanceKeys degrading) {
+        degrading.degrade(callGraph.getMaxNumber() + 1);
+      }
+      Warnings.add(BudgetWarning.create(budget.getReason(), callGraph.getNumberOfNodes()));
+    }
+  }
+
+  /**
+   * @return true iff construction has fallen back to coarser contexts and heap abstractions because
+   *     it neared its budget
+   */
+  public boolean isDegraded() {
+    return degraded;
+  }
+
   protected PropagationSystem makeSystem(@SuppressWarnings("unused") AnalysisOptions options) {
     return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory);
   }
@@ -281,6 +380,29 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     }
   }
 
+  /** A warning for when call graph construction neared its budget and lost precision */
+  private static class BudgetWarning extends Warning {
+
+    final String reason;
+
+    final int nodes;
+
+    BudgetWarning(String reason, int nodes) {
+      super(Warning.MODERATE);
+      this.reason = reason;
+      this.nodes = nodes;
+    }
+
+    @Override
+    public String getMsg() {
+      return getClass() + " : degraded after " + nodes + " nodes, " + reason;
+    }
+
+    public static BudgetWarning create(String reason, int nodes) {
+      return new BudgetWarning(reason, nodes);
+    }
+  }
+
   protected void customInit() {}
 
   /**
@@ -304,6 +426,7 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       discoveredNodes = HashSetFactory.make();
       while (it.hasNext()) {
         CGNode n = it.next();
+        checkBudget();
         result |= addConstraintsFromNode(n, monitor);
       }
     }
@@ -708,6 +831,22 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     this.instanceKeyFactory = keys;
   }
 
+  /**
+   * Set the context selector that new nodes get once construction nears the heap or time budget of
+   * its {@link AnalysisOptions}, typically the one the context selector refines.
+   */
+  public void setCoarseContextSelector(ContextSelector selector) {
+    this.coarseContextSelector = selector;
+  }
+
+  /**
+   * Set the heap model for allocations in nodes created once construction nears the heap or time
+   * budget of its {@link AnalysisOptions}, e.g. {@link SmushedAllocationSiteInstanceKeys}.
+   */
+  public void setCoarseInstanceKeys(InstanceKeyFactory keys) {
+    this.coarseInstanceKeys = keys;
+  }
+
   /**
    * @return the InstanceKey that acts as a representative for the class of objects that includes
    *     objects allocated at the given new instruction in the given node
@@ -42,6 +42,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /** A dataflow graph implementation specialized for propagation-based pointer analysis */
 public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable> {
@@ -667,6 +668,46 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     return list.iterator();
   }
 
+  /**
+   * @return the statements that use v and are represented explicitly, i.e., all uses other than
+   *     implicit unary equations
+   */
+  @SuppressWarnings("unchecked")
+  public Iterator<AbstractStatement<PointsToSetVariable, ?>> getExplicitStatementsThatUse(
+      PointsToSetVariable v) {
+    if (v == null) {
+      throw new IllegalArgumentException("v is null");
+    }
+    if (v.getGraphNodeId() == -1) {
+      return EmptyIterator.instance();
+    }
+    List<AbstractStatement<PointsToSetVariable, ?>> list = new ArrayList<>();
+    for (INodeWithNumber s : Iterator2Iterable.make(delegateGraph.getSuccNodes(v))) {
+      list.add((AbstractStatement<PointsToSetVariable, ?>) s);
+    }
+    return list.iterator();
+  }
+
+  /**
+   * Apply action to each implicit equation lhs := op(v), without materializing the equations. The
+   * action must not add or remove statements.
+   */
+  void visitImplicitStatementsThatUse(
+      PointsToSetVariable v,
+      BiConsumer<UnaryOperator<PointsToSetVariable>, PointsToSetVariable> action) {
+    int number = v.getGraphNodeId();
+    if (number == -1) {
+      return;
+    }
+    for (int i = 0; i < invImplicitUnaryMap.size(); i++) {
+      UnaryOperator<PointsToSetVariable> op = invImplicitUnaryMap.getKey(i);
+      IntSet s = invImplicitUnaryMap.getValue(i).getRelated(number);
+      if (s != null) {
+        s.foreach(l -> action.accept(op, (PointsToSetVariable) delegateGraph.getNode(l)));
+      }
+    }
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public Iterator<AbstractStatement<PointsToSetVariable, ?>> getStatementsThatDef(
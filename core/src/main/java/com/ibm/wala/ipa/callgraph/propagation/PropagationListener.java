@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.util.perf.AnalysisListener;
+import java.util.List;
+
+/**
+ * An {@link AnalysisListener} that is also told about each iteration of a {@link
+ * PropagationCallGraphBuilder}. Install it with {@link AnalysisScope#setListener}.
+ *
+ * <p>The builder reports {@link #CALL_GRAPH_PHASE} around the whole construction, and within each
+ * iteration of the {@link StandardSolver} the phases {@link #SOLVE_PHASE}, {@link
+ * #ADD_CONSTRAINTS_PHASE} and {@link #REFLECTION_PHASE}. The propagation system reports its
+ * progress every few hundred thousand evaluated statements.
+ */
+public interface PropagationListener extends AnalysisListener {
+
+  String CALL_GRAPH_PHASE = "call graph";
+
+  String SOLVE_PHASE = "solve";
+
+  String ADD_CONSTRAINTS_PHASE = "add constraints";
+
+  String REFLECTION_PHASE = "reflection";
+
+  /**
+   * The state of a call graph construction after an iteration.
+   *
+   * @param iteration the number of iterations so far
+   * @param callGraphNodes the number of nodes in the call graph
+   * @param newCallGraphNodes the number of call graph nodes added in this iteration
+   * @param solver the statements created and evaluated by the propagation system
+   * @param pointsToSetSizes the histogram of {@link
+   *     PropagationSystem#getPointsToSetSizeHistogram()}, or null if not requested
+   * @param irCacheHits the number of IRs found in the analysis cache, or -1 if unknown
+   * @param irCacheMisses the number of IRs built for the analysis cache, or -1 if unknown
+   * @param usedHeap the number of bytes used on the heap
+   */
+  record IterationStatistics(
+      int iteration,
+      int callGraphNodes,
+      int newCallGraphNodes,
+      SolverProgress solver,
+      List<Integer> pointsToSetSizes,
+      long irCacheHits,
+      long irCacheMisses,
+      long usedHeap) {}
+
+  /**
+   * Computing the points-to set histogram visits every pointer key.
+   *
+   * @return whether {@link IterationStatistics#pointsToSetSizes()} should be computed
+   */
+  default boolean wantsPointsToSetSizes() {
+    return true;
+  }
+
+  /** called at the end of each iteration of call graph construction */
+  default void iterationFinished(IterationStatistics statistics) {}
+}
@@ -24,9 +24,14 @@ import com.ibm.wala.fixpoint.UnaryStatement;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Heap;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.VerboseAction;
@@ -75,6 +80,23 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
    */
   private final Map<IClass, MutableIntSet> class2InstanceKey = HashMapFactory.make();
 
+  /**
+   * The instance keys that correspond to any of several classes, for filters on more than one type.
+   * Like {@link #class2InstanceKey}, these sets are updated as instance keys are registered, so
+   * that filtering is a single intersection.
+   */
+  private final Map<List<IClass>, MutableIntSet> classes2InstanceKey = HashMapFactory.make();
+
+  /**
+   * The instance keys that correspond to none of the given classes, for inverse filters. Every new
+   * instance key is added to each of these sets, and removed again when it is registered with one
+   * of the classes.
+   */
+  private final Map<List<IClass>, MutableIntSet> classes2OtherInstanceKey = HashMapFactory.make();
+
+  /** for each class, the keys of {@link #classes2InstanceKey} and the complements it occurs in */
+  private final Map<IClass, Set<List<IClass>>> class2ClassLists = HashMapFactory.make();
+
   /** An abstraction of the pointer analysis result */
   private PointerAnalysis<InstanceKey> pointerAnalysis;
 
@@ -94,6 +116,28 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   /** Governing call graph; */
   protected final CallGraph cg;
 
+  /**
+   * if set, propagate only the instance keys added to a variable since its last propagation along
+   * assignment and filter edges, rather than its whole points-to set
+   */
+  private boolean differencePropagation = false;
+
+  /** a variable queued for difference propagation, with its order number when it was queued */
+  private record QueuedVariable(int orderNumber, PointsToSetVariable variable) {}
+
+  /**
+   * Variables whose differences have not yet been pushed along implicit (assignment and filter)
+   * edges, in the same topological order the work list uses for statements. Order numbers change
+   * when the system is reordered, so each entry keeps the one it was queued with.
+   */
+  private final Heap<QueuedVariable> changedVariables =
+      new Heap<>(100) {
+        @Override
+        protected boolean compareElements(QueuedVariable v1, QueuedVariable v2) {
+          return v1.orderNumber() < v2.orderNumber();
+        }
+      };
+
   private int verboseInterval = DEFAULT_VERBOSE_INTERVAL;
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
@@ -182,6 +226,65 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     return class2InstanceKey.get(klass);
   }
 
+  /**
+   * @return a set of integers representing the instance keys that correspond to any of the given
+   *     classes. The set is maintained as new instance keys are registered; clients must not modify
+   *     it.
+   * @throws IllegalArgumentException if classes is null
+   */
+  public IntSet getInstanceKeysForClasses(IClass[] classes) {
+    if (classes == null) {
+      throw new IllegalArgumentException("classes is null");
+    }
+    if (classes.length == 1) {
+      IntSet result = getInstanceKeysForClass(classes[0]);
+      return result == null ? IntSetUtil.getDefaultIntSetFactory().make() : result;
+    }
+    List<IClass> key = List.of(classes);
+    MutableIntSet result = classes2InstanceKey.get(key);
+    if (result == null) {
+      result = IntSetUtil.getDefaultIntSetFactory().make();
+      for (IClass klass : classes) {
+        assert klass != klass.getClassHierarchy().getRootClass();
+        IntSet s = class2InstanceKey.get(klass);
+        if (s != null) {
+          result.addAll(s);
+        }
+        MapUtil.findOrCreateSet(class2ClassLists, klass).add(key);
+      }
+      classes2InstanceKey.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * @return a set of integers representing the instance keys that correspond to none of the given
+   *     classes, for inverse filters. The set is maintained as new instance keys are created and
+   *     registered; clients must not modify it.
+   * @throws IllegalArgumentException if classes is null
+   */
+  public IntSet getInstanceKeysNotForClasses(IClass[] classes) {
+    if (classes == null) {
+      throw new IllegalArgumentException("classes is null");
+    }
+    List<IClass> key = List.of(classes);
+    MutableIntSet result = classes2OtherInstanceKey.get(key);
+    if (result == null) {
+      IntSet members = getInstanceKeysForClasses(classes);
+      result = IntSetUtil.getDefaultIntSetFactory().make();
+      for (int i = 0; i <= instanceKeys.getMaximumIndex(); i++) {
+        if (!members.contains(i)) {
+          result.add(i);
+        }
+      }
+      for (IClass klass : classes) {
+        MapUtil.findOrCreateSet(class2ClassLists, klass).add(key);
+      }
+      classes2OtherInstanceKey.put(key, result);
+    }
+    return result;
+  }
+
   /**
    * @return the instance key numbered with index i
    */
@@ -257,6 +360,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     PointsToSetVariable result = pointsToMap.getPointsToSet(key);
     if (result == null) {
       result = new PointsToSetVariable(key);
+      if (differencePropagation) {
+        result.trackDelta();
+      }
       pointsToMap.put(key, result);
     } else {
       // check that the filter for this variable remains unique
@@ -294,6 +400,10 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     int result = instanceKeys.getMappedIndex(key);
     if (result == -1) {
       result = instanceKeys.add(key);
+      // a new instance key is not yet registered with any class
+      for (MutableIntSet others : classes2OtherInstanceKey.values()) {
+        others.add(result);
+      }
     }
     if (DEBUG) {
       System.err.println("getIndexForInstanceKey " + key + ' ' + result);
@@ -474,8 +584,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     for (int i = 1; i < dim; i++) {
       TypeReference jlo = makeArray(TypeReference.JavaLangObject, i);
       final IClass jloClass = aClass.getClassLoader().lookupClass(jlo.getName());
-      MutableIntSet set = findOrCreateSparseSetForClass(jloClass);
-      set.add(index);
+      registerInstanceWithClass(jloClass, index);
     }
     return dim;
   }
@@ -488,8 +597,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
       TypeReference iArrayRef = makeArray(I.getReference(), dim);
 
       IClass iArrayClass = I.getClassLoader().lookupClass(iArrayRef.getName());
-      MutableIntSet set = findOrCreateSparseSetForClass(iArrayClass);
-      set.add(index);
+      MutableIntSet set = registerInstanceWithClass(iArrayClass, index);
       if (DEBUG) {
         System.err.println("dense filter for interface " + iArrayClass + ' ' + set);
       }
@@ -513,8 +621,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
       TypeReference tArrayRef = makeArray(T.getReference(), dim);
 
       IClass tArrayClass = T.getClassLoader().lookupClass(tArrayRef.getName());
-      MutableIntSet set = findOrCreateSparseSetForClass(tArrayClass);
-      set.add(index);
+      MutableIntSet set = registerInstanceWithClass(tArrayClass, index);
       if (DEBUG) {
         System.err.println("dense filter for class " + tArrayClass + ' ' + set);
       }
@@ -522,11 +629,36 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
   }
 
+  /**
+   * Record that the instance key numbered index corresponds to klass, in the set for klass and in
+   * the sets for filters on several types or inverse filters that involve it.
+   *
+   * @return the set for klass
+   */
+  private MutableIntSet registerInstanceWithClass(IClass klass, int index) {
+    MutableIntSet set = findOrCreateSparseSetForClass(klass);
+    if (set.add(index)) {
+      Set<List<IClass>> lists = class2ClassLists.get(klass);
+      if (lists != null) {
+        for (List<IClass> list : lists) {
+          MutableIntSet members = classes2InstanceKey.get(list);
+          if (members != null) {
+            members.add(index);
+          }
+          MutableIntSet others = classes2OtherInstanceKey.get(list);
+          if (others != null) {
+            others.remove(index);
+          }
+        }
+      }
+    }
+    return set;
+  }
+
   private void registerInstanceWithAllInterfaces(IClass klass, int index) {
     Collection<IClass> interfaces = klass.getAllImplementedInterfaces();
     for (IClass I : interfaces) {
-      MutableIntSet set = findOrCreateSparseSetForClass(I);
-      set.add(index);
+      MutableIntSet set = registerInstanceWithClass(I, index);
       if (DEBUG) {
         System.err.println("dense filter for interface " + I + ' ' + set);
       }
@@ -535,8 +667,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
   private void registerInstanceWithAllSuperclasses(int index, IClass T) {
     while (T != null && !T.getReference().equals(TypeReference.JavaLangObject)) {
-      MutableIntSet set = findOrCreateSparseSetForClass(T);
-      set.add(index);
+      MutableIntSet set = registerInstanceWithClass(T, index);
       if (DEBUG) {
         System.err.println("dense filter for class " + T + ' ' + set);
       }
@@ -583,6 +714,80 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     newStatement(null, op, v1, v2, true, true);
   }
 
+  /**
+   * With difference propagation, implicit uses of v are not put on the work list; instead v is
+   * queued, and {@link #propagateDifferences} later pushes only the new part of its points-to set
+   * through them.
+   */
+  @Override
+  public void changedVariable(PointsToSetVariable v) {
+    if (!differencePropagation) {
+      super.changedVariable(v);
+      return;
+    }
+    for (AbstractStatement<PointsToSetVariable, ?> s :
+        Iterator2Iterable.make(flowGraph.getExplicitStatementsThatUse(v))) {
+      addToWorkList(s);
+    }
+    if (!v.queued) {
+      v.queued = true;
+      changedVariables.insert(new QueuedVariable(v.getOrderNumber(), v));
+    }
+  }
+
+  /**
+   * Drain the queue of changed variables. For each, evaluate every implicit equation that uses it
+   * against the instance keys added since it was last drained, rather than its whole value.
+   *
+   * @return true iff some variable changed
+   */
+  private boolean propagateDifferences(IProgressMonitor monitor) throws CancelException {
+    boolean changed = false;
+    while (!changedVariables.isEmpty()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      PointsToSetVariable v = changedVariables.take().variable();
+      v.queued = false;
+      IntSet delta = v.takeDelta();
+      if (delta == null || delta.isEmpty()) {
+        continue;
+      }
+      PointsToSetVariable rhs = new PointsToSetVariable(v.getPointerKey());
+      rhs.addAll(delta);
+      List<PointsToSetVariable> changedDefs = new ArrayList<>();
+      flowGraph.visitImplicitStatementsThatUse(
+          v,
+          (op, lhs) -> {
+            countEvaluation();
+            if (isChanged(op.evaluate(lhs, rhs))) {
+              changedDefs.add(lhs);
+            }
+          });
+      for (PointsToSetVariable lhs : changedDefs) {
+        changed = true;
+        changedVariable(lhs);
+      }
+    }
+    return changed;
+  }
+
+  @Override
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    if (!differencePropagation) {
+      return super.solve(monitor);
+    }
+    boolean changed = false;
+    do {
+      changed |= propagateDifferences(monitor);
+      changed |= super.solve(monitor);
+    } while (!changedVariables.isEmpty());
+    return changed;
+  }
+
+  @Override
+  public boolean emptyWorkList() {
+    return super.emptyWorkList() && changedVariables.isEmpty();
+  }
+
   @Override
   protected void initializeWorkList() {
     addAllStatementsToWorkList();
@@ -662,6 +867,27 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     return pointsToMap.iterateKeys();
   }
 
+  /**
+   * Count the explicit points-to sets by size. This visits every pointer key, so it is meant for
+   * occasional reporting only.
+   *
+   * @return at index 0, the number of empty points-to sets; at index i &gt; 0, the number of
+   *     points-to sets with at least 2^(i-1) and fewer than 2^i instance keys
+   */
+  public List<Integer> getPointsToSetSizeHistogram() {
+    int[] counts = new int[Integer.SIZE + 1];
+    int max = 0;
+    for (PointerKey key : Iterator2Iterable.make(pointsToMap.iterateKeys())) {
+      if (!pointsToMap.isImplicit(key) && !pointsToMap.isUnified(key)) {
+        PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+        int bucket = v == null ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(v.size());
+        counts[bucket]++;
+        max = Math.max(max, bucket);
+      }
+    }
+    return Arrays.stream(counts, 0, max + 1).boxed().toList();
+  }
+
   /** warning: this is _real_ slow; don't use it anywhere performance critical */
   public int getNumberOfPointerKeys() {
     return pointsToMap.getNumberOfPointerKeys();
@@ -737,6 +963,26 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     this.periodicMaintainInterval = periodicMaintainInteval;
   }
 
+  /**
+   * @return true iff only the differences of points-to sets are propagated along assignment and
+   *     filter edges
+   */
+  public boolean getDifferencePropagation() {
+    return differencePropagation;
+  }
+
+  /**
+   * @param differencePropagation whether to propagate only the differences of points-to sets along
+   *     assignment and filter edges
+   * @throws IllegalStateException if some points-to set has already been created
+   */
+  public void setDifferencePropagation(boolean differencePropagation) {
+    if (pointsToMap.getPointerKeyMapping().getSize() > 0) {
+      throw new IllegalStateException("cannot change difference propagation after solving began");
+    }
+    this.differencePropagation = differencePropagation;
+  }
+
   /**
    * Unify the points-to-sets for the variables identified by the set s
    *
@@ -763,6 +1009,19 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
     // special logic to clean up side effects
     updateSideEffectsForUnification(cache, rep);
+
+    if (differencePropagation) {
+      // the uses of all the unified variables now hang off the representative, and each has seen
+      // only part of its value, so treat the whole value as new
+      PointsToSetVariable pRef = pointsToMap.getPointsToSet(rep);
+      for (PointsToSetVariable p : cache) {
+        p.takeDelta();
+      }
+      if (pRef.getValue() != null) {
+        pRef.addToDelta(pRef.getValue());
+        changedVariable(pRef);
+      }
+    }
   }
 
   /**
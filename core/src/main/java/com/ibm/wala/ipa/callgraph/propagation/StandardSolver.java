@@ -12,6 +12,7 @@ package com.ibm.wala.ipa.callgraph.propagation;
 
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.perf.AnalysisListener;
 
 /** standard fixed-point iterative solver for pointer analysis */
 public class StandardSolver extends AbstractPointsToSolver {
@@ -24,6 +25,7 @@ public class StandardSolver extends AbstractPointsToSolver {
 
   @Override
   public void solve(IProgressMonitor monitor) throws IllegalArgumentException, CancelException {
+    AnalysisListener listener = getBuilder().getListener();
     int i = 0;
     do {
       i++;
@@ -31,10 +33,13 @@ public class StandardSolver extends AbstractPointsToSolver {
       if (DEBUG_PHASES) {
         System.err.println("Iteration " + i);
       }
+      long startTime = AnalysisListener.started(listener, PropagationListener.SOLVE_PHASE);
       getSystem().solve(monitor);
+      AnalysisListener.finished(listener, PropagationListener.SOLVE_PHASE, startTime);
       if (DEBUG_PHASES) {
         System.err.println("Solved " + i);
       }
+      getBuilder().checkBudget();
 
       if (getBuilder().getOptions().getMaxNumberOfNodes() > -1) {
         if (getBuilder().getCallGraph().getNumberOfNodes()
@@ -50,7 +55,9 @@ public class StandardSolver extends AbstractPointsToSolver {
       if (DEBUG_PHASES) {
         System.err.println("adding constraints");
       }
+      startTime = AnalysisListener.started(listener, PropagationListener.ADD_CONSTRAINTS_PHASE);
       getBuilder().addConstraintsFromNewNodes(monitor);
+      AnalysisListener.finished(listener, PropagationListener.ADD_CONSTRAINTS_PHASE, startTime);
 
       // getBuilder().callGraph.summarizeByPackage();
 
@@ -58,14 +65,19 @@ public class StandardSolver extends AbstractPointsToSolver {
         System.err.println("handling reflection");
       }
       if (i <= getBuilder().getOptions().getReflectionOptions().getNumFlowToCastIterations()) {
+        startTime = AnalysisListener.started(listener, PropagationListener.REFLECTION_PHASE);
         getReflectionHandler().updateForReflection(monitor);
+        AnalysisListener.finished(listener, PropagationListener.REFLECTION_PHASE, startTime);
       }
       // Handling reflection may have discovered new nodes!
       if (DEBUG_PHASES) {
         System.err.println("adding constraints again");
       }
+      startTime = AnalysisListener.started(listener, PropagationListener.ADD_CONSTRAINTS_PHASE);
       getBuilder().addConstraintsFromNewNodes(monitor);
+      AnalysisListener.finished(listener, PropagationListener.ADD_CONSTRAINTS_PHASE, startTime);
 
+      getBuilder().reportIteration(i);
       if (monitor != null) {
         monitor.worked(i);
       }
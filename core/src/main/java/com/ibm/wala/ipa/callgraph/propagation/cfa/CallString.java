@@ -19,12 +19,16 @@ public class CallString implements ContextItem {
 
   private final IMethod[] methods;
 
+  /** call strings are compared often while looking up contexts, so compute the hash code once */
+  private final int hashCode;
+
   public CallString(CallSiteReference site, IMethod method) {
     if (site == null) {
       throw new IllegalArgumentException("null site");
     }
     this.sites = new CallSiteReference[] {site};
     this.methods = new IMethod[] {method};
+    this.hashCode = computeHashCode();
   }
 
   protected CallString(CallSiteReference site, IMethod method, int length, CallString base) {
@@ -36,6 +40,7 @@ public class CallString implements ContextItem {
     methods = new IMethod[methodsLength];
     methods[0] = method;
     System.arraycopy(base.methods, 0, methods, 1, Math.min(length - 1, base.methods.length));
+    hashCode = computeHashCode();
   }
 
   @Override
@@ -51,8 +56,7 @@ public class CallString implements ContextItem {
     return str.toString();
   }
 
-  @Override
-  public int hashCode() {
+  private int computeHashCode() {
     int code = 1;
     for (int i = 0; i < sites.length; i++) {
       code *= sites[i].hashCode() * methods[i].hashCode();
@@ -61,10 +65,18 @@ public class CallString implements ContextItem {
     return code;
   }
 
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
   @Override
   public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
     if (o instanceof CallString oc) {
-      if (oc.sites.length == sites.length) {
+      if (oc.hashCode == hashCode && oc.sites.length == sites.length) {
         for (int i = 0; i < sites.length; i++) {
           if (!(sites[i].equals(oc.sites[i]) && methods[i].equals(oc.methods[i]))) {
             return false;
@@ -26,6 +26,9 @@ public class CallStringContext implements Context {
 
   @Override
   public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
     return (o instanceof Context context)
         && context.isA(CallStringContext.class)
         && context.get(CallStringContextSelector.CALL_STRING).equals(cs);
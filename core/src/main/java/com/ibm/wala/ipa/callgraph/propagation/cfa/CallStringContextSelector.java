@@ -17,6 +17,7 @@ import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.ContextItem;
 import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.impl.ContextInterner;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.util.intset.IntSet;
@@ -51,6 +52,9 @@ public abstract class CallStringContextSelector implements ContextSelector {
 
     @Override
     public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
       return o instanceof Context context
           && context.isA(CallStringContextPair.class)
           && context.get(CALL_STRING).equals(cs)
@@ -94,6 +98,12 @@ public abstract class CallStringContextSelector implements ContextSelector {
 
   protected final ContextSelector base;
 
+  /**
+   * Canonical instances of the contexts this selector creates, so that each distinct call string
+   * context is allocated and kept once, and compared by identity in the call graph.
+   */
+  private final ContextInterner contexts = new ContextInterner();
+
   public CallStringContextSelector(ContextSelector base) {
     this.base = base;
   }
@@ -122,9 +132,9 @@ public abstract class CallStringContextSelector implements ContextSelector {
     if (cs == null) {
       return baseContext;
     } else if (baseContext == Everywhere.EVERYWHERE) {
-      return new CallStringContext(cs);
+      return contexts.intern(new CallStringContext(cs));
     } else {
-      return new CallStringContextPair(cs, baseContext);
+      return contexts.intern(new CallStringContextPair(cs, baseContext));
     }
   }
 
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation.cfa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-method costs computed from a cheap, context-insensitive pre-analysis, used to decide where a
+ * context-sensitive analysis is likely to pay off. This follows the introspective analysis of
+ * Smaragdakis, Kastrinis and Balatsouras (PLDI 2014): methods whose arguments already point to many
+ * objects, or whose locals hold a large volume of points-to facts, tend to multiply rather than
+ * sharpen results when analyzed in many contexts.
+ *
+ * @see IntrospectiveContextSelector
+ */
+public class IntrospectionMetrics {
+
+  /** the default bound on {@link Cost#inFlow()} for methods analyzed context-sensitively */
+  public static final long DEFAULT_MAX_IN_FLOW = 100;
+
+  /** the default bound on {@link Cost#pointerVolume()} for methods analyzed context-sensitively */
+  public static final long DEFAULT_MAX_POINTER_VOLUME = 10_000;
+
+  /**
+   * The cost of a method in the pre-analysis, summed over its nodes.
+   *
+   * @param callers the number of call graph nodes that call the method
+   * @param inFlow the total size of the points-to sets of the method's parameters
+   * @param pointerVolume the total size of the points-to sets of the method's locals
+   */
+  public record Cost(int callers, long inFlow, long pointerVolume) {
+
+    Cost plus(Cost other) {
+      return new Cost(
+          callers + other.callers, inFlow + other.inFlow, pointerVolume + other.pointerVolume);
+    }
+  }
+
+  private final Map<IMethod, Cost> costs = HashMapFactory.make();
+
+  /**
+   * @param cg the call graph of the pre-analysis
+   * @param pa the pointer analysis of the pre-analysis
+   */
+  public IntrospectionMetrics(CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    if (pa == null) {
+      throw new IllegalArgumentException("null pa");
+    }
+    for (CGNode n : cg) {
+      costs.merge(n.getMethod(), new Cost(cg.getPredNodeCount(n), 0, 0), Cost::plus);
+    }
+    for (PointerKey k : pa.getPointerKeys()) {
+      if (k instanceof LocalPointerKey local) {
+        int size = pa.getPointsToSet(local).size();
+        if (size > 0) {
+          costs.merge(
+              local.getNode().getMethod(),
+              new Cost(0, local.isParameter() ? size : 0, size),
+              Cost::plus);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the cost of the method, or null if the pre-analysis did not reach it
+   */
+  public Cost getCost(IMethod method) {
+    return costs.get(method);
+  }
+
+  /**
+   * @return the methods reached by the pre-analysis whose costs are within the given bounds
+   */
+  public Set<IMethod> getMethodsToRefine(long maxInFlow, long maxPointerVolume) {
+    Set<IMethod> result = HashSetFactory.make();
+    for (Map.Entry<IMethod, Cost> e : costs.entrySet()) {
+      Cost c = e.getValue();
+      if (c.inFlow() <= maxInFlow && c.pointerVolume() <= maxPointerVolume) {
+        result.add(e.getKey());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the methods reached by the pre-analysis whose costs are within the default bounds
+   */
+  public Set<IMethod> getMethodsToRefine() {
+    return getMethodsToRefine(DEFAULT_MAX_IN_FLOW, DEFAULT_MAX_POINTER_VOLUME);
+  }
+
+  @Override
+  public String toString() {
+    return "IntrospectionMetrics: " + costs.size() + " methods";
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation.cfa;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.util.intset.IntSet;
+import java.util.Set;
+
+/**
+ * A context selector that applies a context-sensitive selector, such as {@link nCFAContextSelector}
+ * or {@link nObjContextSelector}, only to the methods where a pre-analysis predicts it pays off,
+ * and the selector it refines to all others.
+ *
+ * @see IntrospectionMetrics
+ */
+public class IntrospectiveContextSelector implements ContextSelector {
+
+  private final ContextSelector refined;
+
+  private final ContextSelector base;
+
+  private final Set<IMethod> refinedMethods;
+
+  /**
+   * @param refined the context-sensitive selector
+   * @param base the selector for methods not in {@code refinedMethods}
+   * @param refinedMethods the methods to analyze with {@code refined}
+   */
+  public IntrospectiveContextSelector(
+      ContextSelector refined, ContextSelector base, Set<IMethod> refinedMethods) {
+    if (refined == null) {
+      throw new IllegalArgumentException("null refined");
+    }
+    if (base == null) {
+      throw new IllegalArgumentException("null base");
+    }
+    if (refinedMethods == null) {
+      throw new IllegalArgumentException("null refinedMethods");
+    }
+    this.refined = refined;
+    this.base = base;
+    this.refinedMethods = refinedMethods;
+  }
+
+  @Override
+  public Context getCalleeTarget(
+      CGNode caller, CallSiteReference site, IMethod callee, InstanceKey[] actualParameters) {
+    return (refinedMethods.contains(callee) ? refined : base)
+        .getCalleeTarget(caller, site, callee, actualParameters);
+  }
+
+  /** The callee is not known yet, so this is the union of the parameters both selectors need. */
+  @Override
+  public IntSet getRelevantParameters(CGNode caller, CallSiteReference site) {
+    return refined
+        .getRelevantParameters(caller, site)
+        .union(base.getRelevantParameters(caller, site));
+  }
+
+  @Override
+  public String toString() {
+    return "IntrospectiveContextSelector: "
+        + refined
+        + " for "
+        + refinedMethods.size()
+        + " methods, else "
+        + base;
+  }
+}
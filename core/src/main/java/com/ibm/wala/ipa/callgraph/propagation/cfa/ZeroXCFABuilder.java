@@ -57,6 +57,11 @@ public class ZeroXCFABuilder extends SSAPropagationCallGraphBuilder {
 
     ZeroXInstanceKeys zik = makeInstanceKeys(cha, options, contextInterpreter, instancePolicy);
     setInstanceKeys(zik);
+    if ((instancePolicy & ZeroXInstanceKeys.ALLOCATIONS) != 0) {
+      setCoarseInstanceKeys(
+          makeInstanceKeys(
+              cha, options, contextInterpreter, instancePolicy & ~ZeroXInstanceKeys.ALLOCATIONS));
+    }
   }
 
   /** subclasses can override as desired */
@@ -51,6 +51,7 @@ public class ZeroXContainerCFABuilder extends ZeroXCFABuilder {
     ContextSelector CCS = makeContainerContextSelector(cha, (ZeroXInstanceKeys) getInstanceKeys());
     DelegatingContextSelector DCS = new DelegatingContextSelector(CCS, contextSelector);
     setContextSelector(DCS);
+    setCoarseContextSelector(contextSelector);
   }
 
   /**
@@ -46,6 +46,7 @@ public class nCFABuilder extends SSAPropagationCallGraphBuilder {
     ContextSelector def = new DefaultContextSelector(options, cha);
     ContextSelector contextSelector =
         appContextSelector == null ? def : new DelegatingContextSelector(appContextSelector, def);
+    setCoarseContextSelector(contextSelector);
     contextSelector = new nCFAContextSelector(n, contextSelector);
     setContextSelector(contextSelector);
 
@@ -48,5 +48,6 @@ public class nObjBuilder extends ZeroXCFABuilder {
     ContextSelector nObjContextSelector = new nObjContextSelector(n, contextSelector);
 
     setContextSelector(nObjContextSelector);
+    setCoarseContextSelector(contextSelector);
   }
 }
@@ -17,6 +17,7 @@ import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.DelegatingContext;
+import com.ibm.wala.ipa.callgraph.impl.ContextInterner;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.callgraph.propagation.AllocationSite;
 import com.ibm.wala.ipa.callgraph.propagation.AllocationSiteInNode;
@@ -51,6 +52,12 @@ public class nObjContextSelector implements ContextSelector {
 
   private final ContextSelector base;
 
+  /**
+   * Canonical instances of the contexts this selector creates, so that each distinct allocation
+   * string context is allocated and kept once, and compared by identity in the call graph.
+   */
+  private final ContextInterner contexts = new ContextInterner();
+
   public nObjContextSelector(int n, ContextSelector base) {
     if (n <= 0) {
       throw new IllegalArgumentException("n must be a positive number");
@@ -78,7 +85,10 @@ public class nObjContextSelector implements ContextSelector {
     }
 
     Context baseContext = base.getCalleeTarget(caller, site, callee, actualParameters);
-    return appendBaseContext(calleeContext, baseContext);
+    if (calleeContext == Everywhere.EVERYWHERE) {
+      return baseContext;
+    }
+    return contexts.intern(appendBaseContext(calleeContext, baseContext));
   }
 
   private AllocationString assemblyReceiverAllocString(AllocationSiteInNode receiver) {
@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.cfg;
+
+import com.ibm.wala.cfg.ControlFlowGraph;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.IndiscriminateFilter;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.graph.impl.NumberedNodeIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An exploded interprocedural control-flow graph that does not store its nodes or edges.
+ *
+ * <p>The first time a call graph node is reached, its blocks are given a range of numbers, so the
+ * number of a block is the offset of its call graph node plus its number in the exploded CFG. Edges
+ * are derived from the CFGs and the call graph each time they are asked for, and {@link
+ * BasicBlockInContext}s are made only to be returned; only the numbers of the blocks that call each
+ * callee, and that its exit returns to, are remembered. {@link ExplodedInterproceduralCFG} instead
+ * records every node and edge it has seen in a graph, which for large call graphs costs far more
+ * memory than the IRs themselves.
+ *
+ * <p>The graph's nodes are the blocks of the relevant call graph nodes. An edge between two call
+ * graph nodes exists only if both are relevant and the callee has a CFG.
+ */
+public class NumberedExplodedInterproceduralCFG extends ExplodedInterproceduralCFG {
+
+  /** Filter that determines relevant call graph nodes */
+  private final Predicate<CGNode> relevant;
+
+  /** the number of the first block of each call graph node, by call graph number, or -1 */
+  private int[] offsets = new int[0];
+
+  /** the offsets handed out so far, in increasing order */
+  private int[] starts = new int[16];
+
+  /** the call graph node given each offset in {@link #starts} */
+  private CGNode[] owners = new CGNode[16];
+
+  /** the number of offsets handed out so far */
+  private int nOwners = 0;
+
+  /** the number the next call graph node's first block will get */
+  private int nextNumber = 0;
+
+  /** for each callee, by call graph number, the numbers of the blocks that may call it */
+  private IntSet[] callBlocks = new IntSet[0];
+
+  /** for each callee, by call graph number, the numbers of the blocks its exit may return to */
+  private IntSet[] returnSites = new IntSet[0];
+
+  public static NumberedExplodedInterproceduralCFG make(CallGraph cg) {
+    return new NumberedExplodedInterproceduralCFG(cg, IndiscriminateFilter.singleton());
+  }
+
+  public NumberedExplodedInterproceduralCFG(CallGraph cg, Predicate<CGNode> filter) {
+    super(cg, filter);
+    this.relevant = filter;
+  }
+
+  /**
+   * @return the CFG of n if n is part of this graph, or null
+   */
+  private ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> getRelevantCFG(CGNode n) {
+    return relevant.test(n) ? getCFG(n) : null;
+  }
+
+  /**
+   * @return the number of the first block of n, or -1 if n has no blocks in this graph
+   */
+  private int offset(CGNode n) {
+    int id = getCallGraph().getNumber(n);
+    if (id < 0) {
+      return -1;
+    }
+    if (id >= offsets.length) {
+      int oldLength = offsets.length;
+      offsets = Arrays.copyOf(offsets, Math.max(id + 1, 2 * oldLength));
+      Arrays.fill(offsets, oldLength, offsets.length, -1);
+    }
+    if (offsets[id] == -1) {
+      ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> cfg = getRelevantCFG(n);
+      if (cfg == null) {
+        return -1;
+      }
+      if (nOwners == starts.length) {
+        starts = Arrays.copyOf(starts, 2 * nOwners);
+        owners = Arrays.copyOf(owners, 2 * nOwners);
+      }
+      starts[nOwners] = nextNumber;
+      owners[nOwners++] = n;
+      offsets[id] = nextNumber;
+      nextNumber += cfg.getMaxNumber() + 1;
+    }
+    return offsets[id];
+  }
+
+  /** hand out offsets to every relevant call graph node */
+  private void numberAllNodes() {
+    for (CGNode n : getCallGraph()) {
+      offset(n);
+    }
+  }
+
+  private BasicBlockInContext<IExplodedBasicBlock> block(CGNode n, IExplodedBasicBlock b) {
+    return new BasicBlockInContext<>(n, b);
+  }
+
+  /**
+   * Find the blocks that may call callee and the blocks its exit may return to. These are the only
+   * edges this graph remembers, since finding them means scanning every caller.
+   */
+  private void computeCallerEdges(CGNode callee, int id) {
+    MutableSparseIntSet calls = MutableSparseIntSet.makeEmpty();
+    MutableSparseIntSet returns = MutableSparseIntSet.makeEmpty();
+    for (CGNode caller : Iterator2Iterable.make(getCallGraph().getPredNodes(callee))) {
+      ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> callerCFG = getRelevantCFG(caller);
+      if (callerCFG == null) {
+        continue;
+      }
+      int offset = offset(caller);
+      Set<CallSiteReference> sites =
+          Iterator2Collection.toSet(getCallGraph().getPossibleSites(caller, callee));
+      SSAInstruction[] instructions = callerCFG.getInstructions();
+      for (int i = 0; i < instructions.length; i++) {
+        if (instructions[i] instanceof SSAAbstractInvokeInstruction call
+            && sites.contains(call.getCallSite())) {
+          IExplodedBasicBlock callBlock = callerCFG.getBlockForInstruction(i);
+          calls.add(offset + callBlock.getNumber());
+          for (IExplodedBasicBlock r : Iterator2Iterable.make(callerCFG.getSuccNodes(callBlock))) {
+            returns.add(offset + r.getNumber());
+          }
+        }
+      }
+    }
+    if (id >= callBlocks.length) {
+      callBlocks = Arrays.copyOf(callBlocks, Math.max(id + 1, 2 * callBlocks.length));
+      returnSites = Arrays.copyOf(returnSites, callBlocks.length);
+    }
+    callBlocks[id] = calls;
+    returnSites[id] = returns;
+  }
+
+  /**
+   * @return the numbers of the blocks that may call callee
+   */
+  private IntSet callBlocks(CGNode callee) {
+    int id = getCallGraph().getNumber(callee);
+    if (id >= callBlocks.length || callBlocks[id] == null) {
+      computeCallerEdges(callee, id);
+    }
+    return callBlocks[id];
+  }
+
+  /**
+   * @return the numbers of the blocks the exit of callee may return to
+   */
+  private IntSet returnSites(CGNode callee) {
+    int id = getCallGraph().getNumber(callee);
+    if (id >= returnSites.length || returnSites[id] == null) {
+      computeCallerEdges(callee, id);
+    }
+    return returnSites[id];
+  }
+
+  /** Forgets the remembered call and return edges, which the new call graph may change. */
+  @Override
+  public void callGraphUpdated() {
+    super.callGraphUpdated();
+    callBlocks = new IntSet[0];
+    returnSites = new IntSet[0];
+  }
+
+  /**
+   * @return true if the call block b of n may call callee
+   */
+  private boolean calls(
+      CGNode n,
+      IExplodedBasicBlock b,
+      ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> cfg,
+      CGNode callee) {
+    return hasCall(block(n, b), cfg)
+        && getCallGraph().getPossibleTargets(n, getCallSiteForCallBlock(b, cfg)).contains(callee);
+  }
+
+  private Set<BasicBlockInContext<IExplodedBasicBlock>> succ(
+      BasicBlockInContext<IExplodedBasicBlock> N) {
+    CGNode n = N.getNode();
+    ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> cfg = getRelevantCFG(n);
+    if (cfg == null) {
+      return Collections.emptySet();
+    }
+    IExplodedBasicBlock b = N.getDelegate();
+    Set<BasicBlockInContext<IExplodedBasicBlock>> result = HashSetFactory.make();
+    for (IExplodedBasicBlock s : Iterator2Iterable.make(cfg.getSuccNodes(b))) {
+      result.add(block(n, s));
+    }
+    if (hasCall(N, cfg)) {
+      CallSiteReference site = getCallSiteForCallBlock(b, cfg);
+      for (CGNode target : getCallGraph().getPossibleTargets(n, site)) {
+        ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> targetCFG = getRelevantCFG(target);
+        if (targetCFG != null) {
+          result.add(block(target, targetCFG.entry()));
+        }
+      }
+    }
+    if (b.isExitBlock()) {
+      returnSites(n).foreach(r -> result.add(getNode(r)));
+    }
+    return result;
+  }
+
+  private Set<BasicBlockInContext<IExplodedBasicBlock>> pred(
+      BasicBlockInContext<IExplodedBasicBlock> N) {
+    CGNode n = N.getNode();
+    ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> cfg = getRelevantCFG(n);
+    if (cfg == null) {
+      return Collections.emptySet();
+    }
+    IExplodedBasicBlock b = N.getDelegate();
+    Set<BasicBlockInContext<IExplodedBasicBlock>> result = HashSetFactory.make();
+    for (IExplodedBasicBlock p : Iterator2Iterable.make(cfg.getPredNodes(b))) {
+      BasicBlockInContext<IExplodedBasicBlock> pb = block(n, p);
+      result.add(pb);
+      if (hasCall(pb, cfg)) {
+        // b is a return site of the call in p
+        CallSiteReference site = getCallSiteForCallBlock(p, cfg);
+        for (CGNode target : getCallGraph().getPossibleTargets(n, site)) {
+          ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> targetCFG = getRelevantCFG(target);
+          if (targetCFG != null) {
+            result.add(block(target, targetCFG.exit()));
+          }
+        }
+      }
+    }
+    if (b.isEntryBlock()) {
+      callBlocks(n).foreach(c -> result.add(getNode(c)));
+    }
+    return result;
+  }
+
+  private IntSet numbers(Set<BasicBlockInContext<IExplodedBasicBlock>> blocks) {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (BasicBlockInContext<IExplodedBasicBlock> b : blocks) {
+      result.add(getNumber(b));
+    }
+    return result;
+  }
+
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> getSuccNodes(
+      BasicBlockInContext<IExplodedBasicBlock> N) {
+    return succ(N).iterator();
+  }
+
+  @Override
+  public int getSuccNodeCount(BasicBlockInContext<IExplodedBasicBlock> N) {
+    return succ(N).size();
+  }
+
+  @Override
+  public IntSet getSuccNodeNumbers(BasicBlockInContext<IExplodedBasicBlock> node) {
+    return numbers(succ(node));
+  }
+
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> getPredNodes(
+      BasicBlockInContext<IExplodedBasicBlock> N) {
+    return pred(N).iterator();
+  }
+
+  @Override
+  public int getPredNodeCount(BasicBlockInContext<IExplodedBasicBlock> N) {
+    return pred(N).size();
+  }
+
+  @Override
+  public IntSet getPredNodeNumbers(BasicBlockInContext<IExplodedBasicBlock> node) {
+    return numbers(pred(node));
+  }
+
+  @Override
+  public boolean hasEdge(
+      BasicBlockInContext<IExplodedBasicBlock> src, BasicBlockInContext<IExplodedBasicBlock> dst) {
+    ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> srcCFG = getRelevantCFG(src.getNode());
+    ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> dstCFG = getRelevantCFG(dst.getNode());
+    if (srcCFG == null || dstCFG == null) {
+      return false;
+    }
+    if (src.getNode().equals(dst.getNode())
+        && srcCFG.hasEdge(src.getDelegate(), dst.getDelegate())) {
+      return true;
+    }
+    if (dst.getDelegate().isEntryBlock()
+        && calls(src.getNode(), src.getDelegate(), srcCFG, dst.getNode())) {
+      // a call edge
+      return true;
+    }
+    // a return edge
+    return src.getDelegate().isExitBlock() && returnSites(src.getNode()).contains(getNumber(dst));
+  }
+
+  @Override
+  public boolean hasCall(BasicBlockInContext<IExplodedBasicBlock> B) {
+    ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> cfg = getCFG(B.getNode());
+    return cfg != null && hasCall(B, cfg);
+  }
+
+  @Override
+  public boolean containsNode(BasicBlockInContext<IExplodedBasicBlock> N) {
+    ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> cfg = getRelevantCFG(N.getNode());
+    return cfg != null && cfg.containsNode(N.getDelegate());
+  }
+
+  /**
+   * @return the number of N, or -1 if N is not in this graph
+   */
+  @Override
+  public int getNumber(BasicBlockInContext<IExplodedBasicBlock> N) {
+    int offset = offset(N.getNode());
+    return offset == -1 ? -1 : offset + N.getDelegate().getNumber();
+  }
+
+  @Override
+  public BasicBlockInContext<IExplodedBasicBlock> getNode(int number) {
+    if (number < 0 || number >= nextNumber) {
+      return null;
+    }
+    int i = Arrays.binarySearch(starts, 0, nOwners, number);
+    if (i < 0) {
+      // the owner is the last node whose first block comes before number
+      i = -i - 2;
+    }
+    CGNode n = owners[i];
+    return block(n, getCFG(n).getNode(number - starts[i]));
+  }
+
+  @Override
+  public int getMaxNumber() {
+    numberAllNodes();
+    return nextNumber - 1;
+  }
+
+  @Override
+  public int getNumberOfNodes() {
+    numberAllNodes();
+    return nextNumber;
+  }
+
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> iterator() {
+    return stream().iterator();
+  }
+
+  @Override
+  public Stream<BasicBlockInContext<IExplodedBasicBlock>> stream() {
+    numberAllNodes();
+    return IntStream.range(0, nextNumber).mapToObj(this::getNode);
+  }
+
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> iterateNodes(IntSet s) {
+    return new NumberedNodeIterator<>(s, this);
+  }
+
+  @Override
+  public String toString() {
+    return "numbered exploded ICFG over " + getCallGraph().getNumberOfNodes() + " call graph nodes";
+  }
+}
@@ -11,17 +11,36 @@
 package com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural;
 
 import com.ibm.wala.analysis.arraybounds.ArrayOutOfBoundsAnalysis;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.cfg.exceptionpruning.ExceptionFilter;
 import com.ibm.wala.ipa.cfg.exceptionpruning.filter.ArrayOutOfBoundFilter;
+import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAInstruction;
 import org.jspecify.annotations.NonNull;
 
 public class ArrayOutOfBoundInterFilter extends StoringExceptionFilter<SSAInstruction> {
 
+  /** where to find or create the analyses, or null to always create them */
+  private final AnalysisCache cache;
+
+  public ArrayOutOfBoundInterFilter() {
+    this(null);
+  }
+
+  /**
+   * @param cache the cache to share analyses through, e.g. after {@link
+   *     AnalysisCache#analyzeArrayBoundsAndNullPointers} has analyzed the whole call graph
+   */
+  public ArrayOutOfBoundInterFilter(AnalysisCache cache) {
+    this.cache = cache;
+  }
+
   @Override
   protected @NonNull ExceptionFilter<SSAInstruction> computeFilter(CGNode node) {
-    ArrayOutOfBoundsAnalysis analysis = new ArrayOutOfBoundsAnalysis(node.getIR());
+    IR ir = node.getIR();
+    ArrayOutOfBoundsAnalysis analysis =
+        cache == null ? new ArrayOutOfBoundsAnalysis(ir) : cache.getArrayOutOfBoundsAnalysis(ir);
     return new ArrayOutOfBoundFilter(analysis);
   }
 }
@@ -11,18 +11,38 @@
 package com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural;
 
 import com.ibm.wala.analysis.nullpointer.IntraproceduralNullPointerAnalysis;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.cfg.exceptionpruning.ExceptionFilter;
 import com.ibm.wala.ipa.cfg.exceptionpruning.filter.NullPointerExceptionFilter;
+import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAInstruction;
 import org.jspecify.annotations.NonNull;
 
 public class NullPointerExceptionInterFilter extends StoringExceptionFilter<SSAInstruction> {
 
+  /** where to find or create the analyses, or null to always create them */
+  private final AnalysisCache cache;
+
+  public NullPointerExceptionInterFilter() {
+    this(null);
+  }
+
+  /**
+   * @param cache the cache to share analyses through, e.g. after {@link
+   *     AnalysisCache#analyzeArrayBoundsAndNullPointers} has analyzed the whole call graph
+   */
+  public NullPointerExceptionInterFilter(AnalysisCache cache) {
+    this.cache = cache;
+  }
+
   @Override
   protected @NonNull ExceptionFilter<SSAInstruction> computeFilter(CGNode node) {
+    IR ir = node.getIR();
     IntraproceduralNullPointerAnalysis analysis =
-        new IntraproceduralNullPointerAnalysis(node.getIR());
+        cache == null
+            ? new IntraproceduralNullPointerAnalysis(ir)
+            : cache.getNullPointerAnalysis(ir);
     return new NullPointerExceptionFilter(analysis);
   }
 }
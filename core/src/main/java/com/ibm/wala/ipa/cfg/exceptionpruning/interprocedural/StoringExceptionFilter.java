@@ -12,8 +12,8 @@ package com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural;
 
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.cfg.exceptionpruning.ExceptionFilter;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jspecify.annotations.NonNull;
 
 public abstract class StoringExceptionFilter<Instruction>
@@ -21,7 +21,8 @@ public abstract class StoringExceptionFilter<Instruction>
   private final Map<CGNode, @NonNull ExceptionFilter<Instruction>> store;
 
   public StoringExceptionFilter() {
-    this.store = new LinkedHashMap<>();
+    // filters may be requested concurrently, e.g. by CGIntraproceduralExceptionAnalysis
+    this.store = new ConcurrentHashMap<>();
   }
 
   protected abstract @NonNull ExceptionFilter<Instruction> computeFilter(CGNode node);
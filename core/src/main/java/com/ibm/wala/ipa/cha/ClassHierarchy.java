@@ -13,6 +13,7 @@ package com.ibm.wala.ipa.cha;
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.BytecodeClass;
 import com.ibm.wala.classLoader.ClassLoaderFactory;
+import com.ibm.wala.classLoader.ClassLoaderImpl;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IClassLoader;
 import com.ibm.wala.classLoader.IField;
@@ -42,7 +43,10 @@ import com.ibm.wala.util.collections.MapIterator;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
+import com.ibm.wala.util.perf.AnalysisListener;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
@@ -59,11 +63,23 @@ import java.util.function.Function;
  *
  * <p>Note that this class hierarchy implementation is mutable. You can add classes via addClass().
  * You can add a class even if c.getClassLoader() does not appear in getLoaders().
+ *
+ * <p>If the scope asks for {@link AnalysisScope#setLazyClassLoading(boolean) lazy class loading},
+ * the hierarchy starts out with just the root class, and each class is added when a loader defines
+ * it on its first lookup. Queries about the subclasses or implementors of a class first define all
+ * classes that may be its subtypes, as found in the loaders' supertype index.
  */
 public class ClassHierarchy implements IClassHierarchy {
 
   private static final boolean DEBUG = false;
 
+  /**
+   * the name of the phase reported to the scope's {@link AnalysisListener} for the construction of
+   * a class hierarchy, which contains a phase for loading each class loader and one for adding its
+   * classes
+   */
+  public static final String CLASS_HIERARCHY_PHASE = "class hierarchy";
+
   public enum MissingSuperClassHandling {
     NONE,
     ROOT,
@@ -96,6 +112,9 @@ public class ClassHierarchy implements IClassHierarchy {
   /** root node of the class hierarchy */
   private Node root;
 
+  /** for lazy class loading, the classes all of whose subtypes have been added */
+  private final Set<TypeReference> subtypesLoaded = HashSetFactory.make();
+
   /** An object which defines class loaders. */
   private final ClassLoaderFactory factory;
 
@@ -251,64 +270,90 @@ public class ClassHierarchy implements IClassHierarchy {
         }
       }
     }
+    AnalysisListener listener = scope.getListener();
+    long startTime = AnalysisListener.started(listener, CLASS_HIERARCHY_PHASE);
     try {
-      int numLoaders = 0;
-      for (ClassLoaderReference ref : scope.getLoaders()) {
-        if (langNames.contains(ref.language())) {
-          numLoaders++;
+      try {
+        int numLoaders = 0;
+        for (ClassLoaderReference ref : scope.getLoaders()) {
+          if (langNames.contains(ref.language())) {
+            numLoaders++;
+          }
         }
-      }
 
-      loaders = new IClassLoader[numLoaders];
-      int idx = 0;
+        loaders = new IClassLoader[numLoaders];
+        int idx = 0;
 
-      if (progressMonitor != null) {
-        progressMonitor.beginTask("Build Class Hierarchy", numLoaders * 2 - 1);
-      }
-      for (ClassLoaderReference ref : scope.getLoaders()) {
         if (progressMonitor != null) {
-          if (progressMonitor.isCanceled()) {
-            throw new CancelCHAConstructionException();
+          progressMonitor.beginTask("Build Class Hierarchy", numLoaders * 2 - 1);
+        }
+        for (ClassLoaderReference ref : scope.getLoaders()) {
+          if (progressMonitor != null) {
+            if (progressMonitor.isCanceled()) {
+              throw new CancelCHAConstructionException();
+            }
+          }
+
+          if (langNames.contains(ref.language())) {
+            String phase = "load " + ref.name();
+            long start = AnalysisListener.started(listener, phase);
+            IClassLoader icl = factory.getLoader(ref, this, scope);
+            AnalysisListener.finished(listener, phase, start);
+            loaders[idx++] = icl;
+
+            if (progressMonitor != null) {
+              progressMonitor.worked(idx);
+            }
           }
         }
 
-        if (langNames.contains(ref.language())) {
-          IClassLoader icl = factory.getLoader(ref, this, scope);
-          loaders[idx++] = icl;
+        for (IClassLoader icl : loaders) {
+          if (progressMonitor != null) {
+            progressMonitor.subTask("From " + icl.getName().toString());
+          }
+          String phase = "add classes from " + icl.getName();
+          long start = AnalysisListener.started(listener, phase);
+          if (icl instanceof ClassLoaderImpl impl && impl.isLazy()) {
+            // only classes defined up front, e.g. from sources; the rest are added on lookup
+            for (IClass klass : impl.getLoadedClasses()) {
+              if (!addClass(klass)) {
+                impl.removeAll(Collections.singleton(klass));
+              }
+            }
+          } else {
+            addAllClasses(icl, progressMonitor);
+          }
+          AnalysisListener.finished(listener, phase, start);
 
           if (progressMonitor != null) {
-            progressMonitor.worked(idx);
+            progressMonitor.worked(idx++);
           }
         }
-      }
 
-      for (IClassLoader icl : loaders) {
-        if (progressMonitor != null) {
-          progressMonitor.subTask("From " + icl.getName().toString());
+        if (root == null) {
+          // with lazy class loading, this loads the root class
+          lookupClassRecursive(rootTypeRef);
         }
-        addAllClasses(icl, progressMonitor);
 
+      } catch (Exception e) {
+        throw new ClassHierarchyException("factory.getLoader failed", e);
+      } finally {
         if (progressMonitor != null) {
-          progressMonitor.worked(idx++);
+          progressMonitor.done(); // In case an exception is thrown.
         }
       }
 
-    } catch (Exception e) {
-      throw new ClassHierarchyException("factory.getLoader failed", e);
-    } finally {
-      if (progressMonitor != null) {
-        progressMonitor.done(); // In case an exception is thrown.
+      if (root == null) {
+        throw new ClassHierarchyException(
+            "failed to load root " + rootTypeRef + " of class hierarchy");
       }
-    }
 
-    if (root == null) {
-      throw new ClassHierarchyException(
-          "failed to load root " + rootTypeRef + " of class hierarchy");
+      // perform numbering for subclass tests.
+      numberTree();
+      ReferenceCleanser.registerClassHierarchy(this);
+    } finally {
+      AnalysisListener.finished(listener, CLASS_HIERARCHY_PHASE, startTime);
     }
-
-    // perform numbering for subclass tests.
-    numberTree();
-    ReferenceCleanser.registerClassHierarchy(this);
   }
 
   /** Add all classes in a class loader to the hierarchy. */
@@ -374,6 +419,7 @@ public class ClassHierarchy implements IClassHierarchy {
       }
     }
     Node node = findOrCreateNode(klass);
+    Node klassNode = node;
 
     if (klass.getReference().equals(this.rootTypeRef)) {
       // there is only one root
@@ -416,6 +462,8 @@ public class ClassHierarchy implements IClassHierarchy {
     }
 
     if (loadedSuperInterfaces != null) {
+      int[] interfaces = new int[loadedSuperInterfaces.size()];
+      int count = 0;
       for (IClass iface : loadedSuperInterfaces) {
         try {
           // make sure we'll be able to load the interface!
@@ -438,7 +486,15 @@ public class ClassHierarchy implements IClassHierarchy {
           continue;
         }
         recordImplements(klass, iface);
+        interfaces[count++] = getInterfaceNumber(iface);
       }
+      interfaces = Arrays.copyOf(interfaces, count);
+      Arrays.sort(interfaces);
+      klassNode.interfaces = interfaces;
+    }
+    if (unnumbered > 0) {
+      // added after construction; subclass tests only read the numbering, so update it here
+      renumber();
     }
     return true;
   }
@@ -529,6 +585,7 @@ public class ClassHierarchy implements IClassHierarchy {
       assert resolvedMethod != null;
       return Collections.singleton(resolvedMethod);
     }
+    loadSubtypes(declaredClass);
     if (declaredClass.isInterface()) {
       HashSet<IMethod> result = HashSetFactory.make(3);
       Set<IClass> impls = implementors.get(declaredClass);
@@ -692,11 +749,70 @@ public class ClassHierarchy implements IClassHierarchy {
     Node result = map.get(klass.getReference());
     if (result == null) {
       result = new Node(klass);
+      if (nextNumber > 0) {
+        // added after the tree was numbered
+        result.number = nextNumber++;
+        unnumbered++;
+      }
+      version++;
       map.put(klass.getReference(), result);
     }
     return result;
   }
 
+  /**
+   * For lazy class loading, add all classes that may extend or implement klass, directly or
+   * indirectly, so that its node has all its children, and all implementors of an interface are
+   * known.
+   */
+  private void loadSubtypes(IClass klass) {
+    if (klass.isArrayClass() || !hasLazyLoader()) {
+      return;
+    }
+    ArrayDeque<IClass> worklist = new ArrayDeque<>();
+    worklist.push(klass);
+    while (!worklist.isEmpty()) {
+      IClass c = worklist.pop();
+      if (!subtypesLoaded.add(c.getReference())) {
+        continue;
+      }
+      for (IClassLoader loader : loaders) {
+        if (loader instanceof ClassLoaderImpl impl && impl.isLazy()) {
+          for (TypeName name : impl.getDeclaredSubtypes(c.getName())) {
+            IClass sub =
+                lookupClassRecursive(TypeReference.findOrCreate(loader.getReference(), name));
+            if (sub != null) {
+              worklist.push(sub);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return whether some class loader defines classes as they are looked up. Otherwise, the
+   *     hierarchy is complete once constructed, and queries do not modify it.
+   */
+  private boolean hasLazyLoader() {
+    for (IClassLoader loader : loaders) {
+      if (loader instanceof ClassLoaderImpl impl && impl.isLazy()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** For lazy class loading, add all classes not added yet. */
+  private void loadAllClasses() {
+    for (IClassLoader loader : loaders) {
+      if (loader instanceof ClassLoaderImpl impl && impl.isLazy()) {
+        // iterating defines the remaining classes, and so adds them
+        impl.iterateAllClasses();
+      }
+    }
+  }
+
   @Override
   public String toString() {
     StringBuilder result = new StringBuilder(100);
@@ -716,26 +832,75 @@ public class ClassHierarchy implements IClassHierarchy {
    * n1 is a child of n2 iff n2.left &lt;= n1.left ^ n1.left &lt;= n2.right. Described as "relative
    * numbering" by Vitek, Horspool, and Krall, OOPSLA 97
    *
-   * <p>TODO: this implementation is recursive; make non-recursive if needed
+   * <p>Classes added later are not numbered, and are tested by walking their superclass chain until
+   * enough of them accumulate for {@link #addClass(IClass)} to {@link #renumber()} the whole tree.
+   * The numbers of {@link #getNumber(IClass)} are assigned the first time the tree is numbered, and
+   * do not change when it is renumbered.
    */
-  private int nextNumber = 1;
-
   private void numberTree() {
     assert root != null;
-    visitForNumbering(root);
+    int next = 1;
+    ArrayDeque<Node> path = new ArrayDeque<>();
+    ArrayDeque<Iterator<Node>> pending = new ArrayDeque<>();
+    root.left = next++;
+    path.push(root);
+    pending.push(root.children.iterator());
+    while (!path.isEmpty()) {
+      Iterator<Node> children = pending.peek();
+      if (children.hasNext()) {
+        Node child = children.next();
+        child.left = next++;
+        path.push(child);
+        pending.push(child.children.iterator());
+      } else {
+        Node n = path.pop();
+        pending.pop();
+        n.right = next++;
+        if (n.number == -1) {
+          n.number = n.left;
+        }
+      }
+    }
+    if (nextNumber < next) {
+      nextNumber = next;
+    }
+    unnumbered = 0;
   }
 
-  private void visitForNumbering(Node N) {
-    N.left = nextNumber++;
-    for (Node C : N.children) {
-      visitForNumbering(C);
+  /**
+   * Number the tree again if enough classes were added since it was last numbered for this to pay
+   * off, so that the cost is amortized over the additions.
+   */
+  private void renumber() {
+    if (unnumbered * 16L >= map.size()) {
+      numberTree();
     }
-    N.right = nextNumber++;
+  }
+
+  /** the next number for classes added after the tree was first numbered; 0 before that */
+  private int nextNumber = 0;
+
+  /** the number of classes added since the tree was last numbered */
+  private int unnumbered = 0;
+
+  /** incremented whenever a class is added, to invalidate {@link SubtypeEncoding}s */
+  private int version = 0;
+
+  /**
+   * Numbers for the interfaces that some class implements, to index {@link Node#interfaces}. These
+   * never change, since a class added later cannot be implemented by classes added before it.
+   */
+  private final Map<IClass, Integer> interfaceNumbers = HashMapFactory.make();
+
+  private int getInterfaceNumber(IClass iface) {
+    return interfaceNumbers.computeIfAbsent(iface, i -> interfaceNumbers.size());
   }
 
   /** internal representation of a node in the class hierarchy, representing one java class. */
   static final class Node {
 
+    private static final int[] NO_INTERFACES = new int[0];
+
     private final IClass klass;
 
     private final Set<Node> children = HashSetFactory.make(3);
@@ -749,6 +914,12 @@ public class ClassHierarchy implements IClassHierarchy {
 
     private int right = -1;
 
+    /** the number returned by {@link ClassHierarchy#getNumber(IClass)} */
+    private int number = -1;
+
+    /** the sorted numbers of all interfaces this class implements, or this interface extends */
+    private int[] interfaces = NO_INTERFACES;
+
     Node(IClass klass) {
       this.klass = klass;
     }
@@ -910,6 +1081,14 @@ public class ClassHierarchy implements IClassHierarchy {
       }
     } else {
       Node n = map.get(a);
+      if (n == null) {
+        ClassLoaderImpl impl = getLazyLoader(loader);
+        if (impl != null) {
+          // defining the class adds it to the hierarchy
+          impl.lookupClass(a.getName());
+          n = map.get(a);
+        }
+      }
       if (n != null) {
         return n.klass;
       } else {
@@ -918,6 +1097,20 @@ public class ClassHierarchy implements IClassHierarchy {
     }
   }
 
+  /**
+   * @return the loader for loaderRef if it defines classes lazily, else null
+   */
+  private ClassLoaderImpl getLazyLoader(ClassLoaderReference loaderRef) {
+    for (IClassLoader loader : loaders) {
+      if (loader instanceof ClassLoaderImpl impl
+          && impl.isLazy()
+          && loader.getReference().equals(loaderRef)) {
+        return impl;
+      }
+    }
+    return null;
+  }
+
   private boolean slowIsSubclass(IClass sub, IClass sup) {
     if (sub == sup) {
       return true;
@@ -1022,11 +1215,54 @@ public class ClassHierarchy implements IClassHierarchy {
       return i.equals(lookupClass(TypeReference.JavaLangCloneable))
           || i.equals(lookupClass(TypeReference.JavaIoSerializable));
     }
-    Set<IClass> impls = implementors.get(i);
-    if (impls != null && impls.contains(c)) {
-      return true;
+    Node n = map.get(c.getReference());
+    Integer number = interfaceNumbers.get(i);
+    if (n == null || number == null) {
+      return false;
     }
-    return false;
+    return Arrays.binarySearch(n.interfaces, number) >= 0;
+  }
+
+  /**
+   * The tree numbering and the interface numbers of the hierarchy, valid until the next class is
+   * added.
+   */
+  @Override
+  public SubtypeEncoding getSubtypeEncoding() {
+    int encodedVersion = version;
+    return new SubtypeEncoding() {
+      @Override
+      public boolean isValid() {
+        return encodedVersion == version;
+      }
+
+      @Override
+      public boolean isSubtype(IClass c, IClass t) {
+        if (!isValid()) {
+          throw new IllegalStateException("classes were added since the encoding was made");
+        }
+        if (c.isArrayClass() || t.isArrayClass()) {
+          return isAssignableFrom(t, c);
+        }
+        Node n1 = map.get(c.getReference());
+        Node n2 = map.get(t.getReference());
+        if (n1 == null || n2 == null) {
+          return c.equals(t);
+        } else if (n1 == n2) {
+          return true;
+        } else if (t.isInterface()) {
+          Integer number = interfaceNumbers.get(t);
+          return number != null && Arrays.binarySearch(n1.interfaces, number) >= 0;
+        } else if (c.isInterface()) {
+          return n2 == root;
+        } else if (n1.left == -1 || n2.left == -1) {
+          // added since the tree was last numbered, or not below the root
+          return slowIsSubclass(c, t);
+        } else {
+          return (n2.left <= n1.left) && (n1.left <= n2.right);
+        }
+      }
+    };
   }
 
   /**
@@ -1101,6 +1337,7 @@ public class ClassHierarchy implements IClassHierarchy {
     if (T.isArrayClass()) {
       return Collections.singleton(T);
     }
+    loadSubtypes(T);
     Node node = findNode(T);
     assert node != null : "null node for class " + T;
     HashSet<IClass> result = HashSetFactory.make(3);
@@ -1127,6 +1364,9 @@ public class ClassHierarchy implements IClassHierarchy {
   @Override
   public Set<IClass> getImplementors(TypeReference type) {
     IClass T = lookupClass(type);
+    if (T != null) {
+      loadSubtypes(T);
+    }
     Set<IClass> result = implementors.get(T);
     if (result == null) {
       return Collections.emptySet();
@@ -1136,6 +1376,7 @@ public class ClassHierarchy implements IClassHierarchy {
 
   @Override
   public Iterator<IClass> iterator() {
+    loadAllClasses();
     Function<Node, IClass> toClass = n -> n.klass;
     return new MapIterator<>(map.values().iterator(), toClass);
   }
@@ -1145,6 +1386,7 @@ public class ClassHierarchy implements IClassHierarchy {
    */
   @Override
   public int getNumberOfClasses() {
+    loadAllClasses();
     return map.size();
   }
 
@@ -1178,6 +1420,7 @@ public class ClassHierarchy implements IClassHierarchy {
       IClass innermost = getInnermostTypeOfArrayClass(klass);
       return innermost == null ? 0 : getNumberOfImmediateSubclasses(innermost);
     }
+    loadSubtypes(klass);
     Node node = findNode(klass);
     return node.children.size();
   }
@@ -1193,6 +1436,7 @@ public class ClassHierarchy implements IClassHierarchy {
     if (klass.isArrayClass()) {
       return getImmediateArraySubclasses((ArrayClass) klass);
     }
+    loadSubtypes(klass);
     Function<Node, IClass> node2Class = n -> n.klass;
     return Iterator2Collection.toSet(
         new MapIterator<>(findNode(klass).children.iterator(), node2Class));
@@ -1240,7 +1484,7 @@ public class ClassHierarchy implements IClassHierarchy {
 
   @Override
   public int getNumber(IClass c) {
-    return map.get(c.getReference()).left;
+    return map.get(c.getReference()).number;
   }
 
   /** A warning for when we fail to resolve the type for a checkcast */
@@ -1294,7 +1538,8 @@ public class ClassHierarchy implements IClassHierarchy {
   }
 
   /* BEGIN Custom change: remember unresolved classes */
-  private final Set<TypeReference> unresolved = HashSetFactory.make();
+  /** concurrent, since classes may be looked up from several threads once the hierarchy is built */
+  private final Set<TypeReference> unresolved = ConcurrentHashMap.newKeySet();
 
   @Override
   public final Set<TypeReference> getUnresolvedClasses() {
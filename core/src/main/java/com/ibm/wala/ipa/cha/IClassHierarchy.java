@@ -187,6 +187,25 @@ public interface IClassHierarchy extends Iterable<IClass> {
    */
   boolean isAssignableFrom(IClass c1, IClass c2);
 
+  /**
+   * @return an encoding of the subtype relation between the classes currently in this hierarchy,
+   *     for clients that test subtypes often. By default, it simply asks {@link
+   *     #isAssignableFrom(IClass, IClass)} and never becomes invalid.
+   */
+  default SubtypeEncoding getSubtypeEncoding() {
+    return new SubtypeEncoding() {
+      @Override
+      public boolean isValid() {
+        return true;
+      }
+
+      @Override
+      public boolean isSubtype(IClass c, IClass t) {
+        return isAssignableFrom(t, c);
+      }
+    };
+  }
+
   /**
    * Clear internal caches that may be invalidated by addition of new classes, e.g., a cache of the
    * results of {@link #getPossibleTargets(MethodReference)}.
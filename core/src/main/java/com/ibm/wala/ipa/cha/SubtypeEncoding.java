@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.cha;
+
+import com.ibm.wala.classLoader.IClass;
+
+/**
+ * A precomputed encoding of the subtype relation of an {@link IClassHierarchy}, answering subtype
+ * tests in constant time. For a {@link ClassHierarchy}, classes are tested by the depth-first
+ * numbering of the class tree, and interfaces by the sorted numbers of the interfaces each class
+ * implements.
+ *
+ * <p>An encoding describes the classes in the hierarchy when it was made. Adding a class
+ * invalidates it; clients that cache the results of subtype tests should check {@link #isValid()}
+ * and then get a new encoding from {@link IClassHierarchy#getSubtypeEncoding()}.
+ */
+public interface SubtypeEncoding {
+
+  /**
+   * @return false once classes have been added to the hierarchy since this encoding was made
+   */
+  boolean isValid();
+
+  /**
+   * Is c a subtype of t? For classes in the hierarchy, this is the same as {@link
+   * IClassHierarchy#isAssignableFrom(IClass, IClass) isAssignableFrom(t, c)}.
+   *
+   * @throws IllegalStateException if the encoding is no longer valid
+   */
+  boolean isSubtype(IClass c, IClass t);
+}
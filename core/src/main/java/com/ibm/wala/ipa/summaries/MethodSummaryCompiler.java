@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.summaries;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Compiles XML method summaries into a binary form that {@link
+ * XMLMethodSummaryReader#XMLMethodSummaryReader(ByteBuffer,
+ * com.ibm.wala.ipa.callgraph.AnalysisScope)} loads without an XML parser.
+ *
+ * <p>The binary form is the SAX event stream of the XML file: a header, a table of the distinct
+ * element names, attribute names and attribute values, and then one record per start or end tag.
+ * Each start record also holds the offset just past its matching end record, so that a reader can
+ * skip a {@code <method>} element and replay it only when the summary is first asked for.
+ *
+ * <pre>
+ * int magic, int version, int #strings, #strings * (int #bytes, UTF-8 bytes)
+ * START: byte 1, int name, int end offset, short #attributes, #attributes * (int name, int value)
+ * END:   byte 2, int name
+ * EOF:   byte 0
+ * </pre>
+ *
+ * Offsets are relative to the first event record.
+ */
+public final class MethodSummaryCompiler {
+
+  /** the file extension that marks a compiled summary, as opposed to an XML one */
+  public static final String COMPILED_EXTENSION = ".wsum";
+
+  static final int MAGIC = 0x5753554D;
+
+  static final int VERSION = 1;
+
+  static final byte EOF = 0;
+
+  static final byte START = 1;
+
+  static final byte END = 2;
+
+  private MethodSummaryCompiler() {}
+
+  /**
+   * @return true if the named summary file should be read as a compiled summary
+   */
+  public static boolean isCompiled(String fileName) {
+    return fileName.endsWith(COMPILED_EXTENSION);
+  }
+
+  /**
+   * Compile an XML method summary.
+   *
+   * @param xml the XML summary
+   * @param out where to write the compiled summary; it is not closed
+   * @throws IllegalArgumentException if the XML is malformed
+   */
+  public static void compile(InputStream xml, OutputStream out) throws IOException {
+    if (xml == null) {
+      throw new IllegalArgumentException("null xml");
+    }
+    if (out == null) {
+      throw new IllegalArgumentException("null out");
+    }
+    Recorder recorder = new Recorder();
+    try {
+      SAXParserFactory.newInstance().newSAXParser().parse(new InputSource(xml), recorder);
+    } catch (SAXException | ParserConfigurationException e) {
+      throw new IllegalArgumentException("bad xml file", e);
+    }
+    recorder.events.writeByte(EOF);
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(recorder.strings.size());
+    for (String s : recorder.strings) {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      data.writeInt(bytes.length);
+      data.write(bytes);
+    }
+    byte[] events = recorder.eventBytes.toByteArray();
+    ByteBuffer patch = ByteBuffer.wrap(events);
+    for (int i = 0; i < recorder.endOffsets.size(); i += 2) {
+      patch.putInt(recorder.endOffsets.get(i), recorder.endOffsets.get(i + 1));
+    }
+    data.write(events);
+    data.flush();
+  }
+
+  /**
+   * Map a compiled summary file into memory.
+   *
+   * @return a read-only buffer over the file's contents
+   */
+  public static ByteBuffer map(Path compiled) throws IOException {
+    try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  /**
+   * Read a compiled summary that is not a plain file, such as a class loader resource.
+   *
+   * @return a buffer over the stream's contents
+   */
+  public static ByteBuffer read(InputStream compiled) throws IOException {
+    if (compiled == null) {
+      throw new IllegalArgumentException("null compiled");
+    }
+    return ByteBuffer.wrap(compiled.readAllBytes());
+  }
+
+  /** Records the SAX events of an XML summary. */
+  private static class Recorder extends DefaultHandler {
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final Map<String, Integer> stringIds = HashMapFactory.make();
+
+    private final ByteArrayOutputStream eventBytes = new ByteArrayOutputStream();
+
+    private final DataOutputStream events = new DataOutputStream(eventBytes);
+
+    /** offsets of the start records' end offset fields that are still to be filled in */
+    private final Deque<Integer> open = new ArrayDeque<>();
+
+    /** pairs of (offset of an end offset field, its value) */
+    private final List<Integer> endOffsets = new ArrayList<>();
+
+    private int id(String s) {
+      return stringIds.computeIfAbsent(
+          s,
+          k -> {
+            strings.add(k);
+            return strings.size() - 1;
+          });
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+        throws SAXException {
+      try {
+        events.writeByte(START);
+        events.writeInt(id(qName));
+        open.push(events.size());
+        events.writeInt(-1);
+        events.writeShort(atts.getLength());
+        for (int i = 0; i < atts.getLength(); i++) {
+          events.writeInt(id(atts.getQName(i)));
+          events.writeInt(id(atts.getValue(i)));
+        }
+      } catch (IOException e) {
+        throw new SAXException(e);
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      try {
+        events.writeByte(END);
+        events.writeInt(id(qName));
+        endOffsets.add(open.pop());
+        endOffsets.add(events.size());
+      } catch (IOException e) {
+        throw new SAXException(e);
+      }
+    }
+  }
+
+  /**
+   * Compile an XML summary file.
+   *
+   * <p>Usage: {@code MethodSummaryCompiler <in.xml> <out.wsum>}
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: MethodSummaryCompiler <in.xml> <out" + COMPILED_EXTENSION + '>');
+      System.exit(1);
+    }
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(args[0])));
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(args[1])))) {
+      compile(in, out);
+    }
+  }
+}
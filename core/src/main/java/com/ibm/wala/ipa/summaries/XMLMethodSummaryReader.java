@@ -44,7 +44,9 @@ import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.Assertions;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -53,9 +55,11 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 
 /** This class reads method summaries from an XML Stream. */
@@ -67,7 +71,7 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
   private final AnalysisScope scope;
 
   /** Method summaries collected for methods */
-  private final HashMap<MethodReference, MethodSummary> summaries = HashMapFactory.make();
+  private final Map<MethodReference, MethodSummary> summaries;
 
   /** Set of TypeReferences that are marked as "allocatable" */
   private final HashSet<TypeReference> allocatable = HashSetFactory.make();
@@ -209,6 +213,7 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
       throw new IllegalArgumentException("null scope");
     }
     this.scope = scope;
+    this.summaries = HashMapFactory.make();
     try {
       readXML(xmlFile);
     } catch (Exception e) {
@@ -216,6 +221,27 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
     }
   }
 
+  /**
+   * Read summaries compiled by {@link MethodSummaryCompiler}. Class, package and loader
+   * declarations are read eagerly; the statements of each method are built on the first lookup of
+   * its summary.
+   *
+   * @param compiled the compiled summaries, e.g. from {@link MethodSummaryCompiler#map}
+   */
+  public XMLMethodSummaryReader(ByteBuffer compiled, AnalysisScope scope) {
+    if (compiled == null) {
+      throw new IllegalArgumentException("null compiled");
+    }
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    this.scope = scope;
+    CompiledEvents events = new CompiledEvents(compiled);
+    LazySummaries lazy = new LazySummaries(events);
+    this.summaries = lazy;
+    events.replay(events.base, new SAXHandler(), lazy);
+  }
+
   private void readXML(InputStream xml)
       throws SAXException, IOException, ParserConfigurationException {
     SAXHandler handler = new SAXHandler();
@@ -274,6 +300,153 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
     return ignoredPackages;
   }
 
+  /** The SAX events of a summary compiled by {@link MethodSummaryCompiler}. */
+  private static final class CompiledEvents {
+
+    private final ByteBuffer buffer;
+
+    private final String[] strings;
+
+    /** position of the first event record */
+    private final int base;
+
+    CompiledEvents(ByteBuffer compiled) {
+      buffer = compiled.duplicate();
+      int pos = compiled.position();
+      if (buffer.getInt(pos) != MethodSummaryCompiler.MAGIC) {
+        throw new IllegalArgumentException("not a compiled method summary");
+      }
+      int version = buffer.getInt(pos + 4);
+      if (version != MethodSummaryCompiler.VERSION) {
+        throw new IllegalArgumentException("unsupported compiled summary version " + version);
+      }
+      strings = new String[buffer.getInt(pos + 8)];
+      pos += 12;
+      for (int i = 0; i < strings.length; i++) {
+        byte[] bytes = new byte[buffer.getInt(pos)];
+        buffer.get(pos + 4, bytes);
+        strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        pos += 4 + bytes.length;
+      }
+      base = pos;
+    }
+
+    /**
+     * Replay events into a handler, starting at {@code pos} and stopping at the end of the stream
+     * or after the end tag of the element that starts at {@code pos}.
+     *
+     * @param deferred if not null, {@code <method>} elements are registered there instead of
+     *     replayed
+     */
+    void replay(int pos, SAXHandler handler, @Nullable LazySummaries deferred) {
+      int depth = 0;
+      do {
+        byte tag = buffer.get(pos);
+        if (tag == MethodSummaryCompiler.EOF) {
+          return;
+        }
+        String qName = strings[buffer.getInt(pos + 1)];
+        if (tag == MethodSummaryCompiler.END) {
+          handler.endElement(null, qName, qName);
+          pos += 5;
+          depth--;
+          continue;
+        }
+        int end = base + buffer.getInt(pos + 5);
+        int n = buffer.getShort(pos + 9);
+        int start = pos;
+        AttributesImpl atts = new AttributesImpl();
+        pos += 11;
+        for (int i = 0; i < n; i++, pos += 8) {
+          String name = strings[buffer.getInt(pos)];
+          atts.addAttribute("", name, name, "CDATA", strings[buffer.getInt(pos + 4)]);
+        }
+        Integer element = elementMap.get(qName);
+        if (deferred != null
+            && element != null
+            && element == E_METHOD
+            && !atts.getValue(A_NAME).equals(A_WILDCARD)) {
+          deferred.defer(handler.methodReference(atts), handler, start);
+          pos = end;
+        } else {
+          handler.startElement(null, qName, qName, atts);
+          depth++;
+        }
+      } while (depth > 0);
+    }
+  }
+
+  /**
+   * Method summaries read from a compiled summary, whose statements are built when the summary is
+   * first looked up.
+   */
+  private final class LazySummaries extends AbstractMap<MethodReference, MethodSummary> {
+
+    /** where a method element starts, and the declarations that enclose it */
+    private record Deferred(
+        int pos, ClassLoaderReference loader, TypeReference declaringClass, Atom pkg) {}
+
+    private final CompiledEvents events;
+
+    private final Map<MethodReference, MethodSummary> built = HashMapFactory.make();
+
+    private final Map<MethodReference, Deferred> deferred = HashMapFactory.make();
+
+    LazySummaries(CompiledEvents events) {
+      this.events = events;
+    }
+
+    void defer(MethodReference ref, SAXHandler handler, int pos) {
+      built.remove(ref);
+      deferred.put(
+          ref,
+          new Deferred(
+              pos, handler.governingLoader, handler.governingClass, handler.governingPackage));
+    }
+
+    private void build(Deferred d) {
+      SAXHandler handler = new SAXHandler();
+      handler.governingLoader = d.loader();
+      handler.governingClass = d.declaringClass();
+      handler.governingPackage = d.pkg();
+      events.replay(d.pos(), handler, null);
+    }
+
+    @Override
+    public synchronized MethodSummary get(Object key) {
+      Deferred d = deferred.remove(key);
+      if (d != null) {
+        build(d);
+      }
+      return built.get(key);
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+      return built.containsKey(key) || deferred.containsKey(key);
+    }
+
+    @Override
+    public synchronized MethodSummary put(MethodReference key, MethodSummary value) {
+      MethodSummary old = get(key);
+      built.put(key, value);
+      return old;
+    }
+
+    @Override
+    public synchronized int size() {
+      return built.size() + deferred.size();
+    }
+
+    @Override
+    public synchronized Set<Map.Entry<MethodReference, MethodSummary>> entrySet() {
+      while (!deferred.isEmpty()) {
+        get(deferred.keySet().iterator().next());
+      }
+      return built.entrySet();
+    }
+  }
+
   /**
    * @author sfink
    *     <p>SAX parser logic for XML method summaries
@@ -879,19 +1052,23 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
     }
 
     /**
-     * Begin processing of a method. 1. Set the governing method. 2. Initialize the nextLocal
-     * variable
+     * @return the method declared by a {@code <method>} element in the current class
      */
-    private void startMethod(Attributes atts) {
-
-      String methodName = atts.getValue(A_NAME);
-
-      Atom mName = Atom.findOrCreateUnicodeAtom(methodName);
+    private MethodReference methodReference(Attributes atts) {
+      Atom mName = Atom.findOrCreateUnicodeAtom(atts.getValue(A_NAME));
       String descString = atts.getValue(A_DESCRIPTOR);
       Language lang = scope.getLanguage(governingLoader.language());
       Descriptor D = Descriptor.findOrCreateUTF8(lang, descString);
+      return MethodReference.findOrCreate(governingClass, mName, D);
+    }
+
+    /**
+     * Begin processing of a method. 1. Set the governing method. 2. Initialize the nextLocal
+     * variable
+     */
+    private void startMethod(Attributes atts) {
 
-      MethodReference ref = MethodReference.findOrCreate(governingClass, mName, D);
+      MethodReference ref = methodReference(atts);
 
       boolean isStatic = false;
       String staticString = atts.getValue(A_STATIC);
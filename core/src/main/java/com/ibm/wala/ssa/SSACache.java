@@ -34,6 +34,12 @@ public class SSACache {
   /** A cache of DefUse information */
   private final IAuxiliaryCache duCache;
 
+  /** how many requests for an IR found it in the cache */
+  private long irHits;
+
+  /** how many requests for an IR had to build it */
+  private long irMisses;
+
   /**
    * @param factory a factory for creating IRs
    */
@@ -68,8 +74,11 @@ public class SSACache {
 
     IR ir = (IR) irCache.find(m, c, options);
     if (ir == null) {
+      irMisses++;
       ir = factory.makeIR(m, c, options);
       irCache.cache(m, c, options, ir);
+    } else {
+      irHits++;
     }
     return ir;
   }
@@ -117,6 +126,20 @@ public class SSACache {
     return du;
   }
 
+  /**
+   * @return the number of IRs found in the cache so far
+   */
+  public synchronized long getIRCacheHits() {
+    return irHits;
+  }
+
+  /**
+   * @return the number of IRs built because they were not in the cache so far
+   */
+  public synchronized long getIRCacheMisses() {
+    return irMisses;
+  }
+
   /** The existence of this is unfortunate. */
   public void wipe() {
     irCache.wipe();
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationListener;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationListener.IterationStatistics;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class AnalysisListenerTest extends WalaTestCase {
+
+  /** records the events it receives, and checks that phases are properly nested */
+  private static class Recorder implements PropagationListener {
+    private final Deque<String> open = new ArrayDeque<>();
+
+    private final List<String> phases = new ArrayList<>();
+
+    private final List<IterationStatistics> iterations = new ArrayList<>();
+
+    @Override
+    public void phaseStarted(String phase) {
+      open.push(phase);
+      phases.add(phase);
+    }
+
+    @Override
+    public void phaseFinished(String phase, long elapsedNanos) {
+      assertThat(open.pop()).isEqualTo(phase);
+      assertThat(elapsedNanos).isNotNegative();
+    }
+
+    @Override
+    public void iterationFinished(IterationStatistics statistics) {
+      assertThat(open).containsExactly(CALL_GRAPH_PHASE);
+      iterations.add(statistics);
+    }
+  }
+
+  @Test
+  public void testEvents()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    Recorder recorder = new Recorder();
+    scope.setListener(recorder);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    assertThat(recorder.phases).startsWith(ClassHierarchy.CLASS_HIERARCHY_PHASE);
+
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraph cg = CallGraphTestUtil.buildZeroCFA(options, new AnalysisCacheImpl(), cha, false);
+
+    assertThat(recorder.open).isEmpty();
+    assertThat(recorder.phases)
+        .contains(PropagationListener.CALL_GRAPH_PHASE, PropagationListener.SOLVE_PHASE);
+    assertThat(recorder.iterations).isNotEmpty();
+    IterationStatistics last = recorder.iterations.get(recorder.iterations.size() - 1);
+    assertThat(last.iteration()).isEqualTo(recorder.iterations.size());
+    assertThat(last.callGraphNodes()).isEqualTo(cg.getNumberOfNodes());
+    assertThat(recorder.iterations.stream().mapToInt(IterationStatistics::newCallGraphNodes).sum())
+        .isEqualTo(cg.getNumberOfNodes());
+    assertThat(last.solver().evaluated()).isPositive();
+    assertThat(last.pointsToSetSizes()).isNotEmpty();
+    assertThat(last.irCacheMisses()).isPositive();
+  }
+}
@@ -35,13 +35,17 @@ import com.ibm.wala.ipa.callgraph.CallGraphStats;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.AllApplicationEntrypoints;
+import com.ibm.wala.ipa.callgraph.impl.DefaultContextSelector;
 import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.callgraph.impl.Util;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.IntrospectionMetrics;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.IntrospectiveContextSelector;
 import com.ibm.wala.ipa.callgraph.util.CallGraphSearchUtil;
 import com.ibm.wala.ipa.cfg.BasicBlockInContext;
 import com.ibm.wala.ipa.cfg.InterproceduralCFG;
@@ -336,6 +340,81 @@ public class CallGraphTest extends WalaTestCase {
     CallGraphTestUtil.buildZeroCFA(options, new AnalysisCacheImpl(), cha, false);
   }
 
+  @Test
+  public void testZeroOneContainerTimeBudget()
+      throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder precise =
+        Util.makeZeroOneContainerCFABuilder(options, new AnalysisCacheImpl(), cha);
+    CallGraph preciseGraph = precise.makeCallGraph(options, null);
+    assertThat(precise.isDegraded()).isFalse();
+
+    // a budget that is used up right away
+    options.setTimeBudget(0);
+    SSAPropagationCallGraphBuilder degraded =
+        Util.makeZeroOneContainerCFABuilder(options, new AnalysisCacheImpl(), cha);
+    CallGraph degradedGraph = degraded.makeCallGraph(options, null);
+    assertThat(degraded.isDegraded()).isTrue();
+
+    // coarser contexts and heap abstractions can only add methods
+    for (CGNode n : preciseGraph) {
+      assertThat(degradedGraph.getNodes(n.getMethod().getReference())).isNotEmpty();
+    }
+  }
+
+  @Test
+  public void testIntrospectiveNObj()
+      throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraph full =
+        Util.makeNObjBuilder(2, options, new AnalysisCacheImpl(), cha).makeCallGraph(options, null);
+    CallGraph introspective =
+        Util.makeIntrospectiveNObjBuilder(2, options, new AnalysisCacheImpl(), cha)
+            .makeCallGraph(options, null);
+
+    // context sensitivity only where it pays off loses precision, not methods
+    for (CGNode n : full) {
+      assertThat(introspective.getNodes(n.getMethod().getReference())).isNotEmpty();
+    }
+
+    // bounds tight enough to reject the constructor of NList, which 2-obj analyzes in contexts
+    SSAPropagationCallGraphBuilder pre =
+        Util.makeZeroCFABuilder(JavaLanguage.get(), options, new AnalysisCacheImpl(), cha);
+    IntrospectionMetrics metrics =
+        new IntrospectionMetrics(pre.makeCallGraph(options, null), pre.getPointerAnalysis());
+    Set<IMethod> refined = metrics.getMethodsToRefine(1, 1);
+    Set<IMethod> rejected =
+        HashSetFactory.make(metrics.getMethodsToRefine(Long.MAX_VALUE, Long.MAX_VALUE));
+    rejected.removeAll(refined);
+    assertThat(rejected).isNotEmpty();
+    assertThat(full)
+        .anyMatch(n -> rejected.contains(n.getMethod()) && n.getContext() != Everywhere.EVERYWHERE);
+
+    SSAPropagationCallGraphBuilder tight =
+        Util.makeNObjBuilder(2, options, new AnalysisCacheImpl(), cha);
+    tight.setContextSelector(
+        new IntrospectiveContextSelector(
+            tight.getContextSelector(), new DefaultContextSelector(options, cha), refined));
+    CallGraph tightGraph = tight.makeCallGraph(options, null);
+    // rejected methods get only the base context, while the others are still refined
+    assertThat(tightGraph)
+        .filteredOn(n -> rejected.contains(n.getMethod()))
+        .isNotEmpty()
+        .allMatch(n -> n.getContext() == Everywhere.EVERYWHERE);
+    assertThat(tightGraph)
+        .anyMatch(n -> refined.contains(n.getMethod()) && n.getContext() != Everywhere.EVERYWHERE);
+  }
+
   @Test
   public void testZeroOneContainerCopyOf()
       throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
@@ -4,6 +4,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.ibm.wala.classLoader.ClassLoaderImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.util.config.AnalysisScopeReader;
 import com.ibm.wala.core.util.io.FileProvider;
@@ -11,10 +14,12 @@ import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.SubtypeEncoding;
 import com.ibm.wala.properties.WalaProperties;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.WalaException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.config.StringFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -22,6 +27,7 @@ import java.lang.reflect.Type;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -133,4 +139,112 @@ public class AnalysisScopeTest {
     assertThat(loaders.get("Extension")).isEmpty();
     assertThat(loaders.get("Synthetic")).isEmpty();
   }
+
+  @Test
+  public void testParallelClassLoading() throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            "primordial-base.txt", null, AnalysisScopeTest.class.getClassLoader());
+    ClassHierarchy serial = ClassHierarchyFactory.make(scope);
+    scope.setParallelClassLoading(true);
+    ClassHierarchy parallel = ClassHierarchyFactory.make(scope);
+
+    assertThat(parallel.getNumberOfClasses()).isEqualTo(serial.getNumberOfClasses());
+    for (IClassLoader loader : serial.getLoaders()) {
+      IClassLoader other = parallel.getLoader(loader.getReference());
+      assertThat(other.getNumberOfClasses()).isEqualTo(loader.getNumberOfClasses());
+      for (IClass klass : Iterator2Iterable.make(loader.iterateAllClasses())) {
+        assertThat(other.lookupClass(klass.getName())).isNotNull();
+      }
+    }
+  }
+
+  private static Set<TypeReference> references(Collection<IClass> classes) {
+    return classes.stream().map(IClass::getReference).collect(Collectors.toSet());
+  }
+
+  @Test
+  public void testLazyClassLoading() throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            "primordial-base.txt", null, AnalysisScopeTest.class.getClassLoader());
+    ClassHierarchy eager = ClassHierarchyFactory.make(scope);
+    scope.setLazyClassLoading(true);
+    ClassHierarchy lazy = ClassHierarchyFactory.make(scope);
+    ClassLoaderImpl primordial = (ClassLoaderImpl) lazy.getLoader(ClassLoaderReference.Primordial);
+
+    // a lookup defines the class and its supertypes only
+    IClass string = lazy.lookupClass(TypeReference.JavaLangString);
+    assertThat(string).isNotNull();
+    assertThat(lazy.isSubclassOf(string, lazy.getRootClass())).isTrue();
+    assertThat(primordial.getLoadedClasses().size())
+        .isLessThan(eager.getLoader(ClassLoaderReference.Primordial).getNumberOfClasses() / 10);
+
+    // queries about subtypes see the same classes as with eager loading
+    assertThat(references(lazy.computeSubClasses(TypeReference.JavaLangRuntimeException)))
+        .isEqualTo(references(eager.computeSubClasses(TypeReference.JavaLangRuntimeException)));
+    assertThat(references(lazy.getImplementors(TypeReference.JavaUtilCollection)))
+        .isEqualTo(references(eager.getImplementors(TypeReference.JavaUtilCollection)));
+
+    // iterating defines all classes
+    assertThat(lazy.getNumberOfClasses()).isEqualTo(eager.getNumberOfClasses());
+  }
+
+  @Test
+  public void testSubclassTestsWhileAddingClasses() throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            "primordial-base.txt", null, AnalysisScopeTest.class.getClassLoader());
+    ClassHierarchy eager = ClassHierarchyFactory.make(scope);
+    scope.setLazyClassLoading(true);
+    ClassHierarchy lazy = ClassHierarchyFactory.make(scope);
+    Collection<IClass> classes =
+        ((ClassLoaderImpl) lazy.getLoader(ClassLoaderReference.Primordial)).getLoadedClasses();
+
+    // each batch of classes is added while some are numbered and some are not
+    for (TypeReference type :
+        List.of(
+            TypeReference.JavaLangRuntimeException,
+            TypeReference.JavaUtilCollection,
+            TypeReference.JavaLangError)) {
+      lazy.computeSubClasses(type);
+      for (IClass c : List.copyOf(classes)) {
+        for (IClass t : List.copyOf(classes)) {
+          if (!c.isInterface() && !t.isInterface()) {
+            assertThat(lazy.isSubclassOf(c, t))
+                .isEqualTo(
+                    eager.isSubclassOf(
+                        eager.lookupClass(c.getReference()), eager.lookupClass(t.getReference())));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSubtypeEncoding() throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            "primordial-base.txt", null, AnalysisScopeTest.class.getClassLoader());
+    scope.setLazyClassLoading(true);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    cha.computeSubClasses(TypeReference.JavaLangRuntimeException);
+    cha.getImplementors(TypeReference.JavaUtilCollection);
+
+    SubtypeEncoding encoding = cha.getSubtypeEncoding();
+    Collection<IClass> classes =
+        ((ClassLoaderImpl) cha.getLoader(ClassLoaderReference.Primordial)).getLoadedClasses();
+    for (IClass c : classes) {
+      for (IClass t : classes) {
+        assertThat(encoding.isSubtype(c, t)).isEqualTo(cha.isAssignableFrom(t, c));
+      }
+    }
+
+    // adding classes invalidates the encoding
+    assertThat(encoding.isValid()).isTrue();
+    cha.lookupClass(
+        TypeReference.findOrCreate(ClassLoaderReference.Primordial, "Ljava/util/zip/Adler32"));
+    assertThat(encoding.isValid()).isFalse();
+    assertThat(cha.getSubtypeEncoding().isValid()).isTrue();
+  }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.classLoader.ClassFileIndex;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.JarStreamModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ClassFileIndexTest {
+
+  /** write a jar with the given entries; the contents are never parsed */
+  private static byte[] jar(Object... namesAndContents) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (JarOutputStream out = new JarOutputStream(bytes)) {
+      for (int i = 0; i < namesAndContents.length; i += 2) {
+        out.putNextEntry(new ZipEntry((String) namesAndContents[i]));
+        out.write((byte[]) namesAndContents[i + 1]);
+        out.closeEntry();
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /** write a jar holding the given jar without compression, as fat jars do */
+  private static byte[] storing(String name, byte[] contents) throws IOException {
+    ZipEntry entry = new ZipEntry(name);
+    entry.setMethod(ZipEntry.STORED);
+    entry.setSize(contents.length);
+    CRC32 crc = new CRC32();
+    crc.update(contents);
+    entry.setCrc(crc.getValue());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (JarOutputStream out = new JarOutputStream(bytes)) {
+      out.putNextEntry(entry);
+      out.write(contents);
+      out.closeEntry();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Map<String, String> contents(Module module) throws IOException {
+    Map<String, String> result = new LinkedHashMap<>();
+    for (ModuleEntry entry : Iterator2Iterable.make(module.getEntries())) {
+      if (entry.isModuleFile()) {
+        result.putAll(contents(entry.asModule()));
+      } else {
+        try (InputStream s = entry.getInputStream()) {
+          result.put(entry.getName(), new String(s.readAllBytes(), StandardCharsets.UTF_8));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static List<String> classNames(ClassFileIndex index, int module) {
+    return index.getClassFiles(module).stream().map(ClassFileIndex.ClassFile::className).toList();
+  }
+
+  @Test
+  public void testIndex(@TempDir Path dir) throws IOException {
+    byte[] dummy = {0};
+    Path first = dir.resolve("first.jar");
+    Files.write(
+        first,
+        jar(
+            "p/Q.class",
+            dummy,
+            "p/Q.java",
+            dummy,
+            "lib/inner.jar",
+            jar("r/R.class", dummy),
+            "META-INF/notes.txt",
+            dummy));
+    Path second = dir.resolve("second.jar");
+    Files.write(second, jar("p/Q.class", dummy, "s/S.class", dummy));
+
+    for (boolean parallel : new boolean[] {false, true}) {
+      Module firstModule = new JarFileModule(new JarFile(first.toFile()));
+      Module secondModule = new JarFileModule(new JarFile(second.toFile()));
+      ClassFileIndex index = ClassFileIndex.make(List.of(firstModule, secondModule), parallel);
+
+      // nested jars are expanded in place, and other resources are ignored
+      assertThat(classNames(index, 0)).containsExactly("p/Q", "r/R");
+      assertThat(index.getSourceFiles(0)).hasSize(1);
+      assertThat(classNames(index, 1)).containsExactly("p/Q", "s/S");
+      assertThat(index.getSourceFiles(1)).isEmpty();
+
+      // the first class file for a name is the one expected to define it
+      assertThat(index.size()).isEqualTo(3);
+      assertThat(index.getEntry(TypeName.string2TypeName("Lp/Q")).getContainer())
+          .isSameAs(firstModule);
+      assertThat(index.getEntry(TypeName.string2TypeName("Ls/S")).getContainer())
+          .isSameAs(secondModule);
+      assertThat(index.getEntry(TypeName.string2TypeName("Lt/T"))).isNull();
+    }
+  }
+
+  @Test
+  public void testNestedJarContents(@TempDir Path dir) throws IOException {
+    byte[] big = "x".repeat(100000).getBytes(StandardCharsets.UTF_8);
+    byte[] inner =
+        jar("r/R.class", "R".getBytes(StandardCharsets.UTF_8), "r/Big.class", big, "r/x.txt", big);
+    Map<String, String> expected =
+        Map.of("r/R.class", "R", "r/Big.class", new String(big, StandardCharsets.UTF_8));
+
+    // nested jars are read in place when stored, and read into memory when compressed
+    for (byte[] outer : List.of(storing("lib/inner.jar", inner), jar("lib/inner.jar", inner))) {
+      Path file = Files.write(dir.resolve("outer.jar"), outer);
+      try (JarFile jar = new JarFile(file.toFile())) {
+        Map<String, String> nested = contents(new JarFileModule(jar));
+        assertThat(nested).isEqualTo(expected);
+      }
+    }
+
+    assertThat(contents(new JarStreamModule(new ByteArrayInputStream(inner)))).isEqualTo(expected);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ipa.summaries.MethodSummaryCompiler;
+import com.ibm.wala.ipa.summaries.XMLMethodSummaryReader;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.types.MethodReference;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that summaries compiled by {@link MethodSummaryCompiler} read back the same as the XML they
+ * were compiled from.
+ */
+public class MethodSummaryCompilerTest extends WalaTestCase {
+
+  private static final String NATIVES = "natives.xml";
+
+  private static InputStream natives() {
+    return MethodSummaryCompilerTest.class.getClassLoader().getResourceAsStream(NATIVES);
+  }
+
+  private static String[] statements(MethodSummary summary) {
+    return Arrays.stream(summary.getStatements())
+        .map(SSAInstruction::toString)
+        .toArray(String[]::new);
+  }
+
+  @Test
+  public void testCompiledNativesMatchXml() throws IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    XMLMethodSummaryReader xml;
+    try (InputStream in = natives()) {
+      xml = new XMLMethodSummaryReader(in, scope);
+    }
+    ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+    try (InputStream in = natives()) {
+      MethodSummaryCompiler.compile(in, compiled);
+    }
+    XMLMethodSummaryReader binary =
+        new XMLMethodSummaryReader(ByteBuffer.wrap(compiled.toByteArray()), scope);
+
+    assertThat(binary.getClasses()).isEqualTo(xml.getClasses());
+    assertThat(binary.getAllocatableClasses()).isEqualTo(xml.getAllocatableClasses());
+    assertThat(binary.getClassSuperclasses()).isEqualTo(xml.getClassSuperclasses());
+    assertThat(binary.getIgnoredPackages()).isEqualTo(xml.getIgnoredPackages());
+
+    Map<MethodReference, MethodSummary> expected = xml.getSummaries();
+    Map<MethodReference, MethodSummary> actual = binary.getSummaries();
+    assertThat(actual.keySet()).isEqualTo(expected.keySet());
+    for (Map.Entry<MethodReference, MethodSummary> e : expected.entrySet()) {
+      MethodSummary summary = actual.get(e.getKey());
+      assertThat(summary.isStatic()).isEqualTo(e.getValue().isStatic());
+      assertThat(summary.isFactory()).isEqualTo(e.getValue().isFactory());
+      assertThat(summary.getNumberOfParameters()).isEqualTo(e.getValue().getNumberOfParameters());
+      assertThat(summary.getValueNames()).isEqualTo(e.getValue().getValueNames());
+      assertThat(statements(summary)).isEqualTo(statements(e.getValue()));
+    }
+  }
+}
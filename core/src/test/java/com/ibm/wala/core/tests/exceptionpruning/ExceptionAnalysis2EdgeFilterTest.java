@@ -2,6 +2,7 @@ package com.ibm.wala.core.tests.exceptionpruning;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.ibm.wala.analysis.arraybounds.ArrayOutOfBoundsAnalysis;
 import com.ibm.wala.analysis.exceptionanalysis.ExceptionAnalysis;
 import com.ibm.wala.analysis.exceptionanalysis.ExceptionAnalysis2EdgeFilter;
 import com.ibm.wala.cfg.ControlFlowGraph;
@@ -9,6 +10,7 @@ import com.ibm.wala.classLoader.JavaLanguage;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.util.config.AnalysisScopeReader;
 import com.ibm.wala.core.util.ref.ReferenceCleanser;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
@@ -23,14 +25,19 @@ import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.cfg.EdgeFilter;
 import com.ibm.wala.ipa.cfg.PrunedCFG;
+import com.ibm.wala.ipa.cfg.exceptionpruning.ExceptionFilter;
 import com.ibm.wala.ipa.cfg.exceptionpruning.ExceptionFilter2EdgeFilter;
+import com.ibm.wala.ipa.cfg.exceptionpruning.filter.ArrayOutOfBoundFilter;
 import com.ibm.wala.ipa.cfg.exceptionpruning.filter.IgnoreExceptionsFilter;
+import com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural.ArrayOutOfBoundInterFilter;
 import com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural.CombinedInterproceduralExceptionFilter;
 import com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural.IgnoreExceptionsInterFilter;
+import com.ibm.wala.ipa.cfg.exceptionpruning.interprocedural.NullPointerExceptionInterFilter;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ssa.AllIntegerDueToBranchePiPolicy;
+import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.ssa.SSACFG;
 import com.ibm.wala.ssa.SSAInstruction;
@@ -191,6 +198,73 @@ public class ExceptionAnalysis2EdgeFilterTest {
     }
   }
 
+  @Test
+  public void testPrunedCFGsAreCached() {
+    AnalysisCache cache = new AnalysisCacheImpl();
+    for (CGNode node : cg) {
+      if (!node.getMethod()
+          .getDeclaringClass()
+          .getName()
+          .getClassName()
+          .toString()
+          .equals("TestPruning")) {
+        continue;
+      }
+      ExceptionFilter<SSAInstruction> nodeFilter = filter.getFilter(node);
+      PrunedCFG<SSAInstruction, ISSABasicBlock> pruned =
+          cache.getPrunedCFG(node.getMethod(), node.getContext(), nodeFilter, cha);
+      if (pruned == null) {
+        continue;
+      }
+      assertThat(cache.getPrunedCFG(node.getMethod(), node.getContext(), nodeFilter, cha))
+          .isSameAs(pruned);
+      assertThat(cache.getExceptionPrunedCFG(node.getMethod(), node.getContext()))
+          .isNotSameAs(pruned)
+          .isSameAs(cache.getExceptionPrunedCFG(node.getMethod(), node.getContext()));
+
+      SSACFG cfg = cache.getIR(node.getMethod(), node.getContext()).getControlFlowGraph();
+      ControlFlowGraph<SSAInstruction, ISSABasicBlock> expected =
+          PrunedCFG.make(cfg, new ExceptionFilter2EdgeFilter<>(nodeFilter, cha, cfg));
+      checkNoNewEdges(expected, pruned);
+      checkNoNewEdges(pruned, expected);
+    }
+  }
+
+  @Test
+  public void testArrayBoundsAndNullPointersAreShared() {
+    // enough nodes for the analyses to run concurrently
+    assertThat(cg.getNumberOfNodes()).isGreaterThanOrEqualTo(64);
+    AnalysisCache cache = new AnalysisCacheImpl();
+    cache.analyzeArrayBoundsAndNullPointers(cg);
+    ArrayOutOfBoundInterFilter bounds = new ArrayOutOfBoundInterFilter(cache);
+    NullPointerExceptionInterFilter nulls = new NullPointerExceptionInterFilter(cache);
+    for (CGNode node : cg) {
+      IR ir = node.getIR();
+      if (ir == null || ir.isEmptyIR()) {
+        continue;
+      }
+      ArrayOutOfBoundsAnalysis analysis = cache.getArrayOutOfBoundsAnalysis(ir);
+      assertThat(cache.getArrayOutOfBoundsAnalysis(ir)).isSameAs(analysis);
+      assertThat(cache.getNullPointerAnalysis(ir)).isSameAs(cache.getNullPointerAnalysis(ir));
+
+      ExceptionFilter<SSAInstruction> expectedBounds =
+          new ArrayOutOfBoundFilter(new ArrayOutOfBoundsAnalysis(ir));
+      ExceptionFilter<SSAInstruction> expectedNulls =
+          new NullPointerExceptionInterFilter().getFilter(node);
+      for (SSAInstruction instruction : ir.getInstructions()) {
+        if (instruction == null) {
+          continue;
+        }
+        assertThat(bounds.getFilter(node).filteredExceptions(instruction))
+            .isEqualTo(expectedBounds.filteredExceptions(instruction));
+        assertThat(nulls.getFilter(node).filteredExceptions(instruction))
+            .isEqualTo(expectedNulls.filteredExceptions(instruction));
+        assertThat(nulls.getFilter(node).alwaysThrowsException(instruction))
+            .isEqualTo(expectedNulls.alwaysThrowsException(instruction));
+      }
+    }
+  }
+
   private static void checkRemovingNormalOk(
       CGNode node,
       ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg,
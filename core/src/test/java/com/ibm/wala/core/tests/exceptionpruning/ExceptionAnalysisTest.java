@@ -1,5 +1,6 @@
 package com.ibm.wala.core.tests.exceptionpruning;
 
+import com.ibm.wala.analysis.exceptionanalysis.CGIntraproceduralExceptionAnalysis;
 import com.ibm.wala.analysis.exceptionanalysis.ExceptionAnalysis;
 import com.ibm.wala.analysis.exceptionanalysis.IntraproceduralExceptionAnalysis;
 import com.ibm.wala.classLoader.CallSiteReference;
@@ -121,6 +122,36 @@ public class ExceptionAnalysisTest {
     }
   }
 
+  @Test
+  public void testParallelIntra(final SoftAssertions softly) {
+    // enough nodes for the analyses to run concurrently
+    softly.assertThat(cg.getNumberOfNodes()).isGreaterThanOrEqualTo(64);
+    CGIntraproceduralExceptionAnalysis sequential =
+        new CGIntraproceduralExceptionAnalysis(cg, pointerAnalysis, cha, filter);
+    CGIntraproceduralExceptionAnalysis parallel =
+        new CGIntraproceduralExceptionAnalysis(cg, pointerAnalysis, cha, filter, true);
+
+    softly.assertThat(parallel.getExceptions()).isEqualTo(sequential.getExceptions());
+    for (CGNode node : cg) {
+      IntraproceduralExceptionAnalysis expected = sequential.getAnalysis(node);
+      IntraproceduralExceptionAnalysis actual = parallel.getAnalysis(node);
+      softly.assertThat(actual.getExceptions()).isEqualTo(expected.getExceptions());
+      softly
+          .assertThat(actual.getPossiblyCaughtExceptions())
+          .isEqualTo(expected.getPossiblyCaughtExceptions());
+      if (node.getIR() == null) {
+        continue;
+      }
+      Iterator<CallSiteReference> it = node.getIR().iterateCallSites();
+      while (it.hasNext()) {
+        CallSiteReference site = it.next();
+        softly
+            .assertThat(actual.getCaughtExceptions(site))
+            .isEqualTo(expected.getCaughtExceptions(site));
+      }
+    }
+  }
+
   private void checkCaughtExceptions(
       final SoftAssertions softly, CGNode node, IntraproceduralExceptionAnalysis analysis) {
     Iterator<CallSiteReference> it = node.iterateCallSites();
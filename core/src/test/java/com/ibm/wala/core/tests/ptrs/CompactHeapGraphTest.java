@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.analysis.pointers.BasicHeapGraph;
+import com.ibm.wala.analysis.pointers.CompactHeapGraph;
+import com.ibm.wala.analysis.pointers.HeapGraph;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysisImpl;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.graph.traverse.DFS;
+import java.io.IOException;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class CompactHeapGraphTest extends WalaTestCase {
+
+  @Test
+  public void testSameGraphAsBasicHeapGraph()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(cha, TestConstants.ARRAY_ALIAS_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysisImpl pa = (PointerAnalysisImpl) builder.getPointerAnalysis();
+
+    HeapGraph<InstanceKey> basic = new BasicHeapGraph<>(pa, cg);
+    CompactHeapGraph compact = new CompactHeapGraph(pa);
+
+    assertThat(compact.getNumberOfNodes()).isEqualTo(basic.getNumberOfNodes());
+    for (Object n : basic) {
+      assertThat(compact.getNode(compact.getNumber(n))).isSameAs(n);
+      assertThat(Iterator2Collection.toSet(compact.getSuccNodes(n)))
+          .isEqualTo(Iterator2Collection.toSet(basic.getSuccNodes(n)));
+      assertThat(Iterator2Collection.toSet(compact.getPredNodes(n)))
+          .isEqualTo(Iterator2Collection.toSet(basic.getPredNodes(n)));
+    }
+
+    Set<Object> roots = HashSetFactory.make();
+    for (CGNode n : cg.getEntrypointNodes()) {
+      roots.add(pa.getHeapModel().getPointerKeyForLocal(n, 1));
+    }
+    Set<Object> expected = HashSetFactory.make();
+    for (Object n : DFS.getReachableNodes(basic, roots)) {
+      if (n instanceof InstanceKey) {
+        expected.add(n);
+      }
+    }
+    assertThat(expected).isNotEmpty();
+    assertThat(HashSetFactory.make(compact.getTransitivelyReachableInstances(roots)))
+        .isEqualTo(expected);
+    assertThat(HashSetFactory.make(compact.getReachableInstances(roots)))
+        .isEqualTo(HashSetFactory.make(basic.getReachableInstances(roots)));
+  }
+}
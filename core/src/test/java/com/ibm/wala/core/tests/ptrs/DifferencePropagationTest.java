@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.classLoader.JavaLanguage;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that propagating only newly added instance keys computes the same points-to sets as
+ * propagating whole sets.
+ */
+public class DifferencePropagationTest extends WalaTestCase {
+
+  @Test
+  public void testPiNodeFilters()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    assertSamePointsToSets(TestConstants.PI_TEST_MAIN);
+  }
+
+  @Test
+  public void testCasts()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    assertSamePointsToSets(TestConstants.SLICE_TEST_THIN1);
+  }
+
+  private static void assertSamePointsToSets(String mainClass)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    Map<String, Set<String>> withDifferences = applicationPointsToSets(mainClass, true);
+    assertThat(withDifferences).isNotEmpty();
+    assertThat(withDifferences).isEqualTo(applicationPointsToSets(mainClass, false));
+  }
+
+  /**
+   * Points-to sets of the locals of application methods, keyed by string so that the results of
+   * separate analyses can be compared.
+   */
+  private static Map<String, Set<String>> applicationPointsToSets(
+      String mainClass, boolean differencePropagation)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, mainClass);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.getSSAOptions().setPiNodePolicy(SSAOptions.getAllBuiltInPiNodes());
+    options.setUseDifferencePropagation(differencePropagation);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(
+            JavaLanguage.get(),
+            options,
+            new AnalysisCacheImpl(new DefaultIRFactory(), options.getSSAOptions()),
+            cha);
+    builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    Map<String, Set<String>> result = new HashMap<>();
+    for (PointerKey key : pa.getPointerKeys()) {
+      if (key instanceof LocalPointerKey
+          && ((LocalPointerKey) key)
+              .getNode()
+              .getMethod()
+              .getDeclaringClass()
+              .getClassLoader()
+              .getReference()
+              .equals(ClassLoaderReference.Application)) {
+        Set<String> instances = new TreeSet<>();
+        for (InstanceKey instance : pa.getPointsToSet(key)) {
+          instances.add(instance.toString());
+        }
+        result.put(key.toString(), instances);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.JavaLanguage;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.demandpa.TestInfo;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKeyWithFilter;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.SSAPiInstruction;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that the points-to sets of locals defined by type tests and casts are exactly the sets of
+ * their operands restricted to the tested types, or for the failing branch of a type test, to all
+ * other types.
+ */
+public class TypeFilterTest extends WalaTestCase {
+
+  @Test
+  public void testInstanceofBranches()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    Counts counts = checkFilteredPointsToSets(TestConstants.PI_TEST_MAIN);
+    assertThat(counts.filtered).isPositive();
+    assertThat(counts.inverse).isPositive();
+  }
+
+  @Test
+  public void testInstanceofAndCast()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    Counts counts = checkFilteredPointsToSets(TestInfo.TEST_COND);
+    assertThat(counts.filtered).isPositive();
+    assertThat(counts.casts).isPositive();
+  }
+
+  private static final class Counts {
+    private int filtered;
+
+    private int inverse;
+
+    private int casts;
+  }
+
+  private static Counts checkFilteredPointsToSets(String mainClass)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, mainClass);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.getSSAOptions().setPiNodePolicy(SSAOptions.getAllBuiltInPiNodes());
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(
+            JavaLanguage.get(),
+            options,
+            new AnalysisCacheImpl(new DefaultIRFactory(), options.getSSAOptions()),
+            cha);
+    builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    Counts counts = new Counts();
+    for (PointerKey key : pa.getPointerKeys()) {
+      if (!(key instanceof LocalPointerKeyWithFilter filteredKey)) {
+        continue;
+      }
+      CGNode node = filteredKey.getNode();
+      if (!node.getMethod()
+          .getDeclaringClass()
+          .getClassLoader()
+          .getReference()
+          .equals(ClassLoaderReference.Application)) {
+        continue;
+      }
+      SSAInstruction def = node.getDU().getDef(filteredKey.getValueNumber());
+      Set<InstanceKey> actual = toSet(pa.getPointsToSet(filteredKey));
+      if (def instanceof SSAPiInstruction pi
+          && filteredKey.getTypeFilter() instanceof FilteredPointerKey.SingleClassFilter filter) {
+        PointerKey source = pa.getHeapModel().getPointerKeyForLocal(node, pi.getVal());
+        IClass[] types = {filter.concreteType()};
+        Set<InstanceKey> passing = restrict(cha, pa.getPointsToSet(source), types, true);
+        Set<InstanceKey> failing = restrict(cha, pa.getPointsToSet(source), types, false);
+        assertThat(actual).as(key.toString()).isIn(passing, failing);
+        if (!actual.isEmpty() && actual.equals(passing)) {
+          counts.filtered++;
+        } else if (!actual.isEmpty()) {
+          counts.inverse++;
+        }
+      } else if (def instanceof SSACheckCastInstruction cast
+          && filteredKey.getTypeFilter()
+              instanceof FilteredPointerKey.MultipleClassesFilter filter) {
+        PointerKey source = pa.getHeapModel().getPointerKeyForLocal(node, cast.getVal());
+        assertThat(actual)
+            .as(key.toString())
+            .isEqualTo(restrict(cha, pa.getPointsToSet(source), filter.getConcreteTypes(), true));
+        if (!actual.isEmpty()) {
+          counts.casts++;
+        }
+      }
+    }
+    return counts;
+  }
+
+  private static Set<InstanceKey> toSet(Iterable<InstanceKey> instances) {
+    Set<InstanceKey> result = new HashSet<>();
+    instances.forEach(result::add);
+    return result;
+  }
+
+  /**
+   * @return the instances whose concrete type is assignable to one of types if assignable is true,
+   *     or to none of them otherwise
+   */
+  private static Set<InstanceKey> restrict(
+      IClassHierarchy cha, Iterable<InstanceKey> instances, IClass[] types, boolean assignable) {
+    Set<InstanceKey> result = new HashSet<>();
+    for (InstanceKey instance : instances) {
+      boolean any = false;
+      for (IClass type : types) {
+        any |= cha.isAssignableFrom(type, instance.concreteType());
+      }
+      if (any == assignable) {
+        result.add(instance);
+      }
+    }
+    return result;
+  }
+}
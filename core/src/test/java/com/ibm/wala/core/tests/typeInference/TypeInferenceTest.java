@@ -18,6 +18,7 @@ import com.ibm.wala.analysis.typeInference.TypeInference;
 import com.ibm.wala.classLoader.ClassLoaderFactory;
 import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
 import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.tests.util.WalaTestCase;
 import com.ibm.wala.core.util.config.AnalysisScopeReader;
@@ -26,16 +27,23 @@ import com.ibm.wala.core.util.strings.Atom;
 import com.ibm.wala.core.util.strings.ImmutableByteArray;
 import com.ibm.wala.core.util.strings.UTF8Convert;
 import com.ibm.wala.core.util.warnings.Warnings;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.Util;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.CancelException;
+import java.util.Map;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -169,4 +177,46 @@ public class TypeInferenceTest extends WalaTestCase {
         .extracting(coneType -> coneType.getTypeReference().getName())
         .hasToString("Ljava/lang/String");
   }
+
+  @Test
+  public void testCachedTypeInference() {
+    MethodReference method =
+        scope.findMethod(
+            AnalysisScope.APPLICATION,
+            "LtypeInference/TI",
+            Atom.findOrCreateUnicodeAtom("inferInt"),
+            new ImmutableByteArray(UTF8Convert.toUTF8("()V")));
+    IMethod imethod = cha.resolveMethod(method);
+    AnalysisCache analysisCache = new AnalysisCacheImpl();
+    IR ir = analysisCache.getIR(imethod);
+
+    TypeInference ti = analysisCache.getTypeInference(ir, true);
+    assertThat(analysisCache.getTypeInference(ir, true)).isSameAs(ti);
+    assertThat(analysisCache.getTypeInference(ir, false)).isNotSameAs(ti);
+    assertThat(ti.extractAllResults())
+        .containsExactly(TypeInference.make(ir, true).extractAllResults());
+    assertThat(ti.getType(7)).hasToString("int");
+  }
+
+  @Test
+  public void testCallGraphTypeInference() throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.HELLO_MAIN);
+    AnalysisOptions cgOptions = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    AnalysisCache analysisCache = new AnalysisCacheImpl();
+    CallGraph cg = CallGraphTestUtil.buildZeroCFA(cgOptions, analysisCache, cha, false);
+    // enough nodes for the inference to run concurrently
+    assertThat(cg.getNumberOfNodes()).isGreaterThanOrEqualTo(64);
+
+    Map<CGNode, TypeInference> inferred = analysisCache.getTypeInference(cg, true);
+    for (CGNode node : cg) {
+      IR ir = node.getIR();
+      if (ir == null) {
+        assertThat(inferred).doesNotContainKey(node);
+      } else {
+        assertThat(inferred.get(node).extractAllResults())
+            .as(node.toString())
+            .containsExactly(TypeInference.make(ir, true).extractAllResults());
+      }
+    }
+  }
 }
@@ -36,6 +36,7 @@ import com.ibm.wala.ipa.callgraph.impl.Util;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.cfg.BasicBlockInContext;
 import com.ibm.wala.ipa.cfg.ExplodedInterproceduralCFG;
+import com.ibm.wala.ipa.cfg.NumberedExplodedInterproceduralCFG;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
@@ -46,6 +47,7 @@ import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.config.PatternsFilter;
 import com.ibm.wala.util.intset.IntIterator;
@@ -233,4 +235,29 @@ public class DataflowTest extends WalaTestCase {
               assertThat(applicationDefs).hasSize(1);
             });
   }
+
+  @Test
+  public void testNumberedICFGMatchesExploded() throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(cha, "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(JavaLanguage.get(), options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    ExplodedInterproceduralCFG expected = ExplodedInterproceduralCFG.make(cg);
+    NumberedExplodedInterproceduralCFG actual = NumberedExplodedInterproceduralCFG.make(cg);
+    assertThat(actual.getNumberOfNodes()).isEqualTo(expected.getNumberOfNodes());
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : expected) {
+      assertThat(actual.getNode(actual.getNumber(bb))).isEqualTo(bb);
+      assertThat(actual.hasCall(bb)).isEqualTo(expected.hasCall(bb));
+      assertThat(Iterator2Collection.toSet(actual.getSuccNodes(bb)))
+          .isEqualTo(Iterator2Collection.toSet(expected.getSuccNodes(bb)));
+      assertThat(Iterator2Collection.toSet(actual.getPredNodes(bb)))
+          .isEqualTo(Iterator2Collection.toSet(expected.getPredNodes(bb)));
+      expected
+          .getSuccNodes(bb)
+          .forEachRemaining(succ -> assertThat(actual.hasEdge(bb, succ)).isTrue());
+    }
+  }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.base.Defaults;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallString;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContext;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.types.MethodReference;
+import java.lang.reflect.Proxy;
+import org.junit.jupiter.api.Test;
+
+public class ContextInternerTest {
+
+  private static final IMethod CALLER =
+      (IMethod)
+          Proxy.newProxyInstance(
+              ContextInternerTest.class.getClassLoader(),
+              new Class<?>[] {IMethod.class},
+              (proxy, m, args) ->
+                  switch (m.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> Defaults.defaultValue(m.getReturnType());
+                  });
+
+  private static Context callStringContext(int pc) {
+    CallSiteReference site =
+        CallSiteReference.make(
+            pc, MethodReference.JavaLangClassNewInstance, IInvokeInstruction.Dispatch.VIRTUAL);
+    return new CallStringContext(new CallString(site, CALLER));
+  }
+
+  @Test
+  public void testEqualContextsShareInstanceAndId() {
+    ContextInterner interner = new ContextInterner();
+    Context first = interner.intern(callStringContext(1));
+    Context second = callStringContext(2);
+    Context again = callStringContext(1);
+
+    assertThat(interner.intern(again)).isSameAs(first);
+    assertThat(interner.getId(again)).isEqualTo(interner.getId(first));
+    assertThat(interner.findId(second)).isEqualTo(-1);
+    assertThat(interner.intern(second)).isSameAs(second);
+    assertThat(interner.getId(second)).isNotEqualTo(interner.getId(first));
+    assertThat(interner.size()).isEqualTo(2);
+    assertThat(interner.getContext(interner.getId(again))).isSameAs(first);
+  }
+}
@@ -24,9 +24,11 @@ import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.INodeWithNumber;
+import com.ibm.wala.util.perf.AnalysisListener;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import org.jspecify.annotations.Nullable;
 
 /**
  * Represents a set of {@link IFixedPointStatement}s to be solved by a {@link IFixedPointSolver}
@@ -94,6 +96,12 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   /** A boolean which is initially true, but set to false after the first call to solve(); */
   private boolean firstSolve = true;
 
+  /** receives progress every {@link #getVerboseInterval()} evaluations, if set */
+  private @Nullable AnalysisListener listener;
+
+  /** when this solver was created, for reporting progress */
+  private final long startTime = System.nanoTime();
+
   protected abstract T[] makeStmtRHS(int size);
 
   /** Some setup which occurs only before the first solve */
@@ -139,7 +147,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
         System.err.println(("Before evaluation " + s));
       }
       byte code = s.evaluate();
-      nEvaluated++;
+      countEvaluation();
       if (verbose) {
         if (nEvaluated % getVerboseInterval() == 0) {
           performVerboseAction();
@@ -162,6 +170,37 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     return globalChange;
   }
 
+  /**
+   * Count the evaluation of a statement, and periodically tell the listener, if any. Subclasses
+   * that evaluate statements outside of {@link #solve} should call this for each of them.
+   */
+  protected void countEvaluation() {
+    nEvaluated++;
+    if (listener != null && nEvaluated % getVerboseInterval() == 0) {
+      reportProgress();
+    }
+  }
+
+  /** Set a listener to be told of the solver's progress periodically, or null for none. */
+  public void setListener(@Nullable AnalysisListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * @return how many statements have been created and evaluated so far, and how many are waiting
+   */
+  public AnalysisListener.SolverProgress getProgress() {
+    return new AnalysisListener.SolverProgress(
+        nEvaluated, nCreated, workList.size(), System.nanoTime() - startTime);
+  }
+
+  /** Tell the listener, if any, how many statements have been evaluated so far. */
+  public void reportProgress() {
+    if (listener != null) {
+      listener.solverProgress(getProgress());
+    }
+  }
+
   @Override
   public void performVerboseAction() {
     System.err.println("Evaluated " + nEvaluated);
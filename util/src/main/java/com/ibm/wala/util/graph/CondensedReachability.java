@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Reachability over a {@link NumberedGraph}, computed on its condensation.
+ *
+ * <p>The constructor collapses each strongly connected component into a single vertex, using an
+ * iterative version of Tarjan's algorithm over node numbers. Components are numbered in reverse
+ * topological order, so every edge of the condensed DAG goes from a higher component number to a
+ * lower one. All per-node and per-component state is held in int arrays.
+ *
+ * <p>Two modes of use are supported:
+ *
+ * <ul>
+ *   <li>{@link #closure(Function, IProgressMonitor)} materializes, for every component, the union
+ *       of some per-node "gen" set over all nodes reachable from it. Components are processed in
+ *       topological waves: all components in a wave depend only on earlier waves, so each wave is
+ *       computed in parallel.
+ *   <li>{@link #isReachable(Object, Object)} and {@link #getReachableNodeNumbers(Object)} answer
+ *       single queries by searching the condensed DAG, without materializing the closure.
+ * </ul>
+ *
+ * <p>As in {@link GraphReachability}, every node is considered reachable from itself.
+ */
+public class CondensedReachability<T> {
+
+  /** waves smaller than this are processed sequentially */
+  private static final int PARALLEL_THRESHOLD = 64;
+
+  private static final int NONE = -1;
+
+  /** Governing graph */
+  private final NumberedGraph<T> g;
+
+  /** component number of each node, indexed by node number */
+  private final int[] component;
+
+  /** number of strongly connected components */
+  private final int componentCount;
+
+  /** members of component c are memberNodes[memberOffsets[c] .. memberOffsets[c+1]) */
+  private final int[] memberOffsets;
+
+  private final int[] memberNodes;
+
+  /** successors of component c are dagSuccs[dagOffsets[c] .. dagOffsets[c+1]) */
+  private final int[] dagOffsets;
+
+  private final int[] dagSuccs;
+
+  /** components of wave w are waveComponents[waveOffsets[w] .. waveOffsets[w+1]) */
+  private final int[] waveOffsets;
+
+  private final int[] waveComponents;
+
+  /**
+   * @param g graph to analyze
+   * @throws IllegalArgumentException if g is null
+   */
+  public CondensedReachability(NumberedGraph<T> g) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    this.g = g;
+    int maxNumber = g.getMaxNumber() + 1;
+    this.component = new int[maxNumber];
+    Arrays.fill(component, NONE);
+    this.componentCount = computeComponents();
+
+    // group node numbers by component
+    this.memberOffsets = new int[componentCount + 1];
+    for (int n = 0; n < maxNumber; n++) {
+      if (component[n] != NONE) {
+        memberOffsets[component[n] + 1]++;
+      }
+    }
+    for (int c = 0; c < componentCount; c++) {
+      memberOffsets[c + 1] += memberOffsets[c];
+    }
+    this.memberNodes = new int[memberOffsets[componentCount]];
+    int[] fill = Arrays.copyOf(memberOffsets, componentCount);
+    for (int n = 0; n < maxNumber; n++) {
+      if (component[n] != NONE) {
+        memberNodes[fill[component[n]]++] = n;
+      }
+    }
+
+    // condensed DAG edges, without duplicates, and the height of each component above the sinks
+    this.dagOffsets = new int[componentCount + 1];
+    int[] succs = new int[Math.max(16, componentCount)];
+    int edgeCount = 0;
+    int[] lastSource = new int[componentCount];
+    Arrays.fill(lastSource, NONE);
+    int[] height = new int[componentCount];
+    int maxHeight = 0;
+    for (int c = 0; c < componentCount; c++) {
+      dagOffsets[c] = edgeCount;
+      for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+        for (Iterator<? extends T> it = g.getSuccNodes(g.getNode(memberNodes[i])); it.hasNext(); ) {
+          int d = component[g.getNumber(it.next())];
+          if (d != c && lastSource[d] != c) {
+            lastSource[d] = c;
+            if (edgeCount == succs.length) {
+              succs = Arrays.copyOf(succs, 2 * succs.length);
+            }
+            succs[edgeCount++] = d;
+            height[c] = Math.max(height[c], height[d] + 1);
+          }
+        }
+      }
+      maxHeight = Math.max(maxHeight, height[c]);
+    }
+    dagOffsets[componentCount] = edgeCount;
+    this.dagSuccs = Arrays.copyOf(succs, edgeCount);
+
+    // group components into waves by height
+    this.waveOffsets = new int[maxHeight + 2];
+    for (int c = 0; c < componentCount; c++) {
+      waveOffsets[height[c] + 1]++;
+    }
+    for (int w = 0; w <= maxHeight; w++) {
+      waveOffsets[w + 1] += waveOffsets[w];
+    }
+    this.waveComponents = new int[componentCount];
+    fill = Arrays.copyOf(waveOffsets, maxHeight + 1);
+    for (int c = 0; c < componentCount; c++) {
+      waveComponents[fill[height[c]]++] = c;
+    }
+  }
+
+  /**
+   * Tarjan's algorithm, with explicit stacks in place of recursion.
+   *
+   * @return the number of components found
+   */
+  private int computeComponents() {
+    int maxNumber = component.length;
+    int[] index = new int[maxNumber];
+    Arrays.fill(index, NONE);
+    int[] lowlink = new int[maxNumber];
+    int[] sccStack = new int[maxNumber];
+    int sccTop = 0;
+    int[] callStack = new int[maxNumber];
+    @SuppressWarnings("unchecked")
+    Iterator<? extends T>[] succs = (Iterator<? extends T>[]) new Iterator<?>[maxNumber];
+    int nextIndex = 0;
+    int count = 0;
+
+    for (T root : g) {
+      int r = g.getNumber(root);
+      if (index[r] != NONE) {
+        continue;
+      }
+      int callTop = 0;
+      index[r] = lowlink[r] = nextIndex++;
+      sccStack[sccTop++] = r;
+      callStack[callTop++] = r;
+      succs[r] = g.getSuccNodes(root);
+      while (callTop > 0) {
+        int v = callStack[callTop - 1];
+        Iterator<? extends T> it = succs[v];
+        if (it.hasNext()) {
+          T next = it.next();
+          int w = g.getNumber(next);
+          if (index[w] == NONE) {
+            index[w] = lowlink[w] = nextIndex++;
+            sccStack[sccTop++] = w;
+            callStack[callTop++] = w;
+            succs[w] = g.getSuccNodes(next);
+          } else if (component[w] == NONE) {
+            // w is still on the SCC stack
+            lowlink[v] = Math.min(lowlink[v], index[w]);
+          }
+        } else {
+          callTop--;
+          if (callTop > 0) {
+            int parent = callStack[callTop - 1];
+            lowlink[parent] = Math.min(lowlink[parent], lowlink[v]);
+          }
+          if (lowlink[v] == index[v]) {
+            int w;
+            do {
+              w = sccStack[--sccTop];
+              component[w] = count;
+            } while (w != v);
+            count++;
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the number of strongly connected components of the graph
+   */
+  public int getNumberOfComponents() {
+    return componentCount;
+  }
+
+  /**
+   * @return the component containing n. If m is reachable from n, then the component of m is no
+   *     greater than the component of n.
+   * @throws IllegalArgumentException if n is not in the graph
+   */
+  public int getComponent(T n) {
+    int number = g.getNumber(n);
+    if (number < 0 || number >= component.length || component[number] == NONE) {
+      throw new IllegalArgumentException(n + " is not in graph");
+    }
+    return component[number];
+  }
+
+  /**
+   * For every component, compute the union of gen(n) over all nodes n reachable from that
+   * component. Components in the same topological wave are processed in parallel, so gen must be
+   * safe to call concurrently.
+   *
+   * @param gen the bits contributed by each node; may return null for nodes contributing nothing
+   * @return the closure for each component, indexed by component number. Each bit vector is shared
+   *     by all nodes of the component and must not be modified.
+   */
+  public BitVector[] closure(
+      Function<? super T, ? extends @Nullable IntSet> gen, IProgressMonitor monitor)
+      throws CancelException {
+    BitVector[] result = new BitVector[componentCount];
+    for (int w = 0; w + 1 < waveOffsets.length; w++) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      IntStream wave = IntStream.range(waveOffsets[w], waveOffsets[w + 1]);
+      if (waveOffsets[w + 1] - waveOffsets[w] >= PARALLEL_THRESHOLD) {
+        wave = wave.parallel();
+      }
+      wave.forEach(
+          i -> {
+            int c = waveComponents[i];
+            BitVector bits = new BitVector();
+            for (int j = memberOffsets[c]; j < memberOffsets[c + 1]; j++) {
+              IntSet nodeBits = gen.apply(g.getNode(memberNodes[j]));
+              if (nodeBits != null) {
+                nodeBits.foreach(bits::set);
+              }
+            }
+            for (int j = dagOffsets[c]; j < dagOffsets[c + 1]; j++) {
+              bits.or(result[dagSuccs[j]]);
+            }
+            result[c] = bits;
+          });
+    }
+    return result;
+  }
+
+  /**
+   * Decide whether dst is reachable from src by searching the condensed DAG. Components numbered
+   * below that of dst cannot lead to it, so they are pruned from the search.
+   */
+  public boolean isReachable(T src, T dst) {
+    int from = getComponent(src);
+    int to = getComponent(dst);
+    if (from == to) {
+      return true;
+    } else if (from < to) {
+      return false;
+    }
+    BitVector visited = new BitVector(componentCount);
+    int[] stack = new int[componentCount];
+    int top = 0;
+    stack[top++] = from;
+    visited.set(from);
+    while (top > 0) {
+      int c = stack[--top];
+      for (int j = dagOffsets[c]; j < dagOffsets[c + 1]; j++) {
+        int d = dagSuccs[j];
+        if (d == to) {
+          return true;
+        } else if (d > to && !visited.get(d)) {
+          visited.set(d);
+          stack[top++] = d;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the numbers of all nodes reachable from src, computed on demand without materializing
+   *     the closure of any other node
+   */
+  public IntSet getReachableNodeNumbers(T src) {
+    BitVector visited = new BitVector(componentCount);
+    int[] stack = new int[componentCount];
+    int top = 0;
+    int from = getComponent(src);
+    stack[top++] = from;
+    visited.set(from);
+    BitVectorIntSet result = new BitVectorIntSet();
+    while (top > 0) {
+      int c = stack[--top];
+      for (int j = memberOffsets[c]; j < memberOffsets[c + 1]; j++) {
+        result.add(memberNodes[j]);
+      }
+      for (int j = dagOffsets[c]; j < dagOffsets[c + 1]; j++) {
+        int d = dagSuccs[j];
+        if (!visited.get(d)) {
+          visited.set(d);
+          stack[top++] = d;
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -26,9 +26,13 @@ import com.ibm.wala.util.collections.FilterIterator;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.impl.GraphInverter;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.intset.OrdinalSetMapping;
+import com.ibm.wala.util.intset.SparseIntSet;
 import java.util.Iterator;
 import java.util.function.Predicate;
 import org.jspecify.annotations.NullUnmarked;
@@ -37,6 +41,9 @@ import org.jspecify.annotations.Nullable;
 /**
  * A dataflow system that computes, for each graph node, the set of "interesting" nodes that are
  * reachable
+ *
+ * <p>For a {@link NumberedGraph}, the system is solved on the graph's condensation with {@link
+ * CondensedReachability}, so that all nodes of a strongly connected component share one set.
  */
 public class GraphReachability<T, S> {
 
@@ -46,6 +53,12 @@ public class GraphReachability<T, S> {
   /** Killdall-style dataflow solver */
   private @Nullable DataflowSolver<T, BitVectorVariable> solver;
 
+  /** condensation of g, used in place of the solver when g is a {@link NumberedGraph} */
+  private @Nullable CondensedReachability<T> condensed;
+
+  /** reachable sets for each component of {@link #condensed} */
+  private IntSet @Nullable [] componentSets;
+
   /** set of "interesting" CGNodes */
   final OrdinalSetMapping<S> domain;
 
@@ -66,7 +79,11 @@ public class GraphReachability<T, S> {
   /**
    * @return the set of interesting nodes reachable from n
    */
+  @SuppressWarnings("unchecked")
   public OrdinalSet<S> getReachableSet(Object n) throws IllegalStateException {
+    if (condensed != null && componentSets != null) {
+      return new OrdinalSet<>(componentSets[condensed.getComponent((T) n)], domain);
+    }
     if (solver == null) {
       throw new IllegalStateException("must call solve() before calling getReachableSet()");
     }
@@ -83,6 +100,23 @@ public class GraphReachability<T, S> {
    * @return true iff the evaluation of some equation caused a change in the value of some variable.
    */
   public boolean solve(IProgressMonitor monitor) throws CancelException {
+    if (g instanceof NumberedGraph<T> ng) {
+      CondensedReachability<T> reach = new CondensedReachability<>(ng);
+      BitVector[] closure =
+          reach.closure(
+              n -> {
+                int index = domain.getMappedIndex(n);
+                return index > -1 ? SparseIntSet.singleton(index) : null;
+              },
+              monitor);
+      IntSet[] sets = new IntSet[closure.length];
+      for (int c = 0; c < closure.length; c++) {
+        sets[c] = new BitVectorIntSet(closure[c]);
+      }
+      condensed = reach;
+      componentSets = sets;
+      return closure.length > 0;
+    }
 
     ITransferFunctionProvider<T, BitVectorVariable> functions =
         new ITransferFunctionProvider<>() {
@@ -72,7 +72,7 @@ public abstract class Dominators<T> {
 
   public static <T> Dominators<T> make(Graph<T> G, T root) {
     if (G instanceof NumberedGraph<T> ts) {
-      return new NumberedDominators<>(ts, root);
+      return new SemiNCADominators<>(ts, root);
     } else {
       return new GenericDominators<>(G, root);
     }
@@ -466,6 +466,14 @@ public abstract class Dominators<T> {
       size = 1;
       child = null;
     }
+
+    /** Record the final state of a node whose dominators were computed some other way. */
+    DominatorInfo(T node, @Nullable T parent, @Nullable T dominator, int semiDominator) {
+      this(node);
+      this.parent = parent;
+      this.dominator = dominator;
+      this.semiDominator = semiDominator;
+    }
   }
 
   /*
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph.impl;
+
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.INodeWithNumber;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable {@link NumberedGraph} whose edges are stored in compressed sparse row (CSR) form:
+ * the successors of the node numbered n are {@code succs[succOffsets[n] .. succOffsets[n+1])}, and
+ * likewise for predecessors. Each edge therefore costs two ints, and traversals walk contiguous
+ * arrays instead of per-node sets.
+ *
+ * <p>Use {@link #freeze(NumberedGraph)} to convert a graph that has finished growing. Node numbers
+ * are preserved, so numbers obtained from the original graph remain valid. All mutators throw
+ * {@link UnsupportedOperationException}.
+ */
+public class CompactNumberedGraph<T> extends AbstractNumberedGraph<T> {
+
+  private final Nodes<T> nodeManager;
+
+  private final Edges<T> edgeManager;
+
+  private CompactNumberedGraph(Nodes<T> nodeManager, Edges<T> edgeManager) {
+    this.nodeManager = nodeManager;
+    this.edgeManager = edgeManager;
+  }
+
+  /**
+   * Build an immutable CSR copy of g. Later changes to g are not reflected in the copy.
+   *
+   * @throws IllegalArgumentException if g is null
+   */
+  public static <T> CompactNumberedGraph<T> freeze(NumberedGraph<T> g) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    if (g instanceof CompactNumberedGraph<T> compact) {
+      return compact;
+    }
+    int size = g.getMaxNumber() + 1;
+    Object[] nodes = new Object[size];
+    int count = 0;
+    boolean selfNumbered = true;
+    for (T n : g) {
+      int number = g.getNumber(n);
+      nodes[number] = n;
+      count++;
+      selfNumbered &= n instanceof INodeWithNumber w && w.getGraphNodeId() == number;
+    }
+
+    // successors, sorted and without duplicates, and in-degrees for the predecessor pass
+    int[] succOffsets = new int[size + 1];
+    int[] succs = new int[Math.max(16, size)];
+    int[] inDegree = new int[size];
+    int edgeCount = 0;
+    for (int n = 0; n < size; n++) {
+      succOffsets[n] = edgeCount;
+      if (nodes[n] == null) {
+        continue;
+      }
+      @SuppressWarnings("unchecked")
+      T node = (T) nodes[n];
+      for (Iterator<? extends T> it = g.getSuccNodes(node); it.hasNext(); ) {
+        if (edgeCount == succs.length) {
+          succs = Arrays.copyOf(succs, 2 * succs.length);
+        }
+        succs[edgeCount++] = g.getNumber(it.next());
+      }
+      Arrays.sort(succs, succOffsets[n], edgeCount);
+      int end = succOffsets[n];
+      for (int i = succOffsets[n]; i < edgeCount; i++) {
+        if (i == succOffsets[n] || succs[i] != succs[end - 1]) {
+          succs[end++] = succs[i];
+          inDegree[succs[i]]++;
+        }
+      }
+      edgeCount = end;
+    }
+    succOffsets[size] = edgeCount;
+    succs = Arrays.copyOf(succs, edgeCount);
+
+    // predecessors, by transposing the successor arrays; sources are visited in increasing order,
+    // so each predecessor list comes out sorted
+    int[] predOffsets = new int[size + 1];
+    for (int n = 0; n < size; n++) {
+      predOffsets[n + 1] = predOffsets[n] + inDegree[n];
+    }
+    int[] preds = new int[edgeCount];
+    int[] fill = Arrays.copyOf(predOffsets, size);
+    for (int n = 0; n < size; n++) {
+      for (int i = succOffsets[n]; i < succOffsets[n + 1]; i++) {
+        preds[fill[succs[i]]++] = n;
+      }
+    }
+
+    Nodes<T> nodeManager =
+        new Nodes<>(nodes, count, selfNumbered ? null : Nodes.index(nodes, count));
+    return new CompactNumberedGraph<>(
+        nodeManager, new Edges<>(nodeManager, succOffsets, succs, predOffsets, preds));
+  }
+
+  @Override
+  protected NumberedNodeManager<T> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<T> getEdgeManager() {
+    return edgeManager;
+  }
+
+  /**
+   * Nodes, indexed by their number in the original graph. A node's number is found from its {@link
+   * INodeWithNumber#getGraphNodeId()} when every node carries its own number, and otherwise from an
+   * open-addressing table of node numbers probed by hash code, so no per-node objects are needed.
+   */
+  private static final class Nodes<T> implements NumberedNodeManager<T> {
+
+    private static final int EMPTY = -1;
+
+    private final @Nullable Object[] nodes;
+
+    private final int count;
+
+    /** node numbers by hash code, or null if the nodes carry their numbers */
+    private final int @Nullable [] index;
+
+    Nodes(@Nullable Object[] nodes, int count, int @Nullable [] index) {
+      this.nodes = nodes;
+      this.count = count;
+      this.index = index;
+    }
+
+    /**
+     * @return a table of at least twice as many slots as there are nodes, with the number of each
+     *     node in the first free slot at or after its hash code
+     */
+    static int[] index(@Nullable Object[] nodes, int count) {
+      int[] index = new int[Integer.highestOneBit(Math.max(1, count)) << 2];
+      Arrays.fill(index, EMPTY);
+      for (int n = 0; n < nodes.length; n++) {
+        Object node = nodes[n];
+        if (node != null) {
+          int slot = slot(node, index.length);
+          while (index[slot] != EMPTY) {
+            slot = (slot + 1) & (index.length - 1);
+          }
+          index[slot] = n;
+        }
+      }
+      return index;
+    }
+
+    private static int slot(Object node, int length) {
+      int h = node.hashCode() * 0x9E3779B9;
+      return (h ^ (h >>> 16)) & (length - 1);
+    }
+
+    @Override
+    public int getNumber(@Nullable T N) {
+      if (N == null) {
+        return -1;
+      }
+      if (index == null) {
+        if (N instanceof INodeWithNumber w) {
+          int number = w.getGraphNodeId();
+          if (number >= 0 && number < nodes.length && N.equals(nodes[number])) {
+            return number;
+          }
+        }
+        return -1;
+      }
+      for (int slot = slot(N, index.length);
+          index[slot] != EMPTY;
+          slot = (slot + 1) & (index.length - 1)) {
+        if (N.equals(nodes[index[slot]])) {
+          return index[slot];
+        }
+      }
+      return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T getNode(int number) {
+      T node = (T) nodes[number];
+      if (node == null) {
+        throw new IllegalArgumentException("no node numbered " + number);
+      }
+      return node;
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nodes.length - 1;
+    }
+
+    @Override
+    public Iterator<T> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<>(s, this);
+    }
+
+    @Override
+    public Stream<T> stream() {
+      return IntStream.range(0, nodes.length).filter(i -> nodes[i] != null).mapToObj(this::getNode);
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return count;
+    }
+
+    @Override
+    public boolean containsNode(@Nullable T n) {
+      return getNumber(n) != -1;
+    }
+
+    @Override
+    public void addNode(T n) {
+      throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public void removeNode(T n) {
+      throw new UnsupportedOperationException("graph is frozen");
+    }
+  }
+
+  /** Edges in CSR form, one pair of offset and target arrays for each direction. */
+  private static final class Edges<T> implements NumberedEdgeManager<T> {
+
+    private final Nodes<T> nodes;
+
+    private final int[] succOffsets;
+
+    private final int[] succs;
+
+    private final int[] predOffsets;
+
+    private final int[] preds;
+
+    Edges(Nodes<T> nodes, int[] succOffsets, int[] succs, int[] predOffsets, int[] preds) {
+      this.nodes = nodes;
+      this.succOffsets = succOffsets;
+      this.succs = succs;
+      this.predOffsets = predOffsets;
+      this.preds = preds;
+    }
+
+    private int numberOf(@Nullable T n) {
+      int number = nodes.getNumber(n);
+      if (number == -1) {
+        throw new IllegalArgumentException("node not in graph: " + n);
+      }
+      return number;
+    }
+
+    private Iterator<T> iterate(int[] targets, int from, int to) {
+      return new Iterator<>() {
+        private int next = from;
+
+        @Override
+        public boolean hasNext() {
+          return next < to;
+        }
+
+        @Override
+        public T next() {
+          if (next >= to) {
+            throw new NoSuchElementException();
+          }
+          return nodes.getNode(targets[next++]);
+        }
+      };
+    }
+
+    private static IntSet toIntSet(int[] targets, int from, int to) {
+      MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+      for (int i = from; i < to; i++) {
+        result.add(targets[i]);
+      }
+      return result;
+    }
+
+    @Override
+    public Iterator<T> getSuccNodes(@Nullable T n) {
+      int number = numberOf(n);
+      return iterate(succs, succOffsets[number], succOffsets[number + 1]);
+    }
+
+    @Override
+    public int getSuccNodeCount(T n) {
+      int number = numberOf(n);
+      return succOffsets[number + 1] - succOffsets[number];
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(@Nullable T node) {
+      int number = numberOf(node);
+      return toIntSet(succs, succOffsets[number], succOffsets[number + 1]);
+    }
+
+    @Override
+    public Iterator<T> getPredNodes(@Nullable T n) {
+      int number = numberOf(n);
+      return iterate(preds, predOffsets[number], predOffsets[number + 1]);
+    }
+
+    @Override
+    public int getPredNodeCount(T n) {
+      int number = numberOf(n);
+      return predOffsets[number + 1] - predOffsets[number];
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(@Nullable T node) {
+      int number = numberOf(node);
+      return toIntSet(preds, predOffsets[number], predOffsets[number + 1]);
+    }
+
+    @Override
+    public boolean hasEdge(@Nullable T src, @Nullable T dst) {
+      int s = nodes.getNumber(src);
+      int d = nodes.getNumber(dst);
+      return s != -1
+          && d != -1
+          && Arrays.binarySearch(succs, succOffsets[s], succOffsets[s + 1], d) >= 0;
+    }
+
+    @Override
+    public void addEdge(T src, T dst) {
+      throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public void removeEdge(T src, T dst) {
+      throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public void removeAllIncidentEdges(T node) {
+      throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public void removeIncomingEdges(T node) {
+      throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public void removeOutgoingEdges(T node) {
+      throw new UnsupportedOperationException("graph is frozen");
+    }
+  }
+}
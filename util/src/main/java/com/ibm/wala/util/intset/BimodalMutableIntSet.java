@@ -40,6 +40,8 @@ public class BimodalMutableIntSet implements MutableIntSet {
       impl = IntSetUtil.makeMutableCopy(set);
     } else if (set instanceof MutableSharedBitVectorIntSet mutableSharedBitVectorIntSet) {
       impl = IntSetUtil.makeMutableCopy(mutableSharedBitVectorIntSet.makeSparseCopy());
+    } else if (set instanceof OffHeapBitVectorIntSet offHeapBitVectorIntSet) {
+      impl = offHeapBitVectorIntSet.toBitVectorIntSet();
     } else {
       Assertions.UNREACHABLE("Unexpected type " + set.getClass());
     }
@@ -351,6 +351,8 @@ public final class BitVectorIntSet implements MutableIntSet {
       return sameValueInternal(sparseIntSet);
     } else if (that instanceof MutableSharedBitVectorIntSet mutableSharedBitVectorIntSet) {
       return sameValue(mutableSharedBitVectorIntSet.makeDenseCopy());
+    } else if (that instanceof OffHeapBitVectorIntSet) {
+      return that.sameValue(this);
     } else {
       return Assertions.UNREACHABLE("unexpected argument type " + that.getClass());
     }
@@ -91,6 +91,8 @@ public class IntSetUtil {
       MutableIntSet pCopy = makeMutableCopy(debuggingMutableIntSet.primaryImpl());
       MutableIntSet sCopy = makeMutableCopy(debuggingMutableIntSet.secondaryImpl());
       return new DebuggingMutableIntSet(pCopy, sCopy);
+    } else if (set instanceof OffHeapBitVectorIntSet offHeapBitVectorIntSet) {
+      return new OffHeapBitVectorIntSet(offHeapBitVectorIntSet.getArena(), offHeapBitVectorIntSet);
     } else if (set instanceof EmptyIntSet) {
       return IntSetUtil.make();
     } else {
@@ -344,6 +344,8 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
       return sameValue(bitVectorIntSet);
     } else if (that instanceof SemiSparseMutableIntSet) {
       return that.sameValue(this);
+    } else if (that instanceof OffHeapBitVectorIntSet) {
+      return that.sameValue(this);
     } else {
       return Assertions.UNREACHABLE("unexpected class " + that.getClass());
     }
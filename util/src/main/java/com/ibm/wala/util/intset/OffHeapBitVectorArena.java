@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A region of direct (off-heap) memory from which {@link OffHeapBitVectorIntSet}s allocate their
+ * words.
+ *
+ * <p>Memory is taken from large direct slabs with a bump pointer, in blocks whose size is a power
+ * of two number of longs. When a set grows, its old block goes onto a free list for its size class
+ * and is reused by later allocations of the same size. Blocks bigger than a slab get a direct
+ * buffer of their own.
+ *
+ * <p>The arena owns all of its memory: closing it drops every slab, so the JVM can release the
+ * native memory once the last set using the arena is unreachable. Sets must not be used after their
+ * arena is closed.
+ */
+public final class OffHeapBitVectorArena implements AutoCloseable {
+
+  /** default slab size, in bytes */
+  public static final int DEFAULT_SLAB_BYTES = 64 << 20;
+
+  private final int slabLongs;
+
+  /** slabs allocated so far; the last one is the one being carved up */
+  private final List<LongBuffer> slabs = new ArrayList<>();
+
+  /** the next free long in the last slab */
+  private int slabTop;
+
+  /** free blocks of 2^k longs, indexed by k */
+  private final List<ArrayDeque<LongBuffer>> freeLists = new ArrayList<>();
+
+  private long reservedBytes = 0;
+
+  private boolean closed = false;
+
+  public OffHeapBitVectorArena() {
+    this(DEFAULT_SLAB_BYTES);
+  }
+
+  /**
+   * @param slabBytes the size of each direct slab, in bytes
+   * @throws IllegalArgumentException if slabBytes is smaller than one long
+   */
+  public OffHeapBitVectorArena(int slabBytes) {
+    if (slabBytes < Long.BYTES) {
+      throw new IllegalArgumentException("invalid slab size: " + slabBytes);
+    }
+    this.slabLongs = slabBytes / Long.BYTES;
+    this.slabTop = slabLongs;
+  }
+
+  /**
+   * @return the size class of a block holding at least longs words
+   */
+  static int sizeClass(int longs) {
+    return longs <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(longs - 1);
+  }
+
+  /**
+   * Allocate a zeroed block of at least the given number of longs.
+   *
+   * @throws IllegalStateException if the arena has been closed
+   */
+  synchronized LongBuffer allocate(int longs) {
+    if (closed) {
+      throw new IllegalStateException("arena is closed");
+    }
+    int k = sizeClass(longs);
+    int size = 1 << k;
+    if (k < freeLists.size() && !freeLists.get(k).isEmpty()) {
+      LongBuffer block = freeLists.get(k).pop();
+      for (int i = 0; i < size; i++) {
+        block.put(i, 0L);
+      }
+      return block;
+    }
+    if (size > slabLongs) {
+      reservedBytes += (long) size * Long.BYTES;
+      return ByteBuffer.allocateDirect(size * Long.BYTES)
+          .order(ByteOrder.nativeOrder())
+          .asLongBuffer();
+    }
+    if (slabTop + size > slabLongs) {
+      slabs.add(
+          ByteBuffer.allocateDirect(slabLongs * Long.BYTES)
+              .order(ByteOrder.nativeOrder())
+              .asLongBuffer());
+      reservedBytes += (long) slabLongs * Long.BYTES;
+      slabTop = 0;
+    }
+    LongBuffer slab = slabs.get(slabs.size() - 1);
+    LongBuffer block = slab.position(slabTop).limit(slabTop + size).slice();
+    slab.clear();
+    slabTop += size;
+    return block;
+  }
+
+  /** Return a block obtained from {@link #allocate(int)}, so that it can be reused. */
+  synchronized void free(LongBuffer block) {
+    if (closed) {
+      return;
+    }
+    int k = sizeClass(block.capacity());
+    while (freeLists.size() <= k) {
+      freeLists.add(new ArrayDeque<>());
+    }
+    freeLists.get(k).push(block);
+  }
+
+  /**
+   * @return the number of bytes of direct memory reserved by this arena
+   */
+  public synchronized long getReservedBytes() {
+    return reservedBytes;
+  }
+
+  /** Release all slabs. Sets allocated from this arena must not be used afterwards. */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    slabs.clear();
+    freeLists.clear();
+    reservedBytes = 0;
+  }
+}
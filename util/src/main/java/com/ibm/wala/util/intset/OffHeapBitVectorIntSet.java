@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.io.Serial;
+import java.nio.LongBuffer;
+import java.util.NoSuchElementException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link MutableIntSet} stored as a bit vector in direct (off-heap) memory taken from an {@link
+ * OffHeapBitVectorArena}. Only a small header object lives on the Java heap, so very large
+ * collections of dense sets, such as points-to sets over millions of instance keys, do not add to
+ * garbage collection work.
+ *
+ * <p>Instances are not thread-safe. Serializing an instance produces an equivalent on-heap {@link
+ * BitVectorIntSet}.
+ */
+public final class OffHeapBitVectorIntSet implements MutableIntSet {
+
+  @Serial private static final long serialVersionUID = -2375285719440224376L;
+
+  private static final int LOG_BITS_PER_WORD = 6;
+
+  private static final int LOW_MASK = 0x3f;
+
+  private final transient OffHeapBitVectorArena arena;
+
+  /** the words of the bit vector; null until the first element is added */
+  private transient @Nullable LongBuffer words;
+
+  /** number of elements, or {@link #UNDEFINED} if it must be recomputed */
+  private transient int populationCount = 0;
+
+  private static final int UNDEFINED = -1;
+
+  public OffHeapBitVectorIntSet(OffHeapBitVectorArena arena) {
+    if (arena == null) {
+      throw new IllegalArgumentException("null arena");
+    }
+    this.arena = arena;
+  }
+
+  public OffHeapBitVectorIntSet(OffHeapBitVectorArena arena, IntSet set) {
+    this(arena);
+    copySet(set);
+  }
+
+  /**
+   * @return the arena from which this set allocates its memory
+   */
+  public OffHeapBitVectorArena getArena() {
+    return arena;
+  }
+
+  private static int subscript(int bit) {
+    return bit >>> LOG_BITS_PER_WORD;
+  }
+
+  private int wordCount() {
+    return words == null ? 0 : words.capacity();
+  }
+
+  private long word(int w) {
+    return words == null || w >= words.capacity() ? 0L : words.get(w);
+  }
+
+  /** Make sure the word containing bit is allocated, and return the words. */
+  private LongBuffer ensureCapacity(int bit) {
+    int needed = subscript(bit) + 1;
+    LongBuffer current = words;
+    if (current != null && current.capacity() >= needed) {
+      return current;
+    }
+    LongBuffer bigger = arena.allocate(needed);
+    if (current != null) {
+      for (int w = 0; w < current.capacity(); w++) {
+        bigger.put(w, current.get(w));
+      }
+      arena.free(current);
+    }
+    words = bigger;
+    return bigger;
+  }
+
+  /** Ensure this set has at least as many words as that one. */
+  private LongBuffer ensureWords(OffHeapBitVectorIntSet that) {
+    int n = that.wordCount();
+    return ensureCapacity(Math.max(0, (n << LOG_BITS_PER_WORD) - 1));
+  }
+
+  @Override
+  public void clear() {
+    LongBuffer current = words;
+    if (current != null) {
+      arena.free(current);
+      words = null;
+    }
+    populationCount = 0;
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    clear();
+    if (set instanceof OffHeapBitVectorIntSet that) {
+      LongBuffer source = that.words;
+      if (source != null) {
+        LongBuffer target = ensureWords(that);
+        for (int w = 0; w < source.capacity(); w++) {
+          target.put(w, source.get(w));
+        }
+      }
+      populationCount = that.populationCount;
+    } else {
+      if (!set.isEmpty()) {
+        ensureCapacity(set.max());
+        set.foreach(this::add);
+      }
+    }
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof OffHeapBitVectorIntSet that) {
+      LongBuffer source = that.words;
+      if (source == null || source == words) {
+        return false;
+      }
+      LongBuffer target = ensureWords(that);
+      boolean changed = false;
+      for (int w = 0; w < source.capacity(); w++) {
+        long old = target.get(w);
+        long merged = old | source.get(w);
+        if (merged != old) {
+          target.put(w, merged);
+          changed = true;
+        }
+      }
+      if (changed) {
+        populationCount = UNDEFINED;
+      }
+      return changed;
+    } else {
+      boolean changed = false;
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        changed |= add(it.next());
+      }
+      return changed;
+    }
+  }
+
+  @Override
+  public boolean add(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    LongBuffer current = ensureCapacity(i);
+    int w = subscript(i);
+    long old = current.get(w);
+    long updated = old | (1L << (i & LOW_MASK));
+    if (updated == old) {
+      return false;
+    }
+    current.put(w, updated);
+    if (populationCount != UNDEFINED) {
+      populationCount++;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    LongBuffer current = words;
+    if (i < 0 || current == null || subscript(i) >= current.capacity()) {
+      return false;
+    }
+    int w = subscript(i);
+    long old = current.get(w);
+    long updated = old & ~(1L << (i & LOW_MASK));
+    if (updated == old) {
+      return false;
+    }
+    current.put(w, updated);
+    if (populationCount != UNDEFINED) {
+      populationCount--;
+    }
+    return true;
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    LongBuffer current = words;
+    if (current == null) {
+      return;
+    }
+    if (set instanceof OffHeapBitVectorIntSet that) {
+      for (int w = 0; w < current.capacity(); w++) {
+        current.put(w, current.get(w) & that.word(w));
+      }
+    } else {
+      for (int w = 0; w < current.capacity(); w++) {
+        long bits = current.get(w);
+        while (bits != 0) {
+          int b = Long.numberOfTrailingZeros(bits);
+          bits &= bits - 1;
+          int i = (w << LOG_BITS_PER_WORD) + b;
+          if (!set.contains(i)) {
+            current.put(w, current.get(w) & ~(1L << b));
+          }
+        }
+      }
+    }
+    populationCount = UNDEFINED;
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other == null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter == null");
+    }
+    if (other instanceof OffHeapBitVectorIntSet o && filter instanceof OffHeapBitVectorIntSet f) {
+      LongBuffer source = o.words;
+      if (source == null) {
+        return false;
+      }
+      int n = Math.min(source.capacity(), f.wordCount());
+      boolean changed = false;
+      for (int w = 0; w < n; w++) {
+        long bits = source.get(w) & f.word(w);
+        if (bits != 0) {
+          LongBuffer target = ensureCapacity((w << LOG_BITS_PER_WORD) + LOW_MASK);
+          long old = target.get(w);
+          if ((old | bits) != old) {
+            target.put(w, old | bits);
+            changed = true;
+          }
+        }
+      }
+      if (changed) {
+        populationCount = UNDEFINED;
+      }
+      return changed;
+    } else {
+      boolean changed = false;
+      for (IntIterator it = other.intIterator(); it.hasNext(); ) {
+        int i = it.next();
+        if (filter.contains(i)) {
+          changed |= add(i);
+        }
+      }
+      return changed;
+    }
+  }
+
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    return (word(subscript(i)) & (1L << (i & LOW_MASK))) != 0;
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof OffHeapBitVectorIntSet that) {
+      int n = Math.min(wordCount(), that.wordCount());
+      for (int w = 0; w < n; w++) {
+        if ((word(w) & that.word(w)) != 0) {
+          return true;
+        }
+      }
+      return false;
+    } else {
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        if (contains(it.next())) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    OffHeapBitVectorIntSet result = new OffHeapBitVectorIntSet(arena, this);
+    result.intersectWith(that);
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    OffHeapBitVectorIntSet result = new OffHeapBitVectorIntSet(arena, this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public int size() {
+    if (populationCount == UNDEFINED) {
+      int count = 0;
+      for (int w = 0; w < wordCount(); w++) {
+        count += Long.bitCount(word(w));
+      }
+      populationCount = count;
+    }
+    return populationCount;
+  }
+
+  /**
+   * @return the least element &gt;= start, or -1 if there is none
+   */
+  public int nextSetBit(int start) {
+    int w = subscript(start);
+    if (w >= wordCount()) {
+      return -1;
+    }
+    long bits = word(w) & (-1L << (start & LOW_MASK));
+    while (true) {
+      if (bits != 0) {
+        return (w << LOG_BITS_PER_WORD) + Long.numberOfTrailingZeros(bits);
+      }
+      if (++w >= wordCount()) {
+        return -1;
+      }
+      bits = word(w);
+    }
+  }
+
+  /** Doesn't detect ConcurrentModificationExceptions */
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int next = nextSetBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public int next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        int result = next;
+        next = nextSetBit(result + 1);
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int w = 0; w < wordCount(); w++) {
+      long bits = word(w);
+      while (bits != 0) {
+        action.act((w << LOG_BITS_PER_WORD) + Long.numberOfTrailingZeros(bits));
+        bits &= bits - 1;
+      }
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (X instanceof OffHeapBitVectorIntSet that) {
+      for (int w = 0; w < wordCount(); w++) {
+        long bits = word(w) & ~that.word(w);
+        while (bits != 0) {
+          action.act((w << LOG_BITS_PER_WORD) + Long.numberOfTrailingZeros(bits));
+          bits &= bits - 1;
+        }
+      }
+    } else {
+      foreach(
+          i -> {
+            if (!X.contains(i)) {
+              action.act(i);
+            }
+          });
+    }
+  }
+
+  @Override
+  public int max() {
+    for (int w = wordCount() - 1; w >= 0; w--) {
+      long bits = word(w);
+      if (bits != 0) {
+        return (w << LOG_BITS_PER_WORD) + 63 - Long.numberOfLeadingZeros(bits);
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof OffHeapBitVectorIntSet other) {
+      int n = Math.max(wordCount(), other.wordCount());
+      for (int w = 0; w < n; w++) {
+        if (word(w) != other.word(w)) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      return size() == that.size() && isSubset(that);
+    }
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof OffHeapBitVectorIntSet other) {
+      for (int w = 0; w < wordCount(); w++) {
+        if ((word(w) & ~other.word(w)) != 0) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      for (IntIterator it = intIterator(); it.hasNext(); ) {
+        if (!that.contains(it.next())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * @return an equivalent set on the Java heap
+   */
+  public BitVectorIntSet toBitVectorIntSet() {
+    BitVectorIntSet result = new BitVectorIntSet();
+    foreach(result::add);
+    return result;
+  }
+
+  @Serial
+  private Object writeReplace() {
+    return toBitVectorIntSet();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      result.append(it.next());
+      if (it.hasNext()) {
+        result.append(',');
+      }
+    }
+    return result.append('}').toString();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+/**
+ * A factory for {@link OffHeapBitVectorIntSet}s that all draw their memory from one {@link
+ * OffHeapBitVectorArena}.
+ *
+ * <p>To keep points-to sets off the Java heap, run with {@code
+ * -Dcom.ibm.wala.mutableIntSetFactory=com.ibm.wala.util.intset.OffHeapBitVectorIntSetFactory}, or
+ * pass an instance to {@link IntSetUtil#setDefaultIntSetFactory(MutableIntSetFactory)}.
+ */
+public class OffHeapBitVectorIntSetFactory
+    implements MutableIntSetFactory<OffHeapBitVectorIntSet>, AutoCloseable {
+
+  private final OffHeapBitVectorArena arena;
+
+  /** Create a factory with an arena of its own. */
+  public OffHeapBitVectorIntSetFactory() {
+    this(new OffHeapBitVectorArena());
+  }
+
+  public OffHeapBitVectorIntSetFactory(OffHeapBitVectorArena arena) {
+    if (arena == null) {
+      throw new IllegalArgumentException("null arena");
+    }
+    this.arena = arena;
+  }
+
+  public OffHeapBitVectorArena getArena() {
+    return arena;
+  }
+
+  /**
+   * @throws IllegalArgumentException if set is null
+   */
+  @Override
+  public OffHeapBitVectorIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    OffHeapBitVectorIntSet result = new OffHeapBitVectorIntSet(arena);
+    for (int element : set) {
+      result.add(element);
+    }
+    return result;
+  }
+
+  @Override
+  public OffHeapBitVectorIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  @Override
+  public OffHeapBitVectorIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    return new OffHeapBitVectorIntSet(arena, x);
+  }
+
+  @Override
+  public OffHeapBitVectorIntSet make() {
+    return new OffHeapBitVectorIntSet(arena);
+  }
+
+  /** Close the underlying arena; no set made by this factory may be used afterwards. */
+  @Override
+  public void close() {
+    arena.close();
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.perf;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Receives events while an analysis runs, e.g. to monitor a long call graph construction. Events
+ * are delivered synchronously on the analysis thread, so implementations should return quickly. All
+ * methods do nothing by default.
+ */
+public interface AnalysisListener {
+
+  /** a snapshot of the progress of a fixed-point solver */
+  record SolverProgress(int evaluated, int created, int workListSize, long elapsedNanos) {
+
+    /**
+     * @return the number of statements evaluated per second since solving started
+     */
+    public double evaluationsPerSecond() {
+      return elapsedNanos == 0 ? 0 : evaluated * 1e9 / elapsedNanos;
+    }
+  }
+
+  /**
+   * @return the number of bytes currently used on the heap, as an estimate to report with events
+   */
+  static long usedHeap() {
+    Runtime r = Runtime.getRuntime();
+    return r.totalMemory() - r.freeMemory();
+  }
+
+  /**
+   * Tell a listener, if there is one, that a phase has started.
+   *
+   * @return the start time, to pass to {@link #finished(AnalysisListener, String, long)}
+   */
+  static long started(@Nullable AnalysisListener listener, String phase) {
+    if (listener != null) {
+      listener.phaseStarted(phase);
+    }
+    return System.nanoTime();
+  }
+
+  /** Tell a listener, if there is one, that a phase started at {@code startTime} has finished. */
+  static void finished(@Nullable AnalysisListener listener, String phase, long startTime) {
+    if (listener != null) {
+      listener.phaseFinished(phase, System.nanoTime() - startTime);
+    }
+  }
+
+  /** called when a phase of the analysis, such as building the class hierarchy, starts */
+  default void phaseStarted(String phase) {}
+
+  /** called when a phase of the analysis ends, with its wall clock time */
+  default void phaseFinished(String phase, long elapsedNanos) {}
+
+  /** called periodically while a fixed-point solver evaluates statements */
+  default void solverProgress(SolverProgress progress) {}
+}
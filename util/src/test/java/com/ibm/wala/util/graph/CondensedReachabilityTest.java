@@ -0,0 +1,93 @@
+package com.ibm.wala.util.graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.graph.traverse.DFS;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link CondensedReachability}. */
+public class CondensedReachabilityTest {
+
+  private static SlowSparseNumberedGraph<Integer> randomGraph(Random random, int n, int edges) {
+    SlowSparseNumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < n; i++) {
+      g.addNode(Integer.valueOf(i));
+    }
+    for (int i = 0; i < edges; i++) {
+      g.addEdge(Integer.valueOf(random.nextInt(n)), Integer.valueOf(random.nextInt(n)));
+    }
+    return g;
+  }
+
+  @Test
+  public void agreesWithDepthFirstSearch() throws CancelException {
+    Random random = new Random(17);
+    for (int trial = 0; trial < 50; trial++) {
+      int n = 1 + random.nextInt(200);
+      SlowSparseNumberedGraph<Integer> g = randomGraph(random, n, random.nextInt(2 * n));
+      CondensedReachability<Integer> reach = new CondensedReachability<>(g);
+      BitVector[] closure = reach.closure(node -> SparseIntSet.singleton(g.getNumber(node)), null);
+
+      for (Integer src : g) {
+        Set<Integer> expected = DFS.getReachableNodes(g, Collections.singleton(src));
+        IntSet onDemand = reach.getReachableNodeNumbers(src);
+        BitVector materialized = closure[reach.getComponent(src)];
+        assertThat(onDemand.size()).isEqualTo(expected.size());
+        assertThat(materialized.populationCount()).isEqualTo(expected.size());
+        for (Integer dst : g) {
+          boolean reachable = expected.contains(dst);
+          assertThat(reach.isReachable(src, dst)).isEqualTo(reachable);
+          assertThat(onDemand.contains(g.getNumber(dst))).isEqualTo(reachable);
+          assertThat(materialized.get(g.getNumber(dst))).isEqualTo(reachable);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void largeWavesAreComputedInParallel() throws CancelException {
+    // a wide two-level DAG whose sinks each form a cycle, so waves exceed the parallel threshold
+    int width = 10_000;
+    SlowSparseNumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+    Integer root = Integer.valueOf(-1);
+    g.addNode(root);
+    for (int i = 0; i < 2 * width; i++) {
+      g.addNode(Integer.valueOf(i));
+    }
+    for (int i = 0; i < width; i++) {
+      g.addEdge(root, Integer.valueOf(2 * i));
+      g.addEdge(Integer.valueOf(2 * i), Integer.valueOf(2 * i + 1));
+      g.addEdge(Integer.valueOf(2 * i + 1), Integer.valueOf(2 * i));
+    }
+
+    CondensedReachability<Integer> reach = new CondensedReachability<>(g);
+    assertThat(reach.getNumberOfComponents()).isEqualTo(width + 1);
+
+    BitVector[] closure = reach.closure(node -> SparseIntSet.singleton(g.getNumber(node)), null);
+    assertThat(closure[reach.getComponent(root)].populationCount()).isEqualTo(2 * width + 1);
+    assertThat(closure[reach.getComponent(Integer.valueOf(0))].populationCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void nodesNotInGraphAreRejected() {
+    SlowSparseNumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+    Integer node = Integer.valueOf(0);
+    Integer missing = Integer.valueOf(1);
+    g.addNode(node);
+
+    CondensedReachability<Integer> reach = new CondensedReachability<>(g);
+    assertThatThrownBy(() -> reach.isReachable(node, missing))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> reach.getReachableNodeNumbers(missing))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
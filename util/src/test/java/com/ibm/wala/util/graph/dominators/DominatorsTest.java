@@ -3,6 +3,7 @@ package com.ibm.wala.util.graph.dominators;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -28,4 +29,51 @@ public class DominatorsTest {
       assertThat(d.getIdom(Integer.valueOf(i))).isEqualTo(root);
     }
   }
+
+  @Test
+  public void semiNCAAgreesWithLengauerTarjan() {
+    Random random = new Random(42);
+    for (int trial = 0; trial < 200; trial++) {
+      int n = 2 + random.nextInt(60);
+      SlowSparseNumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+      for (int i = 0; i < n; i++) {
+        g.addNode(Integer.valueOf(i));
+      }
+      int edges = random.nextInt(3 * n);
+      for (int i = 0; i < edges; i++) {
+        g.addEdge(Integer.valueOf(random.nextInt(n)), Integer.valueOf(random.nextInt(n)));
+      }
+
+      Integer root = Integer.valueOf(0);
+      Dominators<Integer> expected = new NumberedDominators<>(g, root);
+      Dominators<Integer> actual = new SemiNCADominators<>(g, root);
+
+      for (Integer node : g) {
+        assertThat(actual.getIdom(node)).isEqualTo(expected.getIdom(node));
+        assertThat(actual.getInfo(node)).isSameAs(actual.getInfo(node));
+      }
+    }
+  }
+
+  @Test
+  @Timeout(value = 5, unit = TimeUnit.SECONDS)
+  public void longChainDoesNotOverflowStack() {
+    int n = 200_000;
+    SlowSparseNumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < n; i++) {
+      g.addNode(Integer.valueOf(i));
+    }
+    for (int i = 1; i < n; i++) {
+      g.addEdge(Integer.valueOf(i - 1), Integer.valueOf(i));
+      // back edge to the root, so every node has a predecessor outside the DFS tree
+      g.addEdge(Integer.valueOf(i), Integer.valueOf(0));
+    }
+
+    Dominators<Integer> d = Dominators.make(g, Integer.valueOf(0));
+
+    assertThat(d).isInstanceOf(SemiNCADominators.class);
+    for (int i = 1; i < n; i++) {
+      assertThat(d.getIdom(Integer.valueOf(i))).isEqualTo(Integer.valueOf(i - 1));
+    }
+  }
 }
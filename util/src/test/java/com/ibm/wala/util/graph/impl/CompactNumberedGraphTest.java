@@ -0,0 +1,86 @@
+package com.ibm.wala.util.graph.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.graph.NumberedGraph;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link CompactNumberedGraph}. */
+public class CompactNumberedGraphTest {
+
+  @Test
+  public void frozenGraphHasSameNodesAndEdges() {
+    Random random = new Random(3);
+    SlowSparseNumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+    int n = 300;
+    for (int i = 0; i < n; i++) {
+      g.addNode(Integer.valueOf(i));
+    }
+    for (int i = 0; i < 4 * n; i++) {
+      g.addEdge(Integer.valueOf(random.nextInt(n)), Integer.valueOf(random.nextInt(n)));
+    }
+    // leave a gap in the numbering
+    g.removeNodeAndEdges(Integer.valueOf(7));
+
+    NumberedGraph<Integer> frozen = CompactNumberedGraph.freeze(g);
+
+    assertThat(frozen.getNumberOfNodes()).isEqualTo(g.getNumberOfNodes());
+    assertThat(frozen.getMaxNumber()).isEqualTo(g.getMaxNumber());
+    assertThat(frozen.containsNode(Integer.valueOf(7))).isFalse();
+    for (Integer node : g) {
+      assertThat(frozen.getNumber(node)).isEqualTo(g.getNumber(node));
+      assertThat(frozen.getNode(g.getNumber(node))).isEqualTo(node);
+      assertThat(Iterator2Collection.toSet(frozen.getSuccNodes(node)))
+          .isEqualTo(Iterator2Collection.toSet(g.getSuccNodes(node)));
+      assertThat(Iterator2Collection.toSet(frozen.getPredNodes(node)))
+          .isEqualTo(Iterator2Collection.toSet(g.getPredNodes(node)));
+      assertThat(frozen.getSuccNodeCount(node)).isEqualTo(g.getSuccNodeCount(node));
+      assertThat(frozen.getPredNodeCount(node)).isEqualTo(g.getPredNodeCount(node));
+      assertThat(frozen.getSuccNodeNumbers(node).size()).isEqualTo(g.getSuccNodeCount(node));
+      assertThat(frozen.getPredNodeNumbers(node).size()).isEqualTo(g.getPredNodeCount(node));
+      for (Integer other : g) {
+        assertThat(frozen.hasEdge(node, other)).isEqualTo(g.hasEdge(node, other));
+        assertThat(frozen.getSuccNodeNumbers(node).contains(g.getNumber(other)))
+            .isEqualTo(g.hasEdge(node, other));
+      }
+    }
+  }
+
+  @Test
+  public void frozenGraphRejectsMutation() {
+    SlowSparseNumberedGraph<String> g = SlowSparseNumberedGraph.make();
+    g.addNode("a");
+    g.addNode("b");
+    NumberedGraph<String> frozen = CompactNumberedGraph.freeze(g);
+
+    assertThatThrownBy(() -> frozen.addEdge("a", "b"))
+        .isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> frozen.addNode("c")).isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void frozenGraphUsesNodeNumbers() {
+    DelegatingNumberedGraph<NodeWithNumberedEdges> g = new DelegatingNumberedGraph<>();
+    NodeWithNumberedEdges[] nodes = new NodeWithNumberedEdges[50];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = new NodeWithNumberedEdges();
+      g.addNode(nodes[i]);
+    }
+    for (int i = 1; i < nodes.length; i++) {
+      g.addEdge(nodes[i - 1], nodes[i]);
+    }
+    NumberedGraph<NodeWithNumberedEdges> frozen = CompactNumberedGraph.freeze(g);
+
+    for (NodeWithNumberedEdges node : nodes) {
+      assertThat(frozen.getNumber(node)).isEqualTo(node.getGraphNodeId());
+      assertThat(frozen.getSuccNodeCount(node)).isEqualTo(g.getSuccNodeCount(node));
+    }
+    NodeWithNumberedEdges other = new NodeWithNumberedEdges();
+    other.setGraphNodeId(3);
+    assertThat(frozen.containsNode(other)).isFalse();
+    assertThat(frozen.getNumber(other)).isEqualTo(-1);
+  }
+}
@@ -0,0 +1,82 @@
+package com.ibm.wala.util.intset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link OffHeapBitVectorIntSet}, checked against {@link BitVectorIntSet}. */
+public class OffHeapBitVectorIntSetTest {
+
+  private static void assertSame(IntSet actual, BitVectorIntSet expected) {
+    assertThat(actual.size()).isEqualTo(expected.size());
+    if (!expected.isEmpty()) {
+      assertThat(actual.max()).isEqualTo(expected.max());
+    }
+    assertThat(actual.sameValue(expected)).isTrue();
+    assertThat(expected.sameValue(actual)).isTrue();
+  }
+
+  @Test
+  public void behavesLikeBitVectorIntSet() {
+    Random random = new Random(11);
+    try (OffHeapBitVectorIntSetFactory factory =
+        new OffHeapBitVectorIntSetFactory(new OffHeapBitVectorArena(4096))) {
+      for (int trial = 0; trial < 100; trial++) {
+        int range = 1 + random.nextInt(trial % 2 == 0 ? 200 : 100_000);
+        OffHeapBitVectorIntSet a = factory.make();
+        OffHeapBitVectorIntSet b = factory.make();
+        BitVectorIntSet ea = new BitVectorIntSet();
+        BitVectorIntSet eb = new BitVectorIntSet();
+        for (int i = 0; i < 50; i++) {
+          int x = random.nextInt(range);
+          assertThat(a.add(x)).isEqualTo(ea.add(x));
+          int y = random.nextInt(range);
+          b.add(y);
+          eb.add(y);
+        }
+        int gone = random.nextInt(range);
+        assertThat(a.remove(gone)).isEqualTo(ea.remove(gone));
+        assertSame(a, ea);
+
+        assertThat(a.containsAny(b)).isEqualTo(ea.containsAny(eb));
+        assertThat(a.isSubset(b)).isEqualTo(ea.isSubset(eb));
+        assertSame(a.intersection(b), ea.intersection(eb));
+
+        OffHeapBitVectorIntSet c = factory.makeCopy(a);
+        BitVectorIntSet ec = new BitVectorIntSet(ea);
+        assertThat(c.addAll(b)).isEqualTo(ec.addAll(eb));
+        assertSame(c, ec);
+        assertThat(a.isSubset(c)).isTrue();
+
+        OffHeapBitVectorIntSet d = factory.make();
+        BitVectorIntSet ed = new BitVectorIntSet();
+        assertThat(d.addAllInIntersection(c, b)).isEqualTo(ed.addAllInIntersection(ec, eb));
+        assertSame(d, ed);
+
+        MutableSparseIntSet excluded = MutableSparseIntSet.makeEmpty();
+        c.foreachExcluding(b, excluded::add);
+        assertSame(
+            excluded, (BitVectorIntSet) IntSetUtil.diff(ec, eb, new BitVectorIntSetFactory()));
+
+        assertSame(IntSetUtil.makeMutableCopy(c), ec);
+        BimodalMutableIntSet bimodal = new BimodalMutableIntSet();
+        bimodal.copySet(c);
+        assertSame(bimodal, ec);
+        c.clear();
+        assertThat(c.isEmpty()).isTrue();
+      }
+    }
+  }
+
+  @Test
+  public void closedArenaRejectsAllocation() {
+    OffHeapBitVectorIntSetFactory factory = new OffHeapBitVectorIntSetFactory();
+    OffHeapBitVectorIntSet s = factory.make();
+    s.add(3);
+    assertThat(factory.getArena().getReservedBytes()).isGreaterThan(0L);
+    factory.close();
+    assertThatThrownBy(() -> factory.make().add(1)).isInstanceOf(IllegalStateException.class);
+  }
+}